@@ -0,0 +1,205 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.ow2.authzforce.core.pdp.api.expression.ExpressionFactory;
+import org.ow2.authzforce.core.pdp.impl.expression.DepthLimitingExpressionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Evaluation order of the children of a XACML AllOf (Matches), AnyOf (AllOfs), or of the elements combined by a combining algorithm that allows any evaluation order (e.g. non-ordered
+ * deny-overrides), adapted periodically to the statistics of previous evaluations: the children most likely to short-circuit the evaluation (False Match in AllOf, True AllOf in AnyOf, overriding
+ * decision in deny/permit-overrides) at the lowest cost are evaluated first, i.e. the children are sorted by increasing (average evaluation time / short-circuit probability).
+ * <p>
+ * The statistics are updated by concurrent evaluations without locking, so they are approximate, which is good enough for ordering. They are halved at each update of the order, so that recent
+ * evaluations weigh more than old ones (e.g. during JVM warm-up, or before a change of attribute provider latency). Children not evaluated recently are evaluated first, in order to get
+ * statistics on them.
+ */
+public final class AdaptiveEvaluationOrder
+{
+	private static final Logger LOGGER = LoggerFactory.getLogger(AdaptiveEvaluationOrder.class);
+
+	/**
+	 * Number of parent (AllOf/AnyOf/combining algorithm) evaluations between two updates of the evaluation order
+	 */
+	static final int REORDERING_PERIOD = 1024;
+
+	private final String parentElementName;
+	private final LongAdder[] evaluationCounts;
+	private final LongAdder[] shortCircuitCounts;
+	private final LongAdder[] elapsedNanos;
+	private final AtomicLong parentEvaluationCount = new AtomicLong(0);
+
+	/*
+	 * Statistics with exponential decay, updated only by reorder()
+	 */
+	private final double[] decayedEvaluationCounts;
+	private final double[] decayedShortCircuitCounts;
+	private final double[] decayedElapsedNanos;
+
+	// indexes of the children (in document order), in order of evaluation
+	private volatile int[] order;
+
+	private AdaptiveEvaluationOrder(final String parentElementName, final int childCount)
+	{
+		this.parentElementName = parentElementName;
+		this.evaluationCounts = new LongAdder[childCount];
+		this.shortCircuitCounts = new LongAdder[childCount];
+		this.elapsedNanos = new LongAdder[childCount];
+		this.decayedEvaluationCounts = new double[childCount];
+		this.decayedShortCircuitCounts = new double[childCount];
+		this.decayedElapsedNanos = new double[childCount];
+		final int[] documentOrder = new int[childCount];
+		for (int i = 0; i < childCount; i++)
+		{
+			evaluationCounts[i] = new LongAdder();
+			shortCircuitCounts[i] = new LongAdder();
+			elapsedNanos[i] = new LongAdder();
+			documentOrder[i] = i;
+		}
+
+		this.order = documentOrder;
+	}
+
+	/**
+	 * Creates an adaptive evaluation order if enabled by the expression factory
+	 * 
+	 * @param parentElementName
+	 *            name of the parent element (AllOf/AnyOf), for logging
+	 * @param childCount
+	 *            number of children
+	 * @param expressionFactory
+	 *            expression factory used to parse the children
+	 * @return adaptive evaluation order; null if {@code expressionFactory} does not enable adaptive Match ordering (see {@link DepthLimitingExpressionFactory#isAdaptiveMatchOrderingEnabled()}),
+	 *         or if there is only one child
+	 */
+	static AdaptiveEvaluationOrder newInstance(final String parentElementName, final int childCount, final ExpressionFactory expressionFactory)
+	{
+		if (!(expressionFactory instanceof DepthLimitingExpressionFactory) || !((DepthLimitingExpressionFactory) expressionFactory).isAdaptiveMatchOrderingEnabled())
+		{
+			return null;
+		}
+
+		return newInstance(parentElementName, childCount);
+	}
+
+	/**
+	 * Creates an adaptive evaluation order
+	 * 
+	 * @param parentElementName
+	 *            name of the parent element, for logging
+	 * @param childCount
+	 *            number of children
+	 * @return adaptive evaluation order; null if there is only one child (or none)
+	 */
+	public static AdaptiveEvaluationOrder newInstance(final String parentElementName, final int childCount)
+	{
+		if (childCount < 2)
+		{
+			return null;
+		}
+
+		return new AdaptiveEvaluationOrder(parentElementName, childCount);
+	}
+
+	/**
+	 * Get the current evaluation order
+	 * 
+	 * @return indexes of the children (in document order), in order of evaluation. Must not be modified.
+	 */
+	public int[] getOrder()
+	{
+		return order;
+	}
+
+	/**
+	 * Records the evaluation of a child
+	 * 
+	 * @param childIndex
+	 *            index of the child in document order
+	 * @param isShortCircuit
+	 *            true iff the child result decides the parent result (False Match in AllOf, True AllOf in AnyOf, overriding decision in deny/permit-overrides)
+	 * @param childElapsedNanos
+	 *            evaluation time (nanoseconds)
+	 */
+	public void recordChildEvaluation(final int childIndex, final boolean isShortCircuit, final long childElapsedNanos)
+	{
+		evaluationCounts[childIndex].increment();
+		if (isShortCircuit)
+		{
+			shortCircuitCounts[childIndex].increment();
+		}
+
+		elapsedNanos[childIndex].add(childElapsedNanos);
+	}
+
+	/**
+	 * Records the end of the parent evaluation, and updates the evaluation order every {@value #REORDERING_PERIOD} parent evaluations
+	 */
+	public void recordParentEvaluation()
+	{
+		if (parentEvaluationCount.incrementAndGet() % REORDERING_PERIOD == 0)
+		{
+			reorder();
+		}
+	}
+
+	private synchronized void reorder()
+	{
+		final Integer[] newOrder = new Integer[order.length];
+		final double[] ranks = new double[order.length];
+		for (int i = 0; i < ranks.length; i++)
+		{
+			newOrder[i] = i;
+			decayedEvaluationCounts[i] = decayedEvaluationCounts[i] / 2 + evaluationCounts[i].sumThenReset();
+			decayedShortCircuitCounts[i] = decayedShortCircuitCounts[i] / 2 + shortCircuitCounts[i].sumThenReset();
+			decayedElapsedNanos[i] = decayedElapsedNanos[i] / 2 + elapsedNanos[i].sumThenReset();
+			if (decayedEvaluationCounts[i] < 1)
+			{
+				ranks[i] = 0;
+				continue;
+			}
+
+			final double averageElapsedNanos = decayedElapsedNanos[i] / decayedEvaluationCounts[i];
+			// Laplace smoothing, so that a child that never short-circuited may still be moved ahead of a slower one
+			final double shortCircuitProbability = (decayedShortCircuitCounts[i] + 1.0) / (decayedEvaluationCounts[i] + 2.0);
+			ranks[i] = averageElapsedNanos / shortCircuitProbability;
+		}
+
+		// stable sort: document order for children with the same rank
+		Arrays.sort(newOrder, Comparator.comparingDouble(i -> ranks[i]));
+		final int[] updatedOrder = new int[newOrder.length];
+		for (int i = 0; i < newOrder.length; i++)
+		{
+			updatedOrder[i] = newOrder[i];
+		}
+
+		if (LOGGER.isDebugEnabled() && !Arrays.equals(updatedOrder, order))
+		{
+			LOGGER.debug("{}: new evaluation order of children: {} (ranks: {})", parentElementName, Arrays.toString(updatedOrder), Arrays.toString(ranks));
+		}
+
+		this.order = updatedOrder;
+	}
+}
@@ -19,6 +19,7 @@ package org.ow2.authzforce.core.pdp.impl;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
 import org.ow2.authzforce.core.pdp.api.EvaluationContext;
 import org.ow2.authzforce.core.pdp.api.IndeterminateEvaluationException;
@@ -46,6 +47,12 @@ public final class AllOfEvaluator
 	// during evaluation
 	private final transient List<MatchEvaluator> evaluatableMatchList;
 
+	// index keys of the equality Matches in evaluatableMatchList
+	private final transient List<TargetIndexKey> indexKeys;
+
+	// null if Matches are evaluated in document order
+	private final transient AdaptiveEvaluationOrder adaptiveMatchOrder;
+
 	/**
 	 * Instantiates AllOf (evaluator) from XACML-Schema-derived
 	 * <code>AllOf</code>.
@@ -87,6 +94,52 @@ public final class AllOfEvaluator
 			evaluatableMatchList.add(matchEvaluator);
 			matchIndex++;
 		}
+
+		/*
+		 * AllOf is True only if all Matches are True, so each equality Match gives a necessary condition
+		 */
+		final List<TargetIndexKey> matchIndexKeys = new ArrayList<>(evaluatableMatchList.size());
+		for (final MatchEvaluator matchEvaluator : evaluatableMatchList)
+		{
+			final TargetIndexKey matchIndexKey = matchEvaluator.getIndexKey();
+			if (matchIndexKey != null)
+			{
+				matchIndexKeys.add(matchIndexKey);
+			}
+		}
+
+		this.indexKeys = matchIndexKeys;
+		this.adaptiveMatchOrder = AdaptiveEvaluationOrder.newInstance("AllOf", evaluatableMatchList.size(), expFactory);
+	}
+
+	/**
+	 * Get the necessary conditions for this AllOf to match, derived from its equality Matches
+	 * 
+	 * @return index keys (empty if no such Match)
+	 */
+	List<TargetIndexKey> getIndexKeys()
+	{
+		return indexKeys;
+	}
+
+	/**
+	 * Get the adaptive evaluation order of the Matches, e.g. for monitoring
+	 * 
+	 * @return adaptive Match evaluation order; empty if Matches are evaluated in document order (adaptive Match ordering disabled or single Match)
+	 */
+	public Optional<AdaptiveEvaluationOrder> getAdaptiveMatchOrder()
+	{
+		return Optional.ofNullable(adaptiveMatchOrder);
+	}
+
+	/**
+	 * Returns true iff this AllOf has a single Match that is an equality Match (see {@link #getIndexKeys()}), i.e. this AllOf is equivalent to its index key
+	 * 
+	 * @return true iff single equality Match
+	 */
+	boolean isSingleEqualityMatch()
+	{
+		return evaluatableMatchList.size() == 1 && indexKeys.size() == 1;
 	}
 
 	/**
@@ -108,6 +161,11 @@ public final class AllOfEvaluator
 	 */
 	public boolean match(final EvaluationContext context) throws IndeterminateEvaluationException
 	{
+		if (adaptiveMatchOrder != null)
+		{
+			return matchInAdaptiveOrder(context);
+		}
+
 		// atLeastOneIndeterminate = true iff lastIndeterminate != null
 		IndeterminateEvaluationException lastIndeterminate = null;
 
@@ -143,6 +201,7 @@ public final class AllOfEvaluator
 				}
 				lastIndeterminate = e;
 				lastIndeterminateChildIndex = childIndex;
+				childIndex += 1;
 				continue;
 			}
 
@@ -170,4 +229,68 @@ public final class AllOfEvaluator
 		throw new IndeterminateEvaluationException("Error evaluating <AllOf>'s <Match>#" + lastIndeterminateChildIndex,
 				lastIndeterminate.getStatusCode(), lastIndeterminate);
 	}
+
+	/*
+	 * Same result as match(context) in document order: No match as soon as one Match is False, else Indeterminate if at least one Match is Indeterminate (all Matches have been evaluated then).
+	 * Therefore, only the Indeterminate Match to be reported depends on the order: the last one in document order is reported, as in document order.
+	 */
+	private boolean matchInAdaptiveOrder(final EvaluationContext context) throws IndeterminateEvaluationException
+	{
+		IndeterminateEvaluationException lastIndeterminate = null;
+		int lastIndeterminateMatchIndex = -1;
+		try
+		{
+			for (final int matchIndex : adaptiveMatchOrder.getOrder())
+			{
+				final long startNanos = System.nanoTime();
+				final boolean isMatched;
+				try
+				{
+					isMatched = evaluatableMatchList.get(matchIndex).match(context);
+				}
+				catch (final IndeterminateEvaluationException e)
+				{
+					adaptiveMatchOrder.recordChildEvaluation(matchIndex, false, System.nanoTime() - startNanos);
+					if (LOGGER.isDebugEnabled())
+					{
+						// Beware of autoboxing which causes call to
+						// Integer.valueOf(...)
+						LOGGER.debug("AllOf/Match#{} -> Indeterminate", matchIndex, e);
+					}
+
+					if (matchIndex > lastIndeterminateMatchIndex)
+					{
+						lastIndeterminate = e;
+						lastIndeterminateMatchIndex = matchIndex;
+					}
+
+					continue;
+				}
+
+				adaptiveMatchOrder.recordChildEvaluation(matchIndex, !isMatched, System.nanoTime() - startNanos);
+				if (LOGGER.isDebugEnabled())
+				{
+					// Beware of autoboxing which causes call to
+					// Boolean.valueOf(...), Integer.valueOf(...)
+					LOGGER.debug("AllOf/Match#{} -> {}", matchIndex, isMatched);
+				}
+
+				if (!isMatched)
+				{
+					return false;
+				}
+			}
+		}
+		finally
+		{
+			adaptiveMatchOrder.recordParentEvaluation();
+		}
+
+		if (lastIndeterminate == null)
+		{
+			return true;
+		}
+
+		throw new IndeterminateEvaluationException("Error evaluating <AllOf>'s <Match>#" + lastIndeterminateMatchIndex, lastIndeterminate.getStatusCode(), lastIndeterminate);
+	}
 }
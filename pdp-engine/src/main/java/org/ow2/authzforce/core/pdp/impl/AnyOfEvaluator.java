@@ -49,6 +49,12 @@ public final class AnyOfEvaluator
 	// during evaluation
 	private final transient List<AllOfEvaluator> evaluatableAllOfList;
 
+	// null if no index key common to all AllOfs
+	private final transient TargetIndexKey indexKey;
+
+	// null if AllOfs are evaluated in document order
+	private final transient AdaptiveEvaluationOrder adaptiveAllOfOrder;
+
 	/**
 	 * Constructor that creates a new <code>AnyOf</code> evaluator based on the
 	 * given XACML-schema-derived JAXB AnyOf.
@@ -90,6 +96,96 @@ public final class AnyOfEvaluator
 			evaluatableAllOfList.add(allOfEvaluator);
 			matchIndex++;
 		}
+
+		this.indexKey = getCommonIndexKey(evaluatableAllOfList);
+		this.adaptiveAllOfOrder = AdaptiveEvaluationOrder.newInstance("AnyOf", evaluatableAllOfList.size(), expFactory);
+	}
+
+	private static TargetIndexKey findIndexKeyOnSameAttributeDesignator(final AllOfEvaluator allOfEvaluator, final TargetIndexKey key)
+	{
+		for (final TargetIndexKey allOfIndexKey : allOfEvaluator.getIndexKeys())
+		{
+			if (allOfIndexKey.hasSameAttributeDesignator(key))
+			{
+				return allOfIndexKey;
+			}
+		}
+
+		return null;
+	}
+
+	/*
+	 * AnyOf is True only if one of the AllOfs is True, so we need an index key on the same AttributeDesignator in each AllOf; the union of their values gives the necessary condition for the AnyOf
+	 */
+	private static TargetIndexKey getCommonIndexKey(final List<AllOfEvaluator> allOfEvaluators)
+	{
+		final List<AllOfEvaluator> otherAllOfEvaluators = allOfEvaluators.subList(1, allOfEvaluators.size());
+		for (final TargetIndexKey firstAllOfIndexKey : allOfEvaluators.get(0).getIndexKeys())
+		{
+			TargetIndexKey commonIndexKey = firstAllOfIndexKey;
+			for (final AllOfEvaluator allOfEvaluator : otherAllOfEvaluators)
+			{
+				final TargetIndexKey allOfIndexKey = findIndexKeyOnSameAttributeDesignator(allOfEvaluator, firstAllOfIndexKey);
+				if (allOfIndexKey == null)
+				{
+					commonIndexKey = null;
+					break;
+				}
+
+				commonIndexKey = commonIndexKey.union(allOfIndexKey);
+			}
+
+			if (commonIndexKey != null)
+			{
+				return commonIndexKey;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Get the necessary condition for this AnyOf to match, derived from the equality Matches on the same AttributeDesignator in all its AllOfs
+	 * 
+	 * @return index key, or null if there is no such AttributeDesignator
+	 */
+	TargetIndexKey getIndexKey()
+	{
+		return indexKey;
+	}
+
+	/**
+	 * Get the number of AllOfs in this AnyOf
+	 * 
+	 * @return AllOf count
+	 */
+	int getAllOfCount()
+	{
+		return evaluatableAllOfList.size();
+	}
+
+	/**
+	 * Get the index key of this AnyOf if it is equivalent to this AnyOf, i.e. if each AllOf has a single equality Match, on the same AttributeDesignator: then this AnyOf is True iff the
+	 * AttributeDesignator evaluates to a bag containing one of the index key values (False if none), and Indeterminate iff the AttributeDesignator evaluation is Indeterminate.
+	 * 
+	 * @return index key, or null if this AnyOf is not equivalent to it
+	 */
+	TargetIndexKey getEquivalentIndexKey()
+	{
+		if (indexKey == null)
+		{
+			return null;
+		}
+
+		for (final AllOfEvaluator allOfEvaluator : evaluatableAllOfList)
+		{
+			if (!allOfEvaluator.isSingleEqualityMatch())
+			{
+				return null;
+			}
+		}
+
+		return indexKey;
 	}
 
 	/**
@@ -114,6 +210,11 @@ public final class AnyOfEvaluator
 	 */
 	public boolean match(final EvaluationContext context) throws IndeterminateEvaluationException
 	{
+		if (adaptiveAllOfOrder != null)
+		{
+			return matchInAdaptiveOrder(context);
+		}
+
 		// atLeastOneIndeterminate = true iff lastIndeterminate != null
 		IndeterminateEvaluationException lastIndeterminate = null;
 
@@ -149,6 +250,7 @@ public final class AnyOfEvaluator
 				}
 				lastIndeterminate = e;
 				lastIndeterminateChildIndex = childIndex;
+				childIndex += 1;
 				continue;
 			}
 
@@ -178,4 +280,68 @@ public final class AnyOfEvaluator
 				lastIndeterminate.getStatusCode(), lastIndeterminate);
 	}
 
+	/*
+	 * Same result as match(context) in document order: Match as soon as one AllOf is True, else Indeterminate if at least one AllOf is Indeterminate (all AllOfs have been evaluated then).
+	 * Therefore, only the Indeterminate AllOf to be reported depends on the order: the last one in document order is reported, as in document order.
+	 */
+	private boolean matchInAdaptiveOrder(final EvaluationContext context) throws IndeterminateEvaluationException
+	{
+		IndeterminateEvaluationException lastIndeterminate = null;
+		int lastIndeterminateAllOfIndex = -1;
+		try
+		{
+			for (final int allOfIndex : adaptiveAllOfOrder.getOrder())
+			{
+				final long startNanos = System.nanoTime();
+				final boolean isMatched;
+				try
+				{
+					isMatched = evaluatableAllOfList.get(allOfIndex).match(context);
+				}
+				catch (final IndeterminateEvaluationException e)
+				{
+					adaptiveAllOfOrder.recordChildEvaluation(allOfIndex, false, System.nanoTime() - startNanos);
+					if (LOGGER.isDebugEnabled())
+					{
+						// Beware of autoboxing which causes call to
+						// Integer.valueOf(...)
+						LOGGER.debug("AnyOf/AllOf#{} -> Indeterminate", allOfIndex, e);
+					}
+
+					if (allOfIndex > lastIndeterminateAllOfIndex)
+					{
+						lastIndeterminate = e;
+						lastIndeterminateAllOfIndex = allOfIndex;
+					}
+
+					continue;
+				}
+
+				adaptiveAllOfOrder.recordChildEvaluation(allOfIndex, isMatched, System.nanoTime() - startNanos);
+				if (LOGGER.isDebugEnabled())
+				{
+					// Beware of autoboxing which causes call to
+					// Boolean.valueOf(...), Integer.valueOf(...)
+					LOGGER.debug("AnyOf/AllOf#{} -> {}", allOfIndex, isMatched);
+				}
+
+				if (isMatched)
+				{
+					return true;
+				}
+			}
+		}
+		finally
+		{
+			adaptiveAllOfOrder.recordParentEvaluation();
+		}
+
+		if (lastIndeterminate == null)
+		{
+			return false;
+		}
+
+		throw new IndeterminateEvaluationException("Error evaluating <AnyOf>'s <AllOf>#" + lastIndeterminateAllOfIndex, lastIndeterminate.getStatusCode(), lastIndeterminate);
+	}
+
 }
@@ -20,6 +20,7 @@ package org.ow2.authzforce.core.pdp.impl;
 import java.io.IOException;
 import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.GregorianCalendar;
@@ -27,6 +28,22 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import javax.xml.datatype.XMLGregorianCalendar;
 
@@ -52,6 +69,7 @@ import org.ow2.authzforce.core.pdp.api.value.DateTimeValue;
 import org.ow2.authzforce.core.pdp.api.value.DateValue;
 import org.ow2.authzforce.core.pdp.api.value.StandardDatatypes;
 import org.ow2.authzforce.core.pdp.api.value.TimeValue;
+import org.ow2.authzforce.core.pdp.impl.cache.CoreInMemoryDecisionCache;
 import org.ow2.authzforce.core.pdp.impl.policy.RootPolicyEvaluator;
 import org.ow2.authzforce.core.pdp.impl.policy.RootPolicyEvaluators;
 import org.ow2.authzforce.core.xmlns.pdp.StandardEnvironmentAttributeSource;
@@ -60,6 +78,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import net.sf.saxon.s9api.XdmNode;
 
@@ -74,6 +93,251 @@ public final class BasePdpEngine implements CloseablePdpEngine
 
 	private static final IllegalArgumentException NULL_REQUEST_ARGUMENT_EXCEPTION = new IllegalArgumentException("No input Decision Request");
 
+	private static final IllegalArgumentException NULL_OPTIONS_ARGUMENT_EXCEPTION = new IllegalArgumentException("Undefined PDP engine options");
+
+	private static final IllegalArgumentException NEGATIVE_PARALLELISM_ARGUMENT_EXCEPTION = new IllegalArgumentException("Invalid individualDecisionRequestParallelism: negative");
+
+	private static final IllegalArgumentException NEGATIVE_ASYNC_THREADS_ARGUMENT_EXCEPTION = new IllegalArgumentException("Invalid asyncEvaluationThreads: negative");
+
+	private static final IllegalArgumentException NON_POSITIVE_ASYNC_QUEUE_CAPACITY_ARGUMENT_EXCEPTION = new IllegalArgumentException("Invalid asyncEvaluationQueueCapacity: not strictly positive");
+
+	private static final IllegalArgumentException NEGATIVE_STD_ENV_ATTRIBUTE_TIME_GRANULARITY_ARGUMENT_EXCEPTION = new IllegalArgumentException(
+			"Invalid stdEnvAttributeTimeGranularityMillis: negative");
+
+	/**
+	 * Default capacity of the queue of pending asynchronous evaluations
+	 */
+	public static final int DEFAULT_ASYNC_EVALUATION_QUEUE_CAPACITY = 1024;
+
+	/*
+	 * Idle time after which threads of the asynchronous evaluation executor are terminated
+	 */
+	private static final long ASYNC_EVALUATION_THREAD_KEEP_ALIVE_SEC = 60;
+
+	private static final UnsupportedOperationException POLICY_RELOAD_UNSUPPORTED_EXCEPTION = new UnsupportedOperationException(
+			"Policy reloading not supported: PDP engine not created from a PdpEngineConfiguration");
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(BasePdpEngine.class);
+
+	private static final IndeterminateEvaluationException INTERRUPTED_EVALUATION_EXCEPTION = new IndeterminateEvaluationException(
+			"Evaluation of individual decision requests interrupted", XacmlStatusCode.PROCESSING_ERROR.value());
+
+	/**
+	 * Optional PDP engine settings (evaluation threads, evaluation context handling, policy tree compilation...), with default values. Use {@link Builder} to create an instance with non-default
+	 * values.
+	 */
+	public static final class Options
+	{
+		/**
+		 * Default options: sequential evaluation of the Individual Decision Requests of a Multiple Decision Request; as many asynchronous evaluation threads as available processors, with queue
+		 * capacity {@value BasePdpEngine#DEFAULT_ASYNC_EVALUATION_QUEUE_CAPACITY}; new standard environment attribute values (if issued by the PDP) and new evaluation context for each individual
+		 * decision request; no policy tree compilation.
+		 */
+		public static final Options DEFAULT = new Builder().build();
+
+		/**
+		 * {@link Options} builder. Every setting has the default value (see {@link Options#DEFAULT}) until set.
+		 */
+		public static final class Builder
+		{
+			private int individualDecisionRequestParallelism = 1;
+			private int asyncEvaluationThreads = 0;
+			private int asyncEvaluationQueueCapacity = DEFAULT_ASYNC_EVALUATION_QUEUE_CAPACITY;
+			private long stdEnvAttributeTimeGranularityMillis = 0;
+			private boolean reuseEvaluationContexts = false;
+			private boolean compileStaticPolicyTree = false;
+
+			/**
+			 * Sets the parallelism level for the evaluation of the Individual Decision Requests of a Multiple Decision Request (as defined by the XACML Multiple Decision Profile). Value 1
+			 * (default) means sequential evaluation in the caller's thread. Value 0 means parallel evaluation with the {@link ForkJoinPool#commonPool()}. Any higher value means parallel evaluation
+			 * in a new {@link ForkJoinPool} with this parallelism level, that is shut down when the engine is closed. In any case, results are returned in the same order as the requests, and all
+			 * the requests are evaluated with the same PDP-issued standard environment attribute values.
+			 * 
+			 * @param parallelism
+			 *            parallelism level
+			 * @return this builder
+			 * @throws IllegalArgumentException
+			 *             if {@code parallelism < 0}
+			 */
+			public Builder individualDecisionRequestParallelism(final int parallelism) throws IllegalArgumentException
+			{
+				if (parallelism < 0)
+				{
+					throw NEGATIVE_PARALLELISM_ARGUMENT_EXCEPTION;
+				}
+
+				this.individualDecisionRequestParallelism = parallelism;
+				return this;
+			}
+
+			/**
+			 * Sets the maximum number of threads used by the asynchronous evaluation methods ({@link BasePdpEngine#evaluateAsync(DecisionRequest)}, {@link BasePdpEngine#evaluateAsync(List)}).
+			 * Value 0 (default) means the number of available processors.
+			 * 
+			 * @param threads
+			 *            max number of threads
+			 * @return this builder
+			 * @throws IllegalArgumentException
+			 *             if {@code threads < 0}
+			 */
+			public Builder asyncEvaluationThreads(final int threads) throws IllegalArgumentException
+			{
+				if (threads < 0)
+				{
+					throw NEGATIVE_ASYNC_THREADS_ARGUMENT_EXCEPTION;
+				}
+
+				this.asyncEvaluationThreads = threads;
+				return this;
+			}
+
+			/**
+			 * Sets the maximum number of pending asynchronous evaluations, i.e. waiting for a thread (default: {@value BasePdpEngine#DEFAULT_ASYNC_EVALUATION_QUEUE_CAPACITY}). When this limit is
+			 * reached, new asynchronous evaluations are rejected: the returned future completes exceptionally with a {@link RejectedExecutionException}.
+			 * 
+			 * @param capacity
+			 *            queue capacity
+			 * @return this builder
+			 * @throws IllegalArgumentException
+			 *             if {@code capacity <= 0}
+			 */
+			public Builder asyncEvaluationQueueCapacity(final int capacity) throws IllegalArgumentException
+			{
+				if (capacity <= 0)
+				{
+					throw NON_POSITIVE_ASYNC_QUEUE_CAPACITY_ARGUMENT_EXCEPTION;
+				}
+
+				this.asyncEvaluationQueueCapacity = capacity;
+				return this;
+			}
+
+			/**
+			 * Sets the time granularity (in milliseconds) of the PDP-issued standard environment attributes. If strictly positive, these attribute values are computed at most once per time slot
+			 * of this duration and shared by all requests evaluated in the same time slot. Value 0 (default) means new values are computed for each request.
+			 * 
+			 * @param millis
+			 *            time granularity in milliseconds
+			 * @return this builder
+			 * @throws IllegalArgumentException
+			 *             if {@code millis < 0}
+			 */
+			public Builder stdEnvAttributeTimeGranularityMillis(final long millis) throws IllegalArgumentException
+			{
+				if (millis < 0)
+				{
+					throw NEGATIVE_STD_ENV_ATTRIBUTE_TIME_GRANULARITY_ARGUMENT_EXCEPTION;
+				}
+
+				this.stdEnvAttributeTimeGranularityMillis = millis;
+				return this;
+			}
+
+			/**
+			 * Sets whether each evaluating thread must reuse the same evaluation context (reset between requests) instead of creating a new one for each individual decision request (default),
+			 * in order to reduce memory allocation. Only safe if no PDP extension (attribute provider, decision cache...) keeps a reference to the evaluation context after the evaluation.
+			 * 
+			 * @param enabled
+			 *            true iff evaluation contexts must be reused
+			 * @return this builder
+			 */
+			public Builder reuseEvaluationContexts(final boolean enabled)
+			{
+				this.reuseEvaluationContexts = enabled;
+				return this;
+			}
+
+			/**
+			 * Sets whether the policy tree must be compiled into decision diagrams (see {@link RootPolicyEvaluators.Base#toStatic(boolean)}) when static resolution of the root policy is
+			 * possible. Disabled by default.
+			 * 
+			 * @param enabled
+			 *            true iff the static policy tree must be compiled
+			 * @return this builder
+			 */
+			public Builder compileStaticPolicyTree(final boolean enabled)
+			{
+				this.compileStaticPolicyTree = enabled;
+				return this;
+			}
+
+			/**
+			 * Creates the options
+			 * 
+			 * @return new options
+			 */
+			public Options build()
+			{
+				return new Options(this);
+			}
+		}
+
+		private final int individualDecisionRequestParallelism;
+		private final int asyncEvaluationThreads;
+		private final int asyncEvaluationQueueCapacity;
+		private final long stdEnvAttributeTimeGranularityMillis;
+		private final boolean reuseEvaluationContexts;
+		private final boolean compileStaticPolicyTree;
+
+		private Options(final Builder builder)
+		{
+			this.individualDecisionRequestParallelism = builder.individualDecisionRequestParallelism;
+			this.asyncEvaluationThreads = builder.asyncEvaluationThreads;
+			this.asyncEvaluationQueueCapacity = builder.asyncEvaluationQueueCapacity;
+			this.stdEnvAttributeTimeGranularityMillis = builder.stdEnvAttributeTimeGranularityMillis;
+			this.reuseEvaluationContexts = builder.reuseEvaluationContexts;
+			this.compileStaticPolicyTree = builder.compileStaticPolicyTree;
+		}
+
+		/**
+		 * @return parallelism level for the evaluation of the Individual Decision Requests of a Multiple Decision Request (see {@link Builder#individualDecisionRequestParallelism(int)})
+		 */
+		public int getIndividualDecisionRequestParallelism()
+		{
+			return individualDecisionRequestParallelism;
+		}
+
+		/**
+		 * @return max number of asynchronous evaluation threads (see {@link Builder#asyncEvaluationThreads(int)})
+		 */
+		public int getAsyncEvaluationThreads()
+		{
+			return asyncEvaluationThreads;
+		}
+
+		/**
+		 * @return max number of pending asynchronous evaluations (see {@link Builder#asyncEvaluationQueueCapacity(int)})
+		 */
+		public int getAsyncEvaluationQueueCapacity()
+		{
+			return asyncEvaluationQueueCapacity;
+		}
+
+		/**
+		 * @return time granularity of the PDP-issued standard environment attributes (see {@link Builder#stdEnvAttributeTimeGranularityMillis(long)})
+		 */
+		public long getStdEnvAttributeTimeGranularityMillis()
+		{
+			return stdEnvAttributeTimeGranularityMillis;
+		}
+
+		/**
+		 * @return true iff evaluation contexts are reused (see {@link Builder#reuseEvaluationContexts(boolean)})
+		 */
+		public boolean isEvaluationContextReuseEnabled()
+		{
+			return reuseEvaluationContexts;
+		}
+
+		/**
+		 * @return true iff the static policy tree is compiled (see {@link Builder#compileStaticPolicyTree(boolean)})
+		 */
+		public boolean isStaticPolicyTreeCompilationEnabled()
+		{
+			return compileStaticPolicyTree;
+		}
+	}
+
 	private interface StandardEnvironmentAttributeIssuer
 	{
 		Map<AttributeFqn, AttributeBag<?>> get();
@@ -89,31 +353,106 @@ public final class BasePdpEngine implements CloseablePdpEngine
 		}
 	};
 
+	private static Map<AttributeFqn, AttributeBag<?>> newPdpIssuedStdEnvAttributes(final GregorianCalendar currentDateTime)
+	{
+		/*
+		 * Set the standard current date/time attribute according to XACML core spec:
+		 * "This identifier indicates the current time at the context handler. In practice it is the time at which the request context was created." (§B.7). XACML standard (§10.2.5) says: "If values
+		 * for these attributes are not present in the decision request, then their values MUST be supplied by the context handler".
+		 */
+		final DateTimeValue currentDateTimeValue = new DateTimeValue(currentDateTime);
+		return HashCollections.<AttributeFqn, AttributeBag<?>>newImmutableMap(
+				// current date-time
+				StandardEnvironmentAttribute.CURRENT_DATETIME.getFQN(), Bags.singletonAttributeBag(StandardDatatypes.DATETIME, currentDateTimeValue, AttributeSources.PDP),
+				// current date
+				StandardEnvironmentAttribute.CURRENT_DATE.getFQN(),
+				Bags.singletonAttributeBag(StandardDatatypes.DATE, DateValue.getInstance((XMLGregorianCalendar) currentDateTimeValue.getUnderlyingValue().clone()), AttributeSources.PDP),
+				// current time
+				StandardEnvironmentAttribute.CURRENT_TIME.getFQN(),
+				Bags.singletonAttributeBag(StandardDatatypes.TIME, TimeValue.getInstance((XMLGregorianCalendar) currentDateTimeValue.getUnderlyingValue().clone()), AttributeSources.PDP));
+	}
+
 	private static final StandardEnvironmentAttributeIssuer DEFAULT_TZ_BASED_STD_ENV_ATTRIBUTE_ISSUER = new StandardEnvironmentAttributeIssuer()
 	{
 
 		@Override
 		public Map<AttributeFqn, AttributeBag<?>> get()
 		{
-			/*
-			 * Set the standard current date/time attribute according to XACML core spec:
-			 * "This identifier indicates the current time at the context handler. In practice it is the time at which the request context was created." (§B.7). XACML standard (§10.2.5) says: "If
-			 * values for these attributes are not present in the decision request, then their values MUST be supplied by the context handler".
-			 */
 			// current datetime in default timezone
-			final DateTimeValue currentDateTimeValue = new DateTimeValue(new GregorianCalendar());
-			return HashCollections.<AttributeFqn, AttributeBag<?>>newImmutableMap(
-					// current date-time
-					StandardEnvironmentAttribute.CURRENT_DATETIME.getFQN(), Bags.singletonAttributeBag(StandardDatatypes.DATETIME, currentDateTimeValue, AttributeSources.PDP),
-					// current date
-					StandardEnvironmentAttribute.CURRENT_DATE.getFQN(),
-					Bags.singletonAttributeBag(StandardDatatypes.DATE, DateValue.getInstance((XMLGregorianCalendar) currentDateTimeValue.getUnderlyingValue().clone()), AttributeSources.PDP),
-					// current time
-					StandardEnvironmentAttribute.CURRENT_TIME.getFQN(),
-					Bags.singletonAttributeBag(StandardDatatypes.TIME, TimeValue.getInstance((XMLGregorianCalendar) currentDateTimeValue.getUnderlyingValue().clone()), AttributeSources.PDP));
+			return newPdpIssuedStdEnvAttributes(new GregorianCalendar());
 		}
 	};
 
+	/**
+	 * Issuer of standard environment attributes (in default timezone) that reuses the same (immutable) attributes for all requests in the same time slot ("tick") of a given duration. Only one
+	 * thread at a time refreshes the shared attributes at the beginning of a new tick; concurrent threads in the meantime get their own new attributes, like
+	 * {@link #DEFAULT_TZ_BASED_STD_ENV_ATTRIBUTE_ISSUER}.
+	 */
+	private static final class TickCachedStdEnvAttributeIssuer implements StandardEnvironmentAttributeIssuer
+	{
+		private static final class Snapshot
+		{
+			private final long tick;
+			private final Map<AttributeFqn, AttributeBag<?>> attributes;
+
+			private Snapshot(final long tick, final Map<AttributeFqn, AttributeBag<?>> attributes)
+			{
+				this.tick = tick;
+				this.attributes = attributes;
+			}
+		}
+
+		private final long granularityMillis;
+		private final AtomicBoolean refreshing = new AtomicBoolean(false);
+		private volatile Snapshot snapshot = new Snapshot(Long.MIN_VALUE, null);
+
+		private TickCachedStdEnvAttributeIssuer(final long granularityMillis)
+		{
+			assert granularityMillis > 0;
+			this.granularityMillis = granularityMillis;
+		}
+
+		private static GregorianCalendar newCalendar(final long timeMillis)
+		{
+			final GregorianCalendar cal = new GregorianCalendar();
+			cal.setTimeInMillis(timeMillis);
+			return cal;
+		}
+
+		@Override
+		public Map<AttributeFqn, AttributeBag<?>> get()
+		{
+			final long now = System.currentTimeMillis();
+			final long tick = now / granularityMillis;
+			final Snapshot current = snapshot;
+			if (current.tick == tick)
+			{
+				return current.attributes;
+			}
+
+			final Map<AttributeFqn, AttributeBag<?>> newAttributes = newPdpIssuedStdEnvAttributes(newCalendar(now));
+			/*
+			 * Single writer: only the thread that wins the flag publishes the new snapshot
+			 */
+			if (refreshing.compareAndSet(false, true))
+			{
+				try
+				{
+					if (snapshot.tick < tick)
+					{
+						snapshot = new Snapshot(tick, newAttributes);
+					}
+				}
+				finally
+				{
+					refreshing.set(false);
+				}
+			}
+
+			return newAttributes;
+		}
+	}
+
 	private static class NonIssuedLikeIssuedAttributeHandlingRequestBuilder implements DecisionRequestBuilder<ImmutableDecisionRequest>
 	{
 		private final Map<AttributeFqn, AttributeBag<?>> namedAttributes;
@@ -186,11 +525,12 @@ public final class BasePdpEngine implements CloseablePdpEngine
 		private interface RequestAndPdpIssuedNamedAttributesMerger
 		{
 			/**
-			 * Return an updatable map after merging {@code pdpIssuedAttributes} and {@code requestAttributes} or one of each into it, depending on the implementation
+			 * Return a read-only view of {@code pdpIssuedAttributes} and {@code requestAttributes} merged (or one of each), depending on the implementation. The input maps are not copied (see
+			 * {@link LayeredMap}), therefore they must not be modified as long as the result is used.
 			 * 
 			 * @param pdpIssuedAttributes
 			 * @param requestAttributes
-			 * @return updatable map resulting from merger, or null if nothing merged
+			 * @return read-only map resulting from merger, or null if nothing merged
 			 */
 			Map<AttributeFqn, AttributeBag<?>> merge(final Map<AttributeFqn, AttributeBag<?>> pdpIssuedAttributes, final Map<AttributeFqn, AttributeBag<?>> requestAttributes);
 		}
@@ -218,18 +558,18 @@ public final class BasePdpEngine implements CloseablePdpEngine
 			public Map<AttributeFqn, AttributeBag<?>> merge(final Map<AttributeFqn, AttributeBag<?>> pdpIssuedAttributes, final Map<AttributeFqn, AttributeBag<?>> requestAttributes)
 			{
 				/*
-				 * Request attribute values override PDP issued ones. Do not modify pdpIssuedAttributes directly as this may be used for other requests (Multiple Decision Profile) as well. so we must
-				 * not modify it but clone it before individual decision request processing.
+				 * Request attribute values override PDP issued ones. pdpIssuedAttributes may be used for other requests (Multiple Decision Profile) as well, so it is only layered below the request
+				 * attributes, never modified.
 				 */
 				if (pdpIssuedAttributes == null)
 				{
-					return requestAttributes == null ? null : HashCollections.newUpdatableMap(requestAttributes);
+					return requestAttributes;
 				}
 
 				// pdpIssuedAttributes != null
 				if (requestAttributes == null)
 				{
-					return HashCollections.newUpdatableMap(pdpIssuedAttributes);
+					return pdpIssuedAttributes;
 				}
 				// requestAttributes != null
 
@@ -250,12 +590,12 @@ public final class BasePdpEngine implements CloseablePdpEngine
 					 * Request has at least one standard env attribute -> make sure all PDP values are ignored (overridden by STD_ENV_RESET_MAP no matter whether requestAttributes contains all of them
 					 * or not)
 					 */
-					// mappings in order of increasing priority
-					return HashCollections.newUpdatableMap(pdpIssuedAttributes, STD_ENV_RESET_MAP, requestAttributes);
+					// layers in order of decreasing priority
+					return LayeredMap.of(requestAttributes, STD_ENV_RESET_MAP, pdpIssuedAttributes);
 				}
 
-				// mappings in order of increasing priority
-				return HashCollections.newUpdatableMap(pdpIssuedAttributes, requestAttributes);
+				// layers in order of decreasing priority
+				return LayeredMap.of(requestAttributes, pdpIssuedAttributes);
 			}
 
 		};
@@ -269,23 +609,22 @@ public final class BasePdpEngine implements CloseablePdpEngine
 
 				// PDP issued attribute values override request attribute values
 				/*
-				 * Do not modify pdpIssuedAttributes directly as this may be used for other requests (Multiple Decision Profile) as well. so we must not modify it but clone it before individual
-				 * decision request processing.
+				 * pdpIssuedAttributes may be used for other requests (Multiple Decision Profile) as well, so it is only layered above the request attributes, never modified.
 				 */
 				if (pdpIssuedAttributes == null)
 				{
-					return requestAttributes == null ? null : HashCollections.newUpdatableMap(requestAttributes);
+					return requestAttributes;
 				}
 
 				// pdpIssuedAttributes != null
 				if (requestAttributes == null)
 				{
-					return HashCollections.newUpdatableMap(pdpIssuedAttributes);
+					return pdpIssuedAttributes;
 				}
 				// requestAttributes != null
 
 				// mappings of pdpIssuedAttributes have priority
-				return HashCollections.newUpdatableMap(requestAttributes, pdpIssuedAttributes);
+				return LayeredMap.of(pdpIssuedAttributes, requestAttributes);
 
 			}
 
@@ -298,7 +637,7 @@ public final class BasePdpEngine implements CloseablePdpEngine
 			public Map<AttributeFqn, AttributeBag<?>> merge(final Map<AttributeFqn, AttributeBag<?>> pdpIssuedAttributes, final Map<AttributeFqn, AttributeBag<?>> requestAttributes)
 			{
 				// PDP values completely ignored
-				return requestAttributes == null ? null : HashCollections.newUpdatableMap(requestAttributes);
+				return requestAttributes;
 			}
 
 		};
@@ -306,6 +645,17 @@ public final class BasePdpEngine implements CloseablePdpEngine
 		private final RootPolicyEvaluator rootPolicyEvaluator;
 		private final RequestAndPdpIssuedNamedAttributesMerger reqAndPdpIssuedAttributesMerger;
 
+		/*
+		 * Executor of individual decision request evaluations in a multiple decision request; null iff sequential evaluation (in the caller's thread)
+		 */
+		private final ExecutorService individualDecisionRequestExecutor;
+
+		/*
+		 * Evaluation context available for reuse by the current thread (null if none available, e.g. already in use by an enclosing evaluation in the same thread); null iff evaluation contexts are
+		 * not reused
+		 */
+		private final ThreadLocal<IndividualDecisionRequestContext> reusableEvaluationContexts;
+
 		/**
 		 * Creates an evaluator
 		 *
@@ -327,13 +677,20 @@ public final class BasePdpEngine implements CloseablePdpEngine
 		 *            these attributes are not present in the decision request, then their values MUST be supplied by the context handler " but it does NOT say "If AND ONLY IF values..." So this
 		 *            option could still be considered XACML compliant in a strict sense.</li>
 		 *            </ul>
+		 * @param individualDecisionRequestExecutor
+		 *            executor of individual decision request evaluations in a multiple decision request; null iff they must be evaluated sequentially in the caller's thread
+		 * @param reuseEvaluationContexts
+		 *            true iff each thread must reuse the same evaluation context (reset) for successive individual decision requests
 		 * @throws IllegalArgumentException
 		 *             if {@code stdEnvAttributeSource} is null or not supported
 		 */
-		protected IndividualDecisionRequestEvaluator(final RootPolicyEvaluator rootPolicyEvaluator, final StandardEnvironmentAttributeSource stdEnvAttributeSource) throws IllegalArgumentException
+		protected IndividualDecisionRequestEvaluator(final RootPolicyEvaluator rootPolicyEvaluator, final StandardEnvironmentAttributeSource stdEnvAttributeSource,
+				final ExecutorService individualDecisionRequestExecutor, final boolean reuseEvaluationContexts) throws IllegalArgumentException
 		{
 			assert rootPolicyEvaluator != null && stdEnvAttributeSource != null;
 			this.rootPolicyEvaluator = rootPolicyEvaluator;
+			this.individualDecisionRequestExecutor = individualDecisionRequestExecutor;
+			this.reusableEvaluationContexts = reuseEvaluationContexts ? new ThreadLocal<>() : null;
 			switch (stdEnvAttributeSource)
 			{
 				case PDP_ONLY:
@@ -355,18 +712,66 @@ public final class BasePdpEngine implements CloseablePdpEngine
 			}
 		}
 
-		protected final EvaluationContext newEvaluationContext(final DecisionRequest request, final Map<AttributeFqn, AttributeBag<?>> pdpIssuedAttributes)
+		/**
+		 * Gets an evaluation context for the given request, new or reused (reset) if evaluation context reuse is enabled. The context must be released with
+		 * {@link #releaseEvaluationContext(IndividualDecisionRequestContext)} once the evaluation is done.
+		 * 
+		 * @param request
+		 *            individual decision request
+		 * @param pdpIssuedAttributes
+		 *            PDP-issued attributes
+		 * @return evaluation context
+		 */
+		protected final IndividualDecisionRequestContext acquireEvaluationContext(final DecisionRequest request, final Map<AttributeFqn, AttributeBag<?>> pdpIssuedAttributes)
 		{
 			assert request != null;
 			final Map<AttributeFqn, AttributeBag<?>> mergedNamedAttributes = reqAndPdpIssuedAttributesMerger.merge(pdpIssuedAttributes, request.getNamedAttributes());
+			if (reusableEvaluationContexts != null)
+			{
+				final IndividualDecisionRequestContext reusableCtx = reusableEvaluationContexts.get();
+				if (reusableCtx != null)
+				{
+					/*
+					 * Take it from the thread, so that any nested evaluation in the same thread (e.g. from an attribute provider) creates its own context instead of resetting this one
+					 */
+					reusableEvaluationContexts.set(null);
+					reusableCtx.reset(mergedNamedAttributes, request.getExtraContentsByCategory(), request.isApplicablePolicyIdListReturned());
+					return reusableCtx;
+				}
+			}
+
 			return new IndividualDecisionRequestContext(mergedNamedAttributes, request.getExtraContentsByCategory(), request.isApplicablePolicyIdListReturned());
 		}
 
+		/**
+		 * Releases an evaluation context acquired with {@link #acquireEvaluationContext(DecisionRequest, Map)}, i.e. makes it available for reuse by the current thread if evaluation context reuse
+		 * is enabled.
+		 * 
+		 * @param evalCtx
+		 *            evaluation context no longer used
+		 */
+		protected final void releaseEvaluationContext(final IndividualDecisionRequestContext evalCtx)
+		{
+			if (reusableEvaluationContexts != null)
+			{
+				// do not retain the request data until the next request
+				evalCtx.reset(null, null, false);
+				reusableEvaluationContexts.set(evalCtx);
+			}
+		}
+
 		protected final DecisionResult evaluateInNewContext(final DecisionRequest request, final Map<AttributeFqn, AttributeBag<?>> pdpIssuedAttributes)
 		{
 			assert request != null;
-			final EvaluationContext evalCtx = newEvaluationContext(request, pdpIssuedAttributes);
-			return rootPolicyEvaluator.findAndEvaluate(evalCtx);
+			final IndividualDecisionRequestContext evalCtx = acquireEvaluationContext(request, pdpIssuedAttributes);
+			try
+			{
+				return rootPolicyEvaluator.findAndEvaluate(evalCtx);
+			}
+			finally
+			{
+				releaseEvaluationContext(evalCtx);
+			}
 		}
 
 		/**
@@ -383,6 +788,92 @@ public final class BasePdpEngine implements CloseablePdpEngine
 			return rootPolicyEvaluator.findAndEvaluate(evalCtx);
 		}
 
+		/**
+		 * <p>
+		 * Evaluate multiple Individual Decision Requests with the given evaluation function, sequentially or in parallel depending on whether an individual decision request executor is set. In any
+		 * case, the results are returned in the same order as the requests.
+		 * </p>
+		 *
+		 * @param individualDecisionRequests
+		 *            individual decision requests
+		 * @param individualDecisionRequestEvaluator
+		 *            evaluation function for a single request
+		 * @return individual decision request-result pairs, in the same order as {@code individualDecisionRequests}.
+		 * @throws IndeterminateEvaluationException
+		 *             if the evaluation was interrupted
+		 */
+		protected final <INDIVIDUAL_DECISION_REQ_T extends DecisionRequest> Collection<Entry<INDIVIDUAL_DECISION_REQ_T, ? extends DecisionResult>> evaluateAll(
+				final List<INDIVIDUAL_DECISION_REQ_T> individualDecisionRequests, final Function<INDIVIDUAL_DECISION_REQ_T, DecisionResult> individualDecisionRequestEvaluator)
+				throws IndeterminateEvaluationException
+		{
+			assert individualDecisionRequests != null && individualDecisionRequestEvaluator != null;
+			final Collection<Entry<INDIVIDUAL_DECISION_REQ_T, ? extends DecisionResult>> resultsByRequest = new ArrayDeque<>(individualDecisionRequests.size());
+			if (individualDecisionRequestExecutor == null || individualDecisionRequests.size() < 2)
+			{
+				for (final INDIVIDUAL_DECISION_REQ_T individualDecisionRequest : individualDecisionRequests)
+				{
+					resultsByRequest.add(new SimpleImmutableEntry<>(individualDecisionRequest, individualDecisionRequestEvaluator.apply(individualDecisionRequest)));
+				}
+
+				return resultsByRequest;
+			}
+
+			final List<Callable<DecisionResult>> tasks = new ArrayList<>(individualDecisionRequests.size());
+			for (final INDIVIDUAL_DECISION_REQ_T individualDecisionRequest : individualDecisionRequests)
+			{
+				tasks.add(() -> individualDecisionRequestEvaluator.apply(individualDecisionRequest));
+			}
+
+			final List<Future<DecisionResult>> futureResults;
+			try
+			{
+				futureResults = individualDecisionRequestExecutor.invokeAll(tasks);
+			}
+			catch (final InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				throw INTERRUPTED_EVALUATION_EXCEPTION;
+			}
+
+			/*
+			 * invokeAll() returns the futures in the same order as the tasks, all completed
+			 */
+			int i = 0;
+			for (final Future<DecisionResult> futureResult : futureResults)
+			{
+				final DecisionResult result;
+				try
+				{
+					result = futureResult.get();
+				}
+				catch (final InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+					throw INTERRUPTED_EVALUATION_EXCEPTION;
+				}
+				catch (final ExecutionException e)
+				{
+					final Throwable cause = e.getCause();
+					if (cause instanceof RuntimeException)
+					{
+						throw (RuntimeException) cause;
+					}
+
+					if (cause instanceof Error)
+					{
+						throw (Error) cause;
+					}
+
+					throw new RuntimeException("Error evaluating individual decision request: " + individualDecisionRequests.get(i), cause);
+				}
+
+				resultsByRequest.add(new SimpleImmutableEntry<>(individualDecisionRequests.get(i), result));
+				i++;
+			}
+
+			return resultsByRequest;
+		}
+
 		/**
 		 * <p>
 		 * Evaluate an Individual Decision Request from which a new request context is created to evaluate the request
@@ -421,9 +912,10 @@ public final class BasePdpEngine implements CloseablePdpEngine
 		private static final RuntimeException NULL_INDIVIDUAL_DECISION_REQUEST_EXCEPTION = new RuntimeException(
 				"One of the individual decision requests returned by the request filter is invalid (null).");
 
-		private NonCachingIndividualDecisionRequestEvaluator(final RootPolicyEvaluator rootPolicyEvaluator, final StandardEnvironmentAttributeSource stdEnvAttributeSource)
+		private NonCachingIndividualDecisionRequestEvaluator(final RootPolicyEvaluator rootPolicyEvaluator, final StandardEnvironmentAttributeSource stdEnvAttributeSource,
+				final ExecutorService individualDecisionRequestExecutor, final boolean reuseEvaluationContexts)
 		{
-			super(rootPolicyEvaluator, stdEnvAttributeSource);
+			super(rootPolicyEvaluator, stdEnvAttributeSource, individualDecisionRequestExecutor, reuseEvaluationContexts);
 		}
 
 		@Override
@@ -441,19 +933,14 @@ public final class BasePdpEngine implements CloseablePdpEngine
 			assert individualDecisionRequests != null && pdpStdEnvAttributeIssuer != null;
 
 			final Map<AttributeFqn, AttributeBag<?>> pdpIssuedAttributes = pdpStdEnvAttributeIssuer.get();
-			final Collection<Entry<INDIVIDUAL_DECISION_REQ_T, ? extends DecisionResult>> resultsByRequest = new ArrayDeque<>(individualDecisionRequests.size());
-			for (final INDIVIDUAL_DECISION_REQ_T individualDecisionRequest : individualDecisionRequests)
-			{
+			return evaluateAll(individualDecisionRequests, individualDecisionRequest -> {
 				if (individualDecisionRequest == null)
 				{
 					throw NULL_INDIVIDUAL_DECISION_REQUEST_EXCEPTION;
 				}
 
-				final DecisionResult decisionResult = evaluateInNewContext(individualDecisionRequest, pdpIssuedAttributes);
-				resultsByRequest.add(new SimpleImmutableEntry<>(individualDecisionRequest, decisionResult));
-			}
-
-			return resultsByRequest;
+				return evaluateInNewContext(individualDecisionRequest, pdpIssuedAttributes);
+			});
 		}
 
 	}
@@ -467,12 +954,19 @@ public final class BasePdpEngine implements CloseablePdpEngine
 
 		private final DecisionCache decisionCache;
 
+		/*
+		 * Same as decisionCache if it is a CoreInMemoryDecisionCache, else null. If not null, new results are cached along with the policy generation at lookup time, so that they are not cached if
+		 * the policies have been reloaded during the evaluation.
+		 */
+		private final CoreInMemoryDecisionCache policyGenerationAwareCache;
+
 		private IndividualRequestEvaluatorWithCacheIgnoringEvaluationContext(final RootPolicyEvaluator rootPolicyEvaluator, final StandardEnvironmentAttributeSource stdEnvAttributeSource,
-				final DecisionCache decisionCache)
+				final DecisionCache decisionCache, final ExecutorService individualDecisionRequestExecutor, final boolean reuseEvaluationContexts)
 		{
-			super(rootPolicyEvaluator, stdEnvAttributeSource);
+			super(rootPolicyEvaluator, stdEnvAttributeSource, individualDecisionRequestExecutor, reuseEvaluationContexts);
 			assert decisionCache != null;
 			this.decisionCache = decisionCache;
+			this.policyGenerationAwareCache = decisionCache instanceof CoreInMemoryDecisionCache ? (CoreInMemoryDecisionCache) decisionCache : null;
 		}
 
 		@Override
@@ -480,13 +974,22 @@ public final class BasePdpEngine implements CloseablePdpEngine
 		{
 			assert individualDecisionRequest != null;
 			LOGGER.debug("Evaluating Individual Decision Request: {}", individualDecisionRequest);
+			final long lookupPolicyGeneration = policyGenerationAwareCache == null ? 0 : policyGenerationAwareCache.getPolicyGeneration();
 			final DecisionResult cachedResult = decisionCache.get(individualDecisionRequest, null);
 			if (cachedResult == null)
 			{
 				LOGGER.debug("No result found in cache for Individual Decision Request: {}. Computing new result from policy evaluation...", individualDecisionRequest);
 				final DecisionResult newResult = evaluateInNewContext(individualDecisionRequest, pdpStdEnvAttributeIssuer.get());
 				LOGGER.debug("Caching new Result for Individual Decision Request: {} -> {}", individualDecisionRequest, newResult);
-				decisionCache.put(individualDecisionRequest, newResult, null);
+				if (policyGenerationAwareCache == null)
+				{
+					decisionCache.put(individualDecisionRequest, newResult, null);
+				}
+				else
+				{
+					policyGenerationAwareCache.put(individualDecisionRequest, newResult, null, lookupPolicyGeneration);
+				}
+
 				return newResult;
 			}
 
@@ -500,6 +1003,7 @@ public final class BasePdpEngine implements CloseablePdpEngine
 		{
 			assert individualDecisionRequests != null && pdpStdEnvAttributeIssuer != null;
 
+			final long lookupPolicyGeneration = policyGenerationAwareCache == null ? 0 : policyGenerationAwareCache.getPolicyGeneration();
 			final Map<INDIVIDUAL_DECISION_REQ_T, DecisionResult> cachedResultsByRequest = decisionCache.getAll(individualDecisionRequests);
 			if (cachedResultsByRequest == null)
 			{
@@ -508,41 +1012,66 @@ public final class BasePdpEngine implements CloseablePdpEngine
 				throw INDETERMINATE_EVALUATION_EXCEPTION;
 			}
 
+			/*
+			 * Check whether there is any decision result in cache for each request. Only the requests without cached result are evaluated.
+			 */
+			final List<INDIVIDUAL_DECISION_REQ_T> uncachedRequests = new ArrayList<>(individualDecisionRequests.size() - cachedResultsByRequest.size());
+			for (final INDIVIDUAL_DECISION_REQ_T individualDecisionRequest : individualDecisionRequests)
+			{
+				if (cachedResultsByRequest.get(individualDecisionRequest) == null)
+				{
+					LOGGER.debug("No result found in cache for Individual Decision Request: {}. Computing new result from policy evaluation...", individualDecisionRequest);
+					uncachedRequests.add(individualDecisionRequest);
+				}
+			}
+
+			if (uncachedRequests.isEmpty())
+			{
+				final Collection<Entry<INDIVIDUAL_DECISION_REQ_T, ? extends DecisionResult>> finalResultsByRequest = new ArrayDeque<>(individualDecisionRequests.size());
+				for (final INDIVIDUAL_DECISION_REQ_T individualDecisionRequest : individualDecisionRequests)
+				{
+					finalResultsByRequest.add(new SimpleImmutableEntry<>(individualDecisionRequest, cachedResultsByRequest.get(individualDecisionRequest)));
+				}
+
+				return finalResultsByRequest;
+			}
+
 			final Map<AttributeFqn, AttributeBag<?>> pdpIssuedAttributes = pdpStdEnvAttributeIssuer.get();
+			final Collection<Entry<INDIVIDUAL_DECISION_REQ_T, ? extends DecisionResult>> newResults = evaluateAll(uncachedRequests,
+					individualDecisionRequest -> evaluateInNewContext(individualDecisionRequest, pdpIssuedAttributes));
 			/*
 			 * There will be at most as many new results (not in cache) as there are individual decision requests
 			 */
+			final Map<INDIVIDUAL_DECISION_REQ_T, DecisionResult> newResultsByRequest = HashCollections.newUpdatableMap(newResults.size());
+			for (final Entry<INDIVIDUAL_DECISION_REQ_T, ? extends DecisionResult> newResult : newResults)
+			{
+				LOGGER.debug("Caching new Result for Individual Decision Request: {} -> {}", newResult.getKey(), newResult.getValue());
+				newResultsByRequest.put(newResult.getKey(), newResult.getValue());
+			}
+
 			final Collection<Entry<INDIVIDUAL_DECISION_REQ_T, ? extends DecisionResult>> finalResultsByRequest = new ArrayDeque<>(individualDecisionRequests.size());
-			final Map<INDIVIDUAL_DECISION_REQ_T, DecisionResult> newResultsByRequest = HashCollections.newUpdatableMap(individualDecisionRequests.size());
 			for (final INDIVIDUAL_DECISION_REQ_T individualDecisionRequest : individualDecisionRequests)
 			{
-				LOGGER.debug("Evaluating Individual Decision Request: {}", individualDecisionRequest);
-				final DecisionResult finalResult;
-				/*
-				 * Check whether there is any decision result in cache for this request
-				 */
 				final DecisionResult cachedResult = cachedResultsByRequest.get(individualDecisionRequest);
 				if (cachedResult == null)
 				{
-					LOGGER.debug("No result found in cache for Individual Decision Request: {}. Computing new result from policy evaluation...", individualDecisionRequest);
-					finalResult = evaluateInNewContext(individualDecisionRequest, pdpIssuedAttributes);
-					LOGGER.debug("Caching new Result for Individual Decision Request: {} -> {}", individualDecisionRequest, finalResult);
-					newResultsByRequest.put(individualDecisionRequest, finalResult);
+					finalResultsByRequest.add(new SimpleImmutableEntry<>(individualDecisionRequest, newResultsByRequest.get(individualDecisionRequest)));
 				}
 				else
 				{
-
 					LOGGER.debug("Result found in cache for Individual Decision Request: {} -> {}", individualDecisionRequest, cachedResult);
-					finalResult = cachedResult;
+					finalResultsByRequest.add(new SimpleImmutableEntry<>(individualDecisionRequest, cachedResult));
 				}
-
-				finalResultsByRequest.add(new SimpleImmutableEntry<>(individualDecisionRequest, finalResult));
 			}
 
-			if (!newResultsByRequest.isEmpty())
+			if (policyGenerationAwareCache == null)
 			{
 				decisionCache.putAll(newResultsByRequest);
 			}
+			else
+			{
+				policyGenerationAwareCache.putAll(newResultsByRequest, lookupPolicyGeneration);
+			}
 
 			return finalResultsByRequest;
 		}
@@ -556,9 +1085,9 @@ public final class BasePdpEngine implements CloseablePdpEngine
 		private final DecisionCache decisionCache;
 
 		private IndividualRequestEvaluatorWithCacheUsingEvaluationContext(final RootPolicyEvaluator rootPolicyEvaluator, final StandardEnvironmentAttributeSource validStdEnvAttrSrc,
-				final DecisionCache decisionCache)
+				final DecisionCache decisionCache, final ExecutorService individualDecisionRequestExecutor, final boolean reuseEvaluationContexts)
 		{
-			super(rootPolicyEvaluator, validStdEnvAttrSrc);
+			super(rootPolicyEvaluator, validStdEnvAttrSrc, individualDecisionRequestExecutor, reuseEvaluationContexts);
 			assert decisionCache != null;
 			this.decisionCache = decisionCache;
 		}
@@ -571,19 +1100,26 @@ public final class BasePdpEngine implements CloseablePdpEngine
 			/*
 			 * Check whether there is any decision result in cache for this request
 			 */
-			final EvaluationContext evalCtx = newEvaluationContext(individualDecisionRequest, pdpIssuedAttributes);
-			final DecisionResult cachedResult = decisionCache.get(individualDecisionRequest, evalCtx);
-			if (cachedResult == null)
+			final IndividualDecisionRequestContext evalCtx = acquireEvaluationContext(individualDecisionRequest, pdpIssuedAttributes);
+			try
 			{
-				LOGGER.debug("No result found in cache for Individual Decision Request: {}. Computing new result from policy evaluation...", individualDecisionRequest);
-				final DecisionResult finalResult = evaluateReusingContext(evalCtx);
-				LOGGER.debug("Caching new Result for Individual Decision Request: {} -> {}", individualDecisionRequest, finalResult);
-				decisionCache.put(individualDecisionRequest, finalResult, evalCtx);
-				return finalResult;
-			}
+				final DecisionResult cachedResult = decisionCache.get(individualDecisionRequest, evalCtx);
+				if (cachedResult == null)
+				{
+					LOGGER.debug("No result found in cache for Individual Decision Request: {}. Computing new result from policy evaluation...", individualDecisionRequest);
+					final DecisionResult finalResult = evaluateReusingContext(evalCtx);
+					LOGGER.debug("Caching new Result for Individual Decision Request: {} -> {}", individualDecisionRequest, finalResult);
+					decisionCache.put(individualDecisionRequest, finalResult, evalCtx);
+					return finalResult;
+				}
 
-			LOGGER.debug("Result found in cache for Individual Decision Request: {} -> {}", individualDecisionRequest, cachedResult);
-			return cachedResult;
+				LOGGER.debug("Result found in cache for Individual Decision Request: {} -> {}", individualDecisionRequest, cachedResult);
+				return cachedResult;
+			}
+			finally
+			{
+				releaseEvaluationContext(evalCtx);
+			}
 		}
 
 		@Override
@@ -600,17 +1136,7 @@ public final class BasePdpEngine implements CloseablePdpEngine
 			assert individualDecisionRequests != null && pdpStdEnvAttributeIssuer != null;
 
 			final Map<AttributeFqn, AttributeBag<?>> pdpIssuedAttributes = pdpStdEnvAttributeIssuer.get();
-			/*
-			 * There will be at most as many new results (not in cache) as there are individual decision requests
-			 */
-			final Collection<Entry<INDIVIDUAL_DECISION_REQ_T, ? extends DecisionResult>> finalResultsByRequest = new ArrayDeque<>(individualDecisionRequests.size());
-			for (final INDIVIDUAL_DECISION_REQ_T individualDecisionRequest : individualDecisionRequests)
-			{
-				final DecisionResult finalResult = evaluate(individualDecisionRequest, pdpIssuedAttributes);
-				finalResultsByRequest.add(new SimpleImmutableEntry<>(individualDecisionRequest, finalResult));
-			}
-
-			return finalResultsByRequest;
+			return evaluateAll(individualDecisionRequests, individualDecisionRequest -> evaluate(individualDecisionRequest, pdpIssuedAttributes));
 		}
 
 	}
@@ -621,6 +1147,34 @@ public final class BasePdpEngine implements CloseablePdpEngine
 	private final RootPolicyEvaluator rootPolicyEvaluator;
 	private final StandardEnvironmentAttributeIssuer pdpStdEnvAttributeIssuer;
 
+	/*
+	 * Configuration used to reload the policies, along with the expression factory and policy tree compilation flag used to build the new root policy evaluator; null if the engine was not
+	 * created from a configuration (no reloading)
+	 */
+	private final PdpEngineConfiguration reloadableConfiguration;
+	private final ExpressionFactory xacmlExpressionFactory;
+	private final boolean compileStaticPolicyTree;
+
+	/*
+	 * Executor of periodic policy change checks; null if none
+	 */
+	private final ScheduledExecutorService policyReloadCheckExecutor;
+
+	/*
+	 * Executor of individual decision requests created by this PDP engine, to be shut down when the engine is closed; null if none
+	 */
+	private final ExecutorService ownIndividualDecisionRequestExecutor;
+
+	/*
+	 * Executor of concurrent child policy evaluations created by the PDP engine configuration, to be shut down when the engine is closed; null if none
+	 */
+	private final ExecutorService childPolicyEvaluationExecutor;
+
+	/*
+	 * Executor of asynchronous evaluations, with bounded queue of pending evaluations (new evaluations are rejected when the queue is full)
+	 */
+	private final ThreadPoolExecutor asyncEvaluationExecutor;
+
 	/**
 	 * Constructs a new PDP engine with the given configuration information.
 	 *
@@ -637,42 +1191,151 @@ public final class BasePdpEngine implements CloseablePdpEngine
 	 *            attribute designator, then the matching of the attribute to the named attribute SHALL be governed by AttributeId and DataType attributes alone."
 	 * @param stdEnvAttributeSource
 	 *            (mandatory) source for standard environment current-time/current-date/current-dateTime attribute values (request or PDP, etc.).
+	 * @param options
+	 *            other engine settings (evaluation threads, evaluation context reuse, policy tree compilation...), e.g. {@link Options#DEFAULT}
 	 * @throws java.lang.IllegalArgumentException
-	 *             if one of the mandatory arguments is null ({@code xacmlExpressionFactory}, {@code rootPolicyProvider})
+	 *             if one of the mandatory arguments is null ({@code xacmlExpressionFactory}, {@code rootPolicyProvider}, {@code options})
 	 * @throws java.io.IOException
 	 *             error closing the root policy Provider when static resolution is to be used
 	 */
 	public BasePdpEngine(final ExpressionFactory xacmlExpressionFactory, final RootPolicyProvider rootPolicyProvider, final boolean strictAttributeIssuerMatch,
-			final StandardEnvironmentAttributeSource stdEnvAttributeSource, final Optional<DecisionCache> decisionCache) throws IllegalArgumentException, IOException
+			final StandardEnvironmentAttributeSource stdEnvAttributeSource, final Optional<DecisionCache> decisionCache, final Options options) throws IllegalArgumentException, IOException
+	{
+		this(xacmlExpressionFactory, rootPolicyProvider, strictAttributeIssuerMatch, stdEnvAttributeSource, decisionCache, options, null);
+	}
+
+	private static RootPolicyEvaluator newRootPolicyEvaluator(final ExpressionFactory xacmlExpressionFactory, final RootPolicyProvider rootPolicyProvider, final boolean compileStaticPolicyTree)
+			throws IOException
 	{
 		final RootPolicyEvaluators.Base candidateRootPolicyEvaluator = new RootPolicyEvaluators.Base(xacmlExpressionFactory, rootPolicyProvider);
 		// Use static resolution if possible
-		final RootPolicyEvaluator staticRootPolicyEvaluator = candidateRootPolicyEvaluator.toStatic();
-		if (staticRootPolicyEvaluator == null)
+		final RootPolicyEvaluator staticRootPolicyEvaluator = candidateRootPolicyEvaluator.toStatic(compileStaticPolicyTree);
+		return staticRootPolicyEvaluator == null ? candidateRootPolicyEvaluator : staticRootPolicyEvaluator;
+	}
+
+	/*
+	 * If reloadableConfiguration != null, the policies may be reloaded from this configuration, and are reloaded automatically on change if reloadableConfiguration.getPolicyReloadCheckIntervalSec() >
+	 * 0
+	 */
+	private BasePdpEngine(final ExpressionFactory xacmlExpressionFactory, final RootPolicyProvider rootPolicyProvider, final boolean strictAttributeIssuerMatch,
+			final StandardEnvironmentAttributeSource stdEnvAttributeSource, final Optional<DecisionCache> decisionCache, final Options options,
+			final PdpEngineConfiguration reloadableConfiguration) throws IllegalArgumentException, IOException
+	{
+		if (options == null)
 		{
-			this.rootPolicyEvaluator = candidateRootPolicyEvaluator;
+			throw NULL_OPTIONS_ARGUMENT_EXCEPTION;
+		}
+
+		final boolean compileStaticPolicyTree = options.isStaticPolicyTreeCompilationEnabled();
+		final boolean reuseEvaluationContexts = options.isEvaluationContextReuseEnabled();
+		final long stdEnvAttributeTimeGranularityMillis = options.getStdEnvAttributeTimeGranularityMillis();
+		final RootPolicyEvaluator initialRootPolicyEvaluator = newRootPolicyEvaluator(xacmlExpressionFactory, rootPolicyProvider, compileStaticPolicyTree);
+		/*
+		 * Only reloadable engines pay for the indirection of the swappable evaluator
+		 */
+		this.rootPolicyEvaluator = reloadableConfiguration == null ? initialRootPolicyEvaluator
+				: new RootPolicyEvaluators.Swappable(initialRootPolicyEvaluator, reloadableConfiguration.getPolicyProviders()::close);
+		this.reloadableConfiguration = reloadableConfiguration;
+		this.childPolicyEvaluationExecutor = reloadableConfiguration == null ? null : reloadableConfiguration.getChildPolicyEvaluationExecutor().orElse(null);
+		this.xacmlExpressionFactory = xacmlExpressionFactory;
+		this.compileStaticPolicyTree = compileStaticPolicyTree;
+
+		this.strictAttributeIssuerMatch = strictAttributeIssuerMatch;
+
+		Preconditions.checkNotNull(stdEnvAttributeSource, NULL_STD_ENV_ATTRIBUTE_SOURCE_ARG);
+		if (stdEnvAttributeSource == StandardEnvironmentAttributeSource.REQUEST_ONLY)
+		{
+			this.pdpStdEnvAttributeIssuer = NULL_STD_ENV_ATTRIBUTE_ISSUER;
 		}
 		else
 		{
-			this.rootPolicyEvaluator = staticRootPolicyEvaluator;
+			this.pdpStdEnvAttributeIssuer = stdEnvAttributeTimeGranularityMillis == 0 ? DEFAULT_TZ_BASED_STD_ENV_ATTRIBUTE_ISSUER
+					: new TickCachedStdEnvAttributeIssuer(stdEnvAttributeTimeGranularityMillis);
 		}
 
-		this.strictAttributeIssuerMatch = strictAttributeIssuerMatch;
+		final ExecutorService individualDecisionRequestExecutor;
+		switch (options.getIndividualDecisionRequestParallelism())
+		{
+			case 0:
+				individualDecisionRequestExecutor = ForkJoinPool.commonPool();
+				this.ownIndividualDecisionRequestExecutor = null;
+				break;
+			case 1:
+				individualDecisionRequestExecutor = null;
+				this.ownIndividualDecisionRequestExecutor = null;
+				break;
+			default:
+				individualDecisionRequestExecutor = new ForkJoinPool(options.getIndividualDecisionRequestParallelism());
+				this.ownIndividualDecisionRequestExecutor = individualDecisionRequestExecutor;
+		}
 
-		Preconditions.checkNotNull(stdEnvAttributeSource, NULL_STD_ENV_ATTRIBUTE_SOURCE_ARG);
-		this.pdpStdEnvAttributeIssuer = stdEnvAttributeSource == StandardEnvironmentAttributeSource.REQUEST_ONLY ? NULL_STD_ENV_ATTRIBUTE_ISSUER : DEFAULT_TZ_BASED_STD_ENV_ATTRIBUTE_ISSUER;
+		/*
+		 * Threads are created on demand and terminated when idle, so this executor costs nothing if the asynchronous API is not used
+		 */
+		final int asyncThreadCount = options.getAsyncEvaluationThreads() == 0 ? Runtime.getRuntime().availableProcessors() : options.getAsyncEvaluationThreads();
+		this.asyncEvaluationExecutor = new ThreadPoolExecutor(asyncThreadCount, asyncThreadCount, ASYNC_EVALUATION_THREAD_KEEP_ALIVE_SEC, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(options.getAsyncEvaluationQueueCapacity()), new ThreadFactoryBuilder().setDaemon(true).setNameFormat("authzforce-pdp-async-%d").build(),
+				new ThreadPoolExecutor.AbortPolicy());
+		this.asyncEvaluationExecutor.allowCoreThreadTimeOut(true);
 
 		this.decisionCache = decisionCache.orElse(null);
 		if (this.decisionCache == null)
 		{
-			this.individualReqEvaluator = new NonCachingIndividualDecisionRequestEvaluator(rootPolicyEvaluator, stdEnvAttributeSource);
+			this.individualReqEvaluator = new NonCachingIndividualDecisionRequestEvaluator(rootPolicyEvaluator, stdEnvAttributeSource, individualDecisionRequestExecutor,
+					reuseEvaluationContexts);
 		}
 		else
 		{
 			this.individualReqEvaluator = this.decisionCache.isEvaluationContextRequired()
-					? new IndividualRequestEvaluatorWithCacheUsingEvaluationContext(rootPolicyEvaluator, stdEnvAttributeSource, this.decisionCache)
-					: new IndividualRequestEvaluatorWithCacheIgnoringEvaluationContext(rootPolicyEvaluator, stdEnvAttributeSource, this.decisionCache);
+					? new IndividualRequestEvaluatorWithCacheUsingEvaluationContext(rootPolicyEvaluator, stdEnvAttributeSource, this.decisionCache, individualDecisionRequestExecutor,
+							reuseEvaluationContexts)
+					: new IndividualRequestEvaluatorWithCacheIgnoringEvaluationContext(rootPolicyEvaluator, stdEnvAttributeSource, this.decisionCache, individualDecisionRequestExecutor,
+							reuseEvaluationContexts);
 		}
+
+		if (reloadableConfiguration == null || reloadableConfiguration.getPolicyReloadCheckIntervalSec() == 0)
+		{
+			this.policyReloadCheckExecutor = null;
+		}
+		else
+		{
+			if (this.decisionCache != null && !(this.decisionCache instanceof CoreInMemoryDecisionCache))
+			{
+				LOGGER.warn("Policy reloading enabled with a decision cache ({}) that cannot be cleared on reload: results cached before reloading may be returned until they expire",
+						this.decisionCache);
+			}
+
+			final PolicyFileChangeDetector policyFileChangeDetector = new PolicyFileChangeDetector(reloadableConfiguration::getPolicyURLs);
+			final long checkIntervalSec = reloadableConfiguration.getPolicyReloadCheckIntervalSec();
+			this.policyReloadCheckExecutor = Executors
+					.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("authzforce-pdp-policy-reload-%d").build());
+			this.policyReloadCheckExecutor.scheduleWithFixedDelay(() -> reloadPoliciesIfChanged(policyFileChangeDetector), checkIntervalSec, checkIntervalSec, TimeUnit.SECONDS);
+		}
+	}
+
+	/**
+	 * Constructs a new PDP engine with the given configuration information, and default values for the other settings ({@link Options#DEFAULT}).
+	 *
+	 * @param xacmlExpressionFactory
+	 *            XACML Expression parser/factory - mandatory
+	 * @param rootPolicyProvider
+	 *            Root Policy Provider - mandatory
+	 * @param decisionCache
+	 *            (optional) decision response cache
+	 * @param strictAttributeIssuerMatch
+	 *            true iff strict Attribute Issuer matching is enabled (see
+	 *            {@link #BasePdpEngine(ExpressionFactory, RootPolicyProvider, boolean, StandardEnvironmentAttributeSource, Optional, Options)})
+	 * @param stdEnvAttributeSource
+	 *            (mandatory) source for standard environment current-time/current-date/current-dateTime attribute values (request or PDP, etc.).
+	 * @throws java.lang.IllegalArgumentException
+	 *             if one of the mandatory arguments is null ({@code xacmlExpressionFactory}, {@code rootPolicyProvider})
+	 * @throws java.io.IOException
+	 *             error closing the root policy Provider when static resolution is to be used
+	 */
+	public BasePdpEngine(final ExpressionFactory xacmlExpressionFactory, final RootPolicyProvider rootPolicyProvider, final boolean strictAttributeIssuerMatch,
+			final StandardEnvironmentAttributeSource stdEnvAttributeSource, final Optional<DecisionCache> decisionCache) throws IllegalArgumentException, IOException
+	{
+		this(xacmlExpressionFactory, rootPolicyProvider, strictAttributeIssuerMatch, stdEnvAttributeSource, decisionCache, Options.DEFAULT);
 	}
 
 	/**
@@ -689,7 +1352,79 @@ public final class BasePdpEngine implements CloseablePdpEngine
 	public BasePdpEngine(final PdpEngineConfiguration configuration) throws IllegalArgumentException, IOException
 	{
 		this(configuration.getXacmlExpressionFactory(), configuration.getRootPolicyProvider(), configuration.isStrictAttributeIssuerMatchEnabled(), configuration.getStdEnvAttributeSource(),
-				configuration.getDecisionCache());
+				configuration.getDecisionCache(), configuration.getEngineOptions(), configuration);
+	}
+
+	/**
+	 * Reloads the policies from the configuration this engine was created from (see {@link #BasePdpEngine(PdpEngineConfiguration)}), i.e. parses the policies again from their locations (in the
+	 * caller's thread) and replaces the current ones atomically: evaluations in progress go on with the current policies, evaluations started afterwards use the new ones. If the new policies are
+	 * invalid, the current ones remain in use. The policy providers replaced (root policy provider and refPolicyProvider) are closed once the evaluations in progress have ended. If the decision cache
+	 * is a {@link CoreInMemoryDecisionCache}, it is cleared after the replacement, and the results of the evaluations in progress are not cached.
+	 * <p>
+	 * This is done automatically on policy file change if {@link PdpEngineConfiguration#getPolicyReloadCheckIntervalSec()} &gt; 0.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the new policies are invalid
+	 * @throws UnsupportedOperationException
+	 *             if this engine was not created from a {@link PdpEngineConfiguration}
+	 * @throws IOException
+	 *             error closing the new root policy Provider when static resolution is to be used
+	 */
+	public synchronized void reloadPolicies() throws IllegalArgumentException, UnsupportedOperationException, IOException
+	{
+		if (reloadableConfiguration == null)
+		{
+			throw POLICY_RELOAD_UNSUPPORTED_EXCEPTION;
+		}
+
+		/*
+		 * Build the whole new evaluator tree before swapping, so that requests are never evaluated against a partially built one
+		 */
+		final PdpEngineConfiguration.PolicyProviders newPolicyProviders = reloadableConfiguration.createPolicyProviders();
+		final RootPolicyEvaluator newRootPolicyEvaluator;
+		try
+		{
+			newRootPolicyEvaluator = newRootPolicyEvaluator(xacmlExpressionFactory, newPolicyProviders.getRootPolicyProvider(), compileStaticPolicyTree);
+		}
+		catch (final IllegalArgumentException | IOException e)
+		{
+			newPolicyProviders.close();
+			throw e;
+		}
+
+		((RootPolicyEvaluators.Swappable) rootPolicyEvaluator).swap(newRootPolicyEvaluator, newPolicyProviders::close);
+		/*
+		 * The results of evaluations that started before the swap, i.e. possibly with the previous policies, are tagged with the previous policy generation, therefore not cached anymore
+		 */
+		if (decisionCache instanceof CoreInMemoryDecisionCache)
+		{
+			((CoreInMemoryDecisionCache) decisionCache).invalidateAll();
+		}
+
+		LOGGER.info("Policies reloaded");
+	}
+
+	private void reloadPoliciesIfChanged(final PolicyFileChangeDetector policyFileChangeDetector)
+	{
+		/*
+		 * Any exception must be caught, else the next checks are cancelled by the scheduler
+		 */
+		try
+		{
+			if (policyFileChangeDetector.hasChanged())
+			{
+				LOGGER.info("Policy file change detected -> reloading policies");
+				reloadPolicies();
+				/*
+				 * Not before the reload succeeded, so that a failed reload is retried on the next check
+				 */
+				policyFileChangeDetector.acknowledgeChange();
+			}
+		}
+		catch (final IOException | RuntimeException e)
+		{
+			LOGGER.error("Failed to reload policies after policy file change: new policies rejected, current policies still in use (reload retried on the next check)", e);
+		}
 	}
 
 	@Override
@@ -742,10 +1477,97 @@ public final class BasePdpEngine implements CloseablePdpEngine
 		return individualReqEvaluator.evaluate(individualDecisionRequests, this.pdpStdEnvAttributeIssuer);
 	}
 
+	private <T> CompletableFuture<T> supplyAsync(final Supplier<T> evaluation)
+	{
+		try
+		{
+			return CompletableFuture.supplyAsync(evaluation, asyncEvaluationExecutor);
+		}
+		catch (final RejectedExecutionException e)
+		{
+			/*
+			 * Queue of pending evaluations is full (or engine closed)
+			 */
+			final CompletableFuture<T> rejectedResult = new CompletableFuture<>();
+			rejectedResult.completeExceptionally(e);
+			return rejectedResult;
+		}
+	}
+
+	/**
+	 * Evaluates an Individual Decision Request asynchronously, i.e. in a separate thread from the PDP's asynchronous evaluation thread pool, without blocking the caller.
+	 *
+	 * @param individualDecisionRequest
+	 *            a non-null {@link DecisionRequest} object, i.e. representation of Individual Decision Request (as defined by Multiple Decision Profile of XACML).
+	 * @return future result of {@link #evaluate(DecisionRequest)}. The future completes exceptionally with a {@link RejectedExecutionException} if the queue of pending asynchronous evaluations is
+	 *         full (backpressure) or this engine is closed.
+	 * @throws IllegalArgumentException
+	 *             if {@code individualDecisionRequest == null}
+	 */
+	public CompletableFuture<DecisionResult> evaluateAsync(final DecisionRequest individualDecisionRequest) throws IllegalArgumentException
+	{
+		if (individualDecisionRequest == null)
+		{
+			throw NULL_REQUEST_ARGUMENT_EXCEPTION;
+		}
+
+		return supplyAsync(() -> individualReqEvaluator.evaluate(individualDecisionRequest, this.pdpStdEnvAttributeIssuer));
+	}
+
+	/**
+	 * Evaluates multiple Individual Decision Requests asynchronously, i.e. in a separate thread from the PDP's asynchronous evaluation thread pool, without blocking the caller.
+	 *
+	 * @param individualDecisionRequests
+	 *            a {@link java.util.List} of individual decision requests.
+	 * @return future result of {@link #evaluate(List)}. The future completes exceptionally with a {@link CompletionException} caused by an {@link IndeterminateEvaluationException} if
+	 *         {@link #evaluate(List)} throws such exception; or with a {@link RejectedExecutionException} if the queue of pending asynchronous evaluations is full (backpressure) or this engine is
+	 *         closed.
+	 * @throws IllegalArgumentException
+	 *             if {@code individualDecisionRequests == null}
+	 */
+	public <INDIVIDUAL_DECISION_REQ_T extends DecisionRequest> CompletableFuture<Collection<Entry<INDIVIDUAL_DECISION_REQ_T, ? extends DecisionResult>>> evaluateAsync(
+			final List<INDIVIDUAL_DECISION_REQ_T> individualDecisionRequests) throws IllegalArgumentException
+	{
+		if (individualDecisionRequests == null)
+		{
+			throw NULL_REQUEST_ARGUMENT_EXCEPTION;
+		}
+
+		return supplyAsync(() -> {
+			try
+			{
+				return individualReqEvaluator.evaluate(individualDecisionRequests, this.pdpStdEnvAttributeIssuer);
+			}
+			catch (final IndeterminateEvaluationException e)
+			{
+				throw new CompletionException(e);
+			}
+		});
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public void close() throws IOException
 	{
+		if (policyReloadCheckExecutor != null)
+		{
+			policyReloadCheckExecutor.shutdownNow();
+		}
+
+		asyncEvaluationExecutor.shutdown();
+		if (ownIndividualDecisionRequestExecutor != null)
+		{
+			ownIndividualDecisionRequestExecutor.shutdown();
+		}
+
+		/*
+		 * Child policy evaluations submitted afterwards (by evaluations still in progress) run in the calling thread
+		 */
+		if (childPolicyEvaluationExecutor != null)
+		{
+			childPolicyEvaluationExecutor.shutdown();
+		}
+
 		rootPolicyEvaluator.close();
 		if (decisionCache != null)
 		{
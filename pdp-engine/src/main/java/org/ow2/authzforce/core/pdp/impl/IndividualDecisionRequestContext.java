@@ -17,6 +17,7 @@
  */
 package org.ow2.authzforce.core.pdp.impl;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.Map;
@@ -54,6 +55,10 @@ import net.sf.saxon.s9api.XdmNode;
  * An {@link EvaluationContext} associated to an XACML Individual Decision Request, i.e. for evaluation to a single authorization decision Result (see Multiple Decision Profile spec for more
  * information on Individual Decision Request as opposed to Multiple Decision Request). This is the default {@link EvaluationContext} implementation used by the PDP engine. It is also meant to be used
  * particularly in unit tests of PDP extensions depending on evaluation context, e.g. {@link AttributeProvider}, {@link DecisionCache}, etc.
+ * <p>
+ * Internal structures (variable values, other properties, listeners, AttributeSelector results) are only allocated when first used. A context may be reused for the evaluation of another
+ * individual decision request after {@link #reset(Map, Map, boolean)}, in which case the structures already allocated are cleared and reused. This is only safe if the context is confined to a
+ * single thread and no longer used by anything else (result, listener, extension...) once the evaluation is done.
  *
  *
  * @version $Id: $
@@ -65,34 +70,54 @@ public final class IndividualDecisionRequestContext implements EvaluationContext
 	 */
 	private static final Logger LOGGER = LoggerFactory.getLogger(IndividualDecisionRequestContext.class);
 
-	private final Map<AttributeFqn, AttributeBag<?>> namedAttributes;
+	/*
+	 * Named attributes from the request (and/or issued by the PDP), read-only. Not null
+	 */
+	private Map<AttributeFqn, AttributeBag<?>> namedAttributes;
+
+	/*
+	 * Named attributes put in this context during evaluation (e.g. by attribute providers), created on demand (null until then). Mappings in namedAttributes have priority (attribute values cannot be
+	 * overridden).
+	 */
+	private Map<AttributeFqn, AttributeBag<?>> producedNamedAttributes = null;
+
+	/*
+	 * Named attribute values already looked up in this context, by attribute slot (see getNamedAttributeValue(int, AttributeFqn, Datatype)), with the corresponding attribute names in
+	 * slottedAttributeFqns (same index). Created on demand (null until then).
+	 */
+	private AttributeFqn[] slottedAttributeFqns = null;
+	private AttributeBag<?>[] slottedAttributeBags = null;
 
 	/*
 	 * Corresponds to Attributes/Content (by attribute category) marshalled to XPath data model for XPath evaluation: AttributeSelector evaluation, XPath-based functions, etc. This may be empty if no
 	 * Content in Request or no feature requiring XPath evaluation against Content is supported/enabled.
 	 */
 	// Not null
-	private final Map<String, XdmNode> extraContentsByAttributeCategory;
+	private Map<String, XdmNode> extraContentsByAttributeCategory;
 
 	/*
-	 * AttributeSelector evaluation results. Not null
+	 * AttributeSelector evaluation results, created on demand (null until then). Always empty if extraContentsByAttributeCategory is empty.
 	 */
-	private final UpdatableMap<AttributeSelectorId, Bag<?>> attributeSelectorResults;
+	private UpdatableMap<AttributeSelectorId, Bag<?>> attributeSelectorResults = null;
 
-	private final Map<String, Value> varValsById = HashCollections.newMutableMap();
+	// created on demand (null until then)
+	private Map<String, Value> varValsById = null;
 
-	private final Map<String, Object> mutableProperties = HashCollections.newMutableMap();
+	// created on demand (null until then)
+	private Map<String, Object> mutableProperties = null;
 
-	private final boolean returnApplicablePolicyIdList;
+	private boolean returnApplicablePolicyIdList;
 
-	private final ClassToInstanceMap<Listener> listeners = MutableClassToInstanceMap.create();
+	// created on demand (null until then)
+	private ClassToInstanceMap<Listener> listeners = null;
 
 	/**
 	 * Constructs a new <code>IndividualDecisionRequestContext</code> based on the given request attributes and extra contents with support for XPath evaluation against Content element in Attributes
 	 *
 	 * @param namedAttributeMap
-	 *            updatable named attribute map (attribute key and value pairs) from the original Request; null iff none. An attribute key is a global ID based on attribute category,issuer,id. An
-	 *            attribute value is a bag of primitive values.
+	 *            named attribute map (attribute key and value pairs) from the original Request; null iff none. An attribute key is a global ID based on attribute category,issuer,id. An attribute
+	 *            value is a bag of primitive values. This map is neither copied nor modified by this context (attributes added during evaluation are stored separately), therefore it must not be
+	 *            modified as long as this context is used.
 	 * @param extraContentsByCategory
 	 *            extra contents by attribute category (equivalent to XACML Attributes/Content elements); null iff no Content in the attribute category.
 	 * @param returnApplicablePolicyIdList
@@ -100,30 +125,77 @@ public final class IndividualDecisionRequestContext implements EvaluationContext
 	 */
 	public IndividualDecisionRequestContext(final Map<AttributeFqn, AttributeBag<?>> namedAttributeMap, final Map<String, XdmNode> extraContentsByCategory, final boolean returnApplicablePolicyIdList)
 	{
-		this.namedAttributes = namedAttributeMap == null ? HashCollections.<AttributeFqn, AttributeBag<?>>newUpdatableMap()
-				: HashCollections.<AttributeFqn, AttributeBag<?>>newUpdatableMap(namedAttributeMap);
+		init(namedAttributeMap, extraContentsByCategory, returnApplicablePolicyIdList);
+	}
+
+	private void init(final Map<AttributeFqn, AttributeBag<?>> namedAttributeMap, final Map<String, XdmNode> extraContentsByCategory, final boolean returnApplicablePolicyIdList)
+	{
+		this.namedAttributes = namedAttributeMap == null ? Collections.<AttributeFqn, AttributeBag<?>>emptyMap() : namedAttributeMap;
 		this.returnApplicablePolicyIdList = returnApplicablePolicyIdList;
-		if (extraContentsByCategory == null)
+		this.extraContentsByAttributeCategory = extraContentsByCategory == null ? Collections.<String, XdmNode>emptyMap() : extraContentsByCategory;
+	}
+
+	/**
+	 * Resets this context for the evaluation of another individual decision request, i.e. this context becomes equivalent to a context newly created with the same arguments (see
+	 * {@link #IndividualDecisionRequestContext(Map, Map, boolean)}), except the internal structures already allocated are cleared and reused instead of new ones being created. In particular, all
+	 * attributes, variable values, other properties and listeners set during the previous evaluation are removed.
+	 * <p>
+	 * WARNING: this must only be called by the thread that owns this context, once the previous evaluation is done and nothing else uses this context anymore.
+	 *
+	 * @param namedAttributeMap
+	 *            named attribute map (see {@link #IndividualDecisionRequestContext(Map, Map, boolean)})
+	 * @param extraContentsByCategory
+	 *            extra contents by attribute category (see {@link #IndividualDecisionRequestContext(Map, Map, boolean)})
+	 * @param returnApplicablePolicyIdList
+	 *            true iff list of IDs of policies matched during evaluation must be returned
+	 */
+	public void reset(final Map<AttributeFqn, AttributeBag<?>> namedAttributeMap, final Map<String, XdmNode> extraContentsByCategory, final boolean returnApplicablePolicyIdList)
+	{
+		init(namedAttributeMap, extraContentsByCategory, returnApplicablePolicyIdList);
+		if (producedNamedAttributes != null)
 		{
-			this.extraContentsByAttributeCategory = Collections.emptyMap();
-			this.attributeSelectorResults = UpdatableCollections.emptyMap();
-		} else
+			producedNamedAttributes.clear();
+		}
+
+		if (slottedAttributeFqns != null)
 		{
-			this.extraContentsByAttributeCategory = extraContentsByCategory;
-			this.attributeSelectorResults = UpdatableCollections.newUpdatableMap();
+			Arrays.fill(slottedAttributeFqns, null);
+			Arrays.fill(slottedAttributeBags, null);
 		}
-	}
 
-	/** {@inheritDoc} */
-	@Override
-	public <AV extends AttributeValue> AttributeBag<AV> getNamedAttributeValue(final AttributeFqn attributeFqn, final Datatype<AV> datatype) throws IndeterminateEvaluationException
-	{
-		final AttributeBag<?> bagResult = namedAttributes.get(attributeFqn);
-		if (bagResult == null)
+		if (attributeSelectorResults != null)
 		{
-			return null;
+			/*
+			 * UpdatableMap does not support clear()
+			 */
+			attributeSelectorResults = null;
+		}
+
+		if (varValsById != null)
+		{
+			varValsById.clear();
 		}
 
+		if (mutableProperties != null)
+		{
+			mutableProperties.clear();
+		}
+
+		if (listeners != null)
+		{
+			listeners.clear();
+		}
+	}
+
+	private AttributeBag<?> lookUpNamedAttributeValue(final AttributeFqn attributeFqn)
+	{
+		final AttributeBag<?> requestBagResult = namedAttributes.get(attributeFqn);
+		return requestBagResult == null && producedNamedAttributes != null ? producedNamedAttributes.get(attributeFqn) : requestBagResult;
+	}
+
+	private <AV extends AttributeValue> AttributeBag<AV> checkAndNotifyNamedAttributeValueConsumed(final AttributeFqn attributeFqn, final AttributeBag<?> bagResult, final Datatype<AV> datatype)
+			throws IndeterminateEvaluationException
+	{
 		if (!bagResult.getElementDatatype().equals(datatype))
 		{
 			throw new IndeterminateEvaluationException("Datatype (" + bagResult.getElementDatatype() + ") of AttributeDesignator " + attributeFqn + " in context is different from expected/requested ("
@@ -136,14 +208,99 @@ public final class IndividualDecisionRequestContext implements EvaluationContext
 		 * If datatype classes match, bagResult should have same type as datatypeClass.
 		 */
 		final AttributeBag<AV> result = (AttributeBag<AV>) bagResult;
-		this.listeners.forEach((lt, l) -> l.namedAttributeValueConsumed(attributeFqn, result));
+		if (this.listeners != null)
+		{
+			this.listeners.forEach((lt, l) -> l.namedAttributeValueConsumed(attributeFqn, result));
+		}
+
 		return result;
 	}
 
+	/** {@inheritDoc} */
+	@Override
+	public <AV extends AttributeValue> AttributeBag<AV> getNamedAttributeValue(final AttributeFqn attributeFqn, final Datatype<AV> datatype) throws IndeterminateEvaluationException
+	{
+		final AttributeBag<?> bagResult = lookUpNamedAttributeValue(attributeFqn);
+		if (bagResult == null)
+		{
+			return null;
+		}
+
+		return checkAndNotifyNamedAttributeValueConsumed(attributeFqn, bagResult, datatype);
+	}
+
+	/**
+	 * Same as {@link #getNamedAttributeValue(AttributeFqn, Datatype)} but using an integer slot assigned to the attribute at policy loading time (same slot for all AttributeDesignators with same
+	 * attribute name), in order to avoid hashing {@code attributeFqn} every time the same attribute is looked up in this context: once found, the attribute value is kept in a flat array, at index
+	 * {@code attributeSlot}. The attribute name stored along with the value in the slot is checked (by reference first) before the value is returned, so it is safe to use slots assigned by different
+	 * expression factories: a slot collision only results in a normal lookup.
+	 *
+	 * @param attributeSlot
+	 *            slot assigned to the attribute (non-negative)
+	 * @param attributeFqn
+	 *            attribute name
+	 * @param datatype
+	 *            expected attribute datatype
+	 * @return attribute value(s), null iff attribute not in this context
+	 * @throws IndeterminateEvaluationException
+	 *             if the actual datatype of the attribute in this context differs from {@code datatype}
+	 */
+	public <AV extends AttributeValue> AttributeBag<AV> getNamedAttributeValue(final int attributeSlot, final AttributeFqn attributeFqn, final Datatype<AV> datatype)
+			throws IndeterminateEvaluationException
+	{
+		assert attributeSlot >= 0 && attributeFqn != null;
+		if (slottedAttributeFqns != null && attributeSlot < slottedAttributeFqns.length)
+		{
+			final AttributeFqn slottedAttributeFqn = slottedAttributeFqns[attributeSlot];
+			if (slottedAttributeFqn == attributeFqn || attributeFqn.equals(slottedAttributeFqn))
+			{
+				return checkAndNotifyNamedAttributeValueConsumed(attributeFqn, slottedAttributeBags[attributeSlot], datatype);
+			}
+		}
+
+		final AttributeBag<?> bagResult = lookUpNamedAttributeValue(attributeFqn);
+		if (bagResult == null)
+		{
+			return null;
+		}
+
+		if (slottedAttributeFqns == null)
+		{
+			final int initialSlotCount = Math.max(attributeSlot + 1, 16);
+			slottedAttributeFqns = new AttributeFqn[initialSlotCount];
+			slottedAttributeBags = new AttributeBag<?>[initialSlotCount];
+		}
+		else if (attributeSlot >= slottedAttributeFqns.length)
+		{
+			final int newSlotCount = Math.max(attributeSlot + 1, 2 * slottedAttributeFqns.length);
+			slottedAttributeFqns = Arrays.copyOf(slottedAttributeFqns, newSlotCount);
+			slottedAttributeBags = Arrays.copyOf(slottedAttributeBags, newSlotCount);
+		}
+
+		slottedAttributeFqns[attributeSlot] = attributeFqn;
+		slottedAttributeBags[attributeSlot] = bagResult;
+		return checkAndNotifyNamedAttributeValueConsumed(attributeFqn, bagResult, datatype);
+	}
+
 	@Override
 	public boolean putNamedAttributeValueIfAbsent(final AttributeFqn attributeFqn, final AttributeBag<?> result)
 	{
-		final Bag<?> duplicate = namedAttributes.putIfAbsent(attributeFqn, result);
+		final Bag<?> requestBag = namedAttributes.get(attributeFqn);
+		final Bag<?> duplicate;
+		if (requestBag == null)
+		{
+			if (producedNamedAttributes == null)
+			{
+				producedNamedAttributes = HashCollections.newUpdatableMap();
+			}
+
+			duplicate = producedNamedAttributes.putIfAbsent(attributeFqn, result);
+		}
+		else
+		{
+			duplicate = requestBag;
+		}
+
 		if (duplicate != null)
 		{
 			/*
@@ -155,7 +312,11 @@ public final class IndividualDecisionRequestContext implements EvaluationContext
 			return false;
 		}
 
-		this.listeners.forEach((lt, l) -> l.namedAttributeValueProduced(attributeFqn, result));
+		if (this.listeners != null)
+		{
+			this.listeners.forEach((lt, l) -> l.namedAttributeValueProduced(attributeFqn, result));
+		}
+
 		/*
 		 * Attribute value cannot change during evaluation context, so if old value already there, put it back
 		 */
@@ -173,6 +334,11 @@ public final class IndividualDecisionRequestContext implements EvaluationContext
 	@Override
 	public <AV extends AttributeValue> Bag<AV> getAttributeSelectorResult(final AttributeSelectorExpression<AV> attributeSelector) throws IndeterminateEvaluationException
 	{
+		if (attributeSelectorResults == null)
+		{
+			return null;
+		}
+
 		final Bag<?> bagResult = attributeSelectorResults.get(attributeSelector.getAttributeSelectorId());
 		if (bagResult == null)
 		{
@@ -193,7 +359,11 @@ public final class IndividualDecisionRequestContext implements EvaluationContext
 		 * If datatype classes match, bagResult should has same type as datatypeClass.
 		 */
 		final Bag<AV> result = expectedBagDatatype.cast(bagResult);
-		this.listeners.forEach((lt, l) -> l.attributeSelectorResultConsumed(attributeSelector, result));
+		if (this.listeners != null)
+		{
+			this.listeners.forEach((lt, l) -> l.attributeSelectorResultConsumed(attributeSelector, result));
+		}
+
 		return result;
 	}
 
@@ -202,12 +372,25 @@ public final class IndividualDecisionRequestContext implements EvaluationContext
 	public <AV extends AttributeValue> boolean putAttributeSelectorResultIfAbsent(final AttributeSelectorExpression<AV> attributeSelector, final Bag<AV> result) throws IndeterminateEvaluationException
 	{
 		final AttributeSelectorId attSelectorId = attributeSelector.getAttributeSelectorId();
+		if (attributeSelectorResults == null)
+		{
+			/*
+			 * Results are not kept if there is no Content
+			 */
+			attributeSelectorResults = extraContentsByAttributeCategory.isEmpty() ? UpdatableCollections.emptyMap() : UpdatableCollections.newUpdatableMap();
+		}
+
 		if (attributeSelectorResults.putIfAbsent(attSelectorId, result) != null)
 		{
 			LOGGER.error("Attempt to override value of AttributeSelector {} already set in evaluation context. Overriding value: {}", attSelectorId, result);
 			return false;
 		}
 
+		if (this.listeners == null)
+		{
+			return true;
+		}
+
 		for (final Listener listener : this.listeners.values())
 		{
 			final Optional<AttributeFqn> optionalContextSelectorFQN = attributeSelector.getContextSelectorFQN();
@@ -224,7 +407,7 @@ public final class IndividualDecisionRequestContext implements EvaluationContext
 	@Override
 	public <V extends Value> V getVariableValue(final String variableId, final Datatype<V> expectedDatatype) throws IndeterminateEvaluationException
 	{
-		final Value val = varValsById.get(variableId);
+		final Value val = varValsById == null ? null : varValsById.get(variableId);
 		if (val == null)
 		{
 			return null;
@@ -244,6 +427,11 @@ public final class IndividualDecisionRequestContext implements EvaluationContext
 	@Override
 	public boolean putVariableIfAbsent(final String variableId, final Value value)
 	{
+		if (varValsById == null)
+		{
+			varValsById = HashCollections.newMutableMap();
+		}
+
 		if (varValsById.putIfAbsent(variableId, value) != null)
 		{
 			LOGGER.error("Attempt to override value of Variable '{}' already set in evaluation context. Overriding value: {}", variableId, value);
@@ -257,27 +445,32 @@ public final class IndividualDecisionRequestContext implements EvaluationContext
 	@Override
 	public Value removeVariable(final String variableId)
 	{
-		return varValsById.remove(variableId);
+		return varValsById == null ? null : varValsById.remove(variableId);
 	}
 
 	/** {@inheritDoc} */
 	@Override
 	public Object getOther(final String key)
 	{
-		return mutableProperties.get(key);
+		return mutableProperties == null ? null : mutableProperties.get(key);
 	}
 
 	/** {@inheritDoc} */
 	@Override
 	public boolean containsKey(final String key)
 	{
-		return mutableProperties.containsKey(key);
+		return mutableProperties != null && mutableProperties.containsKey(key);
 	}
 
 	/** {@inheritDoc} */
 	@Override
 	public void putOther(final String key, final Object val)
 	{
+		if (mutableProperties == null)
+		{
+			mutableProperties = HashCollections.newMutableMap();
+		}
+
 		mutableProperties.put(key, val);
 	}
 
@@ -285,14 +478,16 @@ public final class IndividualDecisionRequestContext implements EvaluationContext
 	@Override
 	public Object remove(final String key)
 	{
-		return mutableProperties.remove(key);
+		return mutableProperties == null ? null : mutableProperties.remove(key);
 	}
 
 	/** {@inheritDoc} */
 	@Override
 	public Iterator<Entry<AttributeFqn, AttributeBag<?>>> getNamedAttributes()
 	{
-		final Set<Entry<AttributeFqn, AttributeBag<?>>> immutableAttributeSet = Collections.unmodifiableSet(namedAttributes.entrySet());
+		final Map<AttributeFqn, AttributeBag<?>> allNamedAttributes = producedNamedAttributes == null || producedNamedAttributes.isEmpty() ? namedAttributes
+				: LayeredMap.of(namedAttributes, producedNamedAttributes);
+		final Set<Entry<AttributeFqn, AttributeBag<?>>> immutableAttributeSet = Collections.unmodifiableSet(allNamedAttributes.entrySet());
 		return immutableAttributeSet.iterator();
 	}
 
@@ -305,12 +500,17 @@ public final class IndividualDecisionRequestContext implements EvaluationContext
 	@Override
 	public <L extends Listener> L putListener(final Class<L> listenerType, final L listener)
 	{
+		if (this.listeners == null)
+		{
+			this.listeners = MutableClassToInstanceMap.create();
+		}
+
 		return this.listeners.putInstance(listenerType, listener);
 	}
 
 	@Override
 	public <L extends Listener> L getListener(final Class<L> listenerType)
 	{
-		return this.listeners.getInstance(listenerType);
+		return this.listeners == null ? null : this.listeners.getInstance(listenerType);
 	}
 }
\ No newline at end of file
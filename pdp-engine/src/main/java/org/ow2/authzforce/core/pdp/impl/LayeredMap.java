@@ -0,0 +1,155 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+import org.ow2.authzforce.core.pdp.api.HashCollections;
+
+/**
+ * Read-only view of several maps ("layers") stacked by priority, i.e. a mapping in a layer hides any mapping for the same key in the layers below. This avoids copying the layers into a new map when
+ * only lookups are required, which is the most common case (e.g. request attributes and PDP-issued attributes looked up during policy evaluation). The layers must not be modified as long as this
+ * view is used.
+ * <p>
+ * {@link #get(Object)} and {@link #containsKey(Object)} look up each layer in decreasing priority order. The other (less frequently used) read operations - iteration in particular - are done on a
+ * merged copy of the layers, created lazily (once).
+ *
+ * @param <K>
+ *            key type
+ * @param <V>
+ *            value type
+ */
+final class LayeredMap<K, V> extends AbstractMap<K, V>
+{
+	// layers in decreasing order of priority
+	private final Map<K, V>[] layers;
+
+	private transient volatile Map<K, V> mergedLayers = null;
+
+	@SafeVarargs
+	private LayeredMap(final Map<K, V>... layersByDecreasingPriority)
+	{
+		assert layersByDecreasingPriority.length > 1;
+		this.layers = layersByDecreasingPriority;
+	}
+
+	/**
+	 * Creates a two-layer map
+	 * 
+	 * @param upperLayer
+	 *            layer with priority (non-null)
+	 * @param lowerLayer
+	 *            layer overridden by {@code upperLayer} (non-null)
+	 * @return layered map
+	 */
+	static <K, V> Map<K, V> of(final Map<K, V> upperLayer, final Map<K, V> lowerLayer)
+	{
+		assert upperLayer != null && lowerLayer != null;
+		return new LayeredMap<>(upperLayer, lowerLayer);
+	}
+
+	/**
+	 * Creates a three-layer map
+	 * 
+	 * @param upperLayer
+	 *            layer with highest priority (non-null)
+	 * @param middleLayer
+	 *            layer overridden by {@code upperLayer} (non-null)
+	 * @param lowerLayer
+	 *            layer overridden by both {@code upperLayer} and {@code middleLayer} (non-null)
+	 * @return layered map
+	 */
+	static <K, V> Map<K, V> of(final Map<K, V> upperLayer, final Map<K, V> middleLayer, final Map<K, V> lowerLayer)
+	{
+		assert upperLayer != null && middleLayer != null && lowerLayer != null;
+		return new LayeredMap<>(upperLayer, middleLayer, lowerLayer);
+	}
+
+	@Override
+	public V get(final Object key)
+	{
+		for (final Map<K, V> layer : layers)
+		{
+			final V value = layer.get(key);
+			if (value != null)
+			{
+				return value;
+			}
+		}
+
+		return null;
+	}
+
+	@Override
+	public boolean containsKey(final Object key)
+	{
+		for (final Map<K, V> layer : layers)
+		{
+			if (layer.containsKey(key))
+			{
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private Map<K, V> getMergedLayers()
+	{
+		Map<K, V> result = mergedLayers;
+		if (result == null)
+		{
+			// mappings in order of increasing priority
+			final Map<K, V> updatableMergedLayers = layers.length == 2 ? HashCollections.newUpdatableMap(layers[1], layers[0])
+					: HashCollections.newUpdatableMap(layers[2], layers[1], layers[0]);
+			result = Collections.unmodifiableMap(updatableMergedLayers);
+			mergedLayers = result;
+		}
+
+		return result;
+	}
+
+	@Override
+	public int size()
+	{
+		return getMergedLayers().size();
+	}
+
+	@Override
+	public boolean isEmpty()
+	{
+		for (final Map<K, V> layer : layers)
+		{
+			if (!layer.isEmpty())
+			{
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	@Override
+	public Set<Entry<K, V>> entrySet()
+	{
+		return getMergedLayers().entrySet();
+	}
+}
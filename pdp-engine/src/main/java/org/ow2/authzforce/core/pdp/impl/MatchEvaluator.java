@@ -19,6 +19,8 @@ package org.ow2.authzforce.core.pdp.impl;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 import net.sf.saxon.s9api.XPathCompiler;
 import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributeDesignatorType;
@@ -28,6 +30,7 @@ import oasis.names.tc.xacml._3_0.core.schema.wd_17.Match;
 
 import org.ow2.authzforce.core.pdp.api.EvaluationContext;
 import org.ow2.authzforce.core.pdp.api.IndeterminateEvaluationException;
+import org.ow2.authzforce.core.pdp.api.expression.AttributeDesignatorExpression;
 import org.ow2.authzforce.core.pdp.api.expression.Expression;
 import org.ow2.authzforce.core.pdp.api.expression.ExpressionFactory;
 import org.ow2.authzforce.core.pdp.api.expression.FunctionExpression;
@@ -37,6 +40,8 @@ import org.ow2.authzforce.core.pdp.api.value.AttributeValue;
 import org.ow2.authzforce.core.pdp.api.value.BooleanValue;
 import org.ow2.authzforce.core.pdp.impl.func.StandardFunction;
 
+import com.google.common.collect.ImmutableSet;
+
 /**
  * XACML Match evaluator. This is the part of the Target that actually evaluates whether the specified attribute values in the Target match the corresponding attribute values in the request context.
  *
@@ -48,6 +53,11 @@ public final class MatchEvaluator
 	private static final IllegalArgumentException NULL_XACML_MATCH_ARGUMENT_EXCEPTION = new IllegalArgumentException("Undefined input XACML Match element");
 	private static final IllegalArgumentException NULL_XACML_EXPRESSION_FACTORY_ARGUMENT_EXCEPTION = new IllegalArgumentException("Undefined input XACML Expression parser");
 
+	/**
+	 * IDs of match functions that are plain equality of values, i.e. such that Match(matchFunction, attributeValue, bag) is True iff the bag contains attributeValue
+	 */
+	private static final Set<String> EQUALITY_MATCH_FUNCTION_IDS = ImmutableSet.of(StandardFunction.STRING_EQUAL.getId(), StandardFunction.ANYURI_EQUAL.getId());
+
 	/**
 	 * Any-of function call equivalent to this Match:
 	 * <p>
@@ -55,6 +65,11 @@ public final class MatchEvaluator
 	 */
 	private final transient FunctionCall<BooleanValue> anyOfFuncCall;
 
+	/*
+	 * Non-null iff this is an equality Match between a constant AttributeValue and an AttributeDesignator
+	 */
+	private final transient TargetIndexKey indexKey;
+
 	/**
 	 * Instantiates Match evaluator from XACML-Schema-derived JAXB Match
 	 *
@@ -124,6 +139,20 @@ public final class MatchEvaluator
 		{
 			throw new IllegalArgumentException("Invalid inputs (Expressions) to the Match (validated using the equivalent standard 'any-of' function definition): " + anyOfFuncInputs, e);
 		}
+
+		final Optional<? extends AttributeValue> constantValue = attrValueExpr.getValue();
+		this.indexKey = EQUALITY_MATCH_FUNCTION_IDS.contains(matchId) && bagExpression instanceof AttributeDesignatorExpression && constantValue.isPresent()
+		        ? new TargetIndexKey((AttributeDesignatorExpression<?>) bagExpression, ImmutableSet.of(constantValue.get())) : null;
+	}
+
+	/**
+	 * Get the necessary condition for this Match to be True, if it is an equality Match ('string-equal' or 'anyURI-equal') between a constant AttributeValue and an AttributeDesignator
+	 * 
+	 * @return index key, or null if this Match is not such an equality Match
+	 */
+	TargetIndexKey getIndexKey()
+	{
+		return indexKey;
 	}
 
 	/**
@@ -29,11 +29,18 @@ import java.net.URL;
 import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import javax.xml.bind.JAXBException;
 import javax.xml.transform.Source;
@@ -55,7 +62,10 @@ import org.ow2.authzforce.core.pdp.api.func.FirstOrderFunction;
 import org.ow2.authzforce.core.pdp.api.func.Function;
 import org.ow2.authzforce.core.pdp.api.io.XacmlJaxbParsingUtils;
 import org.ow2.authzforce.core.pdp.api.policy.CloseableRefPolicyProvider;
+import org.ow2.authzforce.core.pdp.api.policy.PolicyVersion;
 import org.ow2.authzforce.core.pdp.api.policy.RootPolicyProvider;
+import org.ow2.authzforce.core.pdp.api.policy.StaticRefPolicyProvider;
+import org.ow2.authzforce.core.pdp.api.policy.TopLevelPolicyElementType;
 import org.ow2.authzforce.core.pdp.api.value.AttributeValueFactory;
 import org.ow2.authzforce.core.pdp.api.value.AttributeValueFactoryRegistry;
 import org.ow2.authzforce.core.pdp.api.value.Datatype;
@@ -70,9 +80,13 @@ import org.ow2.authzforce.core.pdp.impl.expression.DepthLimitingExpressionFactor
 import org.ow2.authzforce.core.pdp.impl.func.FunctionRegistry;
 import org.ow2.authzforce.core.pdp.impl.func.ImmutableFunctionRegistry;
 import org.ow2.authzforce.core.pdp.impl.func.StandardFunction;
+import org.ow2.authzforce.core.pdp.impl.policy.CachingRefPolicyProvider;
+import org.ow2.authzforce.core.pdp.impl.policy.CoreRefPolicyProvider;
 import org.ow2.authzforce.core.xmlns.pdp.InOutProcChain;
 import org.ow2.authzforce.core.xmlns.pdp.Pdp;
+import org.ow2.authzforce.core.xmlns.pdp.RefPolicyCache;
 import org.ow2.authzforce.core.xmlns.pdp.StandardEnvironmentAttributeSource;
+import org.ow2.authzforce.core.xmlns.pdp.TenantRootPolicy;
 import org.ow2.authzforce.xacml.identifiers.XacmlDatatypeId;
 import org.ow2.authzforce.xmlns.pdp.ext.AbstractAttributeProvider;
 import org.ow2.authzforce.xmlns.pdp.ext.AbstractDecisionCache;
@@ -82,6 +96,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.util.ResourceUtils;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * PDP engine configuration
@@ -102,6 +117,14 @@ public final class PdpEngineConfiguration
 
 	private static final IllegalArgumentException NULL_PDP_MODEL_HANDLER_ARGUMENT_EXCEPTION = new IllegalArgumentException("Undefined PDP configuration model handler");
 
+	private static final long CHILD_POLICY_EVALUATION_THREAD_KEEP_ALIVE_SEC = 60;
+
+	/*
+	 * Runs the rejected child policy evaluation in the calling thread, whether the executor is saturated or shut down (unlike ThreadPoolExecutor.CallerRunsPolicy which discards the task if the
+	 * executor is shut down, so the evaluation would never complete)
+	 */
+	private static final RejectedExecutionHandler CHILD_POLICY_EVALUATION_CALLER_RUNS_HANDLER = (task, executor) -> task.run();
+
 	private static boolean isXpathBased(final Function<?> function)
 	{
 		/*
@@ -154,19 +177,97 @@ public final class PdpEngineConfiguration
 		return decisionCacheFactory.getInstance(jaxbConf, attValFactories, envProps);
 	}
 
+	/*
+	 * Root policy provider and the refPolicyProvider it uses, if any, created together by createPolicyProviders()
+	 */
+	static final class PolicyProviders
+	{
+		private final RootPolicyProvider rootPolicyProvider;
+		private final Optional<CloseableRefPolicyProvider> refPolicyProvider;
+
+		private PolicyProviders(final RootPolicyProvider rootPolicyProvider, final Optional<CloseableRefPolicyProvider> refPolicyProvider)
+		{
+			assert rootPolicyProvider != null && refPolicyProvider != null;
+			this.rootPolicyProvider = rootPolicyProvider;
+			this.refPolicyProvider = refPolicyProvider;
+		}
+
+		RootPolicyProvider getRootPolicyProvider()
+		{
+			return rootPolicyProvider;
+		}
+
+		/*
+		 * Closes both providers
+		 */
+		void close() throws IOException
+		{
+			try
+			{
+				rootPolicyProvider.close();
+			} finally
+			{
+				if (refPolicyProvider.isPresent())
+				{
+					refPolicyProvider.get().close();
+				}
+			}
+		}
+	}
+
 	private final boolean enableXPath;
 	private final AttributeValueFactoryRegistry attValFactoryRegistry;
 
 	private final ExpressionFactory xacmlExpressionFactory;
 
-	private final RootPolicyProvider rootPolicyProvider;
+	private final PolicyProviders policyProviders;
+
+	/*
+	 * Policy provider configurations and the policy parsing parameters, kept for reloading the policies
+	 */
+	private final AbstractPolicyProvider rootPolicyProviderJaxbConf;
+	private final AbstractPolicyProvider refPolicyProviderJaxbConf;
+	private final RefPolicyCache refPolicyCacheJaxbConf;
+	private final XmlnsFilteringParserFactory xacmlParserFactory;
+	private final int maxPolicySetRefDepth;
+	private final CombiningAlgRegistry combiningAlgRegistry;
+	private final EnvironmentProperties envProps;
+
+	/*
+	 * Last refPolicyProvider created by createRootPolicyProvider(), if any, from which the next one is derived incrementally when possible
+	 */
+	private CloseableRefPolicyProvider lastRefPolicyProvider = null;
+
+	private final int policyReloadCheckIntervalSec;
 
 	private final boolean strictAttributeIssuerMatch;
 
 	private final StandardEnvironmentAttributeSource stdEnvAttributeSource;
 
+	private final long stdEnvAttributeTimeGranularityMillis;
+
+	private final boolean reuseEvaluationContexts;
+
+	private final boolean compileStaticPolicyTree;
+
+	private final boolean adaptiveMatchOrdering;
+
+	private final boolean adaptiveCombiningOrder;
+
+	private final int childPolicyEvaluationThreads;
+
+	private final int childPolicyEvaluationMinChildren;
+
+	private final Optional<ExecutorService> childPolicyEvaluationExecutor;
+
 	private final Optional<DecisionCache> decisionCache;
 
+	private final int individualDecisionRequestParallelism;
+
+	private final int asyncEvaluationThreads;
+
+	private final int asyncEvaluationQueueCapacity;
+
 	private final Map<Class<?>, Entry<DecisionRequestPreprocessor<?, ?>, DecisionResultPostprocessor<?, ?>>> ioProcChainsByInputType;
 
 	private final int clientReqErrVerbosityLevel;
@@ -191,12 +292,14 @@ public final class PdpEngineConfiguration
 		/*
 		 * Root policy provider
 		 */
-		final AbstractPolicyProvider rootPolicyProviderJaxbConf = pdpJaxbConf.getRootPolicyProvider();
+		this.rootPolicyProviderJaxbConf = pdpJaxbConf.getRootPolicyProvider();
 		if (rootPolicyProviderJaxbConf == null)
 		{
 			throw NULL_ROOTPOLICYPROVIDER_ARGUMENT_EXCEPTION;
 		}
 
+		this.envProps = envProps;
+
 		/*
 		 * Enable support for XPath expressions, XPath functions, etc.
 		 */
@@ -238,6 +341,20 @@ public final class PdpEngineConfiguration
 		 */
 		stdEnvAttributeSource = stdEnvAttSourceFromJaxbConf == null ? StandardEnvironmentAttributeSource.REQUEST_ELSE_PDP : stdEnvAttSourceFromJaxbConf;
 
+		final BigInteger stdEnvAttributeTimeGranularityBigInt = pdpJaxbConf.getStandardEnvAttributeTimeGranularityMillis();
+		try
+		{
+			this.stdEnvAttributeTimeGranularityMillis = stdEnvAttributeTimeGranularityBigInt == null ? 0 : stdEnvAttributeTimeGranularityBigInt.longValueExact();
+		} catch (final ArithmeticException e)
+		{
+			throw new IllegalArgumentException("Invalid standardEnvAttributeTimeGranularityMillis: " + stdEnvAttributeTimeGranularityBigInt, e);
+		}
+
+		this.reuseEvaluationContexts = pdpJaxbConf.isReuseEvaluationContexts();
+		this.compileStaticPolicyTree = pdpJaxbConf.isCompileStaticPolicyTree();
+		this.adaptiveMatchOrdering = pdpJaxbConf.isAdaptiveMatchOrdering();
+		this.adaptiveCombiningOrder = pdpJaxbConf.isAdaptiveCombiningOrder();
+
 		// Extra Attribute Providers
 		final List<AbstractAttributeProvider> attProviderJaxbConfs = pdpJaxbConf.getAttributeProviders();
 		final List<CloseableNamedAttributeProvider.DependencyAwareFactory> attProviderFactories = new ArrayList<>(attProviderJaxbConfs.size());
@@ -305,7 +422,7 @@ public final class PdpEngineConfiguration
 		/*
 		 * XACML element (Policies, etc.) parser factory
 		 */
-		final XmlnsFilteringParserFactory xacmlParserFactory = XacmlJaxbParsingUtils.getXacmlParserFactory(enableXPath);
+		this.xacmlParserFactory = XacmlJaxbParsingUtils.getXacmlParserFactory(enableXPath);
 
 		/*
 		 * Strict Attribute Issuer match
@@ -325,15 +442,56 @@ public final class PdpEngineConfiguration
 		/*
 		 * Merge with standards if required, or use the standards as is if no extension
 		 */
-		final CombiningAlgRegistry combiningAlgRegistry;
+		final BigInteger childPolicyEvaluationThreadsBigInt = pdpJaxbConf.getChildPolicyEvaluationThreads();
+		try
+		{
+			this.childPolicyEvaluationThreads = childPolicyEvaluationThreadsBigInt == null ? 0 : childPolicyEvaluationThreadsBigInt.intValueExact();
+		} catch (final ArithmeticException e)
+		{
+			throw new IllegalArgumentException("Invalid childPolicyEvaluationThreads: " + childPolicyEvaluationThreadsBigInt, e);
+		}
+
+		final BigInteger childPolicyEvaluationMinChildrenBigInt = pdpJaxbConf.getChildPolicyEvaluationMinChildren();
+		try
+		{
+			this.childPolicyEvaluationMinChildren = childPolicyEvaluationMinChildrenBigInt == null ? StandardCombiningAlgorithm.DEFAULT_MIN_CONCURRENT_CHILD_POLICIES
+			        : childPolicyEvaluationMinChildrenBigInt.intValueExact();
+		} catch (final ArithmeticException e)
+		{
+			throw new IllegalArgumentException("Invalid childPolicyEvaluationMinChildren: " + childPolicyEvaluationMinChildrenBigInt, e);
+		}
+
+		if (childPolicyEvaluationMinChildren < 2)
+		{
+			throw new IllegalArgumentException("Invalid childPolicyEvaluationMinChildren: " + childPolicyEvaluationMinChildren + " (must be at least 2)");
+		}
+
+		if (pdpJaxbConf.isUseStandardCombiningAlgorithms() && childPolicyEvaluationThreads > 0)
+		{
+			/*
+			 * No task queue: when all threads are busy, child policies are evaluated in the calling thread, so that threads evaluating nested PolicySets never wait for queued tasks (no deadlock).
+			 * Threads are daemon threads terminated when idle; the executor is shut down when the PDP engine is closed.
+			 */
+			final ThreadPoolExecutor executor = new ThreadPoolExecutor(childPolicyEvaluationThreads, childPolicyEvaluationThreads, CHILD_POLICY_EVALUATION_THREAD_KEEP_ALIVE_SEC, TimeUnit.SECONDS,
+			        new SynchronousQueue<>(), new ThreadFactoryBuilder().setDaemon(true).setNameFormat("authzforce-pdp-child-policy-%d").build(), CHILD_POLICY_EVALUATION_CALLER_RUNS_HANDLER);
+			executor.allowCoreThreadTimeOut(true);
+			this.childPolicyEvaluationExecutor = Optional.of(executor);
+		} else
+		{
+			this.childPolicyEvaluationExecutor = Optional.empty();
+		}
+
 		if (pdpJaxbConf.isUseStandardCombiningAlgorithms())
 		{
+			final CombiningAlgRegistry standardCombiningAlgRegistry = StandardCombiningAlgorithm.getRegistry(adaptiveCombiningOrder, childPolicyEvaluationExecutor.orElse(null),
+			        childPolicyEvaluationMinChildren);
+
 			if (algExtensions.isEmpty())
 			{
-				combiningAlgRegistry = StandardCombiningAlgorithm.REGISTRY;
+				combiningAlgRegistry = standardCombiningAlgRegistry;
 			} else
 			{
-				combiningAlgRegistry = new ImmutableCombiningAlgRegistry(HashCollections.newImmutableSet(StandardCombiningAlgorithm.REGISTRY.getExtensions(), algExtensions));
+				combiningAlgRegistry = new ImmutableCombiningAlgRegistry(HashCollections.newImmutableSet(standardCombiningAlgRegistry.getExtensions(), algExtensions));
 			}
 		} else
 		{
@@ -344,7 +502,6 @@ public final class PdpEngineConfiguration
 		 * Policy Reference processing - Max PolicySet reference depth
 		 */
 		final BigInteger bigMaxPolicyRefDepth = pdpJaxbConf.getMaxPolicyRefDepth();
-		final int maxPolicySetRefDepth;
 		try
 		{
 			maxPolicySetRefDepth = bigMaxPolicyRefDepth == null ? -1 : bigMaxPolicyRefDepth.intValueExact();
@@ -356,25 +513,33 @@ public final class PdpEngineConfiguration
 		/*
 		 * XACML Expression factory/parser
 		 */
-		xacmlExpressionFactory = new DepthLimitingExpressionFactory(attValFactoryRegistry, functionRegistry, attProviderFactories, maxVarRefDepth, enableXPath, strictAttributeIssuerMatch);
+		xacmlExpressionFactory = new DepthLimitingExpressionFactory(attValFactoryRegistry, functionRegistry, attProviderFactories, maxVarRefDepth, enableXPath, strictAttributeIssuerMatch,
+				adaptiveMatchOrdering);
 
 		/*
 		 * Policy Reference processing - Policy-by-reference Provider
 		 */
-		final AbstractPolicyProvider refPolicyProviderJaxbConf = pdpJaxbConf.getRefPolicyProvider();
-		final Optional<CloseableRefPolicyProvider> refPolicyProvider;
-		if (refPolicyProviderJaxbConf == null)
-		{
-			refPolicyProvider = Optional.empty();
-		} else
+		this.refPolicyProviderJaxbConf = pdpJaxbConf.getRefPolicyProvider();
+		this.refPolicyCacheJaxbConf = pdpJaxbConf.getRefPolicyCache();
+		if (refPolicyCacheJaxbConf != null && refPolicyProviderJaxbConf == null)
 		{
-			refPolicyProvider = Optional.of(newRefPolicyProvider(refPolicyProviderJaxbConf, xacmlParserFactory, maxPolicySetRefDepth, xacmlExpressionFactory, combiningAlgRegistry, envProps));
+			throw new IllegalArgumentException("Invalid refPolicyCache: undefined refPolicyProvider");
 		}
 
 		/*
 		 * Root Policy Provider
 		 */
-		rootPolicyProvider = newRootPolicyProvider(rootPolicyProviderJaxbConf, xacmlParserFactory, xacmlExpressionFactory, combiningAlgRegistry, refPolicyProvider, envProps);
+		policyProviders = createPolicyProviders();
+
+		// Policy reloading
+		final BigInteger policyReloadCheckIntervalSecBigInt = pdpJaxbConf.getPolicyReloadCheckIntervalSec();
+		try
+		{
+			this.policyReloadCheckIntervalSec = policyReloadCheckIntervalSecBigInt == null ? 0 : policyReloadCheckIntervalSecBigInt.intValueExact();
+		} catch (final ArithmeticException e)
+		{
+			throw new IllegalArgumentException("Invalid policyReloadCheckIntervalSec: " + policyReloadCheckIntervalSecBigInt, e);
+		}
 
 		// Decision cache
 		final AbstractDecisionCache decisionCacheJaxbConf = pdpJaxbConf.getDecisionCache();
@@ -386,6 +551,35 @@ public final class PdpEngineConfiguration
 			decisionCache = Optional.of(newDecisionCache(decisionCacheJaxbConf, attValFactoryRegistry, envProps));
 		}
 
+		// Parallelism of Multiple Decision Request evaluation
+		final BigInteger individualDecisionRequestParallelismBigInt = pdpJaxbConf.getIndividualDecisionRequestParallelism();
+		try
+		{
+			this.individualDecisionRequestParallelism = individualDecisionRequestParallelismBigInt == null ? 1 : individualDecisionRequestParallelismBigInt.intValueExact();
+		} catch (final ArithmeticException e)
+		{
+			throw new IllegalArgumentException("Invalid individualDecisionRequestParallelism: " + individualDecisionRequestParallelismBigInt, e);
+		}
+
+		// Asynchronous evaluation
+		final BigInteger asyncEvaluationThreadsBigInt = pdpJaxbConf.getAsyncEvaluationThreads();
+		try
+		{
+			this.asyncEvaluationThreads = asyncEvaluationThreadsBigInt == null ? 0 : asyncEvaluationThreadsBigInt.intValueExact();
+		} catch (final ArithmeticException e)
+		{
+			throw new IllegalArgumentException("Invalid asyncEvaluationThreads: " + asyncEvaluationThreadsBigInt, e);
+		}
+
+		final BigInteger asyncEvaluationQueueCapacityBigInt = pdpJaxbConf.getAsyncEvaluationQueueCapacity();
+		try
+		{
+			this.asyncEvaluationQueueCapacity = asyncEvaluationQueueCapacityBigInt == null ? BasePdpEngine.DEFAULT_ASYNC_EVALUATION_QUEUE_CAPACITY : asyncEvaluationQueueCapacityBigInt.intValueExact();
+		} catch (final ArithmeticException e)
+		{
+			throw new IllegalArgumentException("Invalid asyncEvaluationQueueCapacity: " + asyncEvaluationQueueCapacityBigInt, e);
+		}
+
 		// Decision Result postprocessor
 		final BigInteger clientReqErrVerbosityBigInt = pdpJaxbConf.getClientRequestErrorVerbosityLevel();
 		try
@@ -737,7 +931,15 @@ public final class PdpEngineConfiguration
 	 */
 	public RootPolicyProvider getRootPolicyProvider()
 	{
-		return rootPolicyProvider;
+		return policyProviders.rootPolicyProvider;
+	}
+
+	/*
+	 * Root policy provider returned by getRootPolicyProvider() along with the refPolicyProvider it uses
+	 */
+	PolicyProviders getPolicyProviders()
+	{
+		return policyProviders;
 	}
 
 	/**
@@ -769,6 +971,275 @@ public final class PdpEngineConfiguration
 		return stdEnvAttributeSource;
 	}
 
+	/**
+	 * Returns the time granularity (in milliseconds) of the PDP-issued standard environment attributes (current date/time); 0 means new values for each request
+	 * 
+	 * @return standard environment attribute time granularity
+	 */
+	public long getStdEnvAttributeTimeGranularityMillis()
+	{
+		return stdEnvAttributeTimeGranularityMillis;
+	}
+
+	/**
+	 * Returns true iff evaluation contexts are reused (per thread) across individual decision requests
+	 * 
+	 * @return true iff evaluation context reuse is enabled
+	 */
+	public boolean isEvaluationContextReuseEnabled()
+	{
+		return reuseEvaluationContexts;
+	}
+
+	/**
+	 * Returns true iff the policy tree must be compiled (Targets of combined elements compiled into decision diagrams) when the root policy is static
+	 * 
+	 * @return true iff static policy tree compilation is enabled
+	 */
+	public boolean isStaticPolicyTreeCompilationEnabled()
+	{
+		return compileStaticPolicyTree;
+	}
+
+	/**
+	 * Returns true iff the evaluation order of Matches in AllOfs (and AllOfs in AnyOfs) is adapted to evaluation statistics, instead of document order
+	 * 
+	 * @return true iff adaptive Match ordering is enabled
+	 */
+	public boolean isAdaptiveMatchOrderingEnabled()
+	{
+		return adaptiveMatchOrdering;
+	}
+
+	/**
+	 * Returns true iff the evaluation order of the child policies combined by the standard (non-ordered) policy-combining deny-overrides/permit-overrides algorithms is adapted to evaluation
+	 * statistics, instead of document order
+	 * 
+	 * @return true iff adaptive combining order is enabled
+	 */
+	public boolean isAdaptiveCombiningOrderEnabled()
+	{
+		return adaptiveCombiningOrder;
+	}
+
+	/**
+	 * Returns the maximum number of threads used to evaluate concurrently the child policies combined by the standard policy-combining (ordered-)deny-overrides/permit-overrides algorithms (0 means
+	 * sequential evaluation)
+	 * 
+	 * @return child policy evaluation thread count
+	 */
+	public int getChildPolicyEvaluationThreads()
+	{
+		return childPolicyEvaluationThreads;
+	}
+
+	/**
+	 * Returns the minimum number of candidate child policies (after filtering by the Target index, if any) for them to be evaluated concurrently, if {@link #getChildPolicyEvaluationThreads()} &gt; 0
+	 * 
+	 * @return minimum number of child policies for concurrent evaluation
+	 */
+	public int getChildPolicyEvaluationMinChildren()
+	{
+		return childPolicyEvaluationMinChildren;
+	}
+
+	/**
+	 * Returns the executor of the concurrent evaluations of child policies, if {@link #getChildPolicyEvaluationThreads()} &gt; 0 and standard combining algorithms are used. It is shut down by the
+	 * PDP engine created from this configuration when the engine is closed; after that, the child policies are evaluated in the calling thread.
+	 * 
+	 * @return child policy evaluation executor, if any
+	 */
+	Optional<ExecutorService> getChildPolicyEvaluationExecutor()
+	{
+		return childPolicyEvaluationExecutor;
+	}
+
+	/**
+	 * Returns the interval between checks for changes of the policy files, after which the policies are reloaded if changed (0 means no check)
+	 * 
+	 * @return policy reload check interval (seconds)
+	 */
+	public int getPolicyReloadCheckIntervalSec()
+	{
+		return policyReloadCheckIntervalSec;
+	}
+
+	/**
+	 * Creates a new root policy provider - along with the refPolicyProvider if any - from this configuration, parsing the policies again from their locations. Used for reloading the policies,
+	 * since the new root policy provider uses the same expression factory ({@link #getXacmlExpressionFactory()}) and other PDP extensions as {@link #getRootPolicyProvider()}.
+	 * <p>
+	 * If the refPolicyProvider is a {@link CoreRefPolicyProvider}, the new one is derived from the one previously created, i.e. only the changed policy files are parsed again, and only the changed
+	 * policies and the PolicySets referring to them are rebuilt (see {@link CoreRefPolicyProvider#getUpdatedInstance(java.util.Collection)}).
+	 * 
+	 * @return new root policy provider
+	 * @throws IllegalArgumentException
+	 *             if the policies at the configured locations are invalid
+	 */
+	public RootPolicyProvider createRootPolicyProvider() throws IllegalArgumentException
+	{
+		return createPolicyProviders().rootPolicyProvider;
+	}
+
+	/*
+	 * Same as createRootPolicyProvider() but also returns the new refPolicyProvider, so that the caller may close it along with the root policy provider when not used anymore
+	 */
+	synchronized PolicyProviders createPolicyProviders() throws IllegalArgumentException
+	{
+		/*
+		 * Policy Reference processing - Policy-by-reference Provider
+		 */
+		final Optional<CloseableRefPolicyProvider> refPolicyProvider;
+		if (refPolicyProviderJaxbConf == null)
+		{
+			refPolicyProvider = Optional.empty();
+		} else if (lastRefPolicyProvider instanceof CoreRefPolicyProvider && refPolicyProviderJaxbConf instanceof org.ow2.authzforce.core.xmlns.pdp.StaticRefPolicyProvider)
+		{
+			final List<URL> refPolicyURLs = CoreRefPolicyProvider.getPolicyURLs(((org.ow2.authzforce.core.xmlns.pdp.StaticRefPolicyProvider) refPolicyProviderJaxbConf).getPolicyLocations(), envProps);
+			refPolicyProvider = Optional.of(((CoreRefPolicyProvider) lastRefPolicyProvider).getUpdatedInstance(refPolicyURLs));
+		} else
+		{
+			final CloseableRefPolicyProvider newRefPolicyProvider = newRefPolicyProvider(refPolicyProviderJaxbConf, xacmlParserFactory, maxPolicySetRefDepth, xacmlExpressionFactory,
+			        combiningAlgRegistry, envProps);
+			refPolicyProvider = Optional.of(refPolicyCacheJaxbConf == null ? newRefPolicyProvider : newCachingRefPolicyProvider(newRefPolicyProvider));
+		}
+
+		final RootPolicyProvider newRootPolicyProvider;
+		try
+		{
+			newRootPolicyProvider = newRootPolicyProvider(rootPolicyProviderJaxbConf, xacmlParserFactory, xacmlExpressionFactory, combiningAlgRegistry, refPolicyProvider, envProps);
+		} catch (final IllegalArgumentException e)
+		{
+			if (refPolicyProvider.isPresent())
+			{
+				try
+				{
+					refPolicyProvider.get().close();
+				} catch (final IOException closeException)
+				{
+					e.addSuppressed(closeException);
+				}
+			}
+
+			throw e;
+		}
+
+		lastRefPolicyProvider = refPolicyProvider.orElse(null);
+		return new PolicyProviders(newRootPolicyProvider, refPolicyProvider);
+	}
+
+	/*
+	 * Wraps the refPolicyProvider in the refPolicyCache (the refPolicyProvider is closed if invalid)
+	 */
+	private CachingRefPolicyProvider newCachingRefPolicyProvider(final CloseableRefPolicyProvider refPolicyProvider) throws IllegalArgumentException
+	{
+		final IllegalArgumentException error;
+		if (refPolicyProvider instanceof StaticRefPolicyProvider)
+		{
+			error = new IllegalArgumentException("Invalid refPolicyCache: refPolicyProvider '" + refPolicyProvider
+			        + "' is static (Policy(Set)IdReferences resolved once and for all when the policies are loaded), the cache is for dynamic refPolicyProviders only");
+		} else
+		{
+			try
+			{
+				return new CachingRefPolicyProvider(refPolicyProvider, refPolicyCacheJaxbConf.getMaxElementsInMemory().longValueExact(),
+				        refPolicyCacheJaxbConf.getTimeToLiveSec().longValueExact());
+			} catch (final ArithmeticException e)
+			{
+				error = new IllegalArgumentException("Invalid refPolicyCache: maxElementsInMemory or timeToLiveSec too big", e);
+			}
+		}
+
+		try
+		{
+			refPolicyProvider.close();
+		} catch (final IOException closeException)
+		{
+			error.addSuppressed(closeException);
+		}
+
+		throw error;
+	}
+
+	/*
+	 * refPolicyCache of the refPolicyProvider last created, if any
+	 */
+	private Optional<CachingRefPolicyProvider> getLastRefPolicyCache()
+	{
+		return lastRefPolicyProvider instanceof CachingRefPolicyProvider ? Optional.of((CachingRefPolicyProvider) lastRefPolicyProvider) : Optional.empty();
+	}
+
+	/**
+	 * Removes all versions of a given policy from the refPolicyCache, if any, e.g. after publishing a new policy or policy version to the repository behind the refPolicyProvider (see
+	 * {@link CachingRefPolicyProvider#invalidate(TopLevelPolicyElementType, String)}). The cache is the one of the refPolicyProvider last created from this configuration, i.e. the one used by the PDP
+	 * engine since the last policy reload, if any.
+	 * 
+	 * @param policyType
+	 *            type of policy (Policy or PolicySet)
+	 * @param policyId
+	 *            policy ID
+	 */
+	public synchronized void invalidateCachedRefPolicy(final TopLevelPolicyElementType policyType, final String policyId)
+	{
+		getLastRefPolicyCache().ifPresent(cache -> cache.invalidate(policyType, policyId));
+	}
+
+	/**
+	 * Removes a specific version of a given policy from the refPolicyCache, if any (see {@link CachingRefPolicyProvider#invalidate(TopLevelPolicyElementType, String, PolicyVersion)}). The cache is
+	 * the one of the refPolicyProvider last created from this configuration.
+	 * 
+	 * @param policyType
+	 *            type of policy (Policy or PolicySet)
+	 * @param policyId
+	 *            policy ID
+	 * @param policyVersion
+	 *            policy version
+	 */
+	public synchronized void invalidateCachedRefPolicy(final TopLevelPolicyElementType policyType, final String policyId, final PolicyVersion policyVersion)
+	{
+		getLastRefPolicyCache().ifPresent(cache -> cache.invalidate(policyType, policyId, policyVersion));
+	}
+
+	/**
+	 * Removes all policies from the refPolicyCache, if any. The cache is the one of the refPolicyProvider last created from this configuration.
+	 */
+	public synchronized void invalidateCachedRefPolicies()
+	{
+		getLastRefPolicyCache().ifPresent(CachingRefPolicyProvider::invalidateAll);
+	}
+
+	/**
+	 * Gets the URLs of the policy files currently used by the root policy provider and refPolicyProvider (file path patterns are expanded again), if these are of the types defined in the PDP
+	 * configuration schema (StaticRootPolicyProvider, TenantDispatchingRootPolicyProvider, StaticRefPolicyProvider). Used for detecting policy changes.
+	 * 
+	 * @return policy URLs (empty if the policy providers are of other types)
+	 * @throws IllegalArgumentException
+	 *             if any of the configured policy locations is invalid or not found
+	 */
+	public Set<URL> getPolicyURLs() throws IllegalArgumentException
+	{
+		final Set<URL> policyURLs = new LinkedHashSet<>();
+		final List<String> rootPolicyLocations;
+		if (rootPolicyProviderJaxbConf instanceof org.ow2.authzforce.core.xmlns.pdp.StaticRootPolicyProvider)
+		{
+			rootPolicyLocations = Collections.singletonList(((org.ow2.authzforce.core.xmlns.pdp.StaticRootPolicyProvider) rootPolicyProviderJaxbConf).getPolicyLocation());
+		} else if (rootPolicyProviderJaxbConf instanceof org.ow2.authzforce.core.xmlns.pdp.TenantDispatchingRootPolicyProvider)
+		{
+			rootPolicyLocations = ((org.ow2.authzforce.core.xmlns.pdp.TenantDispatchingRootPolicyProvider) rootPolicyProviderJaxbConf).getTenants().stream().map(TenantRootPolicy::getPolicyLocation)
+			        .collect(Collectors.toList());
+		} else
+		{
+			rootPolicyLocations = Collections.emptyList();
+		}
+
+		policyURLs.addAll(CoreRefPolicyProvider.getPolicyURLs(rootPolicyLocations, envProps));
+		if (refPolicyProviderJaxbConf instanceof org.ow2.authzforce.core.xmlns.pdp.StaticRefPolicyProvider)
+		{
+			policyURLs.addAll(CoreRefPolicyProvider.getPolicyURLs(((org.ow2.authzforce.core.xmlns.pdp.StaticRefPolicyProvider) refPolicyProviderJaxbConf).getPolicyLocations(), envProps));
+		}
+
+		return policyURLs;
+	}
+
 	/**
 	 * Returns the level of verbosity of the error message trace returned in case of client request errors, e.g. invalid requests. Increasing this value usually helps the clients better pinpoint the
 	 * issue with their Requests. This parameter is relevant to the Result postprocessor ('resultPostproc' parameter) which is expected to enforce this verbosity level when returning Indeterminate
@@ -792,6 +1263,50 @@ public final class PdpEngineConfiguration
 		return decisionCache;
 	}
 
+	/**
+	 * Returns the parallelism level for the evaluation of the Individual Decision Requests of a Multiple Decision Request: 1 (default) for sequential evaluation, 0 for parallel evaluation with the
+	 * common {@link java.util.concurrent.ForkJoinPool}, or the parallelism level of a dedicated {@link java.util.concurrent.ForkJoinPool}.
+	 * 
+	 * @return individual decision request evaluation parallelism
+	 */
+	public int getIndividualDecisionRequestParallelism()
+	{
+		return individualDecisionRequestParallelism;
+	}
+
+	/**
+	 * Returns the maximum number of threads used for asynchronous evaluation (0 means the number of available processors)
+	 * 
+	 * @return asynchronous evaluation thread count
+	 */
+	public int getAsyncEvaluationThreads()
+	{
+		return asyncEvaluationThreads;
+	}
+
+	/**
+	 * Returns the maximum number of pending asynchronous evaluations, beyond which new asynchronous evaluations are rejected
+	 * 
+	 * @return asynchronous evaluation queue capacity
+	 */
+	public int getAsyncEvaluationQueueCapacity()
+	{
+		return asyncEvaluationQueueCapacity;
+	}
+
+	/**
+	 * Returns the PDP engine options set in this configuration (individual decision request parallelism, asynchronous evaluation, standard environment attribute time granularity, evaluation
+	 * context reuse, static policy tree compilation)
+	 * 
+	 * @return PDP engine options
+	 */
+	public BasePdpEngine.Options getEngineOptions()
+	{
+		return new BasePdpEngine.Options.Builder().individualDecisionRequestParallelism(individualDecisionRequestParallelism).asyncEvaluationThreads(asyncEvaluationThreads)
+				.asyncEvaluationQueueCapacity(asyncEvaluationQueueCapacity).stdEnvAttributeTimeGranularityMillis(stdEnvAttributeTimeGranularityMillis)
+				.reuseEvaluationContexts(reuseEvaluationContexts).compileStaticPolicyTree(compileStaticPolicyTree).build();
+	}
+
 	/**
 	 * Returns the processor chains that can be applied to PDP engine input/output, by input type
 	 * 
@@ -0,0 +1,129 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.ow2.authzforce.core.pdp.api.HashCollections;
+import org.ow2.authzforce.core.pdp.impl.policy.PolicyFileState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Detects changes of policy files on the local filesystem, by comparing their size and content checksum ({@link PolicyFileState}, as used by the policy loader to find the documents to parse
+ * again) with the ones from the previous check. The last modification time is not used, since a rewrite of a file of the same size may keep it unchanged, depending on the filesystem's timestamp
+ * resolution. Therefore each check reads all the policy files. The set of policy files is obtained again for each check, so that added/removed files are detected as well, e.g. files matching a policy
+ * location pattern. Policy URLs that are not file URLs (e.g. files in JARs) are ignored.
+ * <p>
+ * A change is reported again by the next checks until {@link #acknowledgeChange()} is called, e.g. until the policies have been reloaded successfully.
+ * <p>
+ * Not thread-safe: checks must be done by one thread at a time.
+ */
+final class PolicyFileChangeDetector
+{
+	private static final Logger LOGGER = LoggerFactory.getLogger(PolicyFileChangeDetector.class);
+
+	private final Supplier<? extends Collection<URL>> policyURLSupplier;
+
+	/*
+	 * State of each policy file (by URL) found in the last check
+	 */
+	private Map<String, PolicyFileState> lastFileStates;
+
+	/*
+	 * State of the policy files found in the last check that reported a change, not acknowledged yet; null if none
+	 */
+	private Map<String, PolicyFileState> changedFileStates = null;
+
+	/**
+	 * Creates instance, taking the initial state of the policy files as reference for the first check
+	 * 
+	 * @param policyURLSupplier
+	 *            supplier of the current policy file URLs
+	 */
+	PolicyFileChangeDetector(final Supplier<? extends Collection<URL>> policyURLSupplier)
+	{
+		assert policyURLSupplier != null;
+		this.policyURLSupplier = policyURLSupplier;
+		this.lastFileStates = getFileStates();
+	}
+
+	private Map<String, PolicyFileState> getFileStates() throws IllegalArgumentException
+	{
+		final Collection<URL> policyURLs = policyURLSupplier.get();
+		final Map<String, PolicyFileState> fileStates = HashCollections.newUpdatableMap(policyURLs.size());
+		for (final URL policyURL : policyURLs)
+		{
+			final PolicyFileState fileState;
+			try
+			{
+				fileState = PolicyFileState.getInstance(policyURL);
+			}
+			catch (final IOException e)
+			{
+				throw new IllegalArgumentException("Failed to read policy file: " + policyURL, e);
+			}
+
+			// null if not a file in the filesystem
+			if (fileState != null)
+			{
+				fileStates.put(policyURL.toExternalForm(), fileState);
+			}
+		}
+
+		return fileStates;
+	}
+
+	/**
+	 * Checks whether any policy file has been added, removed or modified since the last acknowledged change (or the creation of this instance if none)
+	 * 
+	 * @return true iff any change
+	 * @throws IllegalArgumentException
+	 *             if the policy file URLs could not be obtained (e.g. missing policy file) or a policy file could not be read
+	 */
+	boolean hasChanged() throws IllegalArgumentException
+	{
+		final Map<String, PolicyFileState> newFileStates = getFileStates();
+		if (newFileStates.equals(lastFileStates))
+		{
+			changedFileStates = null;
+			return false;
+		}
+
+		LOGGER.debug("Policy files changed: {} -> {}", lastFileStates, newFileStates);
+		changedFileStates = newFileStates;
+		return true;
+	}
+
+	/**
+	 * Takes the state of the policy files found by the last check as reference for the next checks, i.e. the change reported by the last check is not reported anymore. To be called once the
+	 * change has been handled successfully; else the change is reported again by the next check, so that handling it is retried. Does nothing if the last check reported no change.
+	 */
+	void acknowledgeChange()
+	{
+		if (changedFileStates != null)
+		{
+			lastFileStates = changedFileStates;
+			changedFileStates = null;
+		}
+	}
+}
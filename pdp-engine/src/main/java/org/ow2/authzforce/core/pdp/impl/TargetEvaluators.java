@@ -18,11 +18,15 @@
 package org.ow2.authzforce.core.pdp.impl;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 import org.ow2.authzforce.core.pdp.api.EvaluationContext;
 import org.ow2.authzforce.core.pdp.api.IndeterminateEvaluationException;
 import org.ow2.authzforce.core.pdp.api.expression.ExpressionFactory;
+import org.ow2.authzforce.core.pdp.api.value.AttributeValue;
+import org.ow2.authzforce.core.pdp.api.value.Bag;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -57,18 +61,73 @@ public final class TargetEvaluators
 		}
 	};
 
+	/**
+	 * Minimum number of AllOfs in an AnyOf with single equality Matches on the same AttributeDesignator for this AnyOf to be evaluated as a set membership test
+	 */
+	private static final int MIN_ATTRIBUTE_VALUE_SET_ANYOF_SIZE = 2;
+
+	/*
+	 * Evaluator of an AnyOf whose AllOfs all have a single equality Match on the same AttributeDesignator (e.g. "action-id is one of..."): the AttributeDesignator is evaluated once, and its values
+	 * looked up in the set of the Match values, instead of evaluating each Match separately.
+	 */
+	private static final class AttributeValueSetAnyOfEvaluator implements BooleanEvaluator
+	{
+		private final TargetIndexKey equivalentIndexKey;
+		private final int lastAllOfIndex;
+
+		private AttributeValueSetAnyOfEvaluator(final TargetIndexKey equivalentIndexKey, final int allOfCount)
+		{
+			this.equivalentIndexKey = equivalentIndexKey;
+			this.lastAllOfIndex = allOfCount - 1;
+		}
+
+		@Override
+		public boolean evaluate(final EvaluationContext context) throws IndeterminateEvaluationException
+		{
+			final Bag<?> attributeBag;
+			try
+			{
+				attributeBag = equivalentIndexKey.getAttributeDesignator().evaluate(context);
+			}
+			catch (final IndeterminateEvaluationException e)
+			{
+				/*
+				 * All Matches, therefore all AllOfs, are Indeterminate. Report the last one, as AnyOfEvaluator does.
+				 */
+				throw new IndeterminateEvaluationException("Error evaluating <AnyOf>'s <AllOf>#" + lastAllOfIndex, e.getStatusCode(), e);
+			}
+
+			final Set<AttributeValue> matchValues = equivalentIndexKey.getValues();
+			for (final AttributeValue attributeValue : attributeBag)
+			{
+				if (matchValues.contains(attributeValue))
+				{
+					return true;
+				}
+			}
+
+			return false;
+		}
+	}
+
 	private static final class NonEmptyTargetEvaluator implements BooleanEvaluator
 	{
 		// Have a copy of AnyOf evaluators to avoid cast from JAXB AnyOf in
 		// super JAXB type
 		// non-null
-		private final List<AnyOfEvaluator> anyOfEvaluatorList;
+		private final List<BooleanEvaluator> anyOfEvaluatorList;
+
+		/*
+		 * Target is "No match" as soon as one AnyOf is, so each AnyOf index key gives a necessary condition for the Target
+		 */
+		private final List<TargetIndexKey> indexKeys;
 
 		private NonEmptyTargetEvaluator(final List<AnyOf> jaxbAnyOfList, final XPathCompiler xPathCompiler,
 				final ExpressionFactory expFactory) throws IllegalArgumentException
 		{
 			assert jaxbAnyOfList != null && !jaxbAnyOfList.isEmpty();
 
+			final List<AnyOfEvaluator> anyOfEvaluators = new ArrayList<>(jaxbAnyOfList.size());
 			anyOfEvaluatorList = new ArrayList<>(jaxbAnyOfList.size());
 			int childIndex = 0;
 			for (final AnyOf jaxbAnyOf : jaxbAnyOfList)
@@ -83,9 +142,38 @@ public final class TargetEvaluators
 					throw new IllegalArgumentException("Invalid <Target>'s <AnyOf>#" + childIndex, e);
 				}
 
-				anyOfEvaluatorList.add(anyOfEvaluator);
+				anyOfEvaluators.add(anyOfEvaluator);
+				final TargetIndexKey equivalentIndexKey = anyOfEvaluator.getEquivalentIndexKey();
+				if (equivalentIndexKey != null && anyOfEvaluator.getAllOfCount() >= MIN_ATTRIBUTE_VALUE_SET_ANYOF_SIZE)
+				{
+					if (LOGGER.isDebugEnabled())
+					{
+						// Beware of autoboxing which causes call to Integer.valueOf(...)
+						LOGGER.debug("<Target>'s <AnyOf>#{}: {} AllOfs with single equality Match on {} -> evaluated as set membership test", childIndex, anyOfEvaluator.getAllOfCount(),
+								equivalentIndexKey.getAttributeDesignator());
+					}
+
+					anyOfEvaluatorList.add(new AttributeValueSetAnyOfEvaluator(equivalentIndexKey, anyOfEvaluator.getAllOfCount()));
+				}
+				else
+				{
+					anyOfEvaluatorList.add(anyOfEvaluator::match);
+				}
+
 				childIndex++;
 			}
+
+			final List<TargetIndexKey> anyOfIndexKeys = new ArrayList<>(anyOfEvaluators.size());
+			for (final AnyOfEvaluator anyOfEvaluator : anyOfEvaluators)
+			{
+				final TargetIndexKey anyOfIndexKey = anyOfEvaluator.getIndexKey();
+				if (anyOfIndexKey != null)
+				{
+					anyOfIndexKeys.add(anyOfIndexKey);
+				}
+			}
+
+			this.indexKeys = anyOfIndexKeys.isEmpty() ? Collections.emptyList() : Collections.unmodifiableList(anyOfIndexKeys);
 		}
 
 		/**
@@ -123,12 +211,12 @@ public final class TargetEvaluators
 			/*
 			 * By construction, there must be at least one Match
 			 */
-			for (final AnyOfEvaluator anyOfEvaluator : anyOfEvaluatorList)
+			for (final BooleanEvaluator anyOfEvaluator : anyOfEvaluatorList)
 			{
 				final boolean isMatched;
 				try
 				{
-					isMatched = anyOfEvaluator.match(context);
+					isMatched = anyOfEvaluator.evaluate(context);
 					if (LOGGER.isDebugEnabled())
 					{
 						// Beware of autoboxing which causes call to
@@ -211,6 +299,19 @@ public final class TargetEvaluators
 		return new NonEmptyTargetEvaluator(anyOfs, xPathCompiler, expressionFactory);
 	}
 
+	/**
+	 * Get the necessary conditions for a Target to match, derived from its equality Matches ('string-equal' or 'anyURI-equal' between a constant AttributeValue and an AttributeDesignator)
+	 *
+	 * @param targetEvaluator
+	 *            Target evaluator returned by {@link #getInstance(Target, XPathCompiler, ExpressionFactory)}
+	 * @return index keys, one per AnyOf whose AllOfs all contain an equality Match on the same AttributeDesignator, in the order of the AnyOfs; empty if the Target is empty or has no such AnyOf.
+	 *         The Target may match only if all of them are satisfied.
+	 */
+	public static List<TargetIndexKey> getIndexKeys(final BooleanEvaluator targetEvaluator)
+	{
+		return targetEvaluator instanceof NonEmptyTargetEvaluator ? ((NonEmptyTargetEvaluator) targetEvaluator).indexKeys : Collections.emptyList();
+	}
+
 	private TargetEvaluators()
 	{
 		// prevent instantiation
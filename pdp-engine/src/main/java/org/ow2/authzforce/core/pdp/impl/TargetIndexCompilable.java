@@ -0,0 +1,32 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl;
+
+/**
+ * Element (Policy(Set), combining algorithm evaluator) holding an index of combined elements by {@link TargetIndexKey} that may be compiled into a decision diagram, once the policy tree is known to
+ * be static, i.e. resolved once and for all at initialization time
+ */
+public interface TargetIndexCompilable
+{
+
+	/**
+	 * Compiles the index(es) of combined elements by Target in this element and, recursively, in the combined elements. Does nothing if already compiled.
+	 */
+	void compileTargetIndex();
+
+}
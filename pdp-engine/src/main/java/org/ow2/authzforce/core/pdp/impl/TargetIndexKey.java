@@ -0,0 +1,97 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl;
+
+import java.util.Set;
+
+import org.ow2.authzforce.core.pdp.api.expression.AttributeDesignatorExpression;
+import org.ow2.authzforce.core.pdp.api.value.AttributeValue;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Necessary condition for a XACML Target to match, derived from the equality Matches in this Target, i.e. Matches using function 'string-equal' or 'anyURI-equal' to compare a constant AttributeValue
+ * with an AttributeDesignator. The Target may match only if the AttributeDesignator evaluates to a bag containing at least one of {@link #getValues()}. Conversely, if the AttributeDesignator
+ * evaluates successfully to a bag that contains none of them, the Target is "No match" whatever the other Matches evaluate to, and the enclosing Policy(Set) or Rule is NotApplicable.
+ * <p>
+ * Used by combining algorithm evaluators to index combined elements by Target.
+ */
+public final class TargetIndexKey
+{
+	private final AttributeDesignatorExpression<?> attributeDesignator;
+
+	private final Set<AttributeValue> values;
+
+	TargetIndexKey(final AttributeDesignatorExpression<?> attributeDesignator, final Set<AttributeValue> values)
+	{
+		assert attributeDesignator != null && values != null && !values.isEmpty();
+		this.attributeDesignator = attributeDesignator;
+		this.values = values;
+	}
+
+	/**
+	 * Get the AttributeDesignator compared to {@link #getValues()}
+	 * 
+	 * @return the AttributeDesignator
+	 */
+	public AttributeDesignatorExpression<?> getAttributeDesignator()
+	{
+		return attributeDesignator;
+	}
+
+	/**
+	 * Get the values that the AttributeDesignator result must contain (at least one of them) for the Target to match
+	 * 
+	 * @return the values
+	 */
+	public Set<AttributeValue> getValues()
+	{
+		return values;
+	}
+
+	/**
+	 * Checks whether this key and another one are based on equivalent AttributeDesignators, i.e. same attribute (category, ID, issuer), same datatype and same MustBePresent flag; in other words,
+	 * AttributeDesignators that always evaluate to the same result in a given context.
+	 * 
+	 * @param other
+	 *            other key
+	 * @return true iff the AttributeDesignators are equivalent
+	 */
+	public boolean hasSameAttributeDesignator(final TargetIndexKey other)
+	{
+		return this.attributeDesignator.getAttributeFQN().equals(other.attributeDesignator.getAttributeFQN())
+		        && this.attributeDesignator.getReturnType().equals(other.attributeDesignator.getReturnType())
+		        && this.attributeDesignator.isNonEmptyBagRequired() == other.attributeDesignator.isNonEmptyBagRequired();
+	}
+
+	/**
+	 * Union of this key and another one on the same AttributeDesignator, i.e. necessary condition for the disjunction (e.g. AnyOf) of the respective elements (e.g. AllOfs)
+	 */
+	TargetIndexKey union(final TargetIndexKey other)
+	{
+		assert hasSameAttributeDesignator(other);
+		return new TargetIndexKey(this.attributeDesignator, ImmutableSet.<AttributeValue>builder().addAll(this.values).addAll(other.values).build());
+	}
+
+	@Override
+	public String toString()
+	{
+		return "TargetIndexKey [attributeDesignator=" + attributeDesignator + ", values=" + values + "]";
+	}
+
+}
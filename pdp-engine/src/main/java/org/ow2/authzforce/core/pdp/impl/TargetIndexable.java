@@ -0,0 +1,35 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl;
+
+import java.util.List;
+
+/**
+ * Element with a Target (Policy(Set), Rule) that may be indexed by {@link TargetIndexKey}
+ */
+public interface TargetIndexable
+{
+
+	/**
+	 * Get the necessary conditions for the Target of this element to match: the Target may match only if all of them are satisfied
+	 * 
+	 * @return the index keys (one per indexable AnyOf), empty if the Target cannot be indexed (e.g. no equality Match on an AttributeDesignator, or empty Target)
+	 */
+	List<TargetIndexKey> getTargetIndexKeys();
+
+}
@@ -0,0 +1,599 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.cache;
+
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.ow2.authzforce.core.pdp.api.AttributeFqn;
+import org.ow2.authzforce.core.pdp.api.DecisionCache;
+import org.ow2.authzforce.core.pdp.api.DecisionRequest;
+import org.ow2.authzforce.core.pdp.api.DecisionResult;
+import org.ow2.authzforce.core.pdp.api.EnvironmentProperties;
+import org.ow2.authzforce.core.pdp.api.EvaluationContext;
+import org.ow2.authzforce.core.pdp.api.HashCollections;
+import org.ow2.authzforce.core.pdp.api.expression.AttributeSelectorExpression;
+import org.ow2.authzforce.core.pdp.api.value.AttributeBag;
+import org.ow2.authzforce.core.pdp.api.value.AttributeValue;
+import org.ow2.authzforce.core.pdp.api.value.AttributeValueFactoryRegistry;
+import org.ow2.authzforce.core.pdp.api.value.Bag;
+import org.ow2.authzforce.core.pdp.api.value.XPathValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+import net.sf.saxon.s9api.XdmNode;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.DecisionType;
+
+/**
+ * Bounded in-memory {@link DecisionCache}, thread-safe, that maps Individual Decision Requests to decision results. Results with Indeterminate decision are never cached. Two modes are supported:
+ * <ol>
+ * <li>Default mode: the cache key is the {@link DecisionRequest} itself, therefore the request implementation must implement {@link Object#equals(Object)} and {@link Object#hashCode()}
+ * consistently, as the ones created by the PDP request preprocessors do. The evaluation context is ignored ({@link #isEvaluationContextRequired()} returns false), i.e. results are assumed to depend
+ * on the request only. If the policies depend on other data (e.g. PDP-issued current date/time, attribute providers), make sure the configured time-to-live (or time-to-idle) is short enough for your
+ * use case.</li>
+ * <li>Policy-aware mode: the cache key is built from the named attributes in the evaluation context (including PDP-issued ones) that belong to the set of attributes used by policy evaluation so far,
+ * i.e. attributes notified as consumed or produced to the evaluation context {@link EvaluationContext.Listener}s. This set only grows. Other attributes are ignored, so that attributes irrelevant to
+ * the policies (request IDs, timestamps...) do not prevent cache hits. Attributes/Content is always part of the key. This mode requires the evaluation context, and requires that Attribute Providers
+ * and other PDP extensions read attributes from the evaluation context through the listener-notifying methods only.</li>
+ * </ol>
+ * Each entry is tagged with the policy generation at lookup time, i.e. the number of calls to {@link #invalidateAll()} before the cache lookup preceding the evaluation. Entries of an older
+ * generation are ignored, so that a result computed with the policies in use before {@link #invalidateAll()} is never returned afterwards, even if the evaluation ended after the call.
+ */
+public final class CoreInMemoryDecisionCache implements DecisionCache
+{
+	private static final Logger LOGGER = LoggerFactory.getLogger(CoreInMemoryDecisionCache.class);
+
+	private static final IllegalArgumentException ILLEGAL_MAX_ELEMENTS_ARG_EXCEPTION = new IllegalArgumentException("Invalid maxElementsInMemory: negative");
+	private static final IllegalArgumentException ILLEGAL_TTL_ARG_EXCEPTION = new IllegalArgumentException("Invalid timeToLiveSec: negative");
+	private static final IllegalArgumentException ILLEGAL_TTI_ARG_EXCEPTION = new IllegalArgumentException("Invalid timeToIdleSec: negative");
+
+	/*
+	 * Attributes known to be used by policy evaluation. Immutable. The version is incremented every time the set grows, and is part of the policy-aware cache key, so that a key computed with an
+	 * older (smaller) set never matches a key computed with a newer one.
+	 */
+	private static final class UsedAttributes
+	{
+		private final int version;
+		private final Set<AttributeFqn> fqns;
+
+		private UsedAttributes(final int version, final Set<AttributeFqn> fqns)
+		{
+			this.version = version;
+			this.fqns = fqns;
+		}
+	}
+
+	private static final UsedAttributes INITIAL_USED_ATTRIBUTES = new UsedAttributes(0, Collections.emptySet());
+
+	/*
+	 * Cached result tagged with the policy generation at lookup time
+	 */
+	private static final class TaggedResult
+	{
+		private final long policyGeneration;
+		private final DecisionResult result;
+
+		private TaggedResult(final long policyGeneration, final DecisionResult result)
+		{
+			this.policyGeneration = policyGeneration;
+			this.result = result;
+		}
+	}
+
+	/*
+	 * Policy-aware cache key
+	 */
+	private static final class UsedAttributesKey
+	{
+		private final int usedAttributesVersion;
+		private final Map<AttributeFqn, AttributeBag<?>> usedAttributes;
+		private final Map<String, XdmNode> extraContentsByCategory;
+		private final boolean returnApplicablePolicyIdList;
+
+		private transient volatile int hashCode = 0;
+
+		private UsedAttributesKey(final int usedAttributesVersion, final Map<AttributeFqn, AttributeBag<?>> usedAttributes, final Map<String, XdmNode> extraContentsByCategory,
+				final boolean returnApplicablePolicyIdList)
+		{
+			assert usedAttributes != null;
+			this.usedAttributesVersion = usedAttributesVersion;
+			this.usedAttributes = usedAttributes;
+			this.extraContentsByCategory = extraContentsByCategory == null ? Collections.emptyMap() : extraContentsByCategory;
+			this.returnApplicablePolicyIdList = returnApplicablePolicyIdList;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			if (hashCode == 0)
+			{
+				hashCode = Objects.hash(usedAttributesVersion, usedAttributes, extraContentsByCategory, returnApplicablePolicyIdList);
+			}
+
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(final Object obj)
+		{
+			if (this == obj)
+			{
+				return true;
+			}
+
+			if (!(obj instanceof UsedAttributesKey))
+			{
+				return false;
+			}
+
+			final UsedAttributesKey other = (UsedAttributesKey) obj;
+			return this.usedAttributesVersion == other.usedAttributesVersion && this.returnApplicablePolicyIdList == other.returnApplicablePolicyIdList
+					&& this.usedAttributes.equals(other.usedAttributes) && this.extraContentsByCategory.equals(other.extraContentsByCategory);
+		}
+	}
+
+	/*
+	 * Evaluation context listener recording the attributes used during the evaluation of an individual decision request (one instance per evaluation context)
+	 */
+	private static final class UsedAttributesRecorder implements EvaluationContext.Listener
+	{
+		/*
+		 * Key computed before evaluation (cache lookup)
+		 */
+		private final UsedAttributesKey lookupKey;
+
+		/*
+		 * Policy generation at lookup time
+		 */
+		private final long policyGeneration;
+
+		/*
+		 * Attributes used (consumed or produced) during evaluation
+		 */
+		private final Set<AttributeFqn> usedAttributes = HashCollections.newUpdatableSet();
+
+		/*
+		 * Attributes produced during evaluation, i.e. not in the evaluation context before evaluation
+		 */
+		private final Set<AttributeFqn> producedAttributes = HashCollections.newUpdatableSet();
+
+		private UsedAttributesRecorder(final UsedAttributesKey lookupKey, final long policyGeneration)
+		{
+			this.lookupKey = lookupKey;
+			this.policyGeneration = policyGeneration;
+		}
+
+		@Override
+		public <AV extends AttributeValue> void namedAttributeValueProduced(final AttributeFqn attributeFqn, final AttributeBag<AV> value)
+		{
+			usedAttributes.add(attributeFqn);
+			producedAttributes.add(attributeFqn);
+		}
+
+		@Override
+		public <AV extends AttributeValue> void namedAttributeValueConsumed(final AttributeFqn attributeFqn, final AttributeBag<AV> value)
+		{
+			usedAttributes.add(attributeFqn);
+		}
+
+		@Override
+		public <AV extends AttributeValue> void attributeSelectorResultProduced(final AttributeSelectorExpression<AV> attributeSelector,
+				final Optional<AttributeBag<XPathValue>> contextSelectorValue, final Bag<AV> result)
+		{
+			// Attributes/Content is always part of the key, and the context selector's attribute is notified as consumed
+		}
+
+		@Override
+		public <AV extends AttributeValue> void attributeSelectorResultConsumed(final AttributeSelectorExpression<AV> attributeSelector, final Bag<AV> result)
+		{
+			// Attributes/Content is always part of the key
+		}
+	}
+
+	/**
+	 * Decision cache factory
+	 */
+	public static final class Factory extends DecisionCache.Factory<org.ow2.authzforce.core.xmlns.pdp.InMemoryDecisionCache>
+	{
+		private static final IllegalArgumentException ILLEGAL_JAXBCONF_ARGUMENT_EXCEPTION = new IllegalArgumentException("Undefined DecisionCache configuration (JAXB/XML)");
+
+		@Override
+		public Class<org.ow2.authzforce.core.xmlns.pdp.InMemoryDecisionCache> getJaxbClass()
+		{
+			return org.ow2.authzforce.core.xmlns.pdp.InMemoryDecisionCache.class;
+		}
+
+		private static long toLong(final BigInteger value, final String paramName)
+		{
+			if (value == null)
+			{
+				return 0;
+			}
+
+			try
+			{
+				return value.longValueExact();
+			}
+			catch (final ArithmeticException e)
+			{
+				throw new IllegalArgumentException("Invalid DecisionCache " + paramName + ": " + value, e);
+			}
+		}
+
+		@Override
+		public DecisionCache getInstance(final org.ow2.authzforce.core.xmlns.pdp.InMemoryDecisionCache jaxbConf, final AttributeValueFactoryRegistry attributeValueFactories,
+				final EnvironmentProperties environmentProperties)
+		{
+			if (jaxbConf == null)
+			{
+				throw ILLEGAL_JAXBCONF_ARGUMENT_EXCEPTION;
+			}
+
+			return new CoreInMemoryDecisionCache(jaxbConf.getId(), toLong(jaxbConf.getMaxElementsInMemory(), "maxElementsInMemory"), toLong(jaxbConf.getTimeToLiveSec(), "timeToLiveSec"),
+					toLong(jaxbConf.getTimeToIdleSec(), "timeToIdleSec"), jaxbConf.isPolicyAwareKeys());
+		}
+	}
+
+	private final String id;
+	private final Cache<Object, TaggedResult> cache;
+
+	/*
+	 * Incremented by invalidateAll()
+	 */
+	private final AtomicLong policyGeneration = new AtomicLong(0);
+
+	/*
+	 * Null iff policy-aware mode disabled
+	 */
+	private final AtomicReference<UsedAttributes> usedAttributesRef;
+
+	/**
+	 * Creates in-memory decision cache
+	 *
+	 * @param id
+	 *            cache ID, used for logging
+	 * @param maxElementsInMemory
+	 *            maximum number of entries in the cache. Zero means unlimited. When the limit is reached, least recently used entries are evicted first.
+	 * @param timeToLiveSec
+	 *            maximum time (in seconds) an entry may stay in the cache after creation. Zero means unlimited.
+	 * @param timeToIdleSec
+	 *            maximum time (in seconds) an entry may stay in the cache since last access. Zero means unlimited.
+	 * @param policyAwareKeys
+	 *            true iff cache keys must be built only from the attributes used by policy evaluation (policy-aware mode, see class description), else the whole request is the key
+	 * @throws IllegalArgumentException
+	 *             if any of the numeric arguments is negative
+	 */
+	public CoreInMemoryDecisionCache(final String id, final long maxElementsInMemory, final long timeToLiveSec, final long timeToIdleSec, final boolean policyAwareKeys)
+			throws IllegalArgumentException
+	{
+		if (maxElementsInMemory < 0)
+		{
+			throw ILLEGAL_MAX_ELEMENTS_ARG_EXCEPTION;
+		}
+
+		if (timeToLiveSec < 0)
+		{
+			throw ILLEGAL_TTL_ARG_EXCEPTION;
+		}
+
+		if (timeToIdleSec < 0)
+		{
+			throw ILLEGAL_TTI_ARG_EXCEPTION;
+		}
+
+		final CacheBuilder<Object, Object> cacheBuilder = CacheBuilder.newBuilder().recordStats();
+		if (maxElementsInMemory > 0)
+		{
+			cacheBuilder.maximumSize(maxElementsInMemory);
+		}
+
+		if (timeToLiveSec > 0)
+		{
+			cacheBuilder.expireAfterWrite(timeToLiveSec, TimeUnit.SECONDS);
+		}
+
+		if (timeToIdleSec > 0)
+		{
+			cacheBuilder.expireAfterAccess(timeToIdleSec, TimeUnit.SECONDS);
+		}
+
+		this.id = id;
+		this.cache = cacheBuilder.build();
+		this.usedAttributesRef = policyAwareKeys ? new AtomicReference<>(INITIAL_USED_ATTRIBUTES) : null;
+		LOGGER.debug("Decision cache '{}' created: maxElementsInMemory = {} (0 = unlimited), timeToLiveSec = {}, timeToIdleSec = {} (0 = eternal), policyAwareKeys = {}", id, maxElementsInMemory,
+				timeToLiveSec, timeToIdleSec, policyAwareKeys);
+	}
+
+	private static UsedAttributesKey newUsedAttributesKey(final UsedAttributes usedAttributes, final DecisionRequest request, final EvaluationContext evalContext,
+			final Set<AttributeFqn> excludedAttributes)
+	{
+		final Map<AttributeFqn, AttributeBag<?>> usedAttributeValues = HashCollections.newUpdatableMap();
+		if (!usedAttributes.fqns.isEmpty())
+		{
+			final Iterator<Entry<AttributeFqn, AttributeBag<?>>> namedAttributesIterator = evalContext.getNamedAttributes();
+			while (namedAttributesIterator.hasNext())
+			{
+				final Entry<AttributeFqn, AttributeBag<?>> namedAttribute = namedAttributesIterator.next();
+				final AttributeFqn attributeFqn = namedAttribute.getKey();
+				if (usedAttributes.fqns.contains(attributeFqn) && !excludedAttributes.contains(attributeFqn))
+				{
+					usedAttributeValues.put(attributeFqn, namedAttribute.getValue());
+				}
+			}
+		}
+
+		return new UsedAttributesKey(usedAttributes.version, usedAttributeValues, request.getExtraContentsByCategory(), evalContext.isApplicablePolicyIdListRequested());
+	}
+
+	/*
+	 * Add newly used attributes to the set of used attributes
+	 */
+	private UsedAttributes addUsedAttributes(final Set<AttributeFqn> newlyUsedAttributes)
+	{
+		while (true)
+		{
+			final UsedAttributes current = usedAttributesRef.get();
+			if (current.fqns.containsAll(newlyUsedAttributes))
+			{
+				return current;
+			}
+
+			final UsedAttributes updated = new UsedAttributes(current.version + 1, HashCollections.newImmutableSet(current.fqns, newlyUsedAttributes));
+			if (usedAttributesRef.compareAndSet(current, updated))
+			{
+				LOGGER.debug("Decision cache '{}': set of attributes used by policy evaluation updated to: {}", id, updated.fqns);
+				return updated;
+			}
+		}
+	}
+
+	private static boolean isCacheable(final DecisionResult result)
+	{
+		return result != null && result.getDecision() != DecisionType.INDETERMINATE;
+	}
+
+	@Override
+	public boolean isEvaluationContextRequired()
+	{
+		return usedAttributesRef != null;
+	}
+
+	/*
+	 * Result of the entry if of the current policy generation, else null
+	 */
+	private DecisionResult getCurrentResult(final TaggedResult entry)
+	{
+		return entry == null || entry.policyGeneration != policyGeneration.get() ? null : entry.result;
+	}
+
+	/**
+	 * Gets the current policy generation, i.e. the number of calls to {@link #invalidateAll()} so far. To be passed to {@link #put(DecisionRequest, DecisionResult, EvaluationContext, long)} or
+	 * {@link #putAll(Map, long)} after the evaluation if called before the cache lookup.
+	 * 
+	 * @return current policy generation
+	 */
+	public long getPolicyGeneration()
+	{
+		return policyGeneration.get();
+	}
+
+	@Override
+	public DecisionResult get(final DecisionRequest request, final EvaluationContext evalContext)
+	{
+		/*
+		 * Get the policy generation before the lookup, as if the policies changed in the meantime, a result found with an older generation must be ignored
+		 */
+		final long currentPolicyGeneration = policyGeneration.get();
+		if (usedAttributesRef == null)
+		{
+			return getCurrentResult(cache.getIfPresent(request));
+		}
+
+		final UsedAttributesKey key = newUsedAttributesKey(usedAttributesRef.get(), request, evalContext, Collections.emptySet());
+		evalContext.putListener(UsedAttributesRecorder.class, new UsedAttributesRecorder(key, currentPolicyGeneration));
+		return getCurrentResult(cache.getIfPresent(key));
+	}
+
+	@Override
+	public <DECISION_REQ_T extends DecisionRequest> Map<DECISION_REQ_T, DecisionResult> getAll(final List<DECISION_REQ_T> requests)
+	{
+		if (usedAttributesRef != null)
+		{
+			/*
+			 * Policy-aware keys cannot be computed without evaluation context
+			 */
+			return Collections.emptyMap();
+		}
+
+		/*
+		 * Only requests with a result of the current policy generation in cache are mapped in the returned map. This is safe since getAllPresent() returns a map of which keys are all from the input
+		 * requests.
+		 */
+		final Map<Object, TaggedResult> cachedEntries = cache.getAllPresent(requests);
+		final Map<DECISION_REQ_T, DecisionResult> cachedResults = HashCollections.newUpdatableMap(cachedEntries.size());
+		for (final Entry<Object, TaggedResult> cachedEntry : cachedEntries.entrySet())
+		{
+			final DecisionResult cachedResult = getCurrentResult(cachedEntry.getValue());
+			if (cachedResult != null)
+			{
+				@SuppressWarnings("unchecked")
+				final DECISION_REQ_T request = (DECISION_REQ_T) cachedEntry.getKey();
+				cachedResults.put(request, cachedResult);
+			}
+		}
+
+		return cachedResults;
+	}
+
+	/*
+	 * Caches the result unless the policies have changed since the lookup, in which case the result may have been computed with the previous ones
+	 */
+	private void putTagged(final Object key, final DecisionResult result, final long lookupPolicyGeneration)
+	{
+		if (lookupPolicyGeneration != policyGeneration.get())
+		{
+			LOGGER.debug("Decision cache '{}': result not cached because the policies changed during evaluation", id);
+			return;
+		}
+
+		/*
+		 * If invalidateAll() is called right now, the entry is ignored by the next lookups anyway because of the tag
+		 */
+		cache.put(key, new TaggedResult(lookupPolicyGeneration, result));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * In default mode (not policy-aware), the result is tagged with the current policy generation, therefore may be an old-policy result if {@link #invalidateAll()} was called during the evaluation.
+	 * If policies may change during evaluations, use {@link #put(DecisionRequest, DecisionResult, EvaluationContext, long)} instead. In policy-aware mode, the result is tagged with the policy
+	 * generation at lookup time ({@link #get(DecisionRequest, EvaluationContext)}).
+	 */
+	@Override
+	public void put(final DecisionRequest request, final DecisionResult result, final EvaluationContext evalContext)
+	{
+		final UsedAttributesRecorder recorder = usedAttributesRef == null || evalContext == null ? null : evalContext.getListener(UsedAttributesRecorder.class);
+		put(request, result, evalContext, recorder == null ? policyGeneration.get() : recorder.policyGeneration);
+	}
+
+	/**
+	 * Same as {@link #put(DecisionRequest, DecisionResult, EvaluationContext)}, except the result is not cached if {@link #invalidateAll()} has been called since {@link #getPolicyGeneration()}
+	 * returned {@code lookupPolicyGeneration}
+	 * 
+	 * @param request
+	 *            Individual Decision Request
+	 * @param result
+	 *            decision result
+	 * @param evalContext
+	 *            evaluation context passed to {@link #get(DecisionRequest, EvaluationContext)} before the evaluation (mandatory in policy-aware mode)
+	 * @param lookupPolicyGeneration
+	 *            policy generation returned by {@link #getPolicyGeneration()} before the cache lookup
+	 */
+	public void put(final DecisionRequest request, final DecisionResult result, final EvaluationContext evalContext, final long lookupPolicyGeneration)
+	{
+		if (!isCacheable(result))
+		{
+			return;
+		}
+
+		if (usedAttributesRef == null)
+		{
+			putTagged(request, result, lookupPolicyGeneration);
+			return;
+		}
+
+		final UsedAttributesRecorder recorder = evalContext == null ? null : evalContext.getListener(UsedAttributesRecorder.class);
+		if (recorder == null)
+		{
+			LOGGER.warn("Decision cache '{}': result not cached because the evaluation context was not passed to get() before evaluation: {}", id, request);
+			return;
+		}
+
+		final UsedAttributes usedAttributes = addUsedAttributes(recorder.usedAttributes);
+		/*
+		 * If the set of used attributes has not changed since the lookup, the lookup key is still valid. Else compute the key again with the new set, ignoring the attributes produced during
+		 * evaluation since they were not in the evaluation context before evaluation (not part of the lookup key).
+		 */
+		final UsedAttributesKey key = usedAttributes.version == recorder.lookupKey.usedAttributesVersion ? recorder.lookupKey
+				: newUsedAttributesKey(usedAttributes, request, evalContext, recorder.producedAttributes);
+		putTagged(key, result, lookupPolicyGeneration);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The results are tagged with the current policy generation (see {@link #put(DecisionRequest, DecisionResult, EvaluationContext)}). If policies may change during evaluations, use
+	 * {@link #putAll(Map, long)} instead.
+	 */
+	@Override
+	public <DECISION_REQ_T extends DecisionRequest> void putAll(final Map<DECISION_REQ_T, DecisionResult> resultsByRequest)
+	{
+		putAll(resultsByRequest, policyGeneration.get());
+	}
+
+	/**
+	 * Same as {@link #putAll(Map)}, except the results are not cached if {@link #invalidateAll()} has been called since {@link #getPolicyGeneration()} returned {@code lookupPolicyGeneration}
+	 * 
+	 * @param resultsByRequest
+	 *            decision results by Individual Decision Request
+	 * @param lookupPolicyGeneration
+	 *            policy generation returned by {@link #getPolicyGeneration()} before the cache lookup
+	 */
+	public <DECISION_REQ_T extends DecisionRequest> void putAll(final Map<DECISION_REQ_T, DecisionResult> resultsByRequest, final long lookupPolicyGeneration)
+	{
+		if (usedAttributesRef != null)
+		{
+			/*
+			 * Policy-aware keys cannot be computed without evaluation context
+			 */
+			return;
+		}
+
+		for (final Entry<DECISION_REQ_T, DecisionResult> resultByRequest : resultsByRequest.entrySet())
+		{
+			if (isCacheable(resultByRequest.getValue()))
+			{
+				putTagged(resultByRequest.getKey(), resultByRequest.getValue(), lookupPolicyGeneration);
+			}
+		}
+	}
+
+	/**
+	 * Get cache statistics (hits, misses, evictions...)
+	 *
+	 * @return snapshot of cache statistics
+	 */
+	public CacheStats getStats()
+	{
+		return cache.stats();
+	}
+
+	/**
+	 * Removes all entries from the cache and starts a new policy generation, e.g. when the policies have changed. Results of evaluations in progress, i.e. which started with a cache lookup before
+	 * this call, are not cached afterwards, provided that the policy generation at lookup time is known when they are put in the cache (see {@link #put(DecisionRequest, DecisionResult, EvaluationContext)}).
+	 */
+	public void invalidateAll()
+	{
+		LOGGER.debug("Invalidating all entries of decision cache '{}'", id);
+		policyGeneration.incrementAndGet();
+		cache.invalidateAll();
+	}
+
+	@Override
+	public void close()
+	{
+		LOGGER.debug("Closing decision cache '{}': {}", id, cache.stats());
+		cache.invalidateAll();
+		cache.cleanUp();
+	}
+
+}
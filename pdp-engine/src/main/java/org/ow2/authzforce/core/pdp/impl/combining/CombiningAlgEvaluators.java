@@ -21,6 +21,7 @@
 package org.ow2.authzforce.core.pdp.impl.combining;
 
 import java.util.Collection;
+import java.util.List;
 
 import org.ow2.authzforce.core.pdp.api.DecisionResult;
 import org.ow2.authzforce.core.pdp.api.EvaluationContext;
@@ -30,6 +31,7 @@ import org.ow2.authzforce.core.pdp.api.PepAction;
 import org.ow2.authzforce.core.pdp.api.UpdatableList;
 import org.ow2.authzforce.core.pdp.api.combining.CombiningAlg;
 import org.ow2.authzforce.core.pdp.api.policy.PrimaryPolicyMetadata;
+import org.ow2.authzforce.core.pdp.impl.TargetIndexCompilable;
 import org.ow2.authzforce.core.pdp.impl.rule.RuleEvaluator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -99,7 +101,7 @@ final class CombiningAlgEvaluators
 	 * Rule combining algorithm evaluator where all rules must have the same Effect, and that returns NotApplicable if no rule applies, else Indeterminate if all rules result in Indeterminate or
 	 * NotApplicable, else the Permit/Deny decision (corresponding to the common Effect) of the first rule that applies and successfully evaluates.
 	 */
-	static class RulesWithSameEffectEvaluator implements CombiningAlg.Evaluator
+	static class RulesWithSameEffectEvaluator implements CombiningAlg.Evaluator, TargetIndexCompilable
 	{
 		protected static boolean haveSameEffect(final EffectType expectedEffect, final Collection<? extends RuleEvaluator> rules)
 		{
@@ -115,6 +117,8 @@ final class CombiningAlgEvaluators
 		}
 
 		private final ImmutableList<RuleEvaluator> rulesWithSameEffect;
+		// null if not enough rules are indexable by Target
+		private final TargetIndexedCombinedElements<RuleEvaluator> rulesWithSameEffectIndex;
 		private final DecisionType commonDecision;
 
 		RulesWithSameEffectEvaluator(final Collection<? extends RuleEvaluator> rulesWithSameEffect)
@@ -125,6 +129,16 @@ final class CombiningAlgEvaluators
 			assert haveSameEffect(commonEffect, rulesWithSameEffect);
 			this.commonDecision = commonEffect == EffectType.DENY ? DecisionType.DENY : DecisionType.PERMIT;
 			this.rulesWithSameEffect = ImmutableList.copyOf(rulesWithSameEffect);
+			this.rulesWithSameEffectIndex = TargetIndexedCombinedElements.newInstance(this.rulesWithSameEffect);
+		}
+
+		@Override
+		public void compileTargetIndex()
+		{
+			if (rulesWithSameEffectIndex != null)
+			{
+				rulesWithSameEffectIndex.compile();
+			}
 		}
 
 		@Override
@@ -132,7 +146,9 @@ final class CombiningAlgEvaluators
 		        final UpdatableList<PrimaryPolicyMetadata> updatableApplicablePolicyIdList)
 		{
 			ExtendedDecision firstIndeterminate = null;
-			for (final RuleEvaluator rule : rulesWithSameEffect)
+			// rules skipped by the Target index are NotApplicable
+			final List<RuleEvaluator> candidateRules = rulesWithSameEffectIndex == null ? rulesWithSameEffect : rulesWithSameEffectIndex.getCandidates(context);
+			for (final RuleEvaluator rule : candidateRules)
 			{
 				final DecisionResult evalResult = rule.evaluate(context);
 				final DecisionType decision = evalResult.getDecision();
@@ -0,0 +1,269 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.combining;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.function.BooleanSupplier;
+
+import org.ow2.authzforce.core.pdp.api.AttributeFqn;
+import org.ow2.authzforce.core.pdp.api.EvaluationContext;
+import org.ow2.authzforce.core.pdp.api.IndeterminateEvaluationException;
+import org.ow2.authzforce.core.pdp.api.expression.AttributeSelectorExpression;
+import org.ow2.authzforce.core.pdp.api.value.AttributeBag;
+import org.ow2.authzforce.core.pdp.api.value.AttributeValue;
+import org.ow2.authzforce.core.pdp.api.value.Bag;
+import org.ow2.authzforce.core.pdp.api.value.Datatype;
+import org.ow2.authzforce.core.pdp.api.value.Value;
+import org.ow2.authzforce.xacml.identifiers.XacmlStatusCode;
+
+import net.sf.saxon.s9api.XdmNode;
+
+/**
+ * View of an evaluation context for one of several combined elements evaluated concurrently in the same context. All accesses to the shared context are synchronized on it (including the
+ * notifications of its listeners), whereas the Variables assigned by the combined element (e.g. a Policy's VariableDefinitions) are kept in this view, because sibling policies may define Variables
+ * with the same VariableId. The attribute providers called for missing attributes are called outside the lock, so that they may run concurrently.
+ * <p>
+ * The evaluation of the combined element may be cancelled, e.g. when a combined element before it returned the overriding decision: any attribute lookup after the cancellation fails with an
+ * Indeterminate result (instead of calling the attribute providers), so that the evaluation ends early. Such a result is ignored by the combining algorithm. Once a lookup has failed this way, the
+ * attribute values (or AttributeSelector results) put by the combined element - e.g. the empty bag put by the attribute provider after the failure - are dropped, so that they are never seen by the
+ * enclosing policy or the other combined elements (since any lookup fails from then on, the combined element cannot see them either).
+ * <p>
+ * Each instance must be used by one thread at a time.
+ */
+final class ConcurrentChildEvaluationContext implements EvaluationContext
+{
+	private static final IndeterminateEvaluationException CANCELLED_EVALUATION_EXCEPTION = new IndeterminateEvaluationException(
+	        "Evaluation cancelled: a previous combined element returned the overriding decision", XacmlStatusCode.PROCESSING_ERROR.value());
+
+	private final EvaluationContext sharedContext;
+
+	private final BooleanSupplier cancellation;
+
+	// Variables assigned during the evaluation of the child (lazily created)
+	private Map<String, Value> localVarValsById = null;
+
+	// true iff an attribute lookup failed because of the cancellation
+	private boolean cancelled = false;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param sharedContext
+	 *            evaluation context shared by the combined elements evaluated concurrently
+	 * @param cancellation
+	 *            returns true iff the evaluation of the combined element is cancelled
+	 */
+	ConcurrentChildEvaluationContext(final EvaluationContext sharedContext, final BooleanSupplier cancellation)
+	{
+		assert sharedContext != null && cancellation != null;
+		this.sharedContext = sharedContext;
+		this.cancellation = cancellation;
+	}
+
+	private void checkNotCancelled() throws IndeterminateEvaluationException
+	{
+		if (cancelled || cancellation.getAsBoolean())
+		{
+			cancelled = true;
+			throw CANCELLED_EVALUATION_EXCEPTION;
+		}
+	}
+
+	@Override
+	public <AV extends AttributeValue> AttributeBag<AV> getNamedAttributeValue(final AttributeFqn attributeFqn, final Datatype<AV> datatype) throws IndeterminateEvaluationException
+	{
+		/*
+		 * Attribute providers are called only if the attribute is not found in the context, so failing here prevents a cancelled evaluation from calling them
+		 */
+		checkNotCancelled();
+		synchronized (sharedContext)
+		{
+			return sharedContext.getNamedAttributeValue(attributeFqn, datatype);
+		}
+	}
+
+	@Override
+	public Iterator<Entry<AttributeFqn, AttributeBag<?>>> getNamedAttributes()
+	{
+		final List<Entry<AttributeFqn, AttributeBag<?>>> namedAttributes = new ArrayList<>();
+		synchronized (sharedContext)
+		{
+			// copy, since other threads may add attributes to the shared context after we leave the lock
+			sharedContext.getNamedAttributes().forEachRemaining(namedAttributes::add);
+		}
+
+		return namedAttributes.iterator();
+	}
+
+	@Override
+	public boolean putNamedAttributeValueIfAbsent(final AttributeFqn attributeFqn, final AttributeBag<?> result)
+	{
+		if (cancelled)
+		{
+			return false;
+		}
+
+		synchronized (sharedContext)
+		{
+			return sharedContext.putNamedAttributeValueIfAbsent(attributeFqn, result);
+		}
+	}
+
+	@Override
+	public <AV extends AttributeValue> Bag<AV> getAttributeSelectorResult(final AttributeSelectorExpression<AV> attributeSelector) throws IndeterminateEvaluationException
+	{
+		checkNotCancelled();
+		synchronized (sharedContext)
+		{
+			return sharedContext.getAttributeSelectorResult(attributeSelector);
+		}
+	}
+
+	@Override
+	public <AV extends AttributeValue> boolean putAttributeSelectorResultIfAbsent(final AttributeSelectorExpression<AV> attributeSelector, final Bag<AV> result)
+	        throws IndeterminateEvaluationException
+	{
+		if (cancelled)
+		{
+			return false;
+		}
+
+		synchronized (sharedContext)
+		{
+			return sharedContext.putAttributeSelectorResultIfAbsent(attributeSelector, result);
+		}
+	}
+
+	@Override
+	public XdmNode getAttributesContent(final String category)
+	{
+		synchronized (sharedContext)
+		{
+			return sharedContext.getAttributesContent(category);
+		}
+	}
+
+	@Override
+	public <V extends Value> V getVariableValue(final String variableId, final Datatype<V> expectedDatatype) throws IndeterminateEvaluationException
+	{
+		final Value localVal = localVarValsById == null ? null : localVarValsById.get(variableId);
+		if (localVal == null)
+		{
+			// may be a Variable assigned before the concurrent evaluation, e.g. in an enclosing policy
+			synchronized (sharedContext)
+			{
+				return sharedContext.getVariableValue(variableId, expectedDatatype);
+			}
+		}
+
+		try
+		{
+			return expectedDatatype.cast(localVal);
+		}
+		catch (final ClassCastException e)
+		{
+			throw new IndeterminateEvaluationException("Datatype of variable '" + variableId + "' in context does not match expected datatype: " + expectedDatatype,
+			        XacmlStatusCode.PROCESSING_ERROR.value(), e);
+		}
+	}
+
+	@Override
+	public boolean putVariableIfAbsent(final String variableId, final Value value)
+	{
+		if (localVarValsById == null)
+		{
+			localVarValsById = new HashMap<>();
+		}
+
+		return localVarValsById.putIfAbsent(variableId, value) == null;
+	}
+
+	@Override
+	public Value removeVariable(final String variableId)
+	{
+		/*
+		 * Only Variables assigned by the child may be removed by the child, the ones in the shared context are not in the child's scope
+		 */
+		return localVarValsById == null ? null : localVarValsById.remove(variableId);
+	}
+
+	@Override
+	public Object getOther(final String key)
+	{
+		synchronized (sharedContext)
+		{
+			return sharedContext.getOther(key);
+		}
+	}
+
+	@Override
+	public boolean containsKey(final String key)
+	{
+		synchronized (sharedContext)
+		{
+			return sharedContext.containsKey(key);
+		}
+	}
+
+	@Override
+	public void putOther(final String key, final Object val)
+	{
+		synchronized (sharedContext)
+		{
+			sharedContext.putOther(key, val);
+		}
+	}
+
+	@Override
+	public Object remove(final String key)
+	{
+		synchronized (sharedContext)
+		{
+			return sharedContext.remove(key);
+		}
+	}
+
+	@Override
+	public boolean isApplicablePolicyIdListRequested()
+	{
+		return sharedContext.isApplicablePolicyIdListRequested();
+	}
+
+	@Override
+	public <L extends Listener> L putListener(final Class<L> listenerType, final L listener)
+	{
+		synchronized (sharedContext)
+		{
+			return sharedContext.putListener(listenerType, listener);
+		}
+	}
+
+	@Override
+	public <L extends Listener> L getListener(final Class<L> listenerType)
+	{
+		synchronized (sharedContext)
+		{
+			return sharedContext.getListener(listenerType);
+		}
+	}
+}
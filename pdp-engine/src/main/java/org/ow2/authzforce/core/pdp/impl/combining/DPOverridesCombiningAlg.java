@@ -19,12 +19,19 @@ package org.ow2.authzforce.core.pdp.impl.combining;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Deque;
 import java.util.EnumMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
 
 import org.ow2.authzforce.core.pdp.api.Decidable;
 import org.ow2.authzforce.core.pdp.api.DecisionResult;
@@ -38,6 +45,8 @@ import org.ow2.authzforce.core.pdp.api.combining.BaseCombiningAlg;
 import org.ow2.authzforce.core.pdp.api.combining.CombiningAlg;
 import org.ow2.authzforce.core.pdp.api.combining.CombiningAlgParameter;
 import org.ow2.authzforce.core.pdp.api.policy.PrimaryPolicyMetadata;
+import org.ow2.authzforce.core.pdp.impl.AdaptiveEvaluationOrder;
+import org.ow2.authzforce.core.pdp.impl.TargetIndexCompilable;
 import org.ow2.authzforce.core.pdp.impl.combining.CombiningAlgEvaluators.RulesWithSameEffectEvaluator;
 import org.ow2.authzforce.core.pdp.impl.rule.RuleEvaluator;
 import org.slf4j.Logger;
@@ -57,9 +66,11 @@ final class DPOverridesCombiningAlg<T extends Decidable> extends BaseCombiningAl
 {
 	/**
 	 * "Ordered" Deny/Permit-overrides combining algorithm evaluator; "ordered" means combined elements are evaluated in the same order as in the input collection (constructor parameter
-	 * 'combinedElements'), i.e. no re-ordering.
+	 * 'combinedElements'), i.e. no re-ordering, unless an adaptive evaluation order is enabled (only for non-ordered algorithms), in which case the combined elements most likely to return the
+	 * overriding decision at the lowest cost are evaluated first (see {@link AdaptiveEvaluationOrder}) but the results that do not override are still combined in the original order, or a concurrent evaluation is enabled, in which case the combined elements are evaluated
+	 * concurrently but their results still combined in the original order.
 	 */
-	private static final class OrderPreservingCombiningAlgEvaluator extends BaseCombiningAlg.Evaluator<Decidable>
+	private static final class OrderPreservingCombiningAlgEvaluator extends BaseCombiningAlg.Evaluator<Decidable> implements TargetIndexCompilable
 	{
 		/**
 		 * Helper to combine (not-overriding) decision results until a decision overrides or there is no more element to combine
@@ -258,9 +269,70 @@ final class DPOverridesCombiningAlg<T extends Decidable> extends BaseCombiningAl
 		private final ExtendedDecision decisionForOverriddenEffect;
 		private final Map<DecisionType, SubDecisionHandler> resultHandlersByDecisionType = new EnumMap<>(DecisionType.class);
 
-		OrderPreservingCombiningAlgEvaluator(final Iterable<? extends Decidable> combinedElements, final EffectType overridingEffect)
+		/*
+		 * Null if not enough combined elements are indexable by Target
+		 */
+		private final TargetIndexedCombinedElements<Decidable> targetIndex;
+
+		/*
+		 * Null if combined elements must be evaluated in the original order, or if there is only one
+		 */
+		private final AdaptiveEvaluationOrder adaptiveOrder;
+
+		/*
+		 * Null if combined elements must be evaluated sequentially
+		 */
+		private final ExecutorService concurrentEvaluationExecutor;
+
+		/*
+		 * Minimum number of candidate combined elements for concurrent evaluation (fewer are evaluated sequentially)
+		 */
+		private final int minConcurrentElements;
+
+		/*
+		 * Combined elements in the original order (positions used by adaptiveOrder). Null iff adaptiveOrder == null and concurrentEvaluationExecutor == null.
+		 */
+		private final ImmutableList<Decidable> combinedElementList;
+
+		/**
+		 * Constructor
+		 * 
+		 * @param combinedElements
+		 *            combined elements
+		 * @param overridingEffect
+		 *            overriding Effect
+		 * @param isAdaptiveOrderEnabled
+		 *            true iff the combined elements may be evaluated in an order adapted to the statistics of previous evaluations, instead of the original order. Must be false for ordered-*
+		 *            algorithms. Ignored if {@code concurrentEvaluationExecutor != null}.
+		 * @param concurrentEvaluationExecutor
+		 *            executor of the concurrent evaluations of the combined elements; null iff they must be evaluated sequentially in the caller's thread
+		 * @param minConcurrentElements
+		 *            minimum number of candidate combined elements (after filtering by the Target index, if any) for them to be evaluated concurrently (at least 2). Ignored if
+		 *            {@code concurrentEvaluationExecutor == null}.
+		 */
+		OrderPreservingCombiningAlgEvaluator(final Iterable<? extends Decidable> combinedElements, final EffectType overridingEffect, final boolean isAdaptiveOrderEnabled,
+		        final ExecutorService concurrentEvaluationExecutor, final int minConcurrentElements)
 		{
 			super(combinedElements);
+			assert minConcurrentElements > 1;
+			this.targetIndex = TargetIndexedCombinedElements.newInstance(combinedElements);
+			final ImmutableList<Decidable> elementList = ImmutableList.copyOf(combinedElements);
+			this.minConcurrentElements = minConcurrentElements;
+			if (concurrentEvaluationExecutor != null && elementList.size() >= minConcurrentElements)
+			{
+				this.concurrentEvaluationExecutor = concurrentEvaluationExecutor;
+				this.adaptiveOrder = null;
+				this.combinedElementList = elementList;
+			}
+			else
+			{
+				this.concurrentEvaluationExecutor = null;
+				this.adaptiveOrder = isAdaptiveOrderEnabled
+				        ? AdaptiveEvaluationOrder.newInstance((overridingEffect == EffectType.DENY ? "deny" : "permit") + "-overrides", elementList.size())
+				        : null;
+				this.combinedElementList = adaptiveOrder == null ? null : elementList;
+			}
+
 			resultHandlersByDecisionType.put(DecisionType.NOT_APPLICABLE, NOT_APPLICABLE_SUBDECISIONHANDLER);
 			final Map<DecisionType, SubDecisionHandler> indeterminateResultHandlersByExtendedIndeterminateType = new EnumMap<>(DecisionType.class);
 			indeterminateResultHandlersByExtendedIndeterminateType.put(DecisionType.INDETERMINATE, INDETERMINATE_DP_SUBDECISIONHANDLER);
@@ -287,35 +359,229 @@ final class DPOverridesCombiningAlg<T extends Decidable> extends BaseCombiningAl
 		}
 
 		@Override
-		public ExtendedDecision evaluate(final EvaluationContext context, final UpdatableList<PepAction> outPepActions, final UpdatableList<PrimaryPolicyMetadata> outApplicablePolicyIdList)
+		public void compileTargetIndex()
 		{
-			assert outPepActions != null;
-			final DecisionResultCollector resultCollector = new DecisionResultCollector(outApplicablePolicyIdList != null);
+			if (targetIndex != null)
+			{
+				targetIndex.compile();
+			}
+		}
 
-			for (final Decidable combinedElement : getCombinedElements())
+		/*
+		 * Evaluates the candidate combined elements (combined elements skipped by the Target index are NotApplicable, which does not change the combined result) in the original order until one
+		 * returns the overriding decision
+		 * 
+		 * @return the overriding decision result, or null if none
+		 */
+		private DecisionResult evaluateSequentially(final EvaluationContext context, final Iterable<Decidable> candidateElements, final DecisionResultCollector resultCollector)
+		{
+			for (final Decidable combinedElement : candidateElements)
 			{
 				// evaluate the policy
 				final DecisionResult result = combinedElement.evaluate(context);
-				final boolean isResultOverriding = resultHandlersByDecisionType.get(result.getDecision()).handle(result, resultCollector);
+				if (resultHandlersByDecisionType.get(result.getDecision()).handle(result, resultCollector))
+				{
+					return result;
+				}
+			}
 
-				/*
-				 * XACML §7.18: Obligations & Advice: do not return Obligations/Advice of the rule, policy, or policy set that does not match the decision resulting from evaluating the enclosing
-				 * policy set. For example, if the final decision is Permit, we should add to outPepActions only the PEP actions from Permit decisions (permitPepActions)
-				 */
-				if (isResultOverriding)
+			return null;
+		}
+
+		/*
+		 * Evaluates the candidate combined elements in the adaptive order until one returns the overriding decision. The results that do not override are collected in the original order, so that
+		 * the combined PEP actions, applicable policies and first Indeterminate are the same as in the sequential evaluation (if no combined element returns the overriding decision).
+		 * 
+		 * @return the overriding decision result, or null if none
+		 */
+		private DecisionResult evaluateInAdaptiveOrder(final EvaluationContext context, final DecisionResultCollector resultCollector)
+		{
+			/*
+			 * Combined elements skipped by the Target index are NotApplicable, which does not change the combined result
+			 */
+			final BitSet candidatePositions = targetIndex == null ? null : targetIndex.getCandidatePositions(context);
+			final DecisionType overridingDecision = decisionForOverridingEffect.getDecision();
+			// results of the combined elements evaluated so far, by position in the original order
+			final DecisionResult[] results = new DecisionResult[combinedElementList.size()];
+			DecisionResult overridingResult = null;
+			try
+			{
+				for (final int position : adaptiveOrder.getOrder())
 				{
-					/*
-					 * result overrides all others, return it right away after updating output applicable policies and PEP actions
-					 */
-					if (outApplicablePolicyIdList != null)
+					if (candidatePositions != null && !candidatePositions.get(position))
+					{
+						continue;
+					}
+
+					final long startNanos = System.nanoTime();
+					final DecisionResult result = combinedElementList.get(position).evaluate(context);
+					final boolean isResultOverriding = result.getDecision() == overridingDecision;
+					adaptiveOrder.recordChildEvaluation(position, isResultOverriding, System.nanoTime() - startNanos);
+					if (isResultOverriding)
 					{
-						outApplicablePolicyIdList.addAll(resultCollector.getApplicablePolicies(result));
+						overridingResult = result;
+						break;
 					}
 
-					outPepActions.addAll(result.getPepActions());
-					return this.decisionForOverridingEffect;
+					results[position] = result;
 				}
+			}
+			finally
+			{
+				adaptiveOrder.recordParentEvaluation();
+			}
 
+			for (final DecisionResult result : results)
+			{
+				if (result != null)
+				{
+					resultHandlersByDecisionType.get(result.getDecision()).handle(result, resultCollector);
+				}
+			}
+
+			return overridingResult;
+		}
+
+		/*
+		 * Evaluates the candidate combined elements concurrently (if there are enough of them), and combines their results in the original order until one returns the overriding decision. Once a
+		 * combined element returns the overriding decision, the evaluation of the ones after it (in the original order) is cancelled: the ones that have not started yet are skipped, and the ones in
+		 * progress fail at their next attribute lookup, without calling the attribute providers (see ConcurrentChildEvaluationContext). The ones before it are still evaluated, so that the result is
+		 * the same as in the sequential evaluation, since the overriding decision to be returned is the first one in the original order. In any case, this method returns only when none of the
+		 * combined elements is being evaluated anymore, so that the evaluation context is no longer used by other threads once the caller gets the result (decision cache update, context reuse...).
+		 * 
+		 * @return the overriding decision result, or null if none
+		 */
+		private DecisionResult evaluateConcurrently(final EvaluationContext context, final DecisionResultCollector resultCollector)
+		{
+			/*
+			 * Combined elements skipped by the Target index are NotApplicable, which does not change the combined result
+			 */
+			final List<Decidable> candidateElements = targetIndex == null ? combinedElementList : targetIndex.getCandidates(context);
+			if (candidateElements.size() < minConcurrentElements)
+			{
+				return evaluateSequentially(context, candidateElements, resultCollector);
+			}
+
+			final DecisionType overridingDecision = decisionForOverridingEffect.getDecision();
+			// position of the first combined element (known so far) that returned the overriding decision
+			final AtomicInteger firstOverridingPosition = new AtomicInteger(candidateElements.size());
+			final List<CompletableFuture<DecisionResult>> futureResults = new ArrayList<>(candidateElements.size());
+			// startedFlags.get(i) is set by the thread evaluating the i-th combined element, or by this thread to prevent it from starting
+			final List<AtomicBoolean> startedFlags = new ArrayList<>(candidateElements.size());
+			for (int i = 0; i < candidateElements.size(); i++)
+			{
+				final int position = i;
+				final Decidable combinedElement = candidateElements.get(position);
+				// cancelled iff a combined element before this one returned the overriding decision
+				final BooleanSupplier cancellation = () -> position > firstOverridingPosition.get();
+				final AtomicBoolean started = new AtomicBoolean(false);
+				startedFlags.add(started);
+				futureResults.add(CompletableFuture.supplyAsync(() -> {
+					if (!started.compareAndSet(false, true) || cancellation.getAsBoolean())
+					{
+						return null;
+					}
+
+					final DecisionResult result = combinedElement.evaluate(new ConcurrentChildEvaluationContext(context, cancellation));
+					if (result.getDecision() == overridingDecision)
+					{
+						firstOverridingPosition.accumulateAndGet(position, Math::min);
+					}
+
+					return result;
+				}, concurrentEvaluationExecutor));
+			}
+
+			for (int i = 0; i < futureResults.size(); i++)
+			{
+				final DecisionResult result;
+				try
+				{
+					result = futureResults.get(i).join();
+				}
+				catch (final CompletionException e)
+				{
+					cancelAndWait(futureResults, startedFlags, i, firstOverridingPosition);
+					final Throwable cause = e.getCause();
+					throw cause instanceof RuntimeException ? (RuntimeException) cause : e;
+				}
+
+				/*
+				 * result == null means cancelled because of an overriding decision before it, therefore the loop already returned before
+				 */
+				assert result != null;
+				if (resultHandlersByDecisionType.get(result.getDecision()).handle(result, resultCollector))
+				{
+					cancelAndWait(futureResults, startedFlags, i, firstOverridingPosition);
+					return result;
+				}
+			}
+
+			return null;
+		}
+
+		/*
+		 * Cancels the evaluation of the combined elements after the given position, and waits for the ones in progress to end (at their next attribute lookup at the latest). The ones that have not
+		 * started are not waited for: they will not start.
+		 */
+		private static void cancelAndWait(final List<CompletableFuture<DecisionResult>> futureResults, final List<AtomicBoolean> startedFlags, final int lastPosition,
+		        final AtomicInteger firstOverridingPosition)
+		{
+			firstOverridingPosition.accumulateAndGet(lastPosition, Math::min);
+			for (int i = lastPosition + 1; i < futureResults.size(); i++)
+			{
+				if (startedFlags.get(i).compareAndSet(false, true))
+				{
+					continue;
+				}
+
+				try
+				{
+					futureResults.get(i).join();
+				}
+				catch (final CompletionException e)
+				{
+					// the result of a cancelled evaluation does not matter
+					LOGGER.debug("Evaluation of combined element #{} failed after cancellation", i, e);
+				}
+			}
+		}
+
+		@Override
+		public ExtendedDecision evaluate(final EvaluationContext context, final UpdatableList<PepAction> outPepActions, final UpdatableList<PrimaryPolicyMetadata> outApplicablePolicyIdList)
+		{
+			assert outPepActions != null;
+			final DecisionResultCollector resultCollector = new DecisionResultCollector(outApplicablePolicyIdList != null);
+			final DecisionResult overridingResult;
+			if (concurrentEvaluationExecutor != null)
+			{
+				overridingResult = evaluateConcurrently(context, resultCollector);
+			}
+			else if (adaptiveOrder != null)
+			{
+				overridingResult = evaluateInAdaptiveOrder(context, resultCollector);
+			}
+			else
+			{
+				overridingResult = evaluateSequentially(context, targetIndex == null ? getCombinedElements() : targetIndex.getCandidates(context), resultCollector);
+			}
+
+			/*
+			 * XACML §7.18: Obligations & Advice: do not return Obligations/Advice of the rule, policy, or policy set that does not match the decision resulting from evaluating the enclosing policy
+			 * set. For example, if the final decision is Permit, we should add to outPepActions only the PEP actions from Permit decisions (permitPepActions)
+			 */
+			if (overridingResult != null)
+			{
+				/*
+				 * result overrides all others, return it right away after updating output applicable policies and PEP actions
+				 */
+				if (outApplicablePolicyIdList != null)
+				{
+					outApplicablePolicyIdList.addAll(resultCollector.getApplicablePolicies(overridingResult));
+				}
+
+				outPepActions.addAll(overridingResult.getPepActions());
+				return this.decisionForOverridingEffect;
 			}
 
 			/*
@@ -394,6 +660,8 @@ final class DPOverridesCombiningAlg<T extends Decidable> extends BaseCombiningAl
 	private static final class OverridingEffectFirstRuleCombiningAlgEvaluator extends RulesWithSameEffectEvaluator
 	{
 		private final ImmutableList<RuleEvaluator> otherRules;
+		// null if not enough rules are indexable by Target
+		private final TargetIndexedCombinedElements<RuleEvaluator> otherRulesIndex;
 		private final DecisionType overriddenEffectAsDecision;
 		private final ExtendedDecision overriddenEffectAsExtDecision;
 
@@ -427,6 +695,15 @@ final class DPOverridesCombiningAlg<T extends Decidable> extends BaseCombiningAl
 			}
 
 			this.otherRules = ImmutableList.copyOf(otherRules);
+			this.otherRulesIndex = TargetIndexedCombinedElements.newInstance(this.otherRules);
+		}
+
+		/*
+		 * Rules with overridden Effect that may apply (the others are NotApplicable by Target)
+		 */
+		private List<RuleEvaluator> getCandidateOtherRules(final EvaluationContext context)
+		{
+			return otherRulesIndex == null ? otherRules : otherRulesIndex.getCandidates(context);
 		}
 
 		/**
@@ -443,7 +720,7 @@ final class DPOverridesCombiningAlg<T extends Decidable> extends BaseCombiningAl
 			 */
 			assert indeterminateFromRulesWithOverridingEffect != null && indeterminateFromRulesWithOverridingEffect.getDecision() == DecisionType.INDETERMINATE;
 
-			for (final RuleEvaluator rule : otherRules)
+			for (final RuleEvaluator rule : getCandidateOtherRules(context))
 			{
 				final DecisionResult evalResult = rule.evaluate(context);
 				if (evalResult.getDecision() != DecisionType.NOT_APPLICABLE)
@@ -494,7 +771,7 @@ final class DPOverridesCombiningAlg<T extends Decidable> extends BaseCombiningAl
 			UpdatableList<PepAction> combinedPepActions = null;
 
 			ExtendedDecision firstIndeterminateInOverriddenEffect = null;
-			for (final RuleEvaluator rule : otherRules)
+			for (final RuleEvaluator rule : getCandidateOtherRules(context))
 			{
 				final DecisionResult evalResult = rule.evaluate(context);
 				final DecisionType decision = evalResult.getDecision();
@@ -540,6 +817,17 @@ final class DPOverridesCombiningAlg<T extends Decidable> extends BaseCombiningAl
 			return ExtendedDecisions.SIMPLE_NOT_APPLICABLE;
 		}
 
+		@Override
+		public void compileTargetIndex()
+		{
+			super.compileTargetIndex();
+
+			if (otherRulesIndex != null)
+			{
+				otherRulesIndex.compile();
+			}
+		}
+
 		@Override
 		public ExtendedDecision evaluate(final EvaluationContext context, final UpdatableList<PepAction> updatablePepActions,
 		        final UpdatableList<PrimaryPolicyMetadata> updatableApplicablePolicyIdList)
@@ -688,7 +976,7 @@ final class DPOverridesCombiningAlg<T extends Decidable> extends BaseCombiningAl
 		@Override
 		public CombiningAlg.Evaluator getDPOverridesRuleCombiningAlgEvaluator(final EffectType overridingEffect)
 		{
-			return new OrderPreservingCombiningAlgEvaluator(addedRules, overridingEffect);
+			return new OrderPreservingCombiningAlgEvaluator(addedRules, overridingEffect, false, null, Integer.MAX_VALUE);
 		}
 
 	}
@@ -813,6 +1101,9 @@ final class DPOverridesCombiningAlg<T extends Decidable> extends BaseCombiningAl
 
 	private final EffectType overridingEffect;
 	private final EffectType overriddenEffect;
+	private final boolean isAdaptivePolicyOrderEnabled;
+	private final ExecutorService childPolicyEvaluationExecutor;
+	private final int minConcurrentChildPolicies;
 	private final RuleCollectorFactory ruleCollectorFactory;
 	private final CombiningAlg.Evaluator constantOverridingEffectDecisionEvaluator;
 	private final CombiningAlg.Evaluator constantOverriddenEffectDecisionEvaluator;
@@ -829,8 +1120,42 @@ final class DPOverridesCombiningAlg<T extends Decidable> extends BaseCombiningAl
 	 *            order is changed, in particular optimized by evaluating rules with overriding Effect first.
 	 */
 	DPOverridesCombiningAlg(final String algId, final Class<T> combinedType, final EffectType overridingEffect, final boolean isOrdered)
+	{
+		this(algId, combinedType, overridingEffect, isOrdered, false, null, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Constructor
+	 * 
+	 * @param algId
+	 *            combining algorithm ID
+	 * @param overridingEffect
+	 *            overriding effect (e.g. Deny for deny-overrides algorithm)
+	 * @param isOrdered
+	 *            true iff combined elements must be evaluated in order of declaration, i.e. in same order as in 'combinedElements' argument of {@link #getInstance(Iterable, Iterable)}. If false, the
+	 *            order is changed, in particular optimized by evaluating rules with overriding Effect first.
+	 * @param isAdaptivePolicyOrderEnabled
+	 *            true iff combined policies may be evaluated in an order adapted to the statistics of previous evaluations (see {@link AdaptiveEvaluationOrder}), instead of the order of declaration.
+	 *            Ignored if {@code isOrdered} or {@code childPolicyEvaluationExecutor != null}.
+	 * @param childPolicyEvaluationExecutor
+	 *            if not null, and combined elements are policies, they are evaluated concurrently with this executor (their results are still combined in order of declaration, and the
+	 *            evaluation of policies after the first one returning the overriding decision is cancelled if not started yet). The executor must not block the submitting thread when saturated,
+	 *            e.g. it may run the task in the submitting thread instead, else nested PolicySets evaluated concurrently may deadlock.
+	 * @param minConcurrentChildPolicies
+	 *            minimum number of candidate child policies (after filtering by the Target index, if any) for them to be evaluated concurrently (fewer are evaluated sequentially in the caller's
+	 *            thread). Ignored if {@code childPolicyEvaluationExecutor == null}.
+	 * @throws IllegalArgumentException
+	 *             if {@code minConcurrentChildPolicies < 2}
+	 */
+	DPOverridesCombiningAlg(final String algId, final Class<T> combinedType, final EffectType overridingEffect, final boolean isOrdered, final boolean isAdaptivePolicyOrderEnabled,
+	        final ExecutorService childPolicyEvaluationExecutor, final int minConcurrentChildPolicies) throws IllegalArgumentException
 	{
 		super(algId, combinedType);
+		if (minConcurrentChildPolicies < 2)
+		{
+			throw new IllegalArgumentException("Invalid minimum number of child policies for concurrent evaluation: " + minConcurrentChildPolicies + " (must be at least 2)");
+		}
+
 		this.overridingEffect = overridingEffect;
 		if (overridingEffect == EffectType.DENY)
 		{
@@ -845,6 +1170,9 @@ final class DPOverridesCombiningAlg<T extends Decidable> extends BaseCombiningAl
 			constantOverriddenEffectDecisionEvaluator = CombiningAlgEvaluators.DENY_CONSTANT_EVALUATOR;
 		}
 
+		this.isAdaptivePolicyOrderEnabled = !isOrdered && isAdaptivePolicyOrderEnabled;
+		this.childPolicyEvaluationExecutor = childPolicyEvaluationExecutor;
+		this.minConcurrentChildPolicies = minConcurrentChildPolicies;
 		this.ruleCollectorFactory = isOrdered ? ORDER_PRESERVING_RULE_COLLECTOR_FACTORY : OVERRIDING_EFFECT_FIRST_RULE_COLLECTOR_FACTORY;
 	}
 
@@ -873,7 +1201,7 @@ final class DPOverridesCombiningAlg<T extends Decidable> extends BaseCombiningAl
 		 */
 		if (!RuleEvaluator.class.isAssignableFrom(getCombinedElementType()))
 		{
-			return new OrderPreservingCombiningAlgEvaluator(combinedElements, this.overridingEffect);
+			return new OrderPreservingCombiningAlgEvaluator(combinedElements, this.overridingEffect, isAdaptivePolicyOrderEnabled, childPolicyEvaluationExecutor, minConcurrentChildPolicies);
 		}
 
 		// combined elements are Rules, we can optimize
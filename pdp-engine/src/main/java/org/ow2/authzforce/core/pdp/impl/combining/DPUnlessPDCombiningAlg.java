@@ -21,6 +21,7 @@ import java.util.ArrayDeque;
 import java.util.Collection;
 import java.util.Deque;
 import java.util.Iterator;
+import java.util.List;
 
 import org.ow2.authzforce.core.pdp.api.Decidable;
 import org.ow2.authzforce.core.pdp.api.DecisionResult;
@@ -34,6 +35,7 @@ import org.ow2.authzforce.core.pdp.api.combining.BaseCombiningAlg;
 import org.ow2.authzforce.core.pdp.api.combining.CombiningAlg;
 import org.ow2.authzforce.core.pdp.api.combining.CombiningAlgParameter;
 import org.ow2.authzforce.core.pdp.api.policy.PrimaryPolicyMetadata;
+import org.ow2.authzforce.core.pdp.impl.TargetIndexCompilable;
 import org.ow2.authzforce.core.pdp.impl.rule.RuleEvaluator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -51,16 +53,19 @@ import oasis.names.tc.xacml._3_0.core.schema.wd_17.EffectType;
 final class DPUnlessPDCombiningAlg<T extends Decidable> extends BaseCombiningAlg<T>
 {
 
-	private static final class Evaluator extends BaseCombiningAlg.Evaluator<Decidable>
+	private static final class Evaluator extends BaseCombiningAlg.Evaluator<Decidable> implements TargetIndexCompilable
 	{
 		private final DecisionType overridingEffectAsDecision;
 		private final ExtendedDecision overridingEffectAsExtDecision;
 		private final DecisionType overriddenEffectAsDecision;
 		private final ExtendedDecision overriddenEffectAsExtDecision;
+		// null if not enough combined elements are indexable by Target
+		private final TargetIndexedCombinedElements<Decidable> targetIndex;
 
 		private Evaluator(final Iterable<? extends Decidable> combinedElements, final EffectType overridingEffect)
 		{
 			super(combinedElements);
+			this.targetIndex = TargetIndexedCombinedElements.newInstance(combinedElements);
 			if (overridingEffect == EffectType.DENY)
 			{
 				// permit-unless-deny
@@ -78,6 +83,15 @@ final class DPUnlessPDCombiningAlg<T extends Decidable> extends BaseCombiningAlg
 			}
 		}
 
+		@Override
+		public void compileTargetIndex()
+		{
+			if (targetIndex != null)
+			{
+				targetIndex.compile();
+			}
+		}
+
 		@Override
 		public ExtendedDecision evaluate(final EvaluationContext context, final UpdatableList<PepAction> outPepActions, final UpdatableList<PrimaryPolicyMetadata> outApplicablePolicyIdList)
 		{
@@ -87,7 +101,9 @@ final class DPUnlessPDCombiningAlg<T extends Decidable> extends BaseCombiningAlg
 			 */
 
 			UpdatableList<PepAction> pepActionsInOverriddenEffect = null;
-			for (final Decidable combinedElement : getCombinedElements())
+			// combined elements skipped by the Target index are NotApplicable
+			final Iterable<Decidable> candidateElements = targetIndex == null ? getCombinedElements() : targetIndex.getCandidates(context);
+			for (final Decidable combinedElement : candidateElements)
 			{
 				final DecisionResult result = combinedElement.evaluate(context);
 				final DecisionType decision = result.getDecision();
@@ -139,7 +155,7 @@ final class DPUnlessPDCombiningAlg<T extends Decidable> extends BaseCombiningAlg
 	 * Combining algorithm evaluator that evaluates rules in a specific order: 1) rules with overriding Effect (in same order as in the constructor argument 'rulesWithOverridingEffect'), 2) other
 	 * rules (with overridden effect)
 	 */
-	private static final class OverridingEffectFirstRuleCombiningAlgEvaluator implements CombiningAlg.Evaluator
+	private static final class OverridingEffectFirstRuleCombiningAlgEvaluator implements CombiningAlg.Evaluator, TargetIndexCompilable
 	{
 		private static boolean verifyRuleEffectsAndPepActions(final EffectType expectedEffect, final Collection<? extends RuleEvaluator> rules, final boolean mustHavePepAction)
 		{
@@ -157,6 +173,9 @@ final class DPUnlessPDCombiningAlg<T extends Decidable> extends BaseCombiningAlg
 		private final ImmutableList<RuleEvaluator> rulesWithOverridingEffect;
 		private final DecisionType overridingEffectAsDecision;
 		private final ImmutableList<RuleEvaluator> otherRulesWithPepActions;
+		// Target indexes of the rules above, null if not enough rules are indexable
+		private final TargetIndexedCombinedElements<RuleEvaluator> rulesWithOverridingEffectIndex;
+		private final TargetIndexedCombinedElements<RuleEvaluator> otherRulesWithPepActionsIndex;
 		private final DecisionType overriddenEffectAsDecision;
 		private final ExtendedDecision overriddenEffectAsExtDecision;
 
@@ -196,13 +215,34 @@ final class DPUnlessPDCombiningAlg<T extends Decidable> extends BaseCombiningAlg
 
 			this.rulesWithOverridingEffect = ImmutableList.copyOf(rulesWithOverridingEffect);
 			this.otherRulesWithPepActions = ImmutableList.copyOf(otherRulesWithPepActions);
+			this.rulesWithOverridingEffectIndex = TargetIndexedCombinedElements.newInstance(this.rulesWithOverridingEffect);
+			this.otherRulesWithPepActionsIndex = TargetIndexedCombinedElements.newInstance(this.otherRulesWithPepActions);
+		}
+
+		@Override
+		public void compileTargetIndex()
+		{
+			if (rulesWithOverridingEffectIndex != null)
+			{
+				rulesWithOverridingEffectIndex.compile();
+			}
+
+			if (otherRulesWithPepActionsIndex != null)
+			{
+				otherRulesWithPepActionsIndex.compile();
+			}
 		}
 
 		@Override
 		public ExtendedDecision evaluate(final EvaluationContext context, final UpdatableList<PepAction> updatablePepActions,
 		        final UpdatableList<PrimaryPolicyMetadata> updatableApplicablePolicyIdList)
 		{
-			for (final RuleEvaluator rule : rulesWithOverridingEffect)
+			/*
+			 * Rules skipped by the Target indexes are NotApplicable
+			 */
+			final List<RuleEvaluator> candidateRulesWithOverridingEffect = rulesWithOverridingEffectIndex == null ? rulesWithOverridingEffect
+			        : rulesWithOverridingEffectIndex.getCandidates(context);
+			for (final RuleEvaluator rule : candidateRulesWithOverridingEffect)
 			{
 				final DecisionResult evalResult = rule.evaluate(context);
 				final DecisionType decision = evalResult.getDecision();
@@ -218,7 +258,9 @@ final class DPUnlessPDCombiningAlg<T extends Decidable> extends BaseCombiningAlg
 			/*
 			 * Decision is not the overriding Effect -> final decision will be the opposite/overridden Effect. Before returning the final result, we need to collect PEP actions
 			 */
-			for (final RuleEvaluator rule : otherRulesWithPepActions)
+			final List<RuleEvaluator> candidateOtherRulesWithPepActions = otherRulesWithPepActionsIndex == null ? otherRulesWithPepActions
+			        : otherRulesWithPepActionsIndex.getCandidates(context);
+			for (final RuleEvaluator rule : candidateOtherRulesWithPepActions)
 			{
 				final DecisionResult evalResult = rule.evaluate(context);
 				final DecisionType decision = evalResult.getDecision();
@@ -32,6 +32,7 @@ import org.ow2.authzforce.core.pdp.api.combining.BaseCombiningAlg;
 import org.ow2.authzforce.core.pdp.api.combining.CombiningAlg;
 import org.ow2.authzforce.core.pdp.api.combining.CombiningAlgParameter;
 import org.ow2.authzforce.core.pdp.api.policy.PrimaryPolicyMetadata;
+import org.ow2.authzforce.core.pdp.impl.TargetIndexCompilable;
 import org.ow2.authzforce.core.pdp.impl.rule.RuleEvaluator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -46,18 +47,33 @@ import oasis.names.tc.xacml._3_0.core.schema.wd_17.DecisionType;
 final class FirstApplicableCombiningAlg<T extends Decidable> extends BaseCombiningAlg<T>
 {
 
-	private static final class Evaluator extends BaseCombiningAlg.Evaluator<Decidable>
+	private static final class Evaluator extends BaseCombiningAlg.Evaluator<Decidable> implements TargetIndexCompilable
 	{
+		/*
+		 * Null if not enough combined elements are indexable by Target. Else the candidates are returned in the original order, as required by this algorithm.
+		 */
+		private final TargetIndexedCombinedElements<Decidable> targetIndex;
 
 		private Evaluator(final Iterable<? extends Decidable> combinedElements)
 		{
 			super(combinedElements);
+			this.targetIndex = TargetIndexedCombinedElements.newInstance(combinedElements);
+		}
+
+		@Override
+		public void compileTargetIndex()
+		{
+			if (targetIndex != null)
+			{
+				targetIndex.compile();
+			}
 		}
 
 		@Override
 		public ExtendedDecision evaluate(final EvaluationContext context, final UpdatableList<PepAction> outPepActions, final UpdatableList<PrimaryPolicyMetadata> outApplicablePolicyIdList)
 		{
-			for (final Decidable combinedElement : getCombinedElements())
+			final Iterable<Decidable> candidateElements = targetIndex == null ? getCombinedElements() : targetIndex.getCandidates(context);
+			for (final Decidable combinedElement : candidateElements)
 			{
 				// evaluate the policy
 				final DecisionResult result = combinedElement.evaluate(context);
@@ -153,9 +169,16 @@ final class FirstApplicableCombiningAlg<T extends Decidable> extends BaseCombini
 		}
 
 		/*
-		 * if(combinedEltIterator.hasNext()), combinedElements has more elements than finalRules, so finalRules is a subset of combinedElements; else they have the same elements
+		 * If !combinedEltIterator.hasNext(), finalRules and combinedElements have the same elements; else combinedElements has more elements than finalRules, so finalRules is a subset of
+		 * combinedElements
 		 */
-		return new Evaluator(combinedEltIterator.hasNext() ? finalRules : combinedElements);
+		if (!combinedEltIterator.hasNext())
+		{
+			return new Evaluator(combinedElements);
+		}
+
+		LOGGER.warn("{}: {} is always applicable (no target/condition) => next combined rules are never evaluated => will be ignored/removed.", this, finalRules.getLast());
+		return new Evaluator(finalRules);
 	}
 
 	FirstApplicableCombiningAlg(final String algId, final Class<T> combinedType)
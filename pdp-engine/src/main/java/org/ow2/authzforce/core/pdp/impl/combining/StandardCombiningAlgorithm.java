@@ -22,10 +22,10 @@ import java.util.EnumSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
 
 import oasis.names.tc.xacml._3_0.core.schema.wd_17.EffectType;
 
-import org.ow2.authzforce.core.pdp.api.Decidable;
 import org.ow2.authzforce.core.pdp.api.HashCollections;
 import org.ow2.authzforce.core.pdp.api.PdpExtensionRegistry.PdpExtensionComparator;
 import org.ow2.authzforce.core.pdp.api.combining.CombiningAlg;
@@ -187,22 +187,39 @@ public enum StandardCombiningAlgorithm
 	 */
 	public static final CombiningAlgRegistry REGISTRY;
 
+	/**
+	 * Default minimum number of candidate child policies for them to be evaluated concurrently, when concurrent evaluation is enabled (see {@link #getRegistry(boolean, ExecutorService, int)})
+	 */
+	public static final int DEFAULT_MIN_CONCURRENT_CHILD_POLICIES = 4;
+
 	static
 	{
-		final Set<CombiningAlg<? extends Decidable>> standardAlgorithms = HashCollections.newUpdatableSet(StandardCombiningAlgorithm.values().length);
+		final Set<CombiningAlg<?>> standardAlgorithms = newStandardAlgorithms(false, null, DEFAULT_MIN_CONCURRENT_CHILD_POLICIES);
+		REGISTRY = new ImmutableCombiningAlgRegistry(standardAlgorithms);
+		if (LOGGER.isDebugEnabled())
+		{
+			final TreeSet<CombiningAlg<?>> sortedAlgorithms = new TreeSet<>(COMPARATOR);
+			sortedAlgorithms.addAll(standardAlgorithms);
+			LOGGER.debug("Loaded XACML standard combining algorithms: {}", sortedAlgorithms);
+		}
+	}
+
+	private static Set<CombiningAlg<?>> newStandardAlgorithms(final boolean adaptivePolicyOrder, final ExecutorService childPolicyEvaluationExecutor, final int minConcurrentChildPolicies)
+	{
+		final Set<CombiningAlg<?>> standardAlgorithms = HashCollections.newUpdatableSet(StandardCombiningAlgorithm.values().length);
 		// XACML 3.0 algorithms
 		// deny-overrides and ordered-deny-overrides
-		standardAlgorithms.add(new DPOverridesCombiningAlg<>(StandardCombiningAlgorithm.XACML_3_0_POLICY_COMBINING_DENY_OVERRIDES.id, PolicyEvaluator.class, EffectType.DENY, false));
+		standardAlgorithms.add(new DPOverridesCombiningAlg<>(StandardCombiningAlgorithm.XACML_3_0_POLICY_COMBINING_DENY_OVERRIDES.id, PolicyEvaluator.class, EffectType.DENY, false, adaptivePolicyOrder, childPolicyEvaluationExecutor, minConcurrentChildPolicies));
 		standardAlgorithms.add(new DPOverridesCombiningAlg<>(StandardCombiningAlgorithm.XACML_3_0_RULE_COMBINING_DENY_OVERRIDES.id, RuleEvaluator.class, EffectType.DENY, false));
 
-		standardAlgorithms.add(new DPOverridesCombiningAlg<>(XACML_3_0_POLICY_COMBINING_ORDERED_DENY_OVERRIDES.id, PolicyEvaluator.class, EffectType.DENY, true));
+		standardAlgorithms.add(new DPOverridesCombiningAlg<>(XACML_3_0_POLICY_COMBINING_ORDERED_DENY_OVERRIDES.id, PolicyEvaluator.class, EffectType.DENY, true, false, childPolicyEvaluationExecutor, minConcurrentChildPolicies));
 		standardAlgorithms.add(new DPOverridesCombiningAlg<>(XACML_3_0_RULE_COMBINING_ORDERED_DENY_OVERRIDES.id, RuleEvaluator.class, EffectType.DENY, true));
 
 		// permit-overrides and ordered-permit-overrides
-		standardAlgorithms.add(new DPOverridesCombiningAlg<>(StandardCombiningAlgorithm.XACML_3_0_POLICY_COMBINING_PERMIT_OVERRIDES.id, PolicyEvaluator.class, EffectType.PERMIT, false));
+		standardAlgorithms.add(new DPOverridesCombiningAlg<>(StandardCombiningAlgorithm.XACML_3_0_POLICY_COMBINING_PERMIT_OVERRIDES.id, PolicyEvaluator.class, EffectType.PERMIT, false, adaptivePolicyOrder, childPolicyEvaluationExecutor, minConcurrentChildPolicies));
 		standardAlgorithms.add(new DPOverridesCombiningAlg<>(StandardCombiningAlgorithm.XACML_3_0_RULE_COMBINING_PERMIT_OVERRIDES.id, RuleEvaluator.class, EffectType.PERMIT, false));
 
-		standardAlgorithms.add(new DPOverridesCombiningAlg<>(StandardCombiningAlgorithm.XACML_3_0_POLICY_COMBINING_ORDERED_PERMIT_OVERRIDES.id, PolicyEvaluator.class, EffectType.PERMIT, true));
+		standardAlgorithms.add(new DPOverridesCombiningAlg<>(StandardCombiningAlgorithm.XACML_3_0_POLICY_COMBINING_ORDERED_PERMIT_OVERRIDES.id, PolicyEvaluator.class, EffectType.PERMIT, true, false, childPolicyEvaluationExecutor, minConcurrentChildPolicies));
 		standardAlgorithms.add(new DPOverridesCombiningAlg<>(StandardCombiningAlgorithm.XACML_3_0_RULE_COMBINING_ORDERED_PERMIT_OVERRIDES.id, RuleEvaluator.class, EffectType.PERMIT, true));
 
 		// deny-unless-permit
@@ -236,13 +253,69 @@ public enum StandardCombiningAlgorithm
 			standardAlgorithms.add(new LegacyPermitOverridesCombiningAlg(alg.id));
 		}
 
-		REGISTRY = new ImmutableCombiningAlgRegistry(standardAlgorithms);
-		if (LOGGER.isDebugEnabled())
+		return standardAlgorithms;
+	}
+
+	/**
+	 * Get a combining algorithm registry for standard algorithms
+	 * 
+	 * @param childPolicyEvaluationExecutor
+	 *            if not null, the policy-combining (ordered-)deny-overrides/permit-overrides algorithms evaluate the combined policies concurrently with this executor (results are still combined in
+	 *            order of declaration). The executor must not block the submitting thread when saturated or shut down, e.g. it may run the task in the submitting thread instead, else nested
+	 *            PolicySets evaluated concurrently may deadlock.
+	 * @param minConcurrentChildPolicies
+	 *            minimum number of candidate child policies (after filtering by the Target index, if any) for them to be evaluated concurrently; fewer are evaluated sequentially in the caller's
+	 *            thread. Must be at least 2. Ignored if {@code childPolicyEvaluationExecutor == null}.
+	 * @return {@link #REGISTRY} if {@code childPolicyEvaluationExecutor == null}, else a new registry
+	 * @throws IllegalArgumentException
+	 *             if {@code minConcurrentChildPolicies < 2}
+	 */
+	public static CombiningAlgRegistry getRegistry(final ExecutorService childPolicyEvaluationExecutor, final int minConcurrentChildPolicies) throws IllegalArgumentException
+	{
+		return getRegistry(false, childPolicyEvaluationExecutor, minConcurrentChildPolicies);
+	}
+
+	/**
+	 * Same as {@link #getRegistry(boolean, ExecutorService, int)} with {@link #DEFAULT_MIN_CONCURRENT_CHILD_POLICIES} as minimum number of child policies for concurrent evaluation
+	 * 
+	 * @param adaptivePolicyOrder
+	 *            true iff the policy-combining (non-ordered) deny-overrides/permit-overrides algorithms evaluate the combined policies in an order adapted to the statistics of previous evaluations
+	 *            (see {@link org.ow2.authzforce.core.pdp.impl.AdaptiveEvaluationOrder}), instead of document order. Ignored by these algorithms if {@code childPolicyEvaluationExecutor != null}.
+	 * @param childPolicyEvaluationExecutor
+	 *            executor of the concurrent evaluations of the child policies, if any (see {@link #getRegistry(boolean, ExecutorService, int)})
+	 * @return {@link #REGISTRY} if {@code !adaptivePolicyOrder && childPolicyEvaluationExecutor == null}, else a new registry
+	 */
+	public static CombiningAlgRegistry getRegistry(final boolean adaptivePolicyOrder, final ExecutorService childPolicyEvaluationExecutor)
+	{
+		return getRegistry(adaptivePolicyOrder, childPolicyEvaluationExecutor, DEFAULT_MIN_CONCURRENT_CHILD_POLICIES);
+	}
+
+	/**
+	 * Get a combining algorithm registry for standard algorithms
+	 * 
+	 * @param adaptivePolicyOrder
+	 *            true iff the policy-combining (non-ordered) deny-overrides/permit-overrides algorithms evaluate the combined policies in an order adapted to the statistics of previous evaluations
+	 *            (see {@link org.ow2.authzforce.core.pdp.impl.AdaptiveEvaluationOrder}), instead of document order. Ignored by these algorithms if {@code childPolicyEvaluationExecutor != null}.
+	 * @param childPolicyEvaluationExecutor
+	 *            if not null, the policy-combining (ordered-)deny-overrides/permit-overrides algorithms evaluate the combined policies concurrently with this executor (results are still combined in
+	 *            order of declaration). The executor must not block the submitting thread when saturated or shut down, e.g. it may run the task in the submitting thread instead, else nested
+	 *            PolicySets evaluated concurrently may deadlock.
+	 * @param minConcurrentChildPolicies
+	 *            minimum number of candidate child policies (after filtering by the Target index, if any) for them to be evaluated concurrently; fewer are evaluated sequentially in the caller's
+	 *            thread. Must be at least 2. Ignored if {@code childPolicyEvaluationExecutor == null}.
+	 * @return {@link #REGISTRY} if {@code !adaptivePolicyOrder && childPolicyEvaluationExecutor == null}, else a new registry
+	 * @throws IllegalArgumentException
+	 *             if {@code minConcurrentChildPolicies < 2}
+	 */
+	public static CombiningAlgRegistry getRegistry(final boolean adaptivePolicyOrder, final ExecutorService childPolicyEvaluationExecutor, final int minConcurrentChildPolicies)
+	        throws IllegalArgumentException
+	{
+		if (!adaptivePolicyOrder && childPolicyEvaluationExecutor == null)
 		{
-			final TreeSet<CombiningAlg<?>> sortedAlgorithms = new TreeSet<>(COMPARATOR);
-			sortedAlgorithms.addAll(standardAlgorithms);
-			LOGGER.debug("Loaded XACML standard combining algorithms: {}", sortedAlgorithms);
+			return REGISTRY;
 		}
+
+		return new ImmutableCombiningAlgRegistry(newStandardAlgorithms(adaptivePolicyOrder, childPolicyEvaluationExecutor, minConcurrentChildPolicies));
 	}
 
 	private static final Map<String, StandardCombiningAlgorithm> ID_TO_STD_ALG_MAP = Maps.uniqueIndex(Arrays.asList(StandardCombiningAlgorithm.values()),
@@ -0,0 +1,315 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.combining;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.ow2.authzforce.core.pdp.api.EvaluationContext;
+import org.ow2.authzforce.core.pdp.api.IndeterminateEvaluationException;
+import org.ow2.authzforce.core.pdp.api.value.AttributeValue;
+import org.ow2.authzforce.core.pdp.api.value.Bag;
+import org.ow2.authzforce.core.pdp.impl.TargetIndexKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Decision diagram over the AttributeDesignators of the {@link TargetIndexKey}s of combined elements: each branch node tests the values of one AttributeDesignator, and each leaf gives the positions
+ * of the combined elements whose index keys are satisfied by the values tested on the path from the root. A combined element is a candidate if it is in a leaf reached by the walk for a given
+ * evaluation context, i.e. if none of its index keys is unsatisfied for sure. Sub-diagrams shared by several branches are built only once.
+ * <p>
+ * If an AttributeDesignator evaluation is Indeterminate, all the branches of the corresponding node are walked, since the Targets of the combined elements in these branches may be Indeterminate as
+ * well.
+ */
+final class TargetDecisionDiagram
+{
+	private static final Logger LOGGER = LoggerFactory.getLogger(TargetDecisionDiagram.class);
+
+	private interface Node
+	{
+		void addCandidates(EvaluationContext context, BitSet candidates);
+	}
+
+	private static final class Leaf implements Node
+	{
+		private final BitSet positions;
+
+		private Leaf(final BitSet positions)
+		{
+			this.positions = positions;
+		}
+
+		@Override
+		public void addCandidates(final EvaluationContext context, final BitSet candidates)
+		{
+			candidates.or(positions);
+		}
+	}
+
+	private static final class Branch implements Node
+	{
+		private final TargetIndexKey firstKey;
+		private final Map<AttributeValue, Node> childrenByValue;
+		// null if none
+		private final Node otherwise;
+
+		private Branch(final TargetIndexKey firstKey, final Map<AttributeValue, Node> childrenByValue, final Node otherwise)
+		{
+			this.firstKey = firstKey;
+			this.childrenByValue = childrenByValue;
+			this.otherwise = otherwise;
+		}
+
+		@Override
+		public void addCandidates(final EvaluationContext context, final BitSet candidates)
+		{
+			/*
+			 * Combined elements without index key on this AttributeDesignator do not depend on its value
+			 */
+			if (otherwise != null)
+			{
+				otherwise.addCandidates(context, candidates);
+			}
+
+			final Bag<?> attributeBag;
+			try
+			{
+				attributeBag = firstKey.getAttributeDesignator().evaluate(context);
+			}
+			catch (final IndeterminateEvaluationException e)
+			{
+				LOGGER.debug("Decision diagram node on {} -> Indeterminate: walking all branches", firstKey.getAttributeDesignator(), e);
+				for (final Node child : childrenByValue.values())
+				{
+					child.addCandidates(context, candidates);
+				}
+
+				return;
+			}
+
+			for (final AttributeValue attributeValue : attributeBag)
+			{
+				final Node child = childrenByValue.get(attributeValue);
+				if (child != null)
+				{
+					child.addCandidates(context, candidates);
+				}
+			}
+		}
+	}
+
+	/*
+	 * Builds the nodes, sharing the ones built for the same positions and remaining AttributeDesignators
+	 */
+	private static final class Builder
+	{
+		/*
+		 * First index key of each distinct AttributeDesignator
+		 */
+		private final List<TargetIndexKey> attributeDesignatorKeys;
+
+		/*
+		 * For each combined element position, for each AttributeDesignator (same index as in attributeDesignatorKeys), the first index key of the combined element on this AttributeDesignator,
+		 * or null if none
+		 */
+		private final TargetIndexKey[][] keysByPositionAndAttributeDesignator;
+
+		private final Map<List<BitSet>, Node> nodeCache = new HashMap<>();
+
+		private Builder(final List<TargetIndexKey> attributeDesignatorKeys, final TargetIndexKey[][] keysByPositionAndAttributeDesignator)
+		{
+			this.attributeDesignatorKeys = attributeDesignatorKeys;
+			this.keysByPositionAndAttributeDesignator = keysByPositionAndAttributeDesignator;
+		}
+
+		private Node build(final BitSet positions, final BitSet remainingAttributeDesignators)
+		{
+			final List<BitSet> nodeKey = ImmutableList.of(positions, remainingAttributeDesignators);
+			final Node cachedNode = nodeCache.get(nodeKey);
+			if (cachedNode != null)
+			{
+				return cachedNode;
+			}
+
+			final Node node = newNode(positions, remainingAttributeDesignators);
+			nodeCache.put(nodeKey, node);
+			return node;
+		}
+
+		private Node newNode(final BitSet positions, final BitSet remainingAttributeDesignators)
+		{
+			if (positions.cardinality() < 2)
+			{
+				return new Leaf(positions);
+			}
+
+			/*
+			 * Branch on the AttributeDesignator that most combined elements are indexed on
+			 */
+			int selectedAttributeDesignator = -1;
+			int maxIndexedPositionCount = 0;
+			for (int j = remainingAttributeDesignators.nextSetBit(0); j >= 0; j = remainingAttributeDesignators.nextSetBit(j + 1))
+			{
+				int indexedPositionCount = 0;
+				for (int i = positions.nextSetBit(0); i >= 0; i = positions.nextSetBit(i + 1))
+				{
+					if (keysByPositionAndAttributeDesignator[i][j] != null)
+					{
+						indexedPositionCount++;
+					}
+				}
+
+				if (indexedPositionCount > maxIndexedPositionCount)
+				{
+					selectedAttributeDesignator = j;
+					maxIndexedPositionCount = indexedPositionCount;
+				}
+			}
+
+			if (selectedAttributeDesignator == -1)
+			{
+				return new Leaf(positions);
+			}
+
+			final Map<AttributeValue, BitSet> positionsByValue = new HashMap<>();
+			final BitSet otherPositions = new BitSet();
+			for (int i = positions.nextSetBit(0); i >= 0; i = positions.nextSetBit(i + 1))
+			{
+				final TargetIndexKey key = keysByPositionAndAttributeDesignator[i][selectedAttributeDesignator];
+				if (key == null)
+				{
+					otherPositions.set(i);
+					continue;
+				}
+
+				for (final AttributeValue value : key.getValues())
+				{
+					positionsByValue.computeIfAbsent(value, k -> new BitSet()).set(i);
+				}
+			}
+
+			final BitSet childRemainingAttributeDesignators = (BitSet) remainingAttributeDesignators.clone();
+			childRemainingAttributeDesignators.clear(selectedAttributeDesignator);
+			final Map<AttributeValue, Node> childrenByValue = new HashMap<>();
+			for (final Entry<AttributeValue, BitSet> valueToPositions : positionsByValue.entrySet())
+			{
+				childrenByValue.put(valueToPositions.getKey(), build(valueToPositions.getValue(), childRemainingAttributeDesignators));
+			}
+
+			final Node otherwise = otherPositions.isEmpty() ? null : build(otherPositions, childRemainingAttributeDesignators);
+			return new Branch(attributeDesignatorKeys.get(selectedAttributeDesignator), childrenByValue, otherwise);
+		}
+	}
+
+	private final Node root;
+
+	private TargetDecisionDiagram(final Node root)
+	{
+		this.root = root;
+	}
+
+	/**
+	 * Creates the decision diagram
+	 * 
+	 * @param keysByPosition
+	 *            index keys of each combined element, by position of the combined element (empty list if not indexable)
+	 * @return decision diagram
+	 */
+	static TargetDecisionDiagram newInstance(final List<List<TargetIndexKey>> keysByPosition)
+	{
+		/*
+		 * There are usually very few distinct indexed AttributeDesignators (resource-id, action-id...), so a linear search is good enough
+		 */
+		final List<TargetIndexKey> attributeDesignatorKeys = new ArrayList<>();
+		for (final List<TargetIndexKey> keys : keysByPosition)
+		{
+			for (final TargetIndexKey key : keys)
+			{
+				if (indexOfAttributeDesignator(attributeDesignatorKeys, key) == -1)
+				{
+					attributeDesignatorKeys.add(key);
+				}
+			}
+		}
+
+		final TargetIndexKey[][] keysByPositionAndAttributeDesignator = new TargetIndexKey[keysByPosition.size()][attributeDesignatorKeys.size()];
+		final BitSet indexedPositions = new BitSet(keysByPosition.size());
+		int position = 0;
+		for (final List<TargetIndexKey> keys : keysByPosition)
+		{
+			for (final TargetIndexKey key : keys)
+			{
+				final int attributeDesignator = indexOfAttributeDesignator(attributeDesignatorKeys, key);
+				// only the first key on a given AttributeDesignator is used (the others are still checked by the Target evaluation)
+				if (keysByPositionAndAttributeDesignator[position][attributeDesignator] == null)
+				{
+					keysByPositionAndAttributeDesignator[position][attributeDesignator] = key;
+				}
+
+				indexedPositions.set(position);
+			}
+
+			position++;
+		}
+
+		final BitSet allAttributeDesignators = new BitSet(attributeDesignatorKeys.size());
+		allAttributeDesignators.set(0, attributeDesignatorKeys.size());
+		final Builder builder = new Builder(attributeDesignatorKeys, keysByPositionAndAttributeDesignator);
+		final Node root = builder.build(indexedPositions, allAttributeDesignators);
+		if (LOGGER.isDebugEnabled())
+		{
+			// Beware of autoboxing which causes call to Integer.valueOf(...)
+			LOGGER.debug("Compiled {} indexed combined elements into a decision diagram of {} node(s) on {} AttributeDesignator(s)", indexedPositions.cardinality(), builder.nodeCache.size(),
+			        attributeDesignatorKeys.size());
+		}
+
+		return new TargetDecisionDiagram(root);
+	}
+
+	private static int indexOfAttributeDesignator(final List<TargetIndexKey> attributeDesignatorKeys, final TargetIndexKey key)
+	{
+		for (int i = 0; i < attributeDesignatorKeys.size(); i++)
+		{
+			if (attributeDesignatorKeys.get(i).hasSameAttributeDesignator(key))
+			{
+				return i;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Adds the positions of the combined elements that may be applicable in a given context, i.e. all but the ones that are NotApplicable by Target for sure
+	 * 
+	 * @param context
+	 *            evaluation context
+	 * @param candidates
+	 *            candidate positions to update
+	 */
+	void addCandidates(final EvaluationContext context, final BitSet candidates)
+	{
+		root.addCandidates(context, candidates);
+	}
+}
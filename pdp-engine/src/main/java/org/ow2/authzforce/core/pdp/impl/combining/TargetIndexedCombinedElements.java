@@ -0,0 +1,257 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.combining;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.ow2.authzforce.core.pdp.api.Decidable;
+import org.ow2.authzforce.core.pdp.api.EvaluationContext;
+import org.ow2.authzforce.core.pdp.api.IndeterminateEvaluationException;
+import org.ow2.authzforce.core.pdp.api.value.AttributeValue;
+import org.ow2.authzforce.core.pdp.api.value.Bag;
+import org.ow2.authzforce.core.pdp.impl.TargetIndexKey;
+import org.ow2.authzforce.core.pdp.impl.TargetIndexable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Index of combined elements (Policy(Set)s, Rules) by {@link TargetIndexKey}, i.e. by the values of the AttributeDesignators in their equality Matches. For a given evaluation context, it returns the
+ * combined elements that are not NotApplicable by Target for sure, in the original order, so that combining algorithms get the same result as with the linear scan of all combined elements, without
+ * evaluating the Targets of elements that cannot match.
+ * <p>
+ * Each indexed AttributeDesignator is evaluated once per call to {@link #getCandidates(EvaluationContext)}, before any combined element. Since attribute values are cached in the evaluation context,
+ * this does not change the result of the combined elements' evaluation. If the AttributeDesignator evaluation is Indeterminate, all combined elements indexed on this AttributeDesignator are
+ * candidates, since their Target may be Indeterminate as well.
+ * <p>
+ * The index may be compiled with {@link #compile()} when the policy tree is static: all the index keys of each combined element (one per indexable AnyOf of its Target) are then used, through a
+ * {@link TargetDecisionDiagram}, instead of the first one only.
+ *
+ * @param <T>
+ *            type of combined element
+ */
+final class TargetIndexedCombinedElements<T extends Decidable>
+{
+	private static final Logger LOGGER = LoggerFactory.getLogger(TargetIndexedCombinedElements.class);
+
+	/**
+	 * Minimum number of indexable combined elements for the index to be worth it (compared to the linear scan)
+	 */
+	static final int MIN_INDEXED_ELEMENT_COUNT = 8;
+
+	/*
+	 * Combined elements indexed on the same AttributeDesignator
+	 */
+	private static final class AttributeDesignatorIndex
+	{
+		private final TargetIndexKey firstKey;
+		private final Map<AttributeValue, BitSet> positionsByValue = new HashMap<>();
+		private final BitSet allPositions = new BitSet();
+
+		private AttributeDesignatorIndex(final TargetIndexKey firstKey)
+		{
+			this.firstKey = firstKey;
+		}
+
+		private void add(final TargetIndexKey key, final int position)
+		{
+			for (final AttributeValue value : key.getValues())
+			{
+				positionsByValue.computeIfAbsent(value, k -> new BitSet()).set(position);
+			}
+
+			allPositions.set(position);
+		}
+
+		private void addCandidates(final EvaluationContext context, final BitSet candidates)
+		{
+			final Bag<?> attributeBag;
+			try
+			{
+				attributeBag = firstKey.getAttributeDesignator().evaluate(context);
+			}
+			catch (final IndeterminateEvaluationException e)
+			{
+				LOGGER.debug("Indexed {} -> Indeterminate: no candidate filtering on this AttributeDesignator", firstKey.getAttributeDesignator(), e);
+				candidates.or(allPositions);
+				return;
+			}
+
+			for (final AttributeValue attributeValue : attributeBag)
+			{
+				final BitSet positions = positionsByValue.get(attributeValue);
+				if (positions != null)
+				{
+					candidates.or(positions);
+				}
+			}
+		}
+	}
+
+	private final ImmutableList<T> combinedElements;
+	private final List<List<TargetIndexKey>> keysByPosition;
+	private final BitSet nonIndexedPositions;
+	private final List<AttributeDesignatorIndex> attributeDesignatorIndexes;
+
+	// null until compiled
+	private transient volatile TargetDecisionDiagram decisionDiagram = null;
+
+	private TargetIndexedCombinedElements(final ImmutableList<T> combinedElements, final List<List<TargetIndexKey>> keysByPosition, final BitSet nonIndexedPositions,
+			final List<AttributeDesignatorIndex> attributeDesignatorIndexes)
+	{
+		this.combinedElements = combinedElements;
+		this.keysByPosition = keysByPosition;
+		this.nonIndexedPositions = nonIndexedPositions;
+		this.attributeDesignatorIndexes = attributeDesignatorIndexes;
+	}
+
+	/**
+	 * Creates the index of combined elements
+	 * 
+	 * @param combinedElements
+	 *            combined elements, in order of evaluation
+	 * @return the index, or null if less than {@value #MIN_INDEXED_ELEMENT_COUNT} combined elements are indexable (implement {@link TargetIndexable} with a non-empty key)
+	 */
+	static <T extends Decidable> TargetIndexedCombinedElements<T> newInstance(final Iterable<? extends T> combinedElements)
+	{
+		final ImmutableList<T> combinedElementList = ImmutableList.copyOf(combinedElements);
+		final BitSet nonIndexedPositions = new BitSet(combinedElementList.size());
+		final List<AttributeDesignatorIndex> attributeDesignatorIndexes = new ArrayList<>();
+		final List<List<TargetIndexKey>> keysByPosition = new ArrayList<>(combinedElementList.size());
+		int indexedElementCount = 0;
+		int position = 0;
+		for (final T combinedElement : combinedElementList)
+		{
+			final List<TargetIndexKey> keys = combinedElement instanceof TargetIndexable ? ((TargetIndexable) combinedElement).getTargetIndexKeys() : Collections.emptyList();
+			keysByPosition.add(keys);
+			if (!keys.isEmpty())
+			{
+				// any key is a necessary condition for the Target to match, the first one is enough for the (non-compiled) index
+				final TargetIndexKey key = keys.get(0);
+				/*
+				 * There are usually very few distinct indexed AttributeDesignators (resource-id, action-id...), so a linear search is good enough
+				 */
+				AttributeDesignatorIndex attributeDesignatorIndex = null;
+				for (final AttributeDesignatorIndex existingIndex : attributeDesignatorIndexes)
+				{
+					if (existingIndex.firstKey.hasSameAttributeDesignator(key))
+					{
+						attributeDesignatorIndex = existingIndex;
+						break;
+					}
+				}
+
+				if (attributeDesignatorIndex == null)
+				{
+					attributeDesignatorIndex = new AttributeDesignatorIndex(key);
+					attributeDesignatorIndexes.add(attributeDesignatorIndex);
+				}
+
+				attributeDesignatorIndex.add(key, position);
+				indexedElementCount++;
+			}
+			else
+			{
+				nonIndexedPositions.set(position);
+			}
+
+			position++;
+		}
+
+		if (indexedElementCount < MIN_INDEXED_ELEMENT_COUNT)
+		{
+			return null;
+		}
+
+		if (LOGGER.isDebugEnabled())
+		{
+			// Beware of autoboxing which causes call to Integer.valueOf(...)
+			LOGGER.debug("Indexed {} out of {} combined elements by Target on {} AttributeDesignator(s)", indexedElementCount, combinedElementList.size(), attributeDesignatorIndexes.size());
+		}
+
+		return new TargetIndexedCombinedElements<>(combinedElementList, keysByPosition, nonIndexedPositions, attributeDesignatorIndexes);
+	}
+
+	/**
+	 * Compiles this index into a decision diagram over all the index keys of the combined elements, used by {@link #getCandidates(EvaluationContext)} afterwards. Does nothing if already compiled.
+	 */
+	void compile()
+	{
+		if (decisionDiagram == null)
+		{
+			decisionDiagram = TargetDecisionDiagram.newInstance(keysByPosition);
+		}
+	}
+
+	/**
+	 * Get the combined elements that may be applicable in a given context, i.e. all but the ones that are NotApplicable by Target for sure
+	 * 
+	 * @param context
+	 *            evaluation context
+	 * @return candidate combined elements, in the original order
+	 */
+	List<T> getCandidates(final EvaluationContext context)
+	{
+		final BitSet candidatePositions = getCandidatePositions(context);
+		final List<T> candidates = new ArrayList<>(candidatePositions.cardinality());
+		for (int i = candidatePositions.nextSetBit(0); i >= 0; i = candidatePositions.nextSetBit(i + 1))
+		{
+			candidates.add(combinedElements.get(i));
+		}
+
+		if (LOGGER.isDebugEnabled())
+		{
+			// Beware of autoboxing which causes call to Integer.valueOf(...)
+			LOGGER.debug("Target index -> {} candidate(s) out of {} combined elements", candidates.size(), combinedElements.size());
+		}
+
+		return candidates;
+	}
+
+	/**
+	 * Get the positions of the combined elements that may be applicable in a given context, i.e. all but the ones that are NotApplicable by Target for sure
+	 * 
+	 * @param context
+	 *            evaluation context
+	 * @return positions of the candidate combined elements in the original order
+	 */
+	BitSet getCandidatePositions(final EvaluationContext context)
+	{
+		final BitSet candidatePositions = (BitSet) nonIndexedPositions.clone();
+		final TargetDecisionDiagram compiledIndex = decisionDiagram;
+		if (compiledIndex == null)
+		{
+			for (final AttributeDesignatorIndex attributeDesignatorIndex : attributeDesignatorIndexes)
+			{
+				attributeDesignatorIndex.addCandidates(context, candidatePositions);
+			}
+		}
+		else
+		{
+			compiledIndex.addCandidates(context, candidatePositions);
+		}
+
+		return candidatePositions;
+	}
+}
@@ -19,11 +19,18 @@ package org.ow2.authzforce.core.pdp.impl.expression;
 
 import java.io.IOException;
 import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.Deque;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.ow2.authzforce.core.pdp.api.AttributeFqn;
+import org.ow2.authzforce.core.pdp.api.AttributeFqns;
+import org.ow2.authzforce.core.pdp.api.AttributeProvider;
 import org.ow2.authzforce.core.pdp.api.CloseableNamedAttributeProvider;
 import org.ow2.authzforce.core.pdp.api.EvaluationContext;
 import org.ow2.authzforce.core.pdp.api.HashCollections;
@@ -35,17 +42,23 @@ import org.ow2.authzforce.core.pdp.api.expression.FunctionExpression;
 import org.ow2.authzforce.core.pdp.api.expression.GenericAttributeProviderBasedAttributeDesignatorExpression;
 import org.ow2.authzforce.core.pdp.api.expression.VariableReference;
 import org.ow2.authzforce.core.pdp.api.func.Function;
+import org.ow2.authzforce.core.pdp.api.value.AttributeBag;
 import org.ow2.authzforce.core.pdp.api.value.AttributeValue;
 import org.ow2.authzforce.core.pdp.api.value.AttributeValueFactory;
 import org.ow2.authzforce.core.pdp.api.value.AttributeValueFactoryRegistry;
+import org.ow2.authzforce.core.pdp.api.value.BagDatatype;
 import org.ow2.authzforce.core.pdp.api.value.Datatype;
+import org.ow2.authzforce.core.pdp.api.value.StandardDatatypes;
 import org.ow2.authzforce.core.pdp.api.value.Value;
 import org.ow2.authzforce.core.pdp.impl.CloseableAttributeProvider;
+import org.ow2.authzforce.core.pdp.impl.IndividualDecisionRequestContext;
 import org.ow2.authzforce.core.pdp.impl.func.FunctionRegistry;
 import org.ow2.authzforce.xacml.identifiers.XacmlStatusCode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.cache.CacheBuilder;
+
 import net.sf.saxon.s9api.XPathCompiler;
 import oasis.names.tc.xacml._3_0.core.schema.wd_17.ApplyType;
 import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributeDesignatorType;
@@ -59,7 +72,7 @@ import oasis.names.tc.xacml._3_0.core.schema.wd_17.VariableReferenceType;
 /**
  * Implementation of ExpressionFactory that supports the Expressions defined in VariableDefinitions in order to resolve VariableReferences. In particular, it makes sure the depth of recursivity of
  * VariableDefinition does not exceed a value (to avoid inconveniences such as stackoverflow or very negative performance impact) defined by {@code maxVarRefDef} parameter to
- * {@link #DepthLimitingExpressionFactory(AttributeValueFactoryRegistry, FunctionRegistry, List, int, boolean, boolean)}. Note that reference loops are avoided by the fact that a VariableReference can
+ * {@link #DepthLimitingExpressionFactory(AttributeValueFactoryRegistry, FunctionRegistry, List, int, boolean, boolean, boolean)}. Note that reference loops are avoided by the fact that a VariableReference can
  * reference only a VariableDefinition defined previously to the VariableReference in this implementation.
  *
  * 
@@ -262,6 +275,51 @@ public final class DepthLimitingExpressionFactory implements ExpressionFactory
 		}
 	}
 
+	/**
+	 * Attribute provider bound to a given AttributeDesignator, that first looks up the attribute in the evaluation context by the slot assigned to the attribute at policy loading time (see
+	 * {@link IndividualDecisionRequestContext#getNamedAttributeValue(int, AttributeFqn, Datatype)}), before falling back to the PDP's attribute provider.
+	 */
+	private static final class SlotBasedAttributeProvider implements AttributeProvider
+	{
+		private final int attributeSlot;
+		private final AttributeProvider attributeProvider;
+
+		private SlotBasedAttributeProvider(final int attributeSlot, final AttributeProvider attributeProvider)
+		{
+			assert attributeSlot >= 0 && attributeProvider != null;
+			this.attributeSlot = attributeSlot;
+			this.attributeProvider = attributeProvider;
+		}
+
+		@Override
+		public <AV extends AttributeValue> AttributeBag<AV> get(final AttributeFqn attributeFqn, final Datatype<AV> datatype, final EvaluationContext context)
+				throws IndeterminateEvaluationException
+		{
+			if (context instanceof IndividualDecisionRequestContext)
+			{
+				final AttributeBag<AV> contextBag;
+				try
+				{
+					contextBag = ((IndividualDecisionRequestContext) context).getNamedAttributeValue(attributeSlot, attributeFqn, datatype);
+				}
+				catch (final IndeterminateEvaluationException e)
+				{
+					/*
+					 * Datatype conflict in context: let the PDP's attribute provider handle it as usual
+					 */
+					return attributeProvider.get(attributeFqn, datatype, context);
+				}
+
+				if (contextBag != null)
+				{
+					return contextBag;
+				}
+			}
+
+			return attributeProvider.get(attributeFqn, datatype, context);
+		}
+	}
+
 	private static final Logger LOGGER = LoggerFactory.getLogger(DepthLimitingExpressionFactory.class);
 
 	private static final IllegalArgumentException MISSING_ATTRIBUTE_DESIGNATOR_ISSUER_EXCEPTION = new IllegalArgumentException(
@@ -282,12 +340,31 @@ public final class DepthLimitingExpressionFactory implements ExpressionFactory
 	private final FunctionRegistry functionRegistry;
 	private final CloseableAttributeProvider attributeProvider;
 	private final int maxVariableReferenceDepth;
-	// the map from identifiers to internal data
-	private final Map<String, BaseVariableReference<?>> idToVariableMap = HashCollections.newMutableMap();
+	/*
+	 * The map from identifiers to internal data, for the VariableDefinitions in scope of the policy being parsed by the current thread, since policies may be parsed concurrently with the same
+	 * factory
+	 */
+	private final ThreadLocal<Map<String, BaseVariableReference<?>>> idToVariableMap = ThreadLocal.withInitial(HashCollections::newMutableMap);
 	private final boolean allowAttributeSelectors;
 
 	private final boolean issuerRequiredOnAttributeDesignators;
 
+	private final boolean adaptiveMatchOrdering;
+
+	/*
+	 * Dense integer slots assigned to the attributes used in AttributeDesignators, by attribute name
+	 */
+	private final ConcurrentMap<AttributeFqn, Integer> attributeSlotsByFqn = new ConcurrentHashMap<>();
+	private final AtomicInteger attributeSlotCount = new AtomicInteger(0);
+
+	/*
+	 * Hash-consing of immutable expressions, so that identical expressions repeated in policies share the same instance: AttributeDesignators by attribute name, datatype and MustBePresent flag;
+	 * constants - AttributeValues and constant Apply results - by datatype and value (XML representation). Weak values, so that expressions no longer used by any policy (e.g. after reloading) are
+	 * garbage-collected.
+	 */
+	private final ConcurrentMap<List<?>, Expression<?>> internedAttributeDesignators = CacheBuilder.newBuilder().weakValues().<List<?>, Expression<?>>build().asMap();
+	private final ConcurrentMap<List<?>, ConstantExpression<?>> internedConstants = CacheBuilder.newBuilder().weakValues().<List<?>, ConstantExpression<?>>build().asMap();
+
 	/**
 	 * Maximum VariableReference depth allowed for VariableDefinitions to be managed. Examples:
 	 * <ul>
@@ -316,6 +393,9 @@ public final class DepthLimitingExpressionFactory implements ExpressionFactory
 	 *            Issuer, if the requests are using matching Attributes but with none, one or more different Issuers, this PDP engine has to gather all the values from all the attributes with matching
 	 *            Category/AttributeId but with any Issuer or no Issuer. Therefore, in order to stay compliant with §5.29 and still enforce best practice, when {@code strictAttributeIssuerMatch} is
 	 *            true, we also require that all AttributeDesignators set the Issuer field.
+	 * @param adaptiveMatchOrdering
+	 *            true iff the Matches of the AllOfs (and the AllOfs of the AnyOfs) in policy Targets parsed with this factory must be evaluated in an order adapted to evaluation statistics, instead
+	 *            of document order (see {@link #isAdaptiveMatchOrderingEnabled()})
 	 * @throws java.lang.IllegalArgumentException
 	 *             If {@code attributeFactory == null || functionRegistry == null} OR any Attribute Provider created from {@code attributeProviderFactories} does not provide any attribute.
 	 * @throws java.io.IOException
@@ -323,7 +403,7 @@ public final class DepthLimitingExpressionFactory implements ExpressionFactory
 	 */
 	public DepthLimitingExpressionFactory(final AttributeValueFactoryRegistry attributeFactory, final FunctionRegistry functionRegistry,
 	        final List<CloseableNamedAttributeProvider.DependencyAwareFactory> attributeProviderFactories, final int maxVariableRefDepth, final boolean allowAttributeSelectors,
-	        final boolean strictAttributeIssuerMatch) throws IllegalArgumentException, IOException
+	        final boolean strictAttributeIssuerMatch, final boolean adaptiveMatchOrdering) throws IllegalArgumentException, IOException
 	{
 		if (attributeFactory == null)
 		{
@@ -344,6 +424,46 @@ public final class DepthLimitingExpressionFactory implements ExpressionFactory
 		this.attributeProvider = CloseableAttributeProvider.getInstance(attributeProviderFactories, attributeFactory, strictAttributeIssuerMatch);
 		this.allowAttributeSelectors = allowAttributeSelectors;
 		this.issuerRequiredOnAttributeDesignators = strictAttributeIssuerMatch;
+		this.adaptiveMatchOrdering = adaptiveMatchOrdering;
+	}
+
+	/**
+	 * Same as {@link #DepthLimitingExpressionFactory(AttributeValueFactoryRegistry, FunctionRegistry, List, int, boolean, boolean, boolean)} with Matches evaluated in document order (no adaptive
+	 * Match ordering)
+	 *
+	 * @param attributeFactory
+	 *            attribute value factory (not null)
+	 * @param functionRegistry
+	 *            function registry (not null)
+	 * @param attributeProviderFactories
+	 *            Attribute Provider factories (Attribute Providers resolve values of attributes absent from the request context). Empty if none.
+	 * @param maxVariableRefDepth
+	 *            max depth of VariableReference chaining: VariableDefinition -> VariableDefinition ->... ('->' represents a VariableReference); strictly negative value means unlimited
+	 * @param allowAttributeSelectors
+	 *            allow use of AttributeSelectors (experimental, not for production, use with caution)
+	 * @param strictAttributeIssuerMatch
+	 *            true iff we want strict Attribute Issuer matching and we require that all AttributeDesignators set the Issuer field
+	 * @throws java.lang.IllegalArgumentException
+	 *             If {@code attributeFactory == null || functionRegistry == null} OR any Attribute Provider created from {@code attributeProviderFactories} does not provide any attribute.
+	 * @throws java.io.IOException
+	 *             error closing the Attribute Providers created from {@code attributeProviderFactories}, when a {@link IllegalArgumentException} is raised
+	 */
+	public DepthLimitingExpressionFactory(final AttributeValueFactoryRegistry attributeFactory, final FunctionRegistry functionRegistry,
+	        final List<CloseableNamedAttributeProvider.DependencyAwareFactory> attributeProviderFactories, final int maxVariableRefDepth, final boolean allowAttributeSelectors,
+	        final boolean strictAttributeIssuerMatch) throws IllegalArgumentException, IOException
+	{
+		this(attributeFactory, functionRegistry, attributeProviderFactories, maxVariableRefDepth, allowAttributeSelectors, strictAttributeIssuerMatch, false);
+	}
+
+	/**
+	 * Returns true iff the Matches of the AllOfs (and the AllOfs of the AnyOfs) in policy Targets parsed with this factory are evaluated in an order adapted to evaluation statistics: the ones most
+	 * likely to decide the AllOf/AnyOf result at the lowest cost first. The AllOf/AnyOf result is the same as in document order.
+	 * 
+	 * @return true iff adaptive Match ordering is enabled
+	 */
+	public boolean isAdaptiveMatchOrderingEnabled()
+	{
+		return adaptiveMatchOrdering;
 	}
 
 	private static <V extends Value> BaseVariableReference<?> newVariableReference(final String variableId, final Expression<V> variableExpression, final Deque<String> longestVarRefChainInExpression)
@@ -418,20 +538,20 @@ public final class DepthLimitingExpressionFactory implements ExpressionFactory
 		}
 
 		final BaseVariableReference<?> var = newVariableReference(varId, varExpr, longestVarRefChainInCurrentVarExpression);
-		return idToVariableMap.putIfAbsent(varId, var);
+		return idToVariableMap.get().putIfAbsent(varId, var);
 	}
 
 	@Override
 	public VariableReference<?> getVariableExpression(final String varId)
 	{
-		return idToVariableMap.get(varId);
+		return idToVariableMap.get().get(varId);
 	}
 
 	/** {@inheritDoc} */
 	@Override
 	public VariableReference<?> removeVariable(final String varId)
 	{
-		return idToVariableMap.remove(varId);
+		return idToVariableMap.get().remove(varId);
 	}
 
 	/**
@@ -456,7 +576,7 @@ public final class DepthLimitingExpressionFactory implements ExpressionFactory
 		assert jaxbVarRef != null;
 
 		final String varId = jaxbVarRef.getVariableId();
-		final BaseVariableReference<?> var = idToVariableMap.get(varId);
+		final BaseVariableReference<?> var = idToVariableMap.get().get(varId);
 		if (var == null)
 		{
 			throw new IllegalArgumentException("VariableReference's VariableId=" + varId + " unknown in the current context, i.e. does not match any prior VariableDefinition's VariableId");
@@ -534,6 +654,24 @@ public final class DepthLimitingExpressionFactory implements ExpressionFactory
 		return new FunctionExpression(f);
 	}
 
+	/*
+	 * Get the instance of an equal constant already created by this factory if any, else the constant itself (interned for next calls). AttributeValues of XPathExpression datatype are not
+	 * interned since they depend on the enclosing policy's XPath namespace context.
+	 */
+	private ConstantExpression<?> intern(final ConstantExpression<?> constant)
+	{
+		final Datatype<?> datatype = constant.getReturnType();
+		final Value value = constant.getValue().get();
+		if (!(value instanceof AttributeValue) || datatype.equals(StandardDatatypes.XPATH))
+		{
+			return constant;
+		}
+
+		final AttributeValue attributeValue = (AttributeValue) value;
+		final ConstantExpression<?> internedConstant = internedConstants.putIfAbsent(Arrays.asList(datatype, attributeValue.getContent(), attributeValue.getXmlAttributes()), constant);
+		return internedConstant == null ? constant : internedConstant;
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public Expression<?> getInstance(final ExpressionType expr, final XPathCompiler xPathCompiler, final Deque<String> longestVarRefChain) throws IllegalArgumentException
@@ -544,7 +682,8 @@ public final class DepthLimitingExpressionFactory implements ExpressionFactory
 		 */
 		if (expr instanceof ApplyType)
 		{
-			expression = ApplyExpressions.newInstance((ApplyType) expr, xPathCompiler, this, longestVarRefChain);
+			final Expression<?> applyExpression = ApplyExpressions.newInstance((ApplyType) expr, xPathCompiler, this, longestVarRefChain);
+			expression = applyExpression instanceof ConstantExpression ? intern((ConstantExpression<?>) applyExpression) : applyExpression;
 		}
 		else if (expr instanceof AttributeDesignatorType)
 		{
@@ -565,7 +704,12 @@ public final class DepthLimitingExpressionFactory implements ExpressionFactory
 				throw new IllegalArgumentException("Unsupported Datatype used in AttributeDesignator: " + jaxbAttrDes.getDataType());
 			}
 
-			expression = new GenericAttributeProviderBasedAttributeDesignatorExpression<>(jaxbAttrDes, attrFactory.getDatatype().getBagDatatype(), attributeProvider);
+			final AttributeFqn attributeFqn = AttributeFqns.newInstance(jaxbAttrDes);
+			final BagDatatype<?> bagDatatype = attrFactory.getDatatype().getBagDatatype();
+			expression = internedAttributeDesignators.computeIfAbsent(Arrays.asList(attributeFqn, bagDatatype, jaxbAttrDes.isMustBePresent()), key -> {
+				final int attributeSlot = attributeSlotsByFqn.computeIfAbsent(attributeFqn, fqn -> attributeSlotCount.getAndIncrement());
+				return new GenericAttributeProviderBasedAttributeDesignatorExpression<>(jaxbAttrDes, bagDatatype, new SlotBasedAttributeProvider(attributeSlot, attributeProvider));
+			});
 		}
 		else if (expr instanceof AttributeSelectorType)
 		{
@@ -631,7 +775,12 @@ public final class DepthLimitingExpressionFactory implements ExpressionFactory
 	@Override
 	public ConstantExpression<? extends AttributeValue> getInstance(final AttributeValueType jaxbAttrVal, final XPathCompiler xPathCompiler) throws IllegalArgumentException
 	{
-		return this.datatypeFactoryRegistry.newExpression(jaxbAttrVal.getDataType(), jaxbAttrVal.getContent(), jaxbAttrVal.getOtherAttributes(), xPathCompiler);
+		final ConstantExpression<? extends AttributeValue> constant = this.datatypeFactoryRegistry.newExpression(jaxbAttrVal.getDataType(), jaxbAttrVal.getContent(),
+		        jaxbAttrVal.getOtherAttributes(), xPathCompiler);
+		/*
+		 * Same datatype as constant (part of the interning key), therefore AttributeValue datatype as well
+		 */
+		return (ConstantExpression<? extends AttributeValue>) intern(constant);
 	}
 
 	/** {@inheritDoc} */
@@ -0,0 +1,58 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.io;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.ow2.authzforce.core.pdp.api.io.PdpEngineInoutAdapter;
+
+/**
+ * {@link PdpEngineInoutAdapter} that also supports asynchronous (non-blocking) evaluation
+ * 
+ * @param <INPUT_DECISION_REQUEST>
+ *            type of input decision request
+ * @param <OUTPUT_DECISION_RESULT>
+ *            type of output decision result
+ */
+public interface AsyncPdpEngineInoutAdapter<INPUT_DECISION_REQUEST, OUTPUT_DECISION_RESULT> extends PdpEngineInoutAdapter<INPUT_DECISION_REQUEST, OUTPUT_DECISION_RESULT>
+{
+	/**
+	 * Evaluates a decision request asynchronously. The request is preprocessed (parsed/validated) in the caller's thread, then the actual evaluation is done by the PDP engine's asynchronous
+	 * evaluation thread pool.
+	 * 
+	 * @param request
+	 *            input decision request
+	 * @param namespaceURIsByPrefix
+	 *            namespace prefix-URI mappings (e.g. "... xmlns:prefix=uri") in the original XACML request bound to {@code request}, used as part of the context for XPath evaluation
+	 * @return future result of {@link #evaluate(Object, Map)}. The future completes exceptionally with a {@link RejectedExecutionException} if the PDP engine's queue of pending asynchronous
+	 *         evaluations is full.
+	 */
+	CompletableFuture<OUTPUT_DECISION_RESULT> evaluateAsync(INPUT_DECISION_REQUEST request, Map<String, String> namespaceURIsByPrefix);
+
+	/**
+	 * Evaluates a decision request asynchronously, equivalent to {@code evaluateAsync(request, null)}
+	 * 
+	 * @param request
+	 *            input decision request
+	 * @return future result of {@link #evaluate(Object)}
+	 * @see #evaluateAsync(Object, Map)
+	 */
+	CompletableFuture<OUTPUT_DECISION_RESULT> evaluateAsync(INPUT_DECISION_REQUEST request);
+}
@@ -18,8 +18,12 @@
 package org.ow2.authzforce.core.pdp.impl.io;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import oasis.names.tc.xacml._3_0.core.schema.wd_17.Request;
 import oasis.names.tc.xacml._3_0.core.schema.wd_17.Response;
@@ -27,14 +31,19 @@ import oasis.names.tc.xacml._3_0.core.schema.wd_17.Response;
 import org.ow2.authzforce.core.pdp.api.CloseablePdpEngine;
 import org.ow2.authzforce.core.pdp.api.DecisionRequest;
 import org.ow2.authzforce.core.pdp.api.DecisionRequestPreprocessor;
+import org.ow2.authzforce.core.pdp.api.DecisionResult;
 import org.ow2.authzforce.core.pdp.api.DecisionResultPostprocessor;
+import org.ow2.authzforce.core.pdp.api.IndeterminateEvaluationException;
 import org.ow2.authzforce.core.pdp.api.XmlUtils;
 import org.ow2.authzforce.core.pdp.api.io.BasePdpEngineAdapter;
 import org.ow2.authzforce.core.pdp.api.io.BaseXacmlJaxbResultPostprocessor;
 import org.ow2.authzforce.core.pdp.api.io.IndividualXacmlJaxbRequest;
 import org.ow2.authzforce.core.pdp.api.io.PdpEngineInoutAdapter;
+import org.ow2.authzforce.core.pdp.api.policy.PrimaryPolicyMetadata;
 import org.ow2.authzforce.core.pdp.impl.BasePdpEngine;
 import org.ow2.authzforce.core.pdp.impl.PdpEngineConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Supplier;
 
@@ -44,6 +53,7 @@ import com.google.common.base.Supplier;
  */
 public final class PdpEngineAdapters
 {
+	private static final Logger LOGGER = LoggerFactory.getLogger(PdpEngineAdapters.class);
 
 	private static final IllegalArgumentException NULL_RESPOSTPROC_ARGUMENT_EXCEPTION = new IllegalArgumentException("Undefined decision result post-processor");
 	private static final IllegalArgumentException NULL_REQPREPROC_ARGUMENT_EXCEPTION = new IllegalArgumentException("Undefined decision request post-processor");
@@ -53,6 +63,91 @@ public final class PdpEngineAdapters
 		// prevent instantiation
 	}
 
+	/**
+	 * Adapter of {@link BasePdpEngine} supporting asynchronous evaluation, based on {@link BasePdpEngine#evaluateAsync(List)}. Synchronous evaluation is delegated to {@link BasePdpEngineAdapter}.
+	 */
+	private static final class AsyncBasePdpEngineAdapter<ADAPTER_INPUT, ADAPTEE_INPUT_DECISION_REQUEST extends DecisionRequest, ADAPTER_OUTPUT> implements
+			AsyncPdpEngineInoutAdapter<ADAPTER_INPUT, ADAPTER_OUTPUT>
+	{
+		private final BasePdpEngine adaptee;
+		private final DecisionRequestPreprocessor<ADAPTER_INPUT, ADAPTEE_INPUT_DECISION_REQUEST> reqPreproc;
+		private final DecisionResultPostprocessor<ADAPTEE_INPUT_DECISION_REQUEST, ADAPTER_OUTPUT> resultPostproc;
+		private final BasePdpEngineAdapter<ADAPTER_INPUT, ADAPTEE_INPUT_DECISION_REQUEST, ADAPTER_OUTPUT> syncAdapter;
+
+		private AsyncBasePdpEngineAdapter(final BasePdpEngine adaptee, final DecisionRequestPreprocessor<ADAPTER_INPUT, ADAPTEE_INPUT_DECISION_REQUEST> reqPreproc,
+				final DecisionResultPostprocessor<ADAPTEE_INPUT_DECISION_REQUEST, ADAPTER_OUTPUT> resultPostproc)
+		{
+			this.syncAdapter = new BasePdpEngineAdapter<>(adaptee, reqPreproc, resultPostproc);
+			this.adaptee = adaptee;
+			this.reqPreproc = reqPreproc;
+			this.resultPostproc = resultPostproc;
+		}
+
+		@Override
+		public ADAPTER_OUTPUT evaluate(final ADAPTER_INPUT request, final Map<String, String> namespaceURIsByPrefix)
+		{
+			return syncAdapter.evaluate(request, namespaceURIsByPrefix);
+		}
+
+		@Override
+		public ADAPTER_OUTPUT evaluate(final ADAPTER_INPUT request)
+		{
+			return syncAdapter.evaluate(request);
+		}
+
+		@Override
+		public CompletableFuture<ADAPTER_OUTPUT> evaluateAsync(final ADAPTER_INPUT request, final Map<String, String> namespaceURIsByPrefix)
+		{
+			final List<ADAPTEE_INPUT_DECISION_REQUEST> individualDecisionRequests;
+			try
+			{
+				individualDecisionRequests = reqPreproc.process(request, namespaceURIsByPrefix);
+			}
+			catch (final IndeterminateEvaluationException e)
+			{
+				LOGGER.info("Invalid or unsupported input XACML Request syntax", e);
+				return CompletableFuture.completedFuture(resultPostproc.processClientError(e));
+			}
+
+			final CompletableFuture<Collection<Entry<ADAPTEE_INPUT_DECISION_REQUEST, ? extends DecisionResult>>> futureResults = adaptee.evaluateAsync(individualDecisionRequests);
+			return futureResults.handle((results, error) -> {
+				if (error == null)
+				{
+					return resultPostproc.process(results);
+				}
+
+				final Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+				if (cause instanceof IndeterminateEvaluationException)
+				{
+					return resultPostproc.processInternalError((IndeterminateEvaluationException) cause);
+				}
+
+				/*
+				 * Rejected evaluation (backpressure) or unexpected error, propagated to the caller
+				 */
+				throw error instanceof CompletionException ? (CompletionException) error : new CompletionException(error);
+			});
+		}
+
+		@Override
+		public CompletableFuture<ADAPTER_OUTPUT> evaluateAsync(final ADAPTER_INPUT request)
+		{
+			return evaluateAsync(request, null);
+		}
+
+		@Override
+		public Iterable<PrimaryPolicyMetadata> getApplicablePolicies()
+		{
+			return syncAdapter.getApplicablePolicies();
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			syncAdapter.close();
+		}
+	}
+
 	private static <ADAPTER_INPUT, ADAPTEE_INPUT_DECISION_REQUEST extends DecisionRequest, ADAPTER_OUTPUT> PdpEngineInoutAdapter<ADAPTER_INPUT, ADAPTER_OUTPUT> newInoutAdapter(
 			final CloseablePdpEngine adaptee, final DecisionRequestPreprocessor<ADAPTER_INPUT, ?> rawReqPreproc, final DecisionResultPostprocessor<?, ADAPTER_OUTPUT> rawResultPostproc)
 			throws IllegalArgumentException
@@ -89,6 +184,13 @@ public final class PdpEngineAdapters
 	public static <ADAPTER_INPUT, ADAPTER_OUTPUT> PdpEngineInoutAdapter<ADAPTER_INPUT, ADAPTER_OUTPUT> newInoutAdapter(final Class<ADAPTER_INPUT> adapterInputClass,
 			final Class<ADAPTER_OUTPUT> adapterOutputClass, final CloseablePdpEngine adaptee, final DecisionRequestPreprocessor<?, ?> rawReqPreproc,
 			final DecisionResultPostprocessor<?, ?> rawResultPostproc) throws IllegalArgumentException
+	{
+		checkInoutProcessors(adapterInputClass, adapterOutputClass, rawReqPreproc, rawResultPostproc);
+		return newInoutAdapter(adaptee, (DecisionRequestPreprocessor<ADAPTER_INPUT, ?>) rawReqPreproc, (DecisionResultPostprocessor<?, ADAPTER_OUTPUT>) rawResultPostproc);
+	}
+
+	private static void checkInoutProcessors(final Class<?> adapterInputClass, final Class<?> adapterOutputClass, final DecisionRequestPreprocessor<?, ?> rawReqPreproc,
+			final DecisionResultPostprocessor<?, ?> rawResultPostproc) throws IllegalArgumentException
 	{
 		/*
 		 * Decision result processor
@@ -123,8 +225,6 @@ public final class PdpEngineAdapters
 			throw new IllegalArgumentException("Decision request preprocessor is not compatible with decision result postprocessor: output request type of preprocessor ("
 					+ rawReqPreproc.getOutputRequestType() + ") != input request type of postprocessor (" + rawResultPostproc.getRequestType() + ")");
 		}
-
-		return newInoutAdapter(adaptee, (DecisionRequestPreprocessor<ADAPTER_INPUT, ?>) rawReqPreproc, (DecisionResultPostprocessor<?, ADAPTER_OUTPUT>) rawResultPostproc);
 	}
 
 	/**
@@ -197,20 +297,24 @@ public final class PdpEngineAdapters
 	 *            default decision request preprocessor if none defined by {@code configuration}
 	 * @param defaultResultPostproc
 	 *            default decision result postprocessor if none defined by {@code configuration}
-	 * @return new instance of {@link PdpEngineInoutAdapter}
+	 * @return new instance of {@link AsyncPdpEngineInoutAdapter}
 	 *
 	 * @throws java.lang.IllegalArgumentException
 	 *             if one of the arguments is null, or if {@code configuration.getXacmlExpressionFactory() == null || configuration.getRootPolicyProvider() == null}
 	 * @throws java.io.IOException
 	 *             error closing {@code configuration.getRootPolicyProvider()} when static resolution is to be used
 	 */
-	public static <ADAPTER_INPUT, ADAPTEE_INPUT_DECISION_REQUEST extends DecisionRequest, ADAPTER_OUTPUT> PdpEngineInoutAdapter<ADAPTER_INPUT, ADAPTER_OUTPUT> newInoutAdapter(
+	public static <ADAPTER_INPUT, ADAPTEE_INPUT_DECISION_REQUEST extends DecisionRequest, ADAPTER_OUTPUT> AsyncPdpEngineInoutAdapter<ADAPTER_INPUT, ADAPTER_OUTPUT> newInoutAdapter(
 			final Class<ADAPTER_INPUT> adapterInputClass, final Class<ADAPTER_OUTPUT> adapterOutputClass, final PdpEngineConfiguration configuration,
 			final DecisionRequestPreprocessor<ADAPTER_INPUT, ADAPTEE_INPUT_DECISION_REQUEST> defaultReqPreproc,
 			final DecisionResultPostprocessor<ADAPTEE_INPUT_DECISION_REQUEST, ADAPTER_OUTPUT> defaultResultPostproc) throws IllegalArgumentException, IOException
 	{
 		// use intermediate Java-friendly PdpEngineConfiguration (higher-level than JAXB) that has #getAttributeValueFactory()
-		try (final BasePdpEngine adaptedPdpEngine = new BasePdpEngine(configuration))
+		/*
+		 * The adapter is responsible for closing the adapted engine (when the adapter is closed), so the engine must be closed here only if the adapter could not be created.
+		 */
+		final BasePdpEngine adaptedPdpEngine = new BasePdpEngine(configuration);
+		try
 		{
 
 			final Entry<DecisionRequestPreprocessor<?, ?>, DecisionResultPostprocessor<?, ?>> ioProcChain = configuration.getInOutProcChains().get(adapterInputClass);
@@ -227,8 +331,16 @@ public final class PdpEngineAdapters
 				rawReqPreproc = ioProcChain.getKey();
 			}
 
-			return newInoutAdapter(adapterInputClass, adapterOutputClass, adaptedPdpEngine, rawReqPreproc == null ? defaultReqPreproc : rawReqPreproc,
-					rawResultPostProc == null ? defaultResultPostproc : rawResultPostProc);
+			final DecisionRequestPreprocessor<?, ?> finalReqPreproc = rawReqPreproc == null ? defaultReqPreproc : rawReqPreproc;
+			final DecisionResultPostprocessor<?, ?> finalResultPostproc = rawResultPostProc == null ? defaultResultPostproc : rawResultPostProc;
+			checkInoutProcessors(adapterInputClass, adapterOutputClass, finalReqPreproc, finalResultPostproc);
+			return new AsyncBasePdpEngineAdapter<>(adaptedPdpEngine, (DecisionRequestPreprocessor<ADAPTER_INPUT, ADAPTEE_INPUT_DECISION_REQUEST>) finalReqPreproc,
+					(DecisionResultPostprocessor<ADAPTEE_INPUT_DECISION_REQUEST, ADAPTER_OUTPUT>) finalResultPostproc);
+		}
+		catch (final RuntimeException e)
+		{
+			adaptedPdpEngine.close();
+			throw e;
 		}
 	}
 
@@ -238,14 +350,14 @@ public final class PdpEngineAdapters
 	 * @param configuration
 	 *            PDP engine configuration
 	 * 
-	 * @return new instance of {@link PdpEngineInoutAdapter} supporting standard XACML 3.0 XML input/output
+	 * @return new instance of {@link AsyncPdpEngineInoutAdapter} supporting standard XACML 3.0 XML input/output
 	 *
 	 * @throws java.lang.IllegalArgumentException
 	 *             if {@code configuration == null || configuration.getXacmlExpressionFactory() == null || configuration.getRootPolicyProvider() == null}
 	 * @throws java.io.IOException
 	 *             error closing {@code configuration.getRootPolicyProvider()} when static resolution is to be used
 	 */
-	public static PdpEngineInoutAdapter<Request, Response> newXacmlJaxbInoutAdapter(final PdpEngineConfiguration configuration) throws IllegalArgumentException, IOException
+	public static AsyncPdpEngineInoutAdapter<Request, Response> newXacmlJaxbInoutAdapter(final PdpEngineConfiguration configuration) throws IllegalArgumentException, IOException
 	{
 		final DecisionResultPostprocessor<IndividualXacmlJaxbRequest, Response> defaultResultPostproc = new BaseXacmlJaxbResultPostprocessor(configuration.getClientRequestErrorVerbosityLevel());
 		final DecisionRequestPreprocessor<Request, IndividualXacmlJaxbRequest> defaultReqPreproc = SingleDecisionXacmlJaxbRequestPreprocessor.LaxVariantFactory.INSTANCE.getInstance(
@@ -0,0 +1,279 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.policy;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.ow2.authzforce.core.pdp.api.EvaluationContext;
+import org.ow2.authzforce.core.pdp.api.IndeterminateEvaluationException;
+import org.ow2.authzforce.core.pdp.api.policy.CloseableRefPolicyProvider;
+import org.ow2.authzforce.core.pdp.api.policy.PolicyRefsMetadata;
+import org.ow2.authzforce.core.pdp.api.policy.PolicyVersion;
+import org.ow2.authzforce.core.pdp.api.policy.PolicyVersionPatterns;
+import org.ow2.authzforce.core.pdp.api.policy.PrimaryPolicyMetadata;
+import org.ow2.authzforce.core.pdp.api.policy.StaticRefPolicyProvider;
+import org.ow2.authzforce.core.pdp.api.policy.TopLevelPolicyElementEvaluator;
+import org.ow2.authzforce.core.pdp.api.policy.TopLevelPolicyElementType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+/**
+ * {@link CloseableRefPolicyProvider} decorator that caches the policy evaluators returned by another (dynamic) {@link CloseableRefPolicyProvider} across requests, whereas Policy(Set)IdReferences
+ * resolved dynamically are otherwise cached only in the scope of the request context. The cached evaluators are keyed by the Policy(Set)IdReference (policy type, ID and version constraints), and
+ * remain in the cache until evicted because of the size limit or time-to-live, or explicitly invalidated with one of the {@code invalidate*} methods, e.g. when the policy repository (database...)
+ * behind the decorated provider is modified. After publishing a new policy or policy version, call {@link #invalidate(TopLevelPolicyElementType, String)}, since any reference to the policy may
+ * resolve to a different version afterwards.
+ * <p>
+ * This decorator is meant for dynamic providers that fetch/parse the policies from remote sources (e.g. database) and rebuild the policy evaluators at every call, and whose result does not depend on
+ * the evaluation context (other than time, in which case the time-to-live should be set accordingly). Do not use it to decorate a {@link StaticRefPolicyProvider} since the policy references are then
+ * resolved once and for all at initialization time anyway, and the decorator would make them dynamic instead.
+ * <p>
+ * Errors and unresolved references are not cached.
+ *
+ * @version $Id: $
+ */
+public final class CachingRefPolicyProvider implements CloseableRefPolicyProvider
+{
+	private static final Logger LOGGER = LoggerFactory.getLogger(CachingRefPolicyProvider.class);
+
+	private static final IllegalArgumentException UNDEFINED_DELEGATE_ARG_EXCEPTION = new IllegalArgumentException("Undefined refPolicyProvider to decorate");
+	private static final IllegalArgumentException ILLEGAL_MAX_ELEMENTS_ARG_EXCEPTION = new IllegalArgumentException("Invalid max number of cached policies (must be >= 0)");
+	private static final IllegalArgumentException ILLEGAL_TTL_ARG_EXCEPTION = new IllegalArgumentException("Invalid time-to-live of cached policies (must be >= 0)");
+
+	private final CloseableRefPolicyProvider delegate;
+
+	/*
+	 * Cache key: Policy(Set)IdReference
+	 */
+	private static final class PolicyRef
+	{
+		private final TopLevelPolicyElementType policyType;
+		private final String policyId;
+		private final Optional<PolicyVersionPatterns> versionConstraints;
+
+		/*
+		 * (policy type, policy ID, version patterns key from PolicyVersions#toKey(...) or null if no version constraints), used for equals/hashCode since PolicyVersionPatterns does not override them
+		 */
+		private final List<?> key;
+
+		private PolicyRef(final TopLevelPolicyElementType policyType, final String policyId, final Optional<PolicyVersionPatterns> versionConstraints)
+		{
+			this.policyType = policyType;
+			this.policyId = policyId;
+			this.versionConstraints = versionConstraints;
+			this.key = Arrays.asList(policyType, policyId, versionConstraints.isPresent() ? PolicyVersions.toKey(versionConstraints.get()) : null);
+		}
+
+		/*
+		 * True iff this reference matches the given policy version, i.e. may resolve to this version
+		 */
+		private boolean matches(final TopLevelPolicyElementType type, final String id, final PolicyVersion version)
+		{
+			if (policyType != type || !policyId.equals(id))
+			{
+				return false;
+			}
+
+			if (!versionConstraints.isPresent())
+			{
+				return true;
+			}
+
+			final PolicyVersionPatterns patterns = versionConstraints.get();
+			return patterns.matchVersion(version) && patterns.matchEarliestVersion(version) && patterns.matchLatestVersion(version);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return key.hashCode();
+		}
+
+		@Override
+		public boolean equals(final Object obj)
+		{
+			if (this == obj)
+			{
+				return true;
+			}
+
+			if (!(obj instanceof PolicyRef))
+			{
+				return false;
+			}
+
+			return key.equals(((PolicyRef) obj).key);
+		}
+	}
+
+	private final Cache<PolicyRef, TopLevelPolicyElementEvaluator> cache;
+
+	/**
+	 * Creates caching decorator
+	 * 
+	 * @param delegate
+	 *            decorated provider, resolving the Policy(Set)IdReferences that are not in cache. It is closed along with this decorator.
+	 * @param maxElementsInMemory
+	 *            maximum number of cached policy evaluators. Zero means unlimited. When the limit is reached, least recently used entries are evicted first.
+	 * @param timeToLiveSec
+	 *            maximum time (in seconds) a policy evaluator may stay in the cache after creation. Zero means unlimited.
+	 * @throws IllegalArgumentException
+	 *             if {@code delegate} is null or any of the numeric arguments is negative
+	 */
+	public CachingRefPolicyProvider(final CloseableRefPolicyProvider delegate, final long maxElementsInMemory, final long timeToLiveSec) throws IllegalArgumentException
+	{
+		Preconditions.checkArgument(delegate != null, UNDEFINED_DELEGATE_ARG_EXCEPTION);
+		Preconditions.checkArgument(maxElementsInMemory >= 0, ILLEGAL_MAX_ELEMENTS_ARG_EXCEPTION);
+		Preconditions.checkArgument(timeToLiveSec >= 0, ILLEGAL_TTL_ARG_EXCEPTION);
+		if (delegate instanceof StaticRefPolicyProvider)
+		{
+			LOGGER.warn("Caching decorator applied to static refPolicyProvider ({}): Policy(Set)IdReferences will be resolved dynamically instead of once and for all at initialization time",
+			        delegate);
+		}
+
+		final CacheBuilder<Object, Object> cacheBuilder = CacheBuilder.newBuilder().recordStats();
+		if (maxElementsInMemory > 0)
+		{
+			cacheBuilder.maximumSize(maxElementsInMemory);
+		}
+
+		if (timeToLiveSec > 0)
+		{
+			cacheBuilder.expireAfterWrite(timeToLiveSec, TimeUnit.SECONDS);
+		}
+
+		this.delegate = delegate;
+		this.cache = cacheBuilder.build();
+		LOGGER.debug("Policy cache created for refPolicyProvider {}: maxElementsInMemory = {} (0 = unlimited), timeToLiveSec = {} (0 = eternal)", delegate, maxElementsInMemory, timeToLiveSec);
+	}
+
+	@Override
+	public Deque<String> joinPolicyRefChains(final Deque<String> policyRefChain1, final List<String> policyRefChain2) throws IllegalArgumentException
+	{
+		return delegate.joinPolicyRefChains(policyRefChain1, policyRefChain2);
+	}
+
+	@Override
+	public TopLevelPolicyElementEvaluator get(final TopLevelPolicyElementType policyType, final String policyId, final Optional<PolicyVersionPatterns> policyVersionConstraints,
+	        final Deque<String> policySetRefChain, final EvaluationContext evaluationCtx) throws IllegalArgumentException, IndeterminateEvaluationException
+	{
+		final PolicyRef key = new PolicyRef(policyType, policyId, policyVersionConstraints);
+		final TopLevelPolicyElementEvaluator cachedPolicy = cache.getIfPresent(key);
+		if (cachedPolicy == null)
+		{
+			final TopLevelPolicyElementEvaluator policy = delegate.get(policyType, policyId, policyVersionConstraints, policySetRefChain, evaluationCtx);
+			if (policy != null)
+			{
+				cache.put(key, policy);
+			}
+
+			return policy;
+		}
+
+		/*
+		 * The decorated provider checked the PolicySet reference chain (depth, loops) when the cached policy was resolved, but for a different reference chain possibly, so check again with this
+		 * one, the same way as for a policy already resolved in the request context.
+		 */
+		if (policyType == TopLevelPolicyElementType.POLICY_SET && policySetRefChain != null)
+		{
+			final Optional<PolicyRefsMetadata> optionalRefsMetadata = cachedPolicy.getPolicyRefsMetadata(evaluationCtx);
+			if (optionalRefsMetadata.isPresent())
+			{
+				delegate.joinPolicyRefChains(policySetRefChain, optionalRefsMetadata.get().getLongestPolicyRefChain());
+			}
+		}
+
+		return cachedPolicy;
+	}
+
+	/**
+	 * Removes all versions of a given policy from the cache, whatever the version constraints of the Policy(Set)IdReferences they were resolved from. This is the one to call after publishing a new
+	 * policy or policy version.
+	 * 
+	 * @param policyType
+	 *            type of policy (Policy or PolicySet)
+	 * @param policyId
+	 *            policy ID
+	 */
+	public void invalidate(final TopLevelPolicyElementType policyType, final String policyId)
+	{
+		cache.asMap().keySet().removeIf(policyRef -> policyRef.policyType == policyType && policyRef.policyId.equals(policyId));
+	}
+
+	/**
+	 * Removes a specific version of a given policy from the cache, i.e. the cached policies in this version, and the ones resolved from a Policy(Set)IdReference matching this version (without
+	 * version constraints, or with version constraints matched by this version), since the reference may resolve to this version once it is modified or published. Other cached versions of the
+	 * policy remain cached if resolved from references not matching this version.
+	 * 
+	 * @param policyType
+	 *            type of policy (Policy or PolicySet)
+	 * @param policyId
+	 *            policy ID
+	 * @param policyVersion
+	 *            policy version
+	 */
+	public void invalidate(final TopLevelPolicyElementType policyType, final String policyId, final PolicyVersion policyVersion)
+	{
+		cache.asMap().entrySet().removeIf(cacheEntry -> {
+			final PrimaryPolicyMetadata cachedPolicyMetadata = cacheEntry.getValue().getPrimaryPolicyMetadata();
+			return cachedPolicyMetadata.getType() == policyType && cachedPolicyMetadata.getId().equals(policyId) && cachedPolicyMetadata.getVersion().equals(policyVersion)
+			        || cacheEntry.getKey().matches(policyType, policyId, policyVersion);
+		});
+	}
+
+	/**
+	 * Removes all policies from the cache
+	 */
+	public void invalidateAll()
+	{
+		cache.invalidateAll();
+	}
+
+	/**
+	 * Get cache statistics (hits, misses, evictions...), e.g. for monitoring
+	 * 
+	 * @return cache statistics
+	 */
+	public CacheStats getStats()
+	{
+		return cache.stats();
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		cache.invalidateAll();
+		delegate.close();
+	}
+
+	@Override
+	public String toString()
+	{
+		return "CachingRefPolicyProvider[" + delegate + "]";
+	}
+}
@@ -17,8 +17,11 @@
  */
 package org.ow2.authzforce.core.pdp.impl.policy;
 
+import java.io.ByteArrayInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.Serializable;
+import java.math.BigInteger;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.file.Files;
@@ -28,10 +31,20 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Deque;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
@@ -39,6 +52,7 @@ import java.util.stream.Stream;
 import javax.xml.bind.JAXBException;
 
 import org.ow2.authzforce.core.pdp.api.EnvironmentProperties;
+import org.ow2.authzforce.core.pdp.api.HashCollections;
 import org.ow2.authzforce.core.pdp.api.IndeterminateEvaluationException;
 import org.ow2.authzforce.core.pdp.api.XmlUtils.XmlnsFilteringParser;
 import org.ow2.authzforce.core.pdp.api.XmlUtils.XmlnsFilteringParserFactory;
@@ -49,22 +63,27 @@ import org.ow2.authzforce.core.pdp.api.policy.CloseableRefPolicyProvider;
 import org.ow2.authzforce.core.pdp.api.policy.PolicyRefsMetadata;
 import org.ow2.authzforce.core.pdp.api.policy.PolicyVersion;
 import org.ow2.authzforce.core.pdp.api.policy.PolicyVersionPatterns;
+import org.ow2.authzforce.core.pdp.api.policy.PrimaryPolicyMetadata;
 import org.ow2.authzforce.core.pdp.api.policy.StaticRefPolicyProvider;
 import org.ow2.authzforce.core.pdp.api.policy.StaticTopLevelPolicyElementEvaluator;
+import org.ow2.authzforce.core.pdp.api.policy.TopLevelPolicyElementType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.util.ResourceUtils;
+import org.xml.sax.InputSource;
 
 import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.Table;
+import com.google.common.io.Resources;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import oasis.names.tc.xacml._3_0.core.schema.wd_17.Policy;
 import oasis.names.tc.xacml._3_0.core.schema.wd_17.PolicySet;
 
 /**
  * This is the core implementation of {@link StaticRefPolicyProvider} that supports static retrieval of the policies referenced by Policy(Set)IdReference. It is configured by a list of locations that
- * represent Spring-compatible resource URLs, corresponding to XACML Policy(Set) files - each file content is expected to be a XACML Policy(Set) document - when the module is initialized. Beyond this,
- * there is no modifying or re-loading of the policies.
+ * represent Spring-compatible resource URLs, corresponding to XACML Policy(Set) files - each file content is expected to be a XACML Policy(Set) document - when the module is initialized. An instance
+ * is never modified afterwards, but {@link #getUpdatedInstance(Collection)} creates a new one from updated policy files, reusing the policies that are not affected by the changes.
  * <p>
  * A policy location may also be a file pattern in the following form: "file://DIRECTORY_PATH/*SUFFIX" using wilcard character '*'; in which case the location is expanded to all regular files (not
  * subdirectories) in directory located at DIRECTORY_PATH with suffix SUFFIX (SUFFIX may be empty, i.e. no suffix). The files are NOT searched recursively on sub-directories.
@@ -83,6 +102,204 @@ public class CoreRefPolicyProvider extends BaseStaticRefPolicyProvider
 	private static final IllegalArgumentException ILLEGAL_POLICY_URLS_ARGUMENT_EXCEPTION = new IllegalArgumentException("Undefined policy URL(s)");
 	private static final Logger LOGGER = LoggerFactory.getLogger(CoreRefPolicyProvider.class);
 
+	/*
+	 * Pattern: **...**.somefileextension -> '**...*'.length = number of directory levels to search and '*.somefileextension' = filename pattern
+	 */
+	private static final Pattern WILDCARD_SEQ_PREFIX_PATTERN = Pattern.compile("^(\\*+)([^\\*]*)$");
+
+	/*
+	 * Identity of the Policy(Set) in a policy document, and state of the document (if it is a file in the filesystem) at the time it was parsed
+	 */
+	private static final class PolicySource
+	{
+		/*
+		 * State of the policy file. Null if the document is not a file in the filesystem, in which case it is always considered changed.
+		 */
+		private final PolicyFileState fileState;
+		private final TopLevelPolicyElementType type;
+		private final String id;
+		private final PolicyVersion version;
+
+		private PolicySource(final PolicyFileState fileState, final TopLevelPolicyElementType type, final String id, final PolicyVersion version)
+		{
+			this.fileState = fileState;
+			this.type = type;
+			this.id = id;
+			this.version = version;
+		}
+
+		private boolean isUnchanged(final PolicyFileState currentFileState)
+		{
+			return fileState != null && fileState.equals(currentFileState);
+		}
+	}
+
+	/*
+	 * Policy document to be loaded
+	 */
+	private static final class PolicyDocument
+	{
+		private final URL url;
+		private final PolicySource source;
+		/*
+		 * Policy or PolicySet parsed from the document, null if not parsed because unchanged since the previous instance
+		 */
+		private final Object jaxbPolicyOrPolicySet;
+		private final Map<String, String> nsPrefixUriMap;
+
+		private PolicyDocument(final URL url, final PolicySource source, final Object jaxbPolicyOrPolicySet, final Map<String, String> nsPrefixUriMap)
+		{
+			this.url = url;
+			this.source = source;
+			this.jaxbPolicyOrPolicySet = jaxbPolicyOrPolicySet;
+			this.nsPrefixUriMap = nsPrefixUriMap;
+		}
+	}
+
+	private static byte[] readContent(final URL policyURL) throws IllegalArgumentException
+	{
+		try
+		{
+			return Resources.toByteArray(policyURL);
+		}
+		catch (final IOException e)
+		{
+			throw new IllegalArgumentException("Failed to read Policy(Set) XML document from policy location: " + policyURL, e);
+		}
+	}
+
+	/*
+	 * content: content of the document, already read to compute its checksum; null if not read yet
+	 */
+	private static PolicyDocument parse(final XmlnsFilteringParser xacmlParser, final URL policyURL, final byte[] content, final PolicyFileState fileState) throws IllegalArgumentException
+	{
+		final Object jaxbPolicyOrPolicySetObj;
+		try
+		{
+			if (content == null)
+			{
+				jaxbPolicyOrPolicySetObj = xacmlParser.parse(policyURL);
+			}
+			else
+			{
+				// same system ID as when parsing from the URL
+				final InputSource input = new InputSource(new ByteArrayInputStream(content));
+				input.setSystemId(policyURL.toExternalForm());
+				jaxbPolicyOrPolicySetObj = xacmlParser.parse(input);
+			}
+		}
+		catch (final JAXBException e)
+		{
+			throw new IllegalArgumentException("Failed to unmarshall Policy(Set) XML document from policy location: " + policyURL, e);
+		}
+
+		return newPolicyDocument(policyURL, fileState, jaxbPolicyOrPolicySetObj, xacmlParser.getNamespacePrefixUriMap());
+	}
+
+	private static PolicyDocument newPolicyDocument(final URL policyURL, final PolicyFileState fileState, final Object jaxbPolicyOrPolicySetObj, final Map<String, String> nsPrefixUriMap)
+	        throws IllegalArgumentException
+	{
+		final PolicySource source;
+		if (jaxbPolicyOrPolicySetObj instanceof Policy)
+		{
+			final Policy jaxbPolicy = (Policy) jaxbPolicyOrPolicySetObj;
+			source = new PolicySource(fileState, TopLevelPolicyElementType.POLICY, jaxbPolicy.getPolicyId(), new PolicyVersion(jaxbPolicy.getVersion()));
+		}
+		else if (jaxbPolicyOrPolicySetObj instanceof PolicySet)
+		{
+			final PolicySet jaxbPolicySet = (PolicySet) jaxbPolicyOrPolicySetObj;
+			source = new PolicySource(fileState, TopLevelPolicyElementType.POLICY_SET, jaxbPolicySet.getPolicySetId(), new PolicyVersion(jaxbPolicySet.getVersion()));
+		}
+		else
+		{
+			throw new IllegalArgumentException("Unexpected element found as root of the policy document: " + jaxbPolicyOrPolicySetObj.getClass().getSimpleName());
+		}
+
+		return new PolicyDocument(policyURL, source, jaxbPolicyOrPolicySetObj, nsPrefixUriMap);
+	}
+
+	/*
+	 * Whether the policy refers - directly or indirectly - to any of the given Policy/PolicySet IDs
+	 */
+	private static boolean refersToAny(final StaticTopLevelPolicyElementEvaluator policy, final Set<String> policyIds, final Set<String> policySetIds)
+	{
+		final Optional<PolicyRefsMetadata> policyRefsMetadata = policy.getPolicyRefsMetadata();
+		if (!policyRefsMetadata.isPresent())
+		{
+			return false;
+		}
+
+		for (final PrimaryPolicyMetadata refPolicy : policyRefsMetadata.get().getRefPolicies())
+		{
+			final Set<String> ids = refPolicy.getType() == TopLevelPolicyElementType.POLICY ? policyIds : policySetIds;
+			if (ids.contains(refPolicy.getId()))
+			{
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/*
+	 * Applies a function to each input, concurrently if executor != null. The results are in the same order as the inputs, and if the function fails on some inputs, the exception thrown for the
+	 * first one of them (in input order) is rethrown, as if the inputs were processed sequentially.
+	 */
+	private static <T, R> List<R> applyToAll(final List<T> inputs, final Function<T, R> function, final ExecutorService executor) throws IllegalArgumentException
+	{
+		final List<R> results = new ArrayList<>(inputs.size());
+		if (executor == null)
+		{
+			for (final T input : inputs)
+			{
+				results.add(function.apply(input));
+			}
+
+			return results;
+		}
+
+		final List<Future<R>> futureResults = new ArrayList<>(inputs.size());
+		for (final T input : inputs)
+		{
+			futureResults.add(executor.submit(() -> function.apply(input)));
+		}
+
+		try
+		{
+			for (final Future<R> futureResult : futureResults)
+			{
+				results.add(futureResult.get());
+			}
+		}
+		catch (final ExecutionException e)
+		{
+			final Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException)
+			{
+				throw (RuntimeException) cause;
+			}
+
+			if (cause instanceof Error)
+			{
+				throw (Error) cause;
+			}
+
+			throw new RuntimeException(cause);
+		}
+		catch (final InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IllegalArgumentException("Interrupted while loading policies", e);
+		}
+		finally
+		{
+			// no-op for completed tasks
+			futureResults.forEach(futureResult -> futureResult.cancel(true));
+		}
+
+		return results;
+	}
+
 	/**
 	 * Policy wrapper to keep the association between the namespace prefix-URIs from a XACML policy document and the Java instance of the policy resulting from parsing the same document
 	 *
@@ -123,6 +340,123 @@ public class CoreRefPolicyProvider extends BaseStaticRefPolicyProvider
 
 	}
 
+	/**
+	 * Resolves policy locations - as in the configuration of this provider ({@link org.ow2.authzforce.core.xmlns.pdp.StaticRefPolicyProvider#getPolicyLocations()}) - to the URLs of the actual
+	 * policy files, i.e. file path patterns are expanded to the matching files currently in the filesystem.
+	 * 
+	 * @param policyLocationPatterns
+	 *            policy locations, possibly with placeholders and/or file path patterns
+	 * @param environmentProperties
+	 *            PDP configuration environment properties, used to replace placeholders in {@code policyLocationPatterns}
+	 * @return policy URLs
+	 * @throws IllegalArgumentException
+	 *             if any of the locations is invalid or not found
+	 */
+	public static List<URL> getPolicyURLs(final Iterable<String> policyLocationPatterns, final EnvironmentProperties environmentProperties) throws IllegalArgumentException
+	{
+		final List<URL> policyURLs = new ArrayList<>();
+		int policyLocationIndex = 0;
+		for (final String policyLocationPatternBeforePlaceholderReplacement : policyLocationPatterns)
+		{
+			final String policyLocationPattern = environmentProperties.replacePlaceholders(policyLocationPatternBeforePlaceholderReplacement);
+			// Check whether the location is a file path pattern
+			if (policyLocationPattern.startsWith(ResourceUtils.FILE_URL_PREFIX))
+			{
+				if (policyLocationPattern.endsWith("/"))
+				{
+					throw new IllegalArgumentException("Invalid policy location pattern: " + policyLocationPattern);
+				}
+
+				// location on the filesystem
+				final int index = policyLocationPattern.indexOf("/*");
+				if (index > 0)
+				{
+					/*
+					 * This is a file path pattern. Separate directory location from glob pattern, and remove file: prefix from directory location to be used with Path API
+					 */
+					final String directoryLocation = policyLocationPattern.substring(ResourceUtils.FILE_URL_PREFIX.length(), index);
+					final String filePathPattern = policyLocationPattern.substring(index + 1);
+					if (LOGGER.isDebugEnabled())
+					{
+						// Beware of autoboxing which causes call to
+						// Integer.valueOf(...) on policyLocationIndex
+						LOGGER.debug("Policy location #{} is a filepath pattern (found '/*') -> expanding to all files in directory '{}' matching pattern '{}'", policyLocationIndex,
+						        directoryLocation, filePathPattern);
+					}
+
+					/*
+					 * filePathPattern starts with one or more wildcards (recursive directory listing)
+					 */
+					final Matcher filePathPatternMatcher = WILDCARD_SEQ_PREFIX_PATTERN.matcher(filePathPattern);
+					if (!filePathPatternMatcher.matches())
+					{
+						throw new IllegalArgumentException("Invalid policy location: '" + policyLocationPatternBeforePlaceholderReplacement + "'. Pattern part does not match regex: "
+						        + WILDCARD_SEQ_PREFIX_PATTERN.pattern());
+					}
+
+					/*
+					 * First captured group is the sequence of wildcards except the last one, directory levels to search = number of wildcards
+					 */
+					final String wildcardSeq = filePathPatternMatcher.group(1);
+					final String filenameSuffix = filePathPatternMatcher.group(2);
+					/*
+					 * WilcardSeq should start with '*'
+					 */
+					assert wildcardSeq != null;
+					final int maxDepth = wildcardSeq.length();
+					/*
+					 * Filename suffix is filenamePattern without starting wildcard
+					 */
+					try (final Stream<Path> fileStream = Files.find(Paths.get(directoryLocation), maxDepth,
+					        (path, attrs) -> attrs.isRegularFile() && path.getFileName().toString().endsWith(filenameSuffix.substring(1))))
+					{
+						fileStream.forEach(fp -> {
+							LOGGER.debug("Adding policy file: {}", fp);
+							try
+							{
+								policyURLs.add(fp.toUri().toURL());
+							}
+							catch (final MalformedURLException e)
+							{
+								throw new RuntimeException("Error getting policy files in '" + directoryLocation + "' according to policy location pattern '" + policyLocationPattern + "'", e);
+							}
+						});
+					}
+					catch (final IOException e)
+					{
+						throw new RuntimeException("Error getting policy files in '" + directoryLocation + "' according to policy location pattern '" + policyLocationPattern + "'", e);
+					}
+
+					continue;
+				}
+			}
+
+			/*
+			 * Not an actual file path pattern
+			 */
+			final URL policyURL;
+			try
+			{
+				// try to load the policy location as a Spring resource
+				policyURL = ResourceUtils.getURL(policyLocationPattern);
+			}
+			catch (final FileNotFoundException e)
+			{
+				throw new IllegalArgumentException("Error loading policy (as Spring resource) from the following URL: " + policyLocationPattern, e);
+			}
+
+			if (policyURL == null)
+			{
+				throw new IllegalArgumentException("No policy file found at the specified location: " + policyLocationPattern);
+			}
+
+			policyURLs.add(policyURL);
+			policyLocationIndex++;
+		}
+
+		return policyURLs;
+	}
+
 	/**
 	 * Module factory
 	 * 
@@ -132,11 +466,6 @@ public class CoreRefPolicyProvider extends BaseStaticRefPolicyProvider
 
 		private static final IllegalArgumentException NULL_CONF_ARGUMENT_EXCEPTION = new IllegalArgumentException("RefPolicyProvider configuration undefined");
 
-		/*
-		 * Pattern: **...**.somefileextension -> '**...*'.length = number of directory levels to search and '*.somefileextension' = filename pattern
-		 */
-		private static final Pattern WILDCARD_SEQ_PREFIX_PATTERN = Pattern.compile("^(\\*+)([^\\*]*)$");
-
 		@Override
 		public Class<org.ow2.authzforce.core.xmlns.pdp.StaticRefPolicyProvider> getJaxbClass()
 		{
@@ -152,107 +481,38 @@ public class CoreRefPolicyProvider extends BaseStaticRefPolicyProvider
 				throw NULL_CONF_ARGUMENT_EXCEPTION;
 			}
 
-			final List<URL> policyURLs = new ArrayList<>();
-			int policyLocationIndex = 0;
-			for (final String policyLocationPatternBeforePlaceholderReplacement : conf.getPolicyLocations())
+			final BigInteger loadingThreadsBigInt = conf.getLoadingThreads();
+			final int loadingThreads;
+			try
 			{
-				final String policyLocationPattern = environmentProperties.replacePlaceholders(policyLocationPatternBeforePlaceholderReplacement);
-				// Check whether the location is a file path pattern
-				if (policyLocationPattern.startsWith(ResourceUtils.FILE_URL_PREFIX))
-				{
-					if (policyLocationPattern.endsWith("/"))
-					{
-						throw new IllegalArgumentException("Invalid policy location pattern: " + policyLocationPattern);
-					}
-
-					// location on the filesystem
-					final int index = policyLocationPattern.indexOf("/*");
-					if (index > 0)
-					{
-						/*
-						 * This is a file path pattern. Separate directory location from glob pattern, and remove file: prefix from directory location to be used with Path API
-						 */
-						final String directoryLocation = policyLocationPattern.substring(ResourceUtils.FILE_URL_PREFIX.length(), index);
-						final String filePathPattern = policyLocationPattern.substring(index + 1);
-						if (LOGGER.isDebugEnabled())
-						{
-							// Beware of autoboxing which causes call to
-							// Integer.valueOf(...) on policyLocationIndex
-							LOGGER.debug("Policy location #{} is a filepath pattern (found '/*') -> expanding to all files in directory '{}' matching pattern '{}'", policyLocationIndex,
-							        directoryLocation, filePathPattern);
-						}
-
-						/*
-						 * filePathPattern starts with one or more wildcards (recursive directory listing)
-						 */
-						final Matcher filePathPatternMatcher = WILDCARD_SEQ_PREFIX_PATTERN.matcher(filePathPattern);
-						if (!filePathPatternMatcher.matches())
-						{
-							throw new IllegalArgumentException("Invalid policy location: '" + policyLocationPatternBeforePlaceholderReplacement + "'. Pattern part does not match regex: "
-							        + WILDCARD_SEQ_PREFIX_PATTERN.pattern());
-						}
-
-						/*
-						 * First captured group is the sequence of wildcards except the last one, directory levels to search = number of wildcards
-						 */
-						final String wildcardSeq = filePathPatternMatcher.group(1);
-						final String filenameSuffix = filePathPatternMatcher.group(2);
-						/*
-						 * WilcardSeq should start with '*'
-						 */
-						assert wildcardSeq != null;
-						final int maxDepth = wildcardSeq.length();
-						/*
-						 * Filename suffix is filenamePattern without starting wildcard
-						 */
-						try (final Stream<Path> fileStream = Files.find(Paths.get(directoryLocation), maxDepth,
-						        (path, attrs) -> attrs.isRegularFile() && path.getFileName().toString().endsWith(filenameSuffix.substring(1))))
-						{
-							fileStream.forEach(fp -> {
-								LOGGER.debug("Adding policy file: {}", fp);
-								try
-								{
-									policyURLs.add(fp.toUri().toURL());
-								}
-								catch (final MalformedURLException e)
-								{
-									throw new RuntimeException("Error getting policy files in '" + directoryLocation + "' according to policy location pattern '" + policyLocationPattern + "'", e);
-								}
-							});
-						}
-						catch (final IOException e)
-						{
-							throw new RuntimeException("Error getting policy files in '" + directoryLocation + "' according to policy location pattern '" + policyLocationPattern + "'", e);
-						}
-
-						continue;
-					}
-				}
+				loadingThreads = loadingThreadsBigInt.intValueExact();
+			}
+			catch (final ArithmeticException e)
+			{
+				throw new IllegalArgumentException("Invalid loadingThreads: " + loadingThreadsBigInt, e);
+			}
 
-				/*
-				 * Not an actual file path pattern
-				 */
-				final URL policyURL;
+			final String snapshotLocation = conf.getSnapshotLocation();
+			final Optional<Path> snapshotFile;
+			if (snapshotLocation == null)
+			{
+				snapshotFile = Optional.empty();
+			}
+			else
+			{
 				try
 				{
-					// try to load the policy location as a Spring resource
-					policyURL = ResourceUtils.getURL(policyLocationPattern);
+					snapshotFile = Optional.of(ResourceUtils.getFile(environmentProperties.replacePlaceholders(snapshotLocation)).toPath());
 				}
 				catch (final FileNotFoundException e)
 				{
-					throw new IllegalArgumentException("Error loading policy (as Spring resource) from the following URL: " + policyLocationPattern, e);
-				}
-
-				if (policyURL == null)
-				{
-					throw new IllegalArgumentException("No policy file found at the specified location: " + policyLocationPattern);
+					throw new IllegalArgumentException("Invalid policy snapshot location (must be a file in the filesystem): " + snapshotLocation, e);
 				}
-
-				policyURLs.add(policyURL);
-				policyLocationIndex++;
 			}
 
-			return CoreRefPolicyProvider.getInstance(policyURLs, conf.isIgnoreOldVersions(), xacmlParserFactory, maxPolicySetRefDepth, expressionFactory, combiningAlgRegistry);
+			final List<URL> policyURLs = getPolicyURLs(conf.getPolicyLocations(), environmentProperties);
+			return CoreRefPolicyProvider.getInstance(policyURLs, conf.isIgnoreOldVersions(), loadingThreads, snapshotFile, xacmlParserFactory, maxPolicySetRefDepth, expressionFactory,
+			        combiningAlgRegistry);
 		}
 	}
 
@@ -267,10 +527,10 @@ public class CoreRefPolicyProvider extends BaseStaticRefPolicyProvider
 
 		// will be updated by get(...)
 		private final PolicyMap<StaticTopLevelPolicyElementEvaluator> policyMap;
-		private final PolicyMap<PolicyWithNamespaces<PolicySet>> jaxbPolicySetMap;
+		private final PolicyMap<Supplier<PolicyWithNamespaces<PolicySet>>> jaxbPolicySetMap;
 		private final Table<String, PolicyVersion, StaticTopLevelPolicyElementEvaluator> policySetMapToUpdate;
 
-		private InitOnlyRefPolicyProvider(final PolicyMap<StaticTopLevelPolicyElementEvaluator> policyMap, final PolicyMap<PolicyWithNamespaces<PolicySet>> jaxbPolicySetMap,
+		private InitOnlyRefPolicyProvider(final PolicyMap<StaticTopLevelPolicyElementEvaluator> policyMap, final PolicyMap<Supplier<PolicyWithNamespaces<PolicySet>>> jaxbPolicySetMap,
 		        final Table<String, PolicyVersion, StaticTopLevelPolicyElementEvaluator> outPolicySetEvaluatorMap, final int maxPolicySetRefDepth, final ExpressionFactory expressionFactory,
 		        final CombiningAlgRegistry combiningAlgRegistry)
 		{
@@ -294,7 +554,7 @@ public class CoreRefPolicyProvider extends BaseStaticRefPolicyProvider
 		@Override
 		public StaticTopLevelPolicyElementEvaluator getPolicySet(final String id, final Optional<PolicyVersionPatterns> versionConstraints, final Deque<String> policySetRefChain)
 		{
-			final Entry<PolicyVersion, PolicyWithNamespaces<PolicySet>> jaxbPolicySetEntry = jaxbPolicySetMap.get(id, versionConstraints);
+			final Entry<PolicyVersion, Supplier<PolicyWithNamespaces<PolicySet>>> jaxbPolicySetEntry = jaxbPolicySetMap.get(id, versionConstraints);
 			if (jaxbPolicySetEntry == null)
 			{
 				// no such policy
@@ -310,7 +570,7 @@ public class CoreRefPolicyProvider extends BaseStaticRefPolicyProvider
 				/*
 				 * No matching version already parsed. Instantiate the policy evaluator
 				 */
-				final PolicyWithNamespaces<PolicySet> jaxbPolicySetWithNs = jaxbPolicySetEntry.getValue();
+				final PolicyWithNamespaces<PolicySet> jaxbPolicySetWithNs = jaxbPolicySetEntry.getValue().get();
 				try
 				{
 					resultPolicySetEvaluator = PolicyEvaluators.getInstanceStatic(jaxbPolicySetWithNs.policy, null, jaxbPolicySetWithNs.nsPrefixUriMap, expressionFactory, combiningAlgRegistry, this,
@@ -359,26 +619,49 @@ public class CoreRefPolicyProvider extends BaseStaticRefPolicyProvider
 	private final PolicyMap<StaticTopLevelPolicyElementEvaluator> policyEvaluatorMap;
 	private final PolicyMap<StaticTopLevelPolicyElementEvaluator> policySetEvaluatorMap;
 
-	private CoreRefPolicyProvider(final PolicyMap<StaticTopLevelPolicyElementEvaluator> policyMap, final PolicyMap<PolicyWithNamespaces<PolicySet>> jaxbPolicySetMap, final int maxPolicySetRefDepth,
-	        final ExpressionFactory expressionFactory, final CombiningAlgRegistry combiningAlgRegistry) throws IllegalArgumentException
+	/*
+	 * Parameters and sources of the policies, used by getUpdatedInstance(...). The XACML parser factory is null if this instance was not created from policy locations.
+	 */
+	private final XmlnsFilteringParserFactory xacmlParserFactory;
+	private final boolean ignoreOldPolicyVersions;
+	private final int loadingThreads;
+	private final int maxPolicySetRefDepth;
+	private final ExpressionFactory expressionFactory;
+	private final CombiningAlgRegistry combiningAlgRegistry;
+	private final Map<String, PolicySource> policySourcesByUrl;
+
+	/*
+	 * reusedPolicySetEvaluators: PolicySet evaluators from a previous instance that are still valid, i.e. not rebuilt from jaxbPolicySetMap
+	 */
+	private CoreRefPolicyProvider(final PolicyMap<StaticTopLevelPolicyElementEvaluator> policyMap, final PolicyMap<Supplier<PolicyWithNamespaces<PolicySet>>> jaxbPolicySetMap,
+	        final Table<String, PolicyVersion, StaticTopLevelPolicyElementEvaluator> reusedPolicySetEvaluators, final int maxPolicySetRefDepth, final ExpressionFactory expressionFactory,
+	        final CombiningAlgRegistry combiningAlgRegistry, final XmlnsFilteringParserFactory xacmlParserFactory, final boolean ignoreOldPolicyVersions, final int loadingThreads,
+	        final Map<String, PolicySource> policySourcesByUrl) throws IllegalArgumentException
 	{
 		super(maxPolicySetRefDepth);
-		assert policyMap != null && jaxbPolicySetMap != null && expressionFactory != null && combiningAlgRegistry != null;
+		assert policyMap != null && jaxbPolicySetMap != null && reusedPolicySetEvaluators != null && expressionFactory != null && combiningAlgRegistry != null && policySourcesByUrl != null;
 
 		this.policyEvaluatorMap = policyMap;
-		final Table<String, PolicyVersion, StaticTopLevelPolicyElementEvaluator> updatablePolicySetEvaluatorTable = HashBasedTable.create();
+		this.xacmlParserFactory = xacmlParserFactory;
+		this.ignoreOldPolicyVersions = ignoreOldPolicyVersions;
+		this.loadingThreads = loadingThreads;
+		this.maxPolicySetRefDepth = maxPolicySetRefDepth;
+		this.expressionFactory = expressionFactory;
+		this.combiningAlgRegistry = combiningAlgRegistry;
+		this.policySourcesByUrl = policySourcesByUrl;
+		final Table<String, PolicyVersion, StaticTopLevelPolicyElementEvaluator> updatablePolicySetEvaluatorTable = HashBasedTable.create(reusedPolicySetEvaluators);
 		/*
 		 * Ref policy Provider module used only for initialization, more particularly for parsing the PolicySets when they are referred to by others (in PolicySetIdReferences)
 		 */
 		try (final InitOnlyRefPolicyProvider bootstrapRefPolicyProvider = new InitOnlyRefPolicyProvider(this.policyEvaluatorMap, jaxbPolicySetMap, updatablePolicySetEvaluatorTable,
 		        maxPolicySetRefDepth, expressionFactory, combiningAlgRegistry))
 		{
-			for (final Entry<String, PolicyVersions<PolicyWithNamespaces<PolicySet>>> jaxbPolicySetWithNsEntry : jaxbPolicySetMap.entrySet())
+			for (final Entry<String, PolicyVersions<Supplier<PolicyWithNamespaces<PolicySet>>>> jaxbPolicySetWithNsEntry : jaxbPolicySetMap.entrySet())
 			{
 				final String policySetId = jaxbPolicySetWithNsEntry.getKey();
 				// instantiate all policy versions for this policyId now
-				final PolicyVersions<PolicyWithNamespaces<PolicySet>> jaxbPolicySetVersions = jaxbPolicySetWithNsEntry.getValue();
-				for (final Entry<PolicyVersion, PolicyWithNamespaces<PolicySet>> jaxbPolicySetEntry : jaxbPolicySetVersions)
+				final PolicyVersions<Supplier<PolicyWithNamespaces<PolicySet>>> jaxbPolicySetVersions = jaxbPolicySetWithNsEntry.getValue();
+				for (final Entry<PolicyVersion, Supplier<PolicyWithNamespaces<PolicySet>>> jaxbPolicySetEntry : jaxbPolicySetVersions)
 				{
 
 					final PolicyVersion policySetVersion = jaxbPolicySetEntry.getKey();
@@ -391,7 +674,7 @@ public class CoreRefPolicyProvider extends BaseStaticRefPolicyProvider
 					{
 						// no policyset with such ID/Version instantiated yet
 						// do it now
-						final PolicyWithNamespaces<PolicySet> jaxbPolicySetWithNs = jaxbPolicySetEntry.getValue();
+						final PolicyWithNamespaces<PolicySet> jaxbPolicySetWithNs = jaxbPolicySetEntry.getValue().get();
 						final StaticTopLevelPolicyElementEvaluator newPolicySetEvaluator;
 						try
 						{
@@ -481,21 +764,21 @@ public class CoreRefPolicyProvider extends BaseStaticRefPolicyProvider
 			policyMap = new PolicyMap<>(updatablePolicyTable.rowMap());
 		}
 
-		final PolicyMap<PolicyWithNamespaces<PolicySet>> jaxbPolicySetMap;
+		final PolicyMap<Supplier<PolicyWithNamespaces<PolicySet>>> jaxbPolicySetMap;
 		if (jaxbPolicySets == null)
 		{
-			jaxbPolicySetMap = new PolicyMap<>(Collections.<String, Map<PolicyVersion, PolicyWithNamespaces<PolicySet>>>emptyMap());
+			jaxbPolicySetMap = new PolicyMap<>(Collections.<String, Map<PolicyVersion, Supplier<PolicyWithNamespaces<PolicySet>>>>emptyMap());
 		}
 		else
 		{
-			final Table<String, PolicyVersion, PolicyWithNamespaces<PolicySet>> updatablePolicySetTable = HashBasedTable.create();
+			final Table<String, PolicyVersion, Supplier<PolicyWithNamespaces<PolicySet>>> updatablePolicySetTable = HashBasedTable.create();
 			for (final PolicyWithNamespaces<PolicySet> jaxbPolicySetWithNs : jaxbPolicySets)
 			{
 				final PolicySet jaxbPolicySet = jaxbPolicySetWithNs.policy;
 				final String policyId = jaxbPolicySet.getPolicySetId();
 				final String policyVersion = jaxbPolicySet.getVersion();
 				// check if any version of the same policy exist in the map
-				final PolicyWithNamespaces<PolicySet> previousValue = updatablePolicySetTable.put(policyId, new PolicyVersion(policyVersion), jaxbPolicySetWithNs);
+				final Supplier<PolicyWithNamespaces<PolicySet>> previousValue = updatablePolicySetTable.put(policyId, new PolicyVersion(policyVersion), () -> jaxbPolicySetWithNs);
 				if (previousValue != null)
 				{
 					throw new IllegalArgumentException("Policy conflict: two PolicySets with same PolicySetId=" + policyId + ", Version=" + policyVersion);
@@ -509,7 +792,8 @@ public class CoreRefPolicyProvider extends BaseStaticRefPolicyProvider
 			jaxbPolicySetMap = new PolicyMap<>(updatablePolicySetTable.rowMap());
 		}
 
-		return new CoreRefPolicyProvider(policyMap, jaxbPolicySetMap, maxPolicySetRefDepth, expressionFactory, combiningAlgRegistry);
+		return new CoreRefPolicyProvider(policyMap, jaxbPolicySetMap, HashBasedTable.create(), maxPolicySetRefDepth, expressionFactory, combiningAlgRegistry, null, false, 0,
+		        Collections.emptyMap());
 	}
 
 	/**
@@ -534,12 +818,85 @@ public class CoreRefPolicyProvider extends BaseStaticRefPolicyProvider
 	 */
 	public static CoreRefPolicyProvider getInstance(final Collection<URL> policyURLs, final boolean ignoreOldPolicyVersions, final XmlnsFilteringParserFactory xacmlParserFactory,
 	        final int maxPolicySetRefDepth, final ExpressionFactory expressionFactory, final CombiningAlgRegistry combiningAlgRegistry) throws IllegalArgumentException
+	{
+		return getInstance(policyURLs, ignoreOldPolicyVersions, 0, Optional.empty(), xacmlParserFactory, maxPolicySetRefDepth, expressionFactory, combiningAlgRegistry);
+	}
+
+	/**
+	 * Creates an instance from policy locations, parsing the policy documents and building the Policy evaluators concurrently, and/or using a policy snapshot
+	 *
+	 * @param policyURLs
+	 *            location of Policy(Set) elements (JAXB) to be parsed for future reference by Policy(Set)IdReferences
+	 * @param ignoreOldPolicyVersions
+	 *            for any given policy ID, ignore all versions except the last one if there are multiple versions of the policy
+	 * @param loadingThreads
+	 *            number of threads used to parse the policy documents and build the Policy evaluators (the PolicySet evaluators are built sequentially in the calling thread since each of them may
+	 *            depend on others); 0 or 1 means everything is done in the calling thread. The threads are terminated when the instance is created. The results - including the error reported if any
+	 *            policy is invalid - are the same as with sequential loading. If greater than 1, {@code expressionFactory} must support concurrent parsing of policies.
+	 * @param snapshotFile
+	 *            policy snapshot file, if any. If the file exists, the policy documents found in it with the same content checksum as the current ones are not parsed again (no XML parsing and
+	 *            schema validation), but taken from the snapshot; and the file is (re)written with all the policy documents if any of them had to be parsed. Beware that the snapshot is saved/loaded
+	 *            with Java serialization, so it must be protected like the policy documents themselves. Errors reading or writing the snapshot are logged and otherwise ignored.
+	 * @param xacmlParserFactory
+	 *            XACML parser factory for parsing any XACML Policy(Set)
+	 * @param maxPolicySetRefDepth
+	 *            maximum allowed depth of PolicySet reference chain (via PolicySetIdReference): PolicySet1 -> PolicySet2 -> ...; a strictly negative value means no limit
+	 * @param combiningAlgRegistry
+	 *            registry of policy/rule combining algorithms
+	 * @param expressionFactory
+	 *            Expression factory for parsing Expressions used in the policy(set)
+	 * @return instance of this class
+	 * @throws java.lang.IllegalArgumentException
+	 *             if {@code policyURLs == null || policyURLs.length == 0 || loadingThreads < 0 || xacmlParserFactory == null || expressionFactory == null || combiningAlgRegistry == null}; or one of
+	 *             {@code policyURLs} is null or is not a valid XACML Policy(Set) or conflicts with another because it has same Policy(Set)Id and Version. Beware that the Policy(Set)Issuer is ignored
+	 *             from this check!
+	 */
+	public static CoreRefPolicyProvider getInstance(final Collection<URL> policyURLs, final boolean ignoreOldPolicyVersions, final int loadingThreads, final Optional<Path> snapshotFile,
+	        final XmlnsFilteringParserFactory xacmlParserFactory, final int maxPolicySetRefDepth, final ExpressionFactory expressionFactory, final CombiningAlgRegistry combiningAlgRegistry)
+	        throws IllegalArgumentException
+	{
+		return getInstance(policyURLs, ignoreOldPolicyVersions, loadingThreads, snapshotFile, xacmlParserFactory, maxPolicySetRefDepth, expressionFactory, combiningAlgRegistry, null);
+	}
+
+	/**
+	 * Creates a new instance from updated policy locations, e.g. after some policy files have been changed, added or removed, with the same parameters as this instance. Only the policy documents
+	 * that are new or changed since this instance was created are parsed; a policy file in the filesystem is considered unchanged if its size and content checksum (CRC-32) are unchanged, any other
+	 * kind of policy location is always parsed again. The Policy evaluators from unchanged documents are reused as they are, and so are the PolicySet evaluators from unchanged documents that do not
+	 * refer - directly or indirectly - to any changed, added or removed Policy(Set) ID. This instance is not modified.
+	 *
+	 * @param policyURLs
+	 *            (updated) location of Policy(Set) elements
+	 * @return new instance
+	 * @throws java.lang.IllegalArgumentException
+	 *             if {@code policyURLs == null || policyURLs.length == 0}; or one of {@code policyURLs} is null or is not a valid XACML Policy(Set) or conflicts with another because it has same
+	 *             Policy(Set)Id and Version
+	 * @throws java.lang.UnsupportedOperationException
+	 *             if this instance was not created from policy locations, i.e. with {@link #getInstance(Collection, boolean, XmlnsFilteringParserFactory, int, ExpressionFactory, CombiningAlgRegistry)}
+	 */
+	public CoreRefPolicyProvider getUpdatedInstance(final Collection<URL> policyURLs) throws IllegalArgumentException, UnsupportedOperationException
+	{
+		if (xacmlParserFactory == null)
+		{
+			throw new UnsupportedOperationException("Update not supported: this RefPolicyProvider was not created from policy locations");
+		}
+
+		return getInstance(policyURLs, ignoreOldPolicyVersions, loadingThreads, Optional.empty(), xacmlParserFactory, maxPolicySetRefDepth, expressionFactory, combiningAlgRegistry, this);
+	}
+
+	private static CoreRefPolicyProvider getInstance(final Collection<URL> policyURLs, final boolean ignoreOldPolicyVersions, final int loadingThreads, final Optional<Path> snapshotFile,
+	        final XmlnsFilteringParserFactory xacmlParserFactory, final int maxPolicySetRefDepth, final ExpressionFactory expressionFactory, final CombiningAlgRegistry combiningAlgRegistry,
+	        final CoreRefPolicyProvider previousInstance) throws IllegalArgumentException
 	{
 		if (policyURLs == null || policyURLs.isEmpty())
 		{
 			throw ILLEGAL_POLICY_URLS_ARGUMENT_EXCEPTION;
 		}
 
+		if (loadingThreads < 0)
+		{
+			throw new IllegalArgumentException("Invalid number of policy loading threads: " + loadingThreads);
+		}
+
 		if (xacmlParserFactory == null)
 		{
 			throw ILLEGAL_XACML_PARSER_FACTORY_ARGUMENT_EXCEPTION;
@@ -555,127 +912,275 @@ public class CoreRefPolicyProvider extends BaseStaticRefPolicyProvider
 			throw ILLEGAL_COMBINING_ALG_REGISTRY_ARGUMENT_EXCEPTION;
 		}
 
-		final XmlnsFilteringParser xacmlParser;
-		try
+		if (loadingThreads <= 1)
 		{
-			xacmlParser = xacmlParserFactory.getInstance();
+			return load(policyURLs, ignoreOldPolicyVersions, loadingThreads, snapshotFile, xacmlParserFactory, maxPolicySetRefDepth, expressionFactory, combiningAlgRegistry, previousInstance, null);
 		}
-		catch (final JAXBException e)
+
+		final ExecutorService loadingExecutor = Executors.newFixedThreadPool(loadingThreads,
+		        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("authzforce-pdp-policy-loading-%d").build());
+		try
 		{
-			throw new IllegalArgumentException("Failed to create JAXB unmarshaller for XML Policy(Set)", e);
+			return load(policyURLs, ignoreOldPolicyVersions, loadingThreads, snapshotFile, xacmlParserFactory, maxPolicySetRefDepth, expressionFactory, combiningAlgRegistry, previousInstance,
+			        loadingExecutor);
 		}
-
-		final Table<String, PolicyVersion, StaticTopLevelPolicyElementEvaluator> updatablePolicyTable = HashBasedTable.create();
-		final Table<String, PolicyVersion, PolicyWithNamespaces<PolicySet>> updatablePolicySetTable = HashBasedTable.create();
-		int policyUrlIndex = 0;
-		for (final URL policyURL : policyURLs)
+		finally
 		{
-			if (policyURL == null)
-			{
-				throw new IllegalArgumentException("policyURL #" + policyUrlIndex + " undefined");
-			}
+			loadingExecutor.shutdownNow();
+		}
+	}
 
-			final Object jaxbPolicyOrPolicySetObj;
+	/*
+	 * loadingExecutor: null if everything must be done in the calling thread
+	 */
+	private static CoreRefPolicyProvider load(final Collection<URL> policyURLs, final boolean ignoreOldPolicyVersions, final int loadingThreads, final Optional<Path> snapshotFile,
+	        final XmlnsFilteringParserFactory xacmlParserFactory, final int maxPolicySetRefDepth, final ExpressionFactory expressionFactory, final CombiningAlgRegistry combiningAlgRegistry,
+	        final CoreRefPolicyProvider previousInstance, final ExecutorService loadingExecutor) throws IllegalArgumentException
+	{
+		/*
+		 * XACML parsers are not thread-safe, so one per loading thread
+		 */
+		final ThreadLocal<XmlnsFilteringParser> xacmlParsers = ThreadLocal.withInitial(() -> {
 			try
 			{
-				jaxbPolicyOrPolicySetObj = xacmlParser.parse(policyURL);
+				return xacmlParserFactory.getInstance();
 			}
 			catch (final JAXBException e)
 			{
-				throw new IllegalArgumentException("Failed to unmarshall Policy(Set) XML document from policy location: " + policyURL, e);
+				throw new IllegalArgumentException("Failed to create JAXB unmarshaller for XML Policy(Set)", e);
 			}
+		});
+		// fail early if the parser cannot be created
+		xacmlParsers.get();
 
-			final Map<String, String> nsPrefixUriMap = xacmlParser.getNamespacePrefixUriMap();
-			if (jaxbPolicyOrPolicySetObj instanceof Policy)
+		/*
+		 * Parse the new/changed policy documents only, and collect the IDs of the policies that are new, changed or removed since the previous instance (if any): PolicySets referring to them must be
+		 * rebuilt.
+		 */
+		final Map<String, PolicySource> previousPolicySources = previousInstance == null ? Collections.<String, PolicySource>emptyMap() : previousInstance.policySourcesByUrl;
+		final Set<String> changedPolicyIds = new HashSet<>();
+		final Set<String> changedPolicySetIds = new HashSet<>();
+		final List<URL> policyURLList = new ArrayList<>(policyURLs);
+		final int policyUrlNullIndex = policyURLList.indexOf(null);
+		if (policyUrlNullIndex >= 0)
+		{
+			throw new IllegalArgumentException("policyURL #" + policyUrlNullIndex + " undefined");
+		}
+
+		/*
+		 * The snapshot is used for initial loading only, since the unchanged documents are not parsed again when updating an instance anyway
+		 */
+		final boolean isSnapshotEnabled = snapshotFile.isPresent() && previousInstance == null;
+		final PolicySnapshot snapshot = isSnapshotEnabled ? PolicySnapshot.load(snapshotFile.get()) : null;
+		final Map<String, PolicySnapshot.Entry> newSnapshotEntries = new ConcurrentHashMap<>();
+		final AtomicBoolean isSnapshotOutdated = new AtomicBoolean(snapshot == null);
+		final List<PolicyDocument> policyDocs = applyToAll(policyURLList, policyURL -> {
+			final String policyUrlKey = policyURL.toExternalForm();
+			/*
+			 * The checksum is needed for files in the filesystem, to detect changes since the previous instance (or before the next one), and for snapshot lookups. The content is read only once
+			 * for both the checksum and the XML parsing.
+			 */
+			final boolean isFile = PolicyFileState.isFile(policyURL);
+			final byte[] content = isFile || isSnapshotEnabled ? readContent(policyURL) : null;
+			final long checksum = content == null ? 0 : PolicySnapshot.checksum(content);
+			final PolicyFileState fileState = isFile ? new PolicyFileState(content.length, checksum) : null;
+			if (!isSnapshotEnabled)
 			{
-				final Policy jaxbPolicy = (Policy) jaxbPolicyOrPolicySetObj;
-				final String policyId = jaxbPolicy.getPolicyId();
-				final String policyVersionStr = jaxbPolicy.getVersion();
-				final PolicyVersion policyVersion = new PolicyVersion(policyVersionStr);
+				final PolicySource previousPolicySource = previousPolicySources.get(policyUrlKey);
+				return previousPolicySource != null && previousPolicySource.isUnchanged(fileState) ? new PolicyDocument(policyURL, previousPolicySource, null, null)
+				        : parse(xacmlParsers.get(), policyURL, content, fileState);
+			}
 
-				if (ignoreOldPolicyVersions)
-				{
-					final Map<PolicyVersion, StaticTopLevelPolicyElementEvaluator> policyVersions = updatablePolicyTable.row(policyId);
-					if (policyVersions != null)
-					{
-						final boolean isOld = policyVersions.keySet().parallelStream().anyMatch(v -> policyVersion.compareTo(v) <= 0);
-						if (isOld)
-						{
-							// skip
-							continue;
-						}
+			final PolicySnapshot.Entry snapshotEntry = snapshot == null ? null : snapshot.get(policyUrlKey, checksum);
+			final PolicyDocument policyDoc;
+			if (snapshotEntry == null)
+			{
+				policyDoc = parse(xacmlParsers.get(), policyURL, content, fileState);
+				newSnapshotEntries.put(policyUrlKey, new PolicySnapshot.Entry(checksum, (Serializable) policyDoc.jaxbPolicyOrPolicySet, policyDoc.nsPrefixUriMap));
+				isSnapshotOutdated.set(true);
+			}
+			else
+			{
+				policyDoc = newPolicyDocument(policyURL, fileState, snapshotEntry.getPolicyOrPolicySet(), snapshotEntry.getNsPrefixUriMap());
+				newSnapshotEntries.put(policyUrlKey, snapshotEntry);
+			}
 
-						/*
-						 * Else replace/overwrite with this new version (make sure it is the only one), so empty the row first
-						 */
-						policyVersions.clear();
-					}
-				}
+			return policyDoc;
+		}, loadingExecutor);
 
-				final StaticTopLevelPolicyElementEvaluator policyEvaluator;
+		if (isSnapshotEnabled)
+		{
+			final Path snapshotPath = snapshotFile.get();
+			if (isSnapshotOutdated.get() || snapshot.size() != newSnapshotEntries.size())
+			{
 				try
 				{
-					policyEvaluator = PolicyEvaluators.getInstance(jaxbPolicy, null, nsPrefixUriMap, expressionFactory, combiningAlgRegistry);
+					new PolicySnapshot(newSnapshotEntries).save(snapshotPath);
+					LOGGER.info("Policy snapshot saved: '{}'", snapshotPath);
 				}
-				catch (final IllegalArgumentException e)
+				catch (final IOException e)
 				{
-					throw new IllegalArgumentException("Invalid Policy with PolicyId=" + policyId + ", Version=" + policyVersionStr, e);
+					LOGGER.warn("Failed to save policy snapshot '{}'", snapshotPath, e);
 				}
+			}
+			else
+			{
+				LOGGER.info("All policy documents loaded from policy snapshot '{}'", snapshotPath);
+			}
+		}
 
-				final StaticTopLevelPolicyElementEvaluator previousValue = updatablePolicyTable.put(policyId, policyVersion, policyEvaluator);
-				if (previousValue != null)
+		final Map<String, PolicySource> policySourcesByUrl = HashCollections.newUpdatableMap(policyDocs.size());
+		for (final PolicyDocument policyDoc : policyDocs)
+		{
+			final String policyUrlKey = policyDoc.url.toExternalForm();
+			if (policyDoc.jaxbPolicyOrPolicySet != null)
+			{
+				// new/changed
+				(policyDoc.source.type == TopLevelPolicyElementType.POLICY ? changedPolicyIds : changedPolicySetIds).add(policyDoc.source.id);
+				final PolicySource previousPolicySource = previousPolicySources.get(policyUrlKey);
+				if (previousPolicySource != null)
 				{
-					throw new IllegalArgumentException("Policy conflict: two policies with same PolicyId=" + policyId + ", Version=" + policyVersionStr);
+					(previousPolicySource.type == TopLevelPolicyElementType.POLICY ? changedPolicyIds : changedPolicySetIds).add(previousPolicySource.id);
 				}
-
 			}
-			else if (jaxbPolicyOrPolicySetObj instanceof PolicySet)
+
+			policySourcesByUrl.put(policyUrlKey, policyDoc.source);
+		}
+
+		for (final Entry<String, PolicySource> previousPolicySourceEntry : previousPolicySources.entrySet())
+		{
+			if (!policySourcesByUrl.containsKey(previousPolicySourceEntry.getKey()))
 			{
-				final PolicySet jaxbPolicySet = (PolicySet) jaxbPolicyOrPolicySetObj;
-				final String policyId = jaxbPolicySet.getPolicySetId();
-				final String policyVersionStr = jaxbPolicySet.getVersion();
-				final PolicyVersion policyVersion = new PolicyVersion(policyVersionStr);
+				// policy document removed
+				final PolicySource removedPolicySource = previousPolicySourceEntry.getValue();
+				(removedPolicySource.type == TopLevelPolicyElementType.POLICY ? changedPolicyIds : changedPolicySetIds).add(removedPolicySource.id);
+			}
+		}
 
-				if (ignoreOldPolicyVersions)
+		final Table<String, PolicyVersion, PolicyDocument> policyDocTable = HashBasedTable.create();
+		final Table<String, PolicyVersion, PolicyDocument> policySetDocTable = HashBasedTable.create();
+		for (final PolicyDocument policyDoc : policyDocs)
+		{
+			final PolicySource policySource = policyDoc.source;
+			final Table<String, PolicyVersion, PolicyDocument> docTable = policySource.type == TopLevelPolicyElementType.POLICY ? policyDocTable : policySetDocTable;
+			if (ignoreOldPolicyVersions)
+			{
+				final Map<PolicyVersion, PolicyDocument> policyVersions = docTable.row(policySource.id);
+				if (policyVersions != null)
 				{
-					final Map<PolicyVersion, PolicyWithNamespaces<PolicySet>> policyVersions = updatablePolicySetTable.row(policyId);
-					if (policyVersions != null)
+					final boolean isOld = policyVersions.keySet().parallelStream().anyMatch(v -> policySource.version.compareTo(v) <= 0);
+					if (isOld)
 					{
-						final boolean isOld = policyVersions.keySet().parallelStream().anyMatch(v -> policyVersion.compareTo(v) <= 0);
-						if (isOld)
-						{
-							// skip
-							continue;
-						}
-
-						/*
-						 * Else replace/overwrite with this new version (make sure it is the only one), so empty the row first
-						 */
-						policyVersions.clear();
+						// skip
+						continue;
 					}
+
+					/*
+					 * Else replace/overwrite with this new version (make sure it is the only one), so empty the row first
+					 */
+					policyVersions.clear();
 				}
+			}
 
-				final PolicyWithNamespaces<PolicySet> previousValue = updatablePolicySetTable.put(policyId, policyVersion, new PolicyWithNamespaces<>(jaxbPolicySet, nsPrefixUriMap));
-				if (previousValue != null)
+			final PolicyDocument previousValue = docTable.put(policySource.id, policySource.version, policyDoc);
+			if (previousValue != null)
+			{
+				throw new IllegalArgumentException(policySource.type == TopLevelPolicyElementType.POLICY
+				        ? "Policy conflict: two policies with same PolicyId=" + policySource.id + ", Version=" + policySource.version
+				        : "Policy conflict: two PolicySets with same PolicySetId=" + policySource.id + ", Version=" + policySource.version);
+			}
+		}
+
+		/*
+		 * Policies (reused from previous instance if unchanged)
+		 */
+		final List<Table.Cell<String, PolicyVersion, PolicyDocument>> policyDocCells = new ArrayList<>(policyDocTable.cellSet());
+		final List<StaticTopLevelPolicyElementEvaluator> policyEvaluators = applyToAll(policyDocCells, policyDocCell -> {
+			final String policyId = policyDocCell.getRowKey();
+			final PolicyVersion policyVersion = policyDocCell.getColumnKey();
+			final PolicyDocument policyDoc = policyDocCell.getValue();
+			/*
+			 * The previous evaluator may be missing even if the document is unchanged, e.g. if it was ignored as an old version
+			 */
+			final StaticTopLevelPolicyElementEvaluator previousPolicyEvaluator = policyDoc.jaxbPolicyOrPolicySet == null ? previousInstance.policyEvaluatorMap.get(policyId, policyVersion) : null;
+			if (previousPolicyEvaluator != null)
+			{
+				return previousPolicyEvaluator;
+			}
+
+			final PolicyDocument parsedPolicyDoc = policyDoc.jaxbPolicyOrPolicySet == null ? parse(xacmlParsers.get(), policyDoc.url, null, policyDoc.source.fileState) : policyDoc;
+			try
+			{
+				return PolicyEvaluators.getInstance((Policy) parsedPolicyDoc.jaxbPolicyOrPolicySet, null, parsedPolicyDoc.nsPrefixUriMap, expressionFactory, combiningAlgRegistry);
+			}
+			catch (final IllegalArgumentException e)
+			{
+				throw new IllegalArgumentException("Invalid Policy with PolicyId=" + policyId + ", Version=" + policyVersion, e);
+			}
+		}, loadingExecutor);
+
+		int reusedPolicyCount = 0;
+		final Table<String, PolicyVersion, StaticTopLevelPolicyElementEvaluator> updatablePolicyTable = HashBasedTable.create();
+		for (int i = 0; i < policyDocCells.size(); i++)
+		{
+			final Table.Cell<String, PolicyVersion, PolicyDocument> policyDocCell = policyDocCells.get(i);
+			final StaticTopLevelPolicyElementEvaluator policyEvaluator = policyEvaluators.get(i);
+			if (previousInstance != null && previousInstance.policyEvaluatorMap.get(policyDocCell.getRowKey(), policyDocCell.getColumnKey()) == policyEvaluator)
+			{
+				reusedPolicyCount++;
+			}
+
+			updatablePolicyTable.put(policyDocCell.getRowKey(), policyDocCell.getColumnKey(), policyEvaluator);
+		}
+
+		/*
+		 * PolicySets cannot be parsed before we have collected them all, because each PolicySet may refer to others via PolicySetIdReferences. The ones from unchanged documents that do not refer to
+		 * any changed policy are reused from the previous instance; the others are (re)built by the constructor, parsing the unchanged documents again only then.
+		 */
+		final Table<String, PolicyVersion, StaticTopLevelPolicyElementEvaluator> reusedPolicySetTable = HashBasedTable.create();
+		final Table<String, PolicyVersion, Supplier<PolicyWithNamespaces<PolicySet>>> updatablePolicySetTable = HashBasedTable.create();
+		for (final Table.Cell<String, PolicyVersion, PolicyDocument> policySetDocCell : policySetDocTable.cellSet())
+		{
+			final String policySetId = policySetDocCell.getRowKey();
+			final PolicyVersion policySetVersion = policySetDocCell.getColumnKey();
+			final PolicyDocument policySetDoc = policySetDocCell.getValue();
+			final Supplier<PolicyWithNamespaces<PolicySet>> jaxbPolicySetSupplier;
+			if (policySetDoc.jaxbPolicyOrPolicySet == null)
+			{
+				final StaticTopLevelPolicyElementEvaluator previousPolicySetEvaluator = previousInstance.policySetEvaluatorMap.get(policySetId, policySetVersion);
+				if (previousPolicySetEvaluator != null && !refersToAny(previousPolicySetEvaluator, changedPolicyIds, changedPolicySetIds))
 				{
-					throw new IllegalArgumentException("Policy conflict: two PolicySets with same PolicySetId=" + policyId + ", Version=" + policyVersionStr);
+					reusedPolicySetTable.put(policySetId, policySetVersion, previousPolicySetEvaluator);
 				}
 
-				/*
-				 * PolicySets cannot be parsed before we have collected them all, because each PolicySet may refer to others via PolicySetIdReferences
-				 */
+				jaxbPolicySetSupplier = () -> {
+					final PolicyDocument parsedPolicySetDoc = parse(xacmlParsers.get(), policySetDoc.url, null, policySetDoc.source.fileState);
+					return new PolicyWithNamespaces<>((PolicySet) parsedPolicySetDoc.jaxbPolicyOrPolicySet, parsedPolicySetDoc.nsPrefixUriMap);
+				};
 			}
 			else
 			{
-				throw new IllegalArgumentException("Unexpected element found as root of the policy document: " + jaxbPolicyOrPolicySetObj.getClass().getSimpleName());
+				final PolicyWithNamespaces<PolicySet> jaxbPolicySetWithNs = new PolicyWithNamespaces<>((PolicySet) policySetDoc.jaxbPolicyOrPolicySet, policySetDoc.nsPrefixUriMap);
+				jaxbPolicySetSupplier = () -> jaxbPolicySetWithNs;
 			}
 
-			policyUrlIndex++;
+			/*
+			 * Required even if the evaluator is reused, for resolving policy references
+			 */
+			updatablePolicySetTable.put(policySetId, policySetVersion, jaxbPolicySetSupplier);
+		}
+
+		if (previousInstance != null && LOGGER.isDebugEnabled())
+		{
+			// Beware of autoboxing which causes call to Integer.valueOf(...)
+			LOGGER.debug("Policies updated: {} Policy ID(s) and {} PolicySet ID(s) changed/added/removed; {} Policies and {} PolicySets reused", changedPolicyIds.size(), changedPolicySetIds.size(),
+			        reusedPolicyCount, reusedPolicySetTable.size());
 		}
 
 		final PolicyMap<StaticTopLevelPolicyElementEvaluator> policyMap = new PolicyMap<>(updatablePolicyTable.rowMap());
-		final PolicyMap<PolicyWithNamespaces<PolicySet>> policySetMap = new PolicyMap<>(updatablePolicySetTable.rowMap());
-		return new CoreRefPolicyProvider(policyMap, policySetMap, maxPolicySetRefDepth, expressionFactory, combiningAlgRegistry);
+		final PolicyMap<Supplier<PolicyWithNamespaces<PolicySet>>> policySetMap = new PolicyMap<>(updatablePolicySetTable.rowMap());
+		return new CoreRefPolicyProvider(policyMap, policySetMap, reusedPolicySetTable, maxPolicySetRefDepth, expressionFactory, combiningAlgRegistry, xacmlParserFactory, ignoreOldPolicyVersions,
+		        loadingThreads, HashCollections.newImmutableMap(policySourcesByUrl));
 	}
 
 	@Override
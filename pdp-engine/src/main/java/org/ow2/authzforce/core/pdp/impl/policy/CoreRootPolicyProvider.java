@@ -25,6 +25,7 @@ import java.util.Optional;
 import javax.xml.bind.JAXBException;
 
 import org.ow2.authzforce.core.pdp.api.EnvironmentProperties;
+import org.ow2.authzforce.core.pdp.api.XmlUtils.NoXmlnsFilteringParser;
 import org.ow2.authzforce.core.pdp.api.XmlUtils.XmlnsFilteringParser;
 import org.ow2.authzforce.core.pdp.api.XmlUtils.XmlnsFilteringParserFactory;
 import org.ow2.authzforce.core.pdp.api.combining.CombiningAlgRegistry;
@@ -103,12 +104,18 @@ public class CoreRootPolicyProvider implements StaticRootPolicyProvider
 				staticRefPolicyProvider = null;
 			}
 
-			return CoreRootPolicyProvider.getInstance(rootPolicyURL, xacmlParserFactory, expressionFactory, combiningAlgRegistry, Optional.ofNullable(staticRefPolicyProvider));
+			return CoreRootPolicyProvider.getInstance(rootPolicyURL, jaxbConf.isStreaming(), xacmlParserFactory, expressionFactory, combiningAlgRegistry, Optional.ofNullable(staticRefPolicyProvider));
 		}
 	}
 
 	private final StaticTopLevelPolicyElementEvaluator rootPolicy;
 
+	private CoreRootPolicyProvider(final StaticTopLevelPolicyElementEvaluator rootPolicy)
+	{
+		assert rootPolicy != null;
+		this.rootPolicy = rootPolicy;
+	}
+
 	/**
 	 * Creates a <code>CoreRootPolicyProvider</code> with the root Policy already resolved once and for all
 	 * 
@@ -193,6 +200,31 @@ public class CoreRootPolicyProvider implements StaticRootPolicyProvider
 	 */
 	public static CoreRootPolicyProvider getInstance(final URL rootPolicyURL, final XmlnsFilteringParserFactory xacmlParserFactory, final ExpressionFactory expressionFactory,
 	        final CombiningAlgRegistry combiningAlgRegistry, final Optional<StaticRefPolicyProvider> refPolicyProvider)
+	{
+		return getInstance(rootPolicyURL, false, xacmlParserFactory, expressionFactory, combiningAlgRegistry, refPolicyProvider);
+	}
+
+	/**
+	 * Creates a <code>CoreRootPolicyProvider</code> with the root Policy already resolved once and for all, optionally loading a root PolicySet in streaming mode, i.e. without building the JAXB
+	 * object graph of the whole document (only one child Policy(Set) of the root PolicySet at a time), to reduce the memory required to load very large PolicySets.
+	 * 
+	 * @param rootPolicyURL
+	 *            location of root Policy(Set) (JAXB) to be parsed
+	 * @param streaming
+	 *            true iff the root PolicySet, if the root element is a PolicySet, must be loaded in streaming mode (a root Policy is always loaded with {@code xacmlParserFactory})
+	 * @param xacmlParserFactory
+	 *            XACML Policy(Set) parser factory
+	 * @param combiningAlgRegistry
+	 *            registry of policy/rule combining algorithms
+	 * @param expressionFactory
+	 *            Expression factory for parsing Expressions used in the policy(set)
+	 * @param refPolicyProvider
+	 *            Policy-by-reference provider
+	 * @return instance of this class
+	 * 
+	 */
+	public static CoreRootPolicyProvider getInstance(final URL rootPolicyURL, final boolean streaming, final XmlnsFilteringParserFactory xacmlParserFactory,
+	        final ExpressionFactory expressionFactory, final CombiningAlgRegistry combiningAlgRegistry, final Optional<StaticRefPolicyProvider> refPolicyProvider)
 	{
 		if (rootPolicyURL == null)
 		{
@@ -213,6 +245,17 @@ public class CoreRootPolicyProvider implements StaticRootPolicyProvider
 			throw new IllegalArgumentException("Failed to create JAXB unmarshaller for XML Policy(Set)", e);
 		}
 
+		if (streaming)
+		{
+			final StaticTopLevelPolicyElementEvaluator rootPolicySet = StreamingPolicySetLoader.load(rootPolicyURL, !(xacmlParser instanceof NoXmlnsFilteringParser), expressionFactory,
+			        combiningAlgRegistry, refPolicyProvider);
+			if (rootPolicySet != null)
+			{
+				return new CoreRootPolicyProvider(rootPolicySet);
+			}
+			// not a PolicySet, fall back to the XACML parser
+		}
+
 		final Object jaxbPolicyOrPolicySetObj;
 		try
 		{
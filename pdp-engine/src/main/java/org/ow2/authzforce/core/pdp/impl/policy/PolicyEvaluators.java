@@ -23,6 +23,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Deque;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -68,6 +69,9 @@ import org.ow2.authzforce.core.pdp.api.value.Value;
 import org.ow2.authzforce.core.pdp.impl.BooleanEvaluator;
 import org.ow2.authzforce.core.pdp.impl.PepActionExpression;
 import org.ow2.authzforce.core.pdp.impl.TargetEvaluators;
+import org.ow2.authzforce.core.pdp.impl.TargetIndexCompilable;
+import org.ow2.authzforce.core.pdp.impl.TargetIndexKey;
+import org.ow2.authzforce.core.pdp.impl.TargetIndexable;
 import org.ow2.authzforce.core.pdp.impl.rule.RuleEvaluator;
 import org.ow2.authzforce.xacml.identifiers.XacmlNodeName;
 import org.ow2.authzforce.xacml.identifiers.XacmlStatusCode;
@@ -321,7 +325,7 @@ public final class PolicyEvaluators
 	 *            type of combined child elements in evaluated Policy(Set)
 	 * 
 	 */
-	private static abstract class BaseTopLevelPolicyElementEvaluator<T extends Decidable> implements TopLevelPolicyElementEvaluator
+	private static abstract class BaseTopLevelPolicyElementEvaluator<T extends Decidable> implements TopLevelPolicyElementEvaluator, TargetIndexable
 	{
 		private static final IllegalArgumentException NULL_POLICY_METADATA_EXCEPTION = new IllegalArgumentException("Undefined Policy(Set) metadata (required)");
 		private static final IllegalArgumentException NULL_ALG_EXCEPTION = new IllegalArgumentException("Undefined Policy(Set) combining algorithm ID (required)");
@@ -763,6 +767,23 @@ public final class PolicyEvaluators
 			return targetEvaluator.evaluate(context);
 		}
 
+		@Override
+		public final List<TargetIndexKey> getTargetIndexKeys()
+		{
+			return TargetEvaluators.getIndexKeys(targetEvaluator);
+		}
+
+		/**
+		 * Compiles the index(es) of combined elements by Target in the combining algorithm evaluator, if any
+		 */
+		protected final void compileCombiningAlgTargetIndex()
+		{
+			if (combiningAlgEvaluator instanceof TargetIndexCompilable)
+			{
+				((TargetIndexCompilable) combiningAlgEvaluator).compileTargetIndex();
+			}
+		}
+
 		@Override
 		public final DecisionResult evaluate(final EvaluationContext context)
 		{
@@ -828,10 +849,16 @@ public final class PolicyEvaluators
 
 	}
 
-	private static final class StaticBaseTopLevelPolicyElementEvaluator<T extends Decidable> extends BaseTopLevelPolicyElementEvaluator<T> implements StaticTopLevelPolicyElementEvaluator
+	private static final class StaticBaseTopLevelPolicyElementEvaluator<T extends Decidable> extends BaseTopLevelPolicyElementEvaluator<T>
+	        implements StaticTopLevelPolicyElementEvaluator, TargetIndexCompilable
 	{
 		private transient final Optional<PolicyRefsMetadata> extraPolicyMetadata;
 
+		// kept for compilation of the policy tree
+		private transient final ImmutableList<T> combinedElements;
+
+		private transient volatile boolean isTargetIndexCompiled = false;
+
 		private StaticBaseTopLevelPolicyElementEvaluator(final Class<T> combinedElementClass, final PrimaryPolicyMetadata policyMetadata, final Optional<PolicyRefsMetadata> extraPolicyMetadata,
 		        final Target policyTarget, final String combiningAlgId, final Iterable<T> combinedElements, final Iterable<CombiningAlgParameter<? extends T>> combinerParameters,
 		        final List<ObligationExpression> obligationExps, final List<AdviceExpression> adviceExps, final List<String> localVariableIds, final XPathCompiler defaultXPathCompiler,
@@ -840,6 +867,7 @@ public final class PolicyEvaluators
 			super(combinedElementClass, policyMetadata, policyTarget, combiningAlgId, combinedElements, combinerParameters, obligationExps, adviceExps, localVariableIds, defaultXPathCompiler,
 			        expressionFactory, combiningAlgRegistry);
 			this.extraPolicyMetadata = extraPolicyMetadata;
+			this.combinedElements = ImmutableList.copyOf(combinedElements);
 		}
 
 		@Override
@@ -848,6 +876,29 @@ public final class PolicyEvaluators
 			return this.extraPolicyMetadata;
 		}
 
+		@Override
+		public void compileTargetIndex()
+		{
+			/*
+			 * The same policy may be referenced more than once in the policy tree
+			 */
+			if (isTargetIndexCompiled)
+			{
+				return;
+			}
+
+			for (final T combinedElement : combinedElements)
+			{
+				if (combinedElement instanceof TargetIndexCompilable)
+				{
+					((TargetIndexCompilable) combinedElement).compileTargetIndex();
+				}
+			}
+
+			compileCombiningAlgTargetIndex();
+			isTargetIndexCompiled = true;
+		}
+
 	}
 
 	/**
@@ -1143,7 +1194,7 @@ public final class PolicyEvaluators
 
 	}
 
-	private static final class StaticPolicyRefEvaluator extends PolicyRefEvaluator implements StaticPolicyEvaluator
+	private static final class StaticPolicyRefEvaluator extends PolicyRefEvaluator implements StaticPolicyEvaluator, TargetIndexable, TargetIndexCompilable
 	{
 		/*
 		 * statically defined policy referenced by this policy reference evaluator
@@ -1189,6 +1240,22 @@ public final class PolicyEvaluators
 			}
 		}
 
+		@Override
+		public List<TargetIndexKey> getTargetIndexKeys()
+		{
+			// the reference is NotApplicable iff the referenced policy is
+			return referredPolicy instanceof TargetIndexable ? ((TargetIndexable) referredPolicy).getTargetIndexKeys() : Collections.emptyList();
+		}
+
+		@Override
+		public void compileTargetIndex()
+		{
+			if (referredPolicy instanceof TargetIndexCompilable)
+			{
+				((TargetIndexCompilable) referredPolicy).compileTargetIndex();
+			}
+		}
+
 		@Override
 		public PolicyVersion getPolicyVersion()
 		{
@@ -1513,6 +1580,10 @@ public final class PolicyEvaluators
 		 * order of declaration, so that ordered-* algorithms have rules in order. There are at most as many Rules as policyChoiceElements.size().
 		 */
 		final Map<String, RuleEvaluator> ruleEvaluatorsByRuleIdInOrderOfDeclaration = new LinkedHashMap<>(policyChoiceElements.size());
+		/*
+		 * IDs of rules referenced by RuleCombinerParameters, which must be kept in the combined rules even if never applicable
+		 */
+		final Set<String> ruleIdsWithCombinerParameters = new HashSet<>();
 		int childIndex = 0;
 		for (final Serializable policyChildElt : policyChoiceElements)
 		{
@@ -1537,6 +1608,7 @@ public final class PolicyEvaluators
 				}
 
 				combiningAlgParameters.add(combiningAlgParameter);
+				ruleIdsWithCombinerParameters.add(combinedRuleId);
 			}
 			else if (policyChildElt instanceof CombinerParametersType)
 			{
@@ -1612,11 +1684,28 @@ public final class PolicyEvaluators
 			childIndex++;
 		}
 
+		/*
+		 * Rules that are never applicable (Target matching all and Condition equivalent to constant False) always return NotApplicable, which does not affect the result of any standard combining
+		 * algorithm, therefore they are removed from the combined rules.
+		 */
+		final List<RuleEvaluator> combinedRules = new ArrayList<>(ruleEvaluatorsByRuleIdInOrderOfDeclaration.size());
+		for (final RuleEvaluator ruleEvaluator : ruleEvaluatorsByRuleIdInOrderOfDeclaration.values())
+		{
+			if (ruleEvaluator.isNeverApplicable() && !ruleIdsWithCombinerParameters.contains(ruleEvaluator.getRuleId()))
+			{
+				LOGGER.warn("{}: {} is never applicable (Target matches all and Condition is equivalent to constant False) -> optimization: removing it from the combined rules", policyFriendlyId,
+				        ruleEvaluator);
+				continue;
+			}
+
+			combinedRules.add(ruleEvaluator);
+		}
+
 		final PrimaryPolicyMetadata primaryPolicyMetadata = new BasePrimaryPolicyMetadata(TopLevelPolicyElementType.POLICY, policyId, policyVersion);
 		final ObligationExpressions obligationExps = policyElement.getObligationExpressions();
 		final AdviceExpressions adviceExps = policyElement.getAdviceExpressions();
 		final StaticTopLevelPolicyElementEvaluator policyEvaluator = new StaticBaseTopLevelPolicyElementEvaluator<>(RuleEvaluator.class, primaryPolicyMetadata, Optional.empty(),
-		        policyElement.getTarget(), policyElement.getRuleCombiningAlgId(), ruleEvaluatorsByRuleIdInOrderOfDeclaration.values(), combiningAlgParameters,
+		        policyElement.getTarget(), policyElement.getRuleCombiningAlgId(), combinedRules, combiningAlgParameters,
 		        obligationExps == null ? null : obligationExps.getObligationExpressions(), adviceExps == null ? null : adviceExps.getAdviceExpressions(),
 		        Collections.<String>unmodifiableList(localVariableIds), defaultXPathCompiler, expressionFactory, combiningAlgRegistry);
 
@@ -2009,26 +2098,28 @@ public final class PolicyEvaluators
 	 * @param policySetRefChainWithArgIffRefTarget
 	 *            null/empty if {@code policyElement} is the root policySet; else it is the chain of top-level (as opposed to nested inline) PolicySets linked by PolicySetIdReferences from the root
 	 *            PolicySet up to (and including) the top-level (PolicySetIdReference-targeted) PolicySet that encloses or is {@code policyElement}
+	 * @param jaxbPolicySetChoiceElements
+	 *            elements defined in xs:choice of PolicySetType in XACML schema (Policy(Set)/Policy(Set)IdReference/CombinerParameters/Policy(Set)CombinerParameters), in document order. Usually
+	 *            {@code policyElement.getPolicySetsAndPoliciesAndPolicySetIdReferences()}, else the elements are read from the XML document while iterating, in which case the elements following
+	 *            them in the document (ObligationExpressions, AdviceExpressions) are only required to be available from {@code policyElement} once the iteration is over.
+	 * @param jaxbPolicySetChoiceElementCountHint
+	 *            expected number of {@code jaxbPolicySetChoiceElements} (used for initial capacity of internal collections only)
 	 */
 	private static <TLPEE extends TopLevelPolicyElementEvaluator, COMBINED_EVALUATOR extends PolicyEvaluator> TLPEE getInstanceGeneric(
-	        final PolicySetElementEvaluatorFactory<TLPEE, COMBINED_EVALUATOR> policyEvaluatorFactory, final PolicySet policyElement, final Deque<String> policySetRefChainWithArgIffRefTarget)
-	        throws IllegalArgumentException
+	        final PolicySetElementEvaluatorFactory<TLPEE, COMBINED_EVALUATOR> policyEvaluatorFactory, final PolicySet policyElement, final Deque<String> policySetRefChainWithArgIffRefTarget,
+	        final Iterable<? extends Serializable> jaxbPolicySetChoiceElements, final int jaxbPolicySetChoiceElementCountHint) throws IllegalArgumentException
 	{
-		assert policyEvaluatorFactory != null && policyElement != null;
+		assert policyEvaluatorFactory != null && policyElement != null && jaxbPolicySetChoiceElements != null;
 
 		// final Set<PrimaryPolicyMetadata> enclosedPolicies = HashCollections.newUpdatableSet();
 
 		final String policyId = policyElement.getPolicySetId();
 
-		/*
-		 * Elements defined in xs:choice of PolicySetType in XACML schema (Policy(Set)/Policy(Set)IdReference/CombinerParameters/Policy(Set)CombinerParameters
-		 */
-		final List<Serializable> jaxbPolicySetChoiceElements = policyElement.getPolicySetsAndPoliciesAndPolicySetIdReferences();
 		/*
 		 * Prepare the list of evaluators combined by the combining algorithm in this PolicySet, i.e. Policy(Set)/Policy(Set)IdReference evaluators. combinedEvaluators.size() <=
 		 * jaxbPolicySetChoiceElements.size() since combinedEvaluators does not include *CombinerParameter evaluators
 		 */
-		final List<COMBINED_EVALUATOR> combinedEvaluators = new ArrayList<>(jaxbPolicySetChoiceElements.size());
+		final List<COMBINED_EVALUATOR> combinedEvaluators = new ArrayList<>(jaxbPolicySetChoiceElementCountHint);
 
 		/**
 		 * Why isn't there any VariableDefinition in XACML PolicySet like in Policy? If there were, we would keep a copy of variable IDs defined in this policy, to remove them from the global manager
@@ -2040,17 +2131,17 @@ public final class PolicyEvaluators
 		/*
 		 * Map to get child Policies by their ID so that we can resolve Policies associated with PolicyCombinerParameters Size cannot get bigger than jaxbPolicySetChoiceElements.size()
 		 */
-		final Map<String, COMBINED_EVALUATOR> childPolicyEvaluatorsByPolicyId = HashCollections.newUpdatableMap(jaxbPolicySetChoiceElements.size());
+		final Map<String, COMBINED_EVALUATOR> childPolicyEvaluatorsByPolicyId = HashCollections.newUpdatableMap(jaxbPolicySetChoiceElementCountHint);
 
 		/*
 		 * Map to get child PolicySets by their ID so that we can resolve PolicySets associated with PolicySetCombinerParameters Size cannot get bigger than jaxbPolicySetChoiceElements.size()
 		 */
-		final Map<String, COMBINED_EVALUATOR> childPolicySetEvaluatorsByPolicySetId = HashCollections.newUpdatableMap(jaxbPolicySetChoiceElements.size());
+		final Map<String, COMBINED_EVALUATOR> childPolicySetEvaluatorsByPolicySetId = HashCollections.newUpdatableMap(jaxbPolicySetChoiceElementCountHint);
 
 		/*
 		 * *CombinerParameters (combining algorithm parameters), size <= jaxbPolicySetChoiceElements.size()
 		 */
-		final List<CombiningAlgParameter<? extends COMBINED_EVALUATOR>> combiningAlgParameters = new ArrayList<>(jaxbPolicySetChoiceElements.size());
+		final List<CombiningAlgParameter<? extends COMBINED_EVALUATOR>> combiningAlgParameters = new ArrayList<>(jaxbPolicySetChoiceElementCountHint);
 		int childIndex = 0;
 		for (final Serializable policyChildElt : jaxbPolicySetChoiceElements)
 		{
@@ -2302,7 +2393,45 @@ public final class PolicyEvaluators
 		final PrimaryPolicyMetadata policyMetadata = new BasePrimaryPolicyMetadata(TopLevelPolicyElementType.POLICY_SET, policyElement.getPolicySetId(), new PolicyVersion(policyElement.getVersion()));
 		final StaticPolicySetElementEvaluatorFactory factory = new StaticPolicySetElementEvaluatorFactory(policyMetadata, policyElement.getPolicySetDefaults(), refPolicyProvider,
 		        parentDefaultXPathCompiler, namespacePrefixesByURI, expressionFactory, combiningAlgorithmRegistry);
-		return getInstanceGeneric(factory, policyElement, policySetRefChainWithPolicyElementIfRefTarget);
+		final List<Serializable> jaxbPolicySetChoiceElements = policyElement.getPolicySetsAndPoliciesAndPolicySetIdReferences();
+		return getInstanceGeneric(factory, policyElement, policySetRefChainWithPolicyElementIfRefTarget, jaxbPolicySetChoiceElements, jaxbPolicySetChoiceElements.size());
+	}
+
+	/**
+	 * Creates statically defined root PolicySet handler from a XACML PolicySet element whose child elements are provided separately, e.g. read one at a time from the XML document, so that they
+	 * do not need to be all in memory at the same time.
+	 *
+	 * @param policyElement
+	 *            root PolicySet (XACML) without any dynamic policy references, and without child elements (ignored). The ObligationExpressions and AdviceExpressions are only required once
+	 *            {@code jaxbPolicySetChoiceElements} have been iterated over.
+	 * @param jaxbPolicySetChoiceElements
+	 *            child elements of the PolicySet defined in xs:choice of PolicySetType in XACML schema (Policy(Set)/Policy(Set)IdReference/CombinerParameters/Policy(Set)CombinerParameters), in
+	 *            document order. Iterated only once.
+	 * @param namespacePrefixesByURI
+	 *            namespace prefix-URI mappings from the original XACML PolicySet (XML) document, to be used for namespace-aware XPath evaluation; null or empty iff XPath support disabled
+	 * @param expressionFactory
+	 *            Expression factory/parser
+	 * @param combiningAlgorithmRegistry
+	 *            policy/rule combining algorithm registry
+	 * @param refPolicyProvider
+	 *            static policy-by-reference (Policy(Set)IdReference) Provider - all references statically resolved - to find references used in this policyset
+	 * @return instance
+	 * @throws java.lang.IllegalArgumentException
+	 *             if any argument (e.g. {@code policyElement}) is invalid
+	 */
+	static StaticTopLevelPolicyElementEvaluator getInstanceStatic(final PolicySet policyElement, final Iterable<? extends Serializable> jaxbPolicySetChoiceElements,
+	        final Map<String, String> namespacePrefixesByURI, final ExpressionFactory expressionFactory, final CombiningAlgRegistry combiningAlgorithmRegistry,
+	        final StaticRefPolicyProvider refPolicyProvider) throws IllegalArgumentException
+	{
+		if (policyElement == null)
+		{
+			throw NULL_XACML_POLICYSET_ARG_EXCEPTION;
+		}
+
+		final PrimaryPolicyMetadata policyMetadata = new BasePrimaryPolicyMetadata(TopLevelPolicyElementType.POLICY_SET, policyElement.getPolicySetId(), new PolicyVersion(policyElement.getVersion()));
+		final StaticPolicySetElementEvaluatorFactory factory = new StaticPolicySetElementEvaluatorFactory(policyMetadata, policyElement.getPolicySetDefaults(), refPolicyProvider, null,
+		        namespacePrefixesByURI, expressionFactory, combiningAlgorithmRegistry);
+		return getInstanceGeneric(factory, policyElement, null, jaxbPolicySetChoiceElements, 0);
 	}
 
 	/**
@@ -2349,7 +2478,8 @@ public final class PolicyEvaluators
 		                namespacePrefixesByURI, expressionFactory, combiningAlgorithmRegistry)
 		        : new DynamicPolicySetElementEvaluatorFactory(policyMetadata, policyElement.getPolicySetDefaults(), refPolicyProvider, parentDefaultXPathCompiler, namespacePrefixesByURI,
 		                expressionFactory, combiningAlgorithmRegistry);
-		return getInstanceGeneric(factory, policyElement, ancestorPolicySetRefChain);
+		final List<Serializable> jaxbPolicySetChoiceElements = policyElement.getPolicySetsAndPoliciesAndPolicySetIdReferences();
+		return getInstanceGeneric(factory, policyElement, ancestorPolicySetRefChain, jaxbPolicySetChoiceElements, jaxbPolicySetChoiceElements.size());
 	}
 
 }
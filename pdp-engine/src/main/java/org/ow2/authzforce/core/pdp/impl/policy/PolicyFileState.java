@@ -0,0 +1,118 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.policy;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.URL;
+
+import org.springframework.util.ResourceUtils;
+
+import com.google.common.io.Resources;
+
+/**
+ * Content of a policy file in the local filesystem at a given time: size and CRC-32 checksum (same as in policy snapshots), used to detect changes of the file. The last modification time is not
+ * used, since a rewrite of the file may keep it unchanged (depending on the filesystem's timestamp resolution), whereas touching the file without changing the content does not require parsing it
+ * again.
+ */
+public final class PolicyFileState
+{
+	private final long length;
+	private final long checksum;
+
+	PolicyFileState(final long length, final long checksum)
+	{
+		this.length = length;
+		this.checksum = checksum;
+	}
+
+	/**
+	 * Whether a policy location is a file in the local filesystem
+	 * 
+	 * @param policyURL
+	 *            policy location
+	 * @return true iff {@code policyURL} locates a file in the local filesystem (not in a JAR for instance)
+	 */
+	static boolean isFile(final URL policyURL)
+	{
+		if (!ResourceUtils.isFileURL(policyURL))
+		{
+			return false;
+		}
+
+		try
+		{
+			ResourceUtils.getFile(policyURL);
+		}
+		catch (final FileNotFoundException e)
+		{
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Gets the current state of a policy file
+	 * 
+	 * @param policyURL
+	 *            policy location
+	 * @return current state of the file, or null if {@code policyURL} does not locate a file in the local filesystem
+	 * @throws IOException
+	 *             error reading the file
+	 */
+	public static PolicyFileState getInstance(final URL policyURL) throws IOException
+	{
+		if (!isFile(policyURL))
+		{
+			return null;
+		}
+
+		final byte[] content = Resources.toByteArray(policyURL);
+		return new PolicyFileState(content.length, PolicySnapshot.checksum(content));
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return Long.hashCode(checksum);
+	}
+
+	@Override
+	public boolean equals(final Object obj)
+	{
+		if (this == obj)
+		{
+			return true;
+		}
+
+		if (!(obj instanceof PolicyFileState))
+		{
+			return false;
+		}
+
+		final PolicyFileState other = (PolicyFileState) obj;
+		return length == other.length && checksum == other.checksum;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "PolicyFileState[length=" + length + ", checksum=" + checksum + "]";
+	}
+}
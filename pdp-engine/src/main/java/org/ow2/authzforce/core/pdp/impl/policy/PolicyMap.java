@@ -78,6 +78,20 @@ public final class PolicyMap<P>
 		return policyVersions.getLatest(PolicyVersionPatterns);
 	}
 
+	/**
+	 * Get a specific policy version
+	 * 
+	 * @param id
+	 *            policy ID
+	 * @param version
+	 *            policy version
+	 * @return policy with ID {@code id} and version {@code version}, or null if there is no such policy
+	 */
+	public P get(final String id, final PolicyVersion version) {
+		final PolicyVersions<P> policyVersions = policiesById.get(id);
+		return policyVersions == null ? null : policyVersions.get(version);
+	}
+
 	/**
 	 * Get all policies in the map
 	 * 
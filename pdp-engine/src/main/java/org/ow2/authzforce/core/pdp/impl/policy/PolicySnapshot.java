@@ -0,0 +1,262 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.policy;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.namespace.QName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableSet;
+
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.Policy;
+
+/**
+ * Snapshot of parsed policy documents, i.e. the XACML/JAXB Policy(Set) and namespace prefix-URI mappings of each document, indexed by document location, along with a checksum of the document
+ * content. Loading a document from a snapshot - if its checksum is still the same - skips the XML parsing and schema validation. The snapshot is saved using Java serialization of the JAXB model,
+ * therefore the snapshot file must be protected like the policies themselves (only trusted snapshots must be loaded). As a safeguard, only the classes of the snapshot and of the XACML/JAXB model
+ * may be deserialized from a snapshot file; any other class makes the snapshot invalid.
+ */
+final class PolicySnapshot implements Serializable
+{
+	private static final long serialVersionUID = 1L;
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(PolicySnapshot.class);
+
+	/*
+	 * Version of the JAXB model used to create the snapshot, the snapshot is ignored if it differs from the current one
+	 */
+	private static final String XACML_MODEL_VERSION = Policy.class.getPackage().getImplementationVersion();
+
+	/*
+	 * Package of the XACML/JAXB model classes allowed in a snapshot
+	 */
+	private static final String XACML_MODEL_PACKAGE_PREFIX = Policy.class.getPackage().getName() + ".";
+
+	/*
+	 * Other classes allowed in a snapshot: the snapshot classes, and the other classes found in the JAXB model of XACML policies (JAXBElement for Expressions, QName, and the ones used by the
+	 * serialization of JAXBElement, ArrayList, HashMap, enums and BigInteger)
+	 */
+	private static final Set<String> ALLOWED_NON_XACML_CLASS_NAMES = ImmutableSet.of(PolicySnapshot.class.getName(), Entry.class.getName(), JAXBElement.class.getName(),
+	        JAXBElement.GlobalScope.class.getName(), QName.class.getName(), ArrayList.class.getName(), HashMap.class.getName(), Enum.class.getName(), Number.class.getName(),
+	        BigInteger.class.getName(), byte[].class.getName());
+
+	/**
+	 * Input stream of a snapshot, rejecting any class that is not allowed in a snapshot before it is loaded/instantiated
+	 */
+	private static final class SnapshotInputStream extends ObjectInputStream
+	{
+		private SnapshotInputStream(final InputStream in) throws IOException
+		{
+			super(in);
+		}
+
+		@Override
+		protected Class<?> resolveClass(final ObjectStreamClass desc) throws IOException, ClassNotFoundException
+		{
+			final String className = desc.getName();
+			if (!className.startsWith(XACML_MODEL_PACKAGE_PREFIX) && !ALLOWED_NON_XACML_CLASS_NAMES.contains(className))
+			{
+				throw new InvalidClassException(className, "class not allowed in policy snapshot");
+			}
+
+			return super.resolveClass(desc);
+		}
+
+		@Override
+		protected Class<?> resolveProxyClass(final String[] interfaces) throws IOException, ClassNotFoundException
+		{
+			throw new InvalidClassException("Proxy class not allowed in policy snapshot");
+		}
+	}
+
+	/**
+	 * Parsed policy document
+	 */
+	static final class Entry implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final long checksum;
+		private final Serializable jaxbPolicyOrPolicySet;
+		private final HashMap<String, String> nsPrefixUriMap;
+
+		Entry(final long checksum, final Serializable jaxbPolicyOrPolicySet, final Map<String, String> nsPrefixUriMap)
+		{
+			this.checksum = checksum;
+			this.jaxbPolicyOrPolicySet = jaxbPolicyOrPolicySet;
+			this.nsPrefixUriMap = new HashMap<>(nsPrefixUriMap);
+		}
+
+		Object getPolicyOrPolicySet()
+		{
+			return jaxbPolicyOrPolicySet;
+		}
+
+		Map<String, String> getNsPrefixUriMap()
+		{
+			return nsPrefixUriMap;
+		}
+	}
+
+	private final String xacmlModelVersion;
+	private final HashMap<String, Entry> entriesByLocation;
+
+	/**
+	 * Creates snapshot
+	 * 
+	 * @param entriesByLocation
+	 *            parsed policy documents indexed by location (URL)
+	 */
+	PolicySnapshot(final Map<String, Entry> entriesByLocation)
+	{
+		this.xacmlModelVersion = XACML_MODEL_VERSION;
+		this.entriesByLocation = new HashMap<>(entriesByLocation);
+	}
+
+	/**
+	 * Gets a parsed policy document
+	 * 
+	 * @param location
+	 *            document location (URL)
+	 * @param checksum
+	 *            current checksum of the document (see {@link #checksum(byte[])})
+	 * @return the parsed document, or null if there is none for this location or it has a different checksum
+	 */
+	Entry get(final String location, final long checksum)
+	{
+		final Entry entry = entriesByLocation.get(location);
+		return entry == null || entry.checksum != checksum ? null : entry;
+	}
+
+	/**
+	 * Number of documents in the snapshot
+	 * 
+	 * @return number of documents
+	 */
+	int size()
+	{
+		return entriesByLocation.size();
+	}
+
+	/**
+	 * Computes the checksum (CRC-32) of a document content
+	 * 
+	 * @param content
+	 *            document content
+	 * @return checksum
+	 */
+	static long checksum(final byte[] content)
+	{
+		final CRC32 crc = new CRC32();
+		crc.update(content);
+		return crc.getValue();
+	}
+
+	/**
+	 * Loads a snapshot from a file
+	 * 
+	 * @param file
+	 *            snapshot file
+	 * @return the snapshot, or null if the file does not exist, or is not a valid snapshot (including if it contains any class that is not allowed in a snapshot) or was created with another version
+	 *         of the XACML model
+	 */
+	static PolicySnapshot load(final Path file)
+	{
+		final Object snapshot;
+		try (final ObjectInputStream in = new SnapshotInputStream(new BufferedInputStream(Files.newInputStream(file))))
+		{
+			snapshot = in.readObject();
+		}
+		catch (final NoSuchFileException e)
+		{
+			LOGGER.info("No policy snapshot found at '{}' -> parsing all policy documents", file);
+			return null;
+		}
+		catch (final IOException | ClassNotFoundException e)
+		{
+			LOGGER.warn("Invalid policy snapshot '{}' -> ignored (parsing all policy documents)", file, e);
+			return null;
+		}
+
+		if (!(snapshot instanceof PolicySnapshot))
+		{
+			LOGGER.warn("Invalid policy snapshot '{}' (unexpected content: {}) -> ignored (parsing all policy documents)", file, snapshot == null ? null : snapshot.getClass());
+			return null;
+		}
+
+		final PolicySnapshot policySnapshot = (PolicySnapshot) snapshot;
+		if (!Objects.equals(policySnapshot.xacmlModelVersion, XACML_MODEL_VERSION))
+		{
+			LOGGER.info("Policy snapshot '{}' created with another version of the XACML model ({} instead of {}) -> ignored (parsing all policy documents)", file, policySnapshot.xacmlModelVersion,
+			        XACML_MODEL_VERSION);
+			return null;
+		}
+
+		return policySnapshot;
+	}
+
+	/**
+	 * Saves the snapshot to a file, replacing it atomically if it exists
+	 * 
+	 * @param file
+	 *            snapshot file
+	 * @throws IOException
+	 *             error writing the file
+	 */
+	void save(final Path file) throws IOException
+	{
+		final Path parentDir = file.toAbsolutePath().getParent();
+		final Path tmpFile = Files.createTempFile(parentDir, file.getFileName().toString(), ".tmp");
+		try
+		{
+			try (final ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile))))
+			{
+				out.writeObject(this);
+			}
+
+			Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		finally
+		{
+			Files.deleteIfExists(tmpFile);
+		}
+	}
+}
@@ -17,14 +17,19 @@
  */
 package org.ow2.authzforce.core.pdp.impl.policy;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NavigableSet;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.ow2.authzforce.core.pdp.api.policy.PolicyVersion;
+import org.ow2.authzforce.core.pdp.api.policy.PolicyVersionPattern;
 import org.ow2.authzforce.core.pdp.api.policy.PolicyVersionPatterns;
 
 import com.google.common.collect.ImmutableSortedMap;
@@ -35,6 +40,9 @@ import com.google.common.collect.UnmodifiableIterator;
  * <p>
  * The choice to have the latest version in first position is motivated by §5.10 of XACML core spec: "In the case that more than one matching version can be obtained, then the most recent one SHOULD
  * be used."
+ * <p>
+ * The result of {@link #getLatest(Optional)} is memoised for each distinct set of version patterns, since the versions never change; and a literal Version pattern (without wildcard) is resolved by
+ * direct lookup instead of matching every version.
  *
  * @param <P>
  *            policy type (or any other type of data corresponding to a specific policy version)
@@ -43,8 +51,37 @@ import com.google.common.collect.UnmodifiableIterator;
  */
 public final class PolicyVersions<P> implements Iterable<Entry<PolicyVersion, P>>
 {
+	/*
+	 * Max number of distinct version patterns for which getLatest() results are memoised, in case of dynamic policy references with many different patterns. Beyond that, results are computed without
+	 * memoisation.
+	 */
+	private static final int MAX_MEMOISED_VERSION_PATTERNS = 256;
+
+	private static String toString(final Optional<PolicyVersionPattern> versionPattern)
+	{
+		return versionPattern.isPresent() ? versionPattern.get().toString() : null;
+	}
+
+	/**
+	 * Get key identifying version patterns in hash-based collections ({@link PolicyVersionPatterns} does not override equals/hashCode)
+	 * 
+	 * @param versionPatterns
+	 *            version patterns
+	 * @return (Version, EarliestVersion, LatestVersion) patterns as strings (null items for undefined patterns)
+	 */
+	static List<String> toKey(final PolicyVersionPatterns versionPatterns)
+	{
+		assert versionPatterns != null;
+		return Arrays.asList(toString(versionPatterns.getVersionPattern()), toString(versionPatterns.getEarliestVersionPattern()), toString(versionPatterns.getLatestVersionPattern()));
+	}
+
 	private final ImmutableSortedMap<PolicyVersion, P> policiesByVersion;
 
+	/*
+	 * Memoised results of getLatest(...) by version patterns (key from toKey(...)). No match is memoised as Optional.empty().
+	 */
+	private final ConcurrentMap<List<String>, Optional<Entry<PolicyVersion, P>>> latestVersionsByPatterns = new ConcurrentHashMap<>();
+
 	/**
 	 * Creates instance
 	 *
@@ -77,19 +114,56 @@ public final class PolicyVersions<P> implements Iterable<Entry<PolicyVersion, P>
 	public Entry<PolicyVersion, P> getLatest(final Optional<PolicyVersionPatterns> PolicyVersionPatterns) {
 		assert PolicyVersionPatterns != null;
 
-		// policiesByVersion is not empty -> at least one value
-		final Iterator<Entry<PolicyVersion, P>> versionPolicyPairsIterator = policiesByVersion.entrySet().iterator();
 		if (!PolicyVersionPatterns.isPresent())
 		{
 			/*
 			 * Return the latest version which is the first element by design (TreeMap initialized with reverse order on version keys). See §5.10 of XACML core spec:
 			 * "In the case that more than one matching version can be obtained, then the most recent one SHOULD be used."
 			 */
-			return versionPolicyPairsIterator.next();
+			// policiesByVersion is not empty -> at least one value
+			return policiesByVersion.firstEntry();
 		}
 
 		final PolicyVersionPatterns nonNullPolicyVersionPatterns = PolicyVersionPatterns.get();
+		final List<String> memoKey = toKey(nonNullPolicyVersionPatterns);
+		final Optional<Entry<PolicyVersion, P>> memoisedResult = latestVersionsByPatterns.get(memoKey);
+		if (memoisedResult != null)
+		{
+			return memoisedResult.orElse(null);
+		}
 
+		final Entry<PolicyVersion, P> result = getLatest(nonNullPolicyVersionPatterns);
+		if (latestVersionsByPatterns.size() < MAX_MEMOISED_VERSION_PATTERNS)
+		{
+			latestVersionsByPatterns.putIfAbsent(memoKey, Optional.ofNullable(result));
+		}
+
+		return result;
+	}
+
+	private Entry<PolicyVersion, P> getLatest(final PolicyVersionPatterns nonNullPolicyVersionPatterns)
+	{
+		/*
+		 * If Version pattern is a literal (no wildcard), the only possible match is the policy with this exact version (a literal pattern matches a version iff they are equal)
+		 */
+		final Optional<PolicyVersionPattern> versionPattern = nonNullPolicyVersionPatterns.getVersionPattern();
+		if (versionPattern.isPresent())
+		{
+			final PolicyVersion literalVersion = versionPattern.get().toLiteral();
+			if (literalVersion != null)
+			{
+				final Entry<PolicyVersion, P> versionPolicyPair = policiesByVersion.ceilingEntry(literalVersion);
+				if (versionPolicyPair == null || !versionPolicyPair.getKey().equals(literalVersion) || !nonNullPolicyVersionPatterns.matchLatestVersion(literalVersion)
+				        || !nonNullPolicyVersionPatterns.matchEarliestVersion(literalVersion))
+				{
+					return null;
+				}
+
+				return versionPolicyPair;
+			}
+		}
+
+		final Iterator<Entry<PolicyVersion, P>> versionPolicyPairsIterator = policiesByVersion.entrySet().iterator();
 		// constraints not null
 		// in the loop, go on until LatestVersion matched, then go on as long as
 		// EarliestVersion
@@ -17,7 +17,9 @@
  */
 package org.ow2.authzforce.core.pdp.impl.policy;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.ow2.authzforce.core.pdp.api.DecisionResult;
 import org.ow2.authzforce.core.pdp.api.DecisionResults;
@@ -28,6 +30,7 @@ import org.ow2.authzforce.core.pdp.api.policy.PolicyEvaluator;
 import org.ow2.authzforce.core.pdp.api.policy.RootPolicyProvider;
 import org.ow2.authzforce.core.pdp.api.policy.StaticRootPolicyProvider;
 import org.ow2.authzforce.core.pdp.api.policy.StaticTopLevelPolicyElementEvaluator;
+import org.ow2.authzforce.core.pdp.impl.TargetIndexCompilable;
 import org.ow2.authzforce.xacml.identifiers.XacmlStatusCode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -143,6 +146,22 @@ public final class RootPolicyEvaluators
 		 *             error closing the evaluator's policy provider responsible for finding the policy in {@link #findAndEvaluate(EvaluationContext)}
 		 */
 		public RootPolicyEvaluator toStatic() throws IOException
+		{
+			return toStatic(false);
+		}
+
+		/**
+		 * Same as {@link #toStatic()}, with optional compilation of the static policy tree: if {@code compilePolicyTree}, the Targets of the Policy(Set)s/Rules combined by each combining algorithm
+		 * in the static policy tree are compiled into a decision diagram, which then gives the combined elements that may be applicable in one walk (instead of evaluating all their Targets).
+		 * Combined elements with Targets that cannot be compiled are left to the usual evaluation.
+		 * 
+		 * @param compilePolicyTree
+		 *            true iff the static policy tree must be compiled. Ignored (with a warning) if no static resolution is possible.
+		 * @return static view of this policy evaluator; or null if none could be created (see {@link #toStatic()})
+		 * @throws IOException
+		 *             error closing the evaluator's policy provider responsible for finding the policy in {@link #findAndEvaluate(EvaluationContext)}
+		 */
+		public RootPolicyEvaluator toStatic(final boolean compilePolicyTree) throws IOException
 		{
 			/*
 			 * If staticView not yet initialized and root policy provider is actually static (in which case staticView can be initialized)
@@ -152,6 +171,18 @@ public final class RootPolicyEvaluators
 				staticView = new StaticView((StaticRootPolicyProvider) rootPolicyProvider, this.expressionFactory);
 			}
 
+			if (compilePolicyTree)
+			{
+				if (staticView == null)
+				{
+					LOGGER.warn("Static policy tree compilation enabled but the root policy provider ({}) is not static: compilation ignored", rootPolicyProvider);
+				}
+				else
+				{
+					staticView.compileTargetIndexes();
+				}
+			}
+
 			return staticView;
 		}
 
@@ -178,6 +209,14 @@ public final class RootPolicyEvaluators
 			staticProvider.close();
 		}
 
+		private void compileTargetIndexes()
+		{
+			if (staticRootPolicyEvaluator instanceof TargetIndexCompilable)
+			{
+				((TargetIndexCompilable) staticRootPolicyEvaluator).compileTargetIndex();
+			}
+		}
+
 		@Override
 		public void close() throws IOException
 		{
@@ -196,4 +235,180 @@ public final class RootPolicyEvaluators
 			return staticApplicablePolicies;
 		}
 	}
+
+	/**
+	 * Root policy evaluator delegating to another one that may be replaced atomically at any time, e.g. when policies are reloaded. Each evaluation uses the delegate set when the evaluation
+	 * starts, so evaluations in progress when the delegate is replaced go on with the previous one. Each delegate comes with resources (e.g. the policy providers it uses) that are closed once the
+	 * delegate is replaced and the last evaluation in progress with it has ended (in the thread of this evaluation).
+	 */
+	public static final class Swappable implements RootPolicyEvaluator
+	{
+		private static final IllegalArgumentException NULL_DELEGATE_ARGUMENT_EXCEPTION = new IllegalArgumentException("Undefined root policy evaluator");
+		private static final IllegalArgumentException NULL_DELEGATE_RESOURCES_ARGUMENT_EXCEPTION = new IllegalArgumentException("Undefined root policy evaluator resources");
+
+		private static final Logger LOGGER = LoggerFactory.getLogger(Swappable.class);
+
+		/*
+		 * Delegate with its resources. The reference count is the number of evaluations in progress with the delegate, plus one as long as it is the current delegate. Once zero, the resources are
+		 * closed and the count cannot be incremented anymore.
+		 */
+		private static final class ReferenceCountedDelegate
+		{
+			private final RootPolicyEvaluator evaluator;
+			private final Closeable resources;
+			private final AtomicInteger referenceCount = new AtomicInteger(1);
+
+			private ReferenceCountedDelegate(final RootPolicyEvaluator evaluator, final Closeable resources)
+			{
+				this.evaluator = evaluator;
+				this.resources = resources;
+			}
+
+			/*
+			 * Returns false iff the resources are closed
+			 */
+			private boolean acquire()
+			{
+				while (true)
+				{
+					final int count = referenceCount.get();
+					if (count == 0)
+					{
+						return false;
+					}
+
+					if (referenceCount.compareAndSet(count, count + 1))
+					{
+						return true;
+					}
+				}
+			}
+
+			private void release()
+			{
+				if (referenceCount.decrementAndGet() == 0)
+				{
+					try
+					{
+						resources.close();
+					}
+					catch (final IOException e)
+					{
+						LOGGER.error("Error closing the resources of the replaced root policy evaluator {}", evaluator, e);
+					}
+				}
+			}
+		}
+
+		private volatile ReferenceCountedDelegate delegate;
+
+		private boolean closed = false;
+
+		private static ReferenceCountedDelegate newDelegate(final RootPolicyEvaluator evaluator, final Closeable resources) throws IllegalArgumentException
+		{
+			if (evaluator == null)
+			{
+				throw NULL_DELEGATE_ARGUMENT_EXCEPTION;
+			}
+
+			if (resources == null)
+			{
+				throw NULL_DELEGATE_RESOURCES_ARGUMENT_EXCEPTION;
+			}
+
+			return new ReferenceCountedDelegate(evaluator, resources);
+		}
+
+		/**
+		 * Creates instance with initial delegate
+		 * 
+		 * @param initialDelegate
+		 *            initial root policy evaluator
+		 * @param initialDelegateResources
+		 *            resources to be closed once {@code initialDelegate} is replaced and not used anymore, or this instance is closed. These must not include the resources shared with the next
+		 *            delegates, e.g. the expression factory closed by {@link RootPolicyEvaluator#close()}.
+		 * @throws IllegalArgumentException
+		 *             if {@code initialDelegate == null || initialDelegateResources == null}
+		 */
+		public Swappable(final RootPolicyEvaluator initialDelegate, final Closeable initialDelegateResources) throws IllegalArgumentException
+		{
+			this.delegate = newDelegate(initialDelegate, initialDelegateResources);
+		}
+
+		/**
+		 * Replaces the delegate. The previous delegate is not closed, since closing a root policy evaluator closes the expression factory, which is typically shared by the new delegate; but its
+		 * resources are closed once the evaluations in progress with it have ended.
+		 * 
+		 * @param newDelegate
+		 *            new root policy evaluator
+		 * @param newDelegateResources
+		 *            resources to be closed once {@code newDelegate} is replaced and not used anymore, or this instance is closed (see {@link #Swappable(RootPolicyEvaluator, Closeable)})
+		 * @throws IllegalArgumentException
+		 *             if {@code newDelegate == null || newDelegateResources == null}
+		 */
+		public synchronized void swap(final RootPolicyEvaluator newDelegate, final Closeable newDelegateResources) throws IllegalArgumentException
+		{
+			final ReferenceCountedDelegate previousDelegate = this.delegate;
+			this.delegate = newDelegate(newDelegate, newDelegateResources);
+			previousDelegate.release();
+		}
+
+		@Override
+		public DecisionResult findAndEvaluate(final EvaluationContext context)
+		{
+			ReferenceCountedDelegate currentDelegate = delegate;
+			while (!currentDelegate.acquire())
+			{
+				/*
+				 * Replaced and released in the meantime, therefore a new one is set, unless this instance is closed
+				 */
+				final ReferenceCountedDelegate newDelegate = delegate;
+				if (newDelegate == currentDelegate)
+				{
+					return currentDelegate.evaluator.findAndEvaluate(context);
+				}
+
+				currentDelegate = newDelegate;
+			}
+
+			try
+			{
+				return currentDelegate.evaluator.findAndEvaluate(context);
+			}
+			finally
+			{
+				currentDelegate.release();
+			}
+		}
+
+		@Override
+		public FlattenedPolicyTree getStaticApplicablePolicies()
+		{
+			return delegate.evaluator.getStaticApplicablePolicies();
+		}
+
+		/**
+		 * Closes the current delegate, and its resources once the evaluations in progress with it have ended. The resources of the previous delegates are closed as usual once the evaluations in
+		 * progress with them have ended.
+		 */
+		@Override
+		public synchronized void close() throws IOException
+		{
+			if (closed)
+			{
+				return;
+			}
+
+			closed = true;
+			final ReferenceCountedDelegate currentDelegate = delegate;
+			try
+			{
+				currentDelegate.evaluator.close();
+			}
+			finally
+			{
+				currentDelegate.release();
+			}
+		}
+	}
 }
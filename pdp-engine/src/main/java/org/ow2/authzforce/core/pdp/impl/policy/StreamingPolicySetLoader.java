@@ -0,0 +1,356 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.policy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.math.BigInteger;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.ow2.authzforce.core.pdp.api.HashCollections;
+import org.ow2.authzforce.core.pdp.api.combining.CombiningAlgRegistry;
+import org.ow2.authzforce.core.pdp.api.expression.ExpressionFactory;
+import org.ow2.authzforce.core.pdp.api.policy.StaticRefPolicyProvider;
+import org.ow2.authzforce.core.pdp.api.policy.StaticTopLevelPolicyElementEvaluator;
+import org.ow2.authzforce.xacml.Xacml3JaxbHelper;
+import org.ow2.authzforce.xacml.identifiers.XacmlNodeName;
+
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AdviceExpressions;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.DefaultsType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.ObligationExpressions;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.PolicyIssuer;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.PolicySet;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.Target;
+
+/**
+ * Streaming loader of root PolicySet documents. Instead of unmarshalling the whole document into a JAXB PolicySet - i.e. the complete object graph of all enclosed policies - before creating the
+ * PolicySet evaluator, the document is read with a StAX parser and the child elements of the root PolicySet (Policy(Set), Policy(Set)IdReference, *CombinerParameters) are unmarshalled one at a
+ * time and passed to the PolicySet evaluator builder, so that each one may be garbage-collected as soon as its evaluator is built. The memory footprint of the document at load time is then bounded
+ * by the largest child element instead of the whole document. The child elements are validated against the XACML schema like with the default parser, the root PolicySet element's attributes are
+ * only checked for presence.
+ * <p>
+ * The namespace prefix-URI mappings - required for namespace-aware XPath evaluation, i.e. if the PDP parser is namespace-aware - are collected in a first (lightweight) pass over the document, the
+ * same way as the default parser (all namespace declarations in the document, no duplicate prefix allowed), since they are required before building the first child evaluator.
+ */
+final class StreamingPolicySetLoader
+{
+	private static final String XACML_3_0_NAMESPACE = "urn:oasis:names:tc:xacml:3.0:core:schema:wd-17";
+
+	/*
+	 * PolicySet elements before the child Policy(Set)/Policy(Set)IdReference/*CombinerParameters elements
+	 */
+	private static final Set<String> POLICYSET_HEADER_ELEMENT_NAMES = HashCollections.newImmutableSet(new String[] { "Description", "PolicyIssuer", "PolicySetDefaults", XacmlNodeName.TARGET.value() });
+
+	/*
+	 * PolicySet elements after the child Policy(Set)/Policy(Set)IdReference/*CombinerParameters elements
+	 */
+	private static final Set<String> POLICYSET_TRAILER_ELEMENT_NAMES = HashCollections.newImmutableSet(new String[] { "ObligationExpressions", "AdviceExpressions" });
+
+	private static final XMLInputFactory XML_INPUT_FACTORY = XMLInputFactory.newFactory();
+
+	static
+	{
+		XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+		XML_INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+	}
+
+	private StreamingPolicySetLoader()
+	{
+		// prevent instantiation
+	}
+
+	/**
+	 * JAXB PolicySet filled in as the elements are read from the XML document, except the child Policy(Set)/Policy(Set)IdReference/*CombinerParameters elements
+	 */
+	private static final class StreamedPolicySet extends PolicySet
+	{
+		private static final long serialVersionUID = 1L;
+
+		private StreamedPolicySet(final String policySetId, final String version, final String policyCombiningAlgId, final BigInteger maxDelegationDepth)
+		{
+			this.policySetId = policySetId;
+			this.version = version;
+			this.policyCombiningAlgId = policyCombiningAlgId;
+			this.maxDelegationDepth = maxDelegationDepth;
+		}
+
+		private void set(final Object jaxbElement)
+		{
+			if (jaxbElement instanceof Target)
+			{
+				this.target = (Target) jaxbElement;
+			}
+			else if (jaxbElement instanceof PolicyIssuer)
+			{
+				this.policyIssuer = (PolicyIssuer) jaxbElement;
+			}
+			else if (jaxbElement instanceof ObligationExpressions)
+			{
+				this.obligationExpressions = (ObligationExpressions) jaxbElement;
+			}
+			else if (jaxbElement instanceof AdviceExpressions)
+			{
+				this.adviceExpressions = (AdviceExpressions) jaxbElement;
+			}
+			else if (jaxbElement instanceof JAXBElement)
+			{
+				final Object value = ((JAXBElement<?>) jaxbElement).getValue();
+				if (value instanceof DefaultsType)
+				{
+					this.policySetDefaults = (DefaultsType) value;
+				}
+				else if (value instanceof String)
+				{
+					this.description = (String) value;
+				}
+			}
+		}
+	}
+
+	/*
+	 * Move to the next start/end tag, unless already on one (e.g. after unmarshalling an element, the reader is on the event right after the element's end tag, which may be the next start tag)
+	 */
+	private static void toTag(final XMLStreamReader reader) throws XMLStreamException
+	{
+		while (!reader.isStartElement() && !reader.isEndElement())
+		{
+			reader.next();
+		}
+	}
+
+	/**
+	 * Iterates over the child Policy(Set)/Policy(Set)IdReference/*CombinerParameters elements of the PolicySet, unmarshalled one at a time, and sets the trailing elements on the JAXB PolicySet
+	 * when reached.
+	 */
+	private static final class ChildElementIterator implements Iterator<Serializable>
+	{
+		private final URL policySetURL;
+		private final XMLStreamReader reader;
+		private final Unmarshaller unmarshaller;
+		private final StreamedPolicySet policySet;
+		private boolean trailerReached = false;
+		private int childIndex = 0;
+
+		private ChildElementIterator(final URL policySetURL, final XMLStreamReader reader, final Unmarshaller unmarshaller, final StreamedPolicySet policySet)
+		{
+			this.policySetURL = policySetURL;
+			this.reader = reader;
+			this.unmarshaller = unmarshaller;
+			this.policySet = policySet;
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			try
+			{
+				/*
+				 * Skip the trailing elements (ObligationExpressions, AdviceExpressions) after setting them on the JAXB PolicySet
+				 */
+				while (reader.isStartElement() && POLICYSET_TRAILER_ELEMENT_NAMES.contains(reader.getLocalName()))
+				{
+					trailerReached = true;
+					policySet.set(unmarshaller.unmarshal(reader));
+					toTag(reader);
+				}
+			}
+			catch (final JAXBException | XMLStreamException e)
+			{
+				throw new IllegalArgumentException("Failed to unmarshall PolicySet '" + policySet.getPolicySetId() + "' from policy location: " + policySetURL, e);
+			}
+
+			if (!reader.isStartElement())
+			{
+				// end of PolicySet
+				return false;
+			}
+
+			final String localName = reader.getLocalName();
+			if (trailerReached || POLICYSET_HEADER_ELEMENT_NAMES.contains(localName))
+			{
+				throw new IllegalArgumentException("Invalid PolicySet '" + policySet.getPolicySetId() + "' in document at " + policySetURL + ": unexpected element '" + localName + "' after child #"
+				        + childIndex);
+			}
+
+			return true;
+		}
+
+		@Override
+		public Serializable next()
+		{
+			if (!hasNext())
+			{
+				throw new NoSuchElementException();
+			}
+
+			final Object child;
+			try
+			{
+				child = unmarshaller.unmarshal(reader);
+				toTag(reader);
+			}
+			catch (final JAXBException | XMLStreamException e)
+			{
+				throw new IllegalArgumentException("Failed to unmarshall child #" + childIndex + " of PolicySet '" + policySet.getPolicySetId() + "' from policy location: " + policySetURL, e);
+			}
+
+			childIndex++;
+			return (Serializable) child;
+		}
+	}
+
+	/**
+	 * Collects namespace prefix-URI mappings declared in the XML document, same way as {@link org.ow2.authzforce.core.pdp.api.XmlUtils.SAXBasedXmlnsFilteringParser}
+	 */
+	private static Map<String, String> getNamespacePrefixUriMap(final URL documentURL) throws IOException, XMLStreamException
+	{
+		final Map<String, String> nsPrefixUriMap = HashCollections.newUpdatableMap();
+		try (final InputStream in = documentURL.openStream())
+		{
+			final XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(documentURL.toExternalForm(), in);
+			try
+			{
+				while (reader.hasNext())
+				{
+					if (reader.next() != XMLStreamConstants.START_ELEMENT)
+					{
+						continue;
+					}
+
+					for (int i = 0; i < reader.getNamespaceCount(); i++)
+					{
+						final String prefix = reader.getNamespacePrefix(i);
+						final String nsPrefix = prefix == null ? "" : prefix;
+						final String nsUri = reader.getNamespaceURI(i);
+						if (nsPrefixUriMap.putIfAbsent(nsPrefix, nsUri == null ? "" : nsUri) != null)
+						{
+							throw new IllegalArgumentException("Duplicate declaration of namespace prefix '" + nsPrefix + "' (empty string refers to default namespace)");
+						}
+					}
+				}
+			}
+			finally
+			{
+				reader.close();
+			}
+		}
+
+		return HashCollections.newImmutableMap(nsPrefixUriMap);
+	}
+
+	/**
+	 * Loads the root PolicySet evaluator from a XACML PolicySet document in streaming mode
+	 *
+	 * @param policySetURL
+	 *            location of the XACML PolicySet document
+	 * @param xmlnsAware
+	 *            true iff namespace prefix-URI mappings must be collected from the document (for namespace-aware XPath evaluation)
+	 * @param expressionFactory
+	 *            Expression factory for parsing Expressions used in the PolicySet
+	 * @param combiningAlgRegistry
+	 *            registry of policy/rule combining algorithms
+	 * @param refPolicyProvider
+	 *            (optional) Policy-by-reference Provider. Iff present, Policy references are supported.
+	 * @return root PolicySet evaluator, or null if the root element of the document is not a XACML PolicySet (e.g. a Policy, in which case the caller should use the default parser)
+	 * @throws IllegalArgumentException
+	 *             if the document could not be read or the PolicySet is invalid
+	 */
+	static StaticTopLevelPolicyElementEvaluator load(final URL policySetURL, final boolean xmlnsAware, final ExpressionFactory expressionFactory, final CombiningAlgRegistry combiningAlgRegistry,
+	        final Optional<StaticRefPolicyProvider> refPolicyProvider) throws IllegalArgumentException
+	{
+		assert policySetURL != null && refPolicyProvider != null;
+
+		final Unmarshaller unmarshaller;
+		try
+		{
+			unmarshaller = Xacml3JaxbHelper.createXacml3Unmarshaller();
+		}
+		catch (final JAXBException e)
+		{
+			throw new IllegalArgumentException("Failed to create JAXB unmarshaller for XML Policy(Set)", e);
+		}
+
+		try
+		{
+			final Map<String, String> nsPrefixUriMap = xmlnsAware ? getNamespacePrefixUriMap(policySetURL) : Collections.<String, String>emptyMap();
+			try (final InputStream in = policySetURL.openStream())
+			{
+				final XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(policySetURL.toExternalForm(), in);
+				try
+				{
+					reader.nextTag();
+					if (!XACML_3_0_NAMESPACE.equals(reader.getNamespaceURI()) || !XacmlNodeName.POLICYSET.value().equals(reader.getLocalName()))
+					{
+						return null;
+					}
+
+					final String policySetId = reader.getAttributeValue(null, "PolicySetId");
+					final String version = reader.getAttributeValue(null, "Version");
+					final String policyCombiningAlgId = reader.getAttributeValue(null, "PolicyCombiningAlgId");
+					if (policySetId == null || version == null || policyCombiningAlgId == null)
+					{
+						throw new IllegalArgumentException("Invalid PolicySet in document at " + policySetURL + ": missing required attribute (PolicySetId, Version or PolicyCombiningAlgId)");
+					}
+
+					final String maxDelegationDepth = reader.getAttributeValue(null, "MaxDelegationDepth");
+					final StreamedPolicySet policySet = new StreamedPolicySet(policySetId, version, policyCombiningAlgId, maxDelegationDepth == null ? null : new BigInteger(maxDelegationDepth));
+					reader.nextTag();
+					while (reader.isStartElement() && POLICYSET_HEADER_ELEMENT_NAMES.contains(reader.getLocalName()))
+					{
+						policySet.set(unmarshaller.unmarshal(reader));
+						toTag(reader);
+					}
+
+					final ChildElementIterator childElements = new ChildElementIterator(policySetURL, reader, unmarshaller, policySet);
+					try
+					{
+						return PolicyEvaluators.getInstanceStatic(policySet, () -> childElements, nsPrefixUriMap, expressionFactory, combiningAlgRegistry, refPolicyProvider.orElse(null));
+					}
+					catch (final IllegalArgumentException e)
+					{
+						throw new IllegalArgumentException("Invalid PolicySet: " + policySetId, e);
+					}
+				}
+				finally
+				{
+					reader.close();
+				}
+			}
+		}
+		catch (final JAXBException | IOException | XMLStreamException | NumberFormatException e)
+		{
+			throw new IllegalArgumentException("Failed to unmarshall PolicySet XML document from policy location: " + policySetURL, e);
+		}
+	}
+}
@@ -0,0 +1,294 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.policy;
+
+import java.io.FileNotFoundException;
+import java.net.URL;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.ow2.authzforce.core.pdp.api.AttributeFqn;
+import org.ow2.authzforce.core.pdp.api.AttributeFqns;
+import org.ow2.authzforce.core.pdp.api.EnvironmentProperties;
+import org.ow2.authzforce.core.pdp.api.EvaluationContext;
+import org.ow2.authzforce.core.pdp.api.IndeterminateEvaluationException;
+import org.ow2.authzforce.core.pdp.api.XmlUtils.XmlnsFilteringParserFactory;
+import org.ow2.authzforce.core.pdp.api.combining.CombiningAlgRegistry;
+import org.ow2.authzforce.core.pdp.api.expression.ExpressionFactory;
+import org.ow2.authzforce.core.pdp.api.policy.CloseableRefPolicyProvider;
+import org.ow2.authzforce.core.pdp.api.policy.RootPolicyProvider;
+import org.ow2.authzforce.core.pdp.api.policy.StaticRefPolicyProvider;
+import org.ow2.authzforce.core.pdp.api.policy.StaticTopLevelPolicyElementEvaluator;
+import org.ow2.authzforce.core.pdp.api.value.AttributeBag;
+import org.ow2.authzforce.core.pdp.api.value.StandardDatatypes;
+import org.ow2.authzforce.core.pdp.api.value.StringValue;
+import org.ow2.authzforce.core.xmlns.pdp.TenantRootPolicy;
+import org.ow2.authzforce.xacml.identifiers.XacmlStatusCode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.ResourceUtils;
+
+import com.google.common.collect.ImmutableSet;
+
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributeDesignatorType;
+
+/**
+ * Root policy provider for multi-tenant PDPs, holding one root Policy(Set) per tenant, and selecting the one to evaluate for a given request with a single lookup by the value of a dispatch
+ * attribute (the tenant ID) in the request. Therefore, the cost of finding the applicable root policy does not depend on the number of tenants, as opposed to a common root PolicySet with one child
+ * policy per tenant, with a Target on the tenant ID, where all the children's Targets may have to be evaluated.
+ * <p>
+ * The dispatch attribute must be a request attribute of datatype string (it is not requested from Attribute Providers). If the request has no value for it, the decision is NotApplicable, or
+ * Indeterminate if the attribute is configured as must-be-present; if it has more than one value, the decision is Indeterminate. If there is no root policy for the tenant ID, or the tenant's root
+ * policy is not applicable by its Target, the decision is NotApplicable.
+ * <p>
+ * Tenant root policies may be loaded/unloaded independently at any time, i.e. while requests are evaluated, with {@link #loadTenantPolicy(String, URL)} and {@link #unloadTenantPolicy(String)}. Since
+ * the root policy is found per request, this provider is not a {@link org.ow2.authzforce.core.pdp.api.policy.StaticRootPolicyProvider}, therefore PDP features requiring static resolution of the
+ * root policy (e.g. policy tree compilation) do not apply.
+ */
+public class TenantDispatchingRootPolicyProvider implements RootPolicyProvider
+{
+	private static final Logger LOGGER = LoggerFactory.getLogger(TenantDispatchingRootPolicyProvider.class);
+
+	private static final IllegalArgumentException NULL_DISPATCH_ATTRIBUTE_ARG_EXCEPTION = new IllegalArgumentException("Undefined dispatch attribute");
+	private static final IllegalArgumentException NULL_TENANT_ID_ARG_EXCEPTION = new IllegalArgumentException("Undefined tenant ID");
+
+	/**
+	 * Provider factory
+	 * 
+	 */
+	public static class Factory extends RootPolicyProvider.Factory<org.ow2.authzforce.core.xmlns.pdp.TenantDispatchingRootPolicyProvider>
+	{
+
+		private static final IllegalArgumentException ILLEGAL_JAXBCONF_ARGUMENT_EXCEPTION = new IllegalArgumentException("Undefined RootPolicyProvider configuration (JAXB/XML)");
+
+		@Override
+		public Class<org.ow2.authzforce.core.xmlns.pdp.TenantDispatchingRootPolicyProvider> getJaxbClass()
+		{
+			return org.ow2.authzforce.core.xmlns.pdp.TenantDispatchingRootPolicyProvider.class;
+		}
+
+		@Override
+		public RootPolicyProvider getInstance(final org.ow2.authzforce.core.xmlns.pdp.TenantDispatchingRootPolicyProvider jaxbConf, final XmlnsFilteringParserFactory xacmlParserFactory,
+		        final ExpressionFactory expressionFactory, final CombiningAlgRegistry combiningAlgRegistry, final Optional<CloseableRefPolicyProvider> refPolicyProvider,
+		        final EnvironmentProperties environmentProperties)
+		{
+			if (jaxbConf == null)
+			{
+				throw ILLEGAL_JAXBCONF_ARGUMENT_EXCEPTION;
+			}
+
+			final StaticRefPolicyProvider staticRefPolicyProvider;
+			if (refPolicyProvider.isPresent())
+			{
+				if (!(refPolicyProvider.get() instanceof StaticRefPolicyProvider))
+				{
+					throw new IllegalArgumentException("RefPolicyProvider arg '" + refPolicyProvider + "'  is not compatible with " + TenantDispatchingRootPolicyProvider.class + ". Expected: instance of "
+					        + StaticRefPolicyProvider.class + ". Make sure the PDP extension of type " + CloseableRefPolicyProvider.Factory.class
+					        + " corresponding to the refPolicyProvider in PDP configuration can create instances of " + StaticRefPolicyProvider.class);
+				}
+
+				staticRefPolicyProvider = (StaticRefPolicyProvider) refPolicyProvider.get();
+			}
+			else
+			{
+				staticRefPolicyProvider = null;
+			}
+
+			final AttributeDesignatorType jaxbDispatchAttribute = jaxbConf.getDispatchAttribute();
+			if (!StandardDatatypes.STRING.getId().equals(jaxbDispatchAttribute.getDataType()))
+			{
+				throw new IllegalArgumentException("Invalid dispatchAttribute DataType: " + jaxbDispatchAttribute.getDataType() + ". Expected: " + StandardDatatypes.STRING.getId());
+			}
+
+			final TenantDispatchingRootPolicyProvider provider = new TenantDispatchingRootPolicyProvider(AttributeFqns.newInstance(jaxbDispatchAttribute), jaxbDispatchAttribute.isMustBePresent(),
+			        xacmlParserFactory, expressionFactory, combiningAlgRegistry, Optional.ofNullable(staticRefPolicyProvider));
+			for (final TenantRootPolicy jaxbTenant : jaxbConf.getTenants())
+			{
+				final String tenantId = jaxbTenant.getTenantId();
+				final String policyLocationFromConf = jaxbTenant.getPolicyLocation();
+				final String policyLocation = environmentProperties == null ? policyLocationFromConf : environmentProperties.replacePlaceholders(policyLocationFromConf);
+				final URL policyURL;
+				try
+				{
+					// try to load the policy location as a Spring resource
+					policyURL = ResourceUtils.getURL(policyLocation);
+				}
+				catch (final FileNotFoundException ioe)
+				{
+					throw new IllegalArgumentException("No root policy (as Spring resource) found for tenant '" + tenantId + "' at the following URL: " + policyLocationFromConf, ioe);
+				}
+
+				if (provider.loadTenantPolicy(tenantId, policyURL) != null)
+				{
+					throw new IllegalArgumentException("Duplicate tenant ID in " + TenantDispatchingRootPolicyProvider.class.getSimpleName() + " configuration: '" + tenantId + "'");
+				}
+			}
+
+			return provider;
+		}
+	}
+
+	private final AttributeFqn dispatchAttributeFqn;
+	private final boolean isDispatchAttributeRequired;
+	private final XmlnsFilteringParserFactory xacmlParserFactory;
+	private final ExpressionFactory expressionFactory;
+	private final CombiningAlgRegistry combiningAlgRegistry;
+	private final Optional<StaticRefPolicyProvider> refPolicyProvider;
+	private final IndeterminateEvaluationException missingDispatchAttributeException;
+	private final IndeterminateEvaluationException multiValuedDispatchAttributeException;
+
+	/*
+	 * Root policies by tenant ID. Lookups are lock-free so that loading/unloading a tenant's policy does not block evaluations for other tenants.
+	 */
+	private final ConcurrentMap<String, StaticTopLevelPolicyElementEvaluator> rootPoliciesByTenantId = new ConcurrentHashMap<>();
+
+	/**
+	 * Creates a provider with no tenant policy loaded yet (use {@link #loadTenantPolicy(String, URL)} to load some)
+	 * 
+	 * @param dispatchAttributeFqn
+	 *            dispatch attribute name, i.e. the request attribute (of datatype string) giving the tenant ID
+	 * @param isDispatchAttributeRequired
+	 *            true iff the dispatch attribute must be present in the request, i.e. the decision is Indeterminate if it is missing (else NotApplicable)
+	 * @param xacmlParserFactory
+	 *            XACML Policy(Set) parser factory
+	 * @param expressionFactory
+	 *            Expression factory for parsing Expressions used in the tenants' policies
+	 * @param combiningAlgRegistry
+	 *            registry of policy/rule combining algorithms
+	 * @param refPolicyProvider
+	 *            (optional) Policy-by-reference provider. Iff present, Policy references are supported in tenant policies.
+	 * @throws IllegalArgumentException
+	 *             if {@code dispatchAttributeFqn == null}
+	 */
+	public TenantDispatchingRootPolicyProvider(final AttributeFqn dispatchAttributeFqn, final boolean isDispatchAttributeRequired, final XmlnsFilteringParserFactory xacmlParserFactory,
+	        final ExpressionFactory expressionFactory, final CombiningAlgRegistry combiningAlgRegistry, final Optional<StaticRefPolicyProvider> refPolicyProvider) throws IllegalArgumentException
+	{
+		if (dispatchAttributeFqn == null)
+		{
+			throw NULL_DISPATCH_ATTRIBUTE_ARG_EXCEPTION;
+		}
+
+		this.dispatchAttributeFqn = dispatchAttributeFqn;
+		this.isDispatchAttributeRequired = isDispatchAttributeRequired;
+		this.xacmlParserFactory = xacmlParserFactory;
+		this.expressionFactory = expressionFactory;
+		this.combiningAlgRegistry = combiningAlgRegistry;
+		this.refPolicyProvider = refPolicyProvider;
+		this.missingDispatchAttributeException = new IndeterminateEvaluationException("Missing tenant dispatch attribute in request: " + dispatchAttributeFqn,
+		        XacmlStatusCode.MISSING_ATTRIBUTE.value());
+		this.multiValuedDispatchAttributeException = new IndeterminateEvaluationException("Tenant dispatch attribute in request has more than one value: " + dispatchAttributeFqn,
+		        XacmlStatusCode.PROCESSING_ERROR.value());
+	}
+
+	/**
+	 * Loads - or replaces if already loaded - the root policy of a given tenant. Evaluations for the tenant use the new policy as soon as this method returns, while evaluations in progress go on
+	 * with the old one.
+	 * 
+	 * @param tenantId
+	 *            tenant ID
+	 * @param rootPolicyURL
+	 *            location of the tenant's root Policy(Set)
+	 * @return the tenant's previous root policy, or null if there was none
+	 * @throws IllegalArgumentException
+	 *             if {@code tenantId == null}, or the policy at {@code rootPolicyURL} cannot be found or is invalid (in which case the tenant's previous policy, if any, remains in place)
+	 */
+	public StaticTopLevelPolicyElementEvaluator loadTenantPolicy(final String tenantId, final URL rootPolicyURL) throws IllegalArgumentException
+	{
+		if (tenantId == null)
+		{
+			throw NULL_TENANT_ID_ARG_EXCEPTION;
+		}
+
+		final StaticTopLevelPolicyElementEvaluator tenantPolicy = CoreRootPolicyProvider.getInstance(rootPolicyURL, xacmlParserFactory, expressionFactory, combiningAlgRegistry, refPolicyProvider)
+		        .getPolicy();
+		final StaticTopLevelPolicyElementEvaluator previousTenantPolicy = rootPoliciesByTenantId.put(tenantId, tenantPolicy);
+		LOGGER.debug("Tenant '{}': loaded root policy {} (replacing: {})", tenantId, tenantPolicy, previousTenantPolicy);
+		return previousTenantPolicy;
+	}
+
+	/**
+	 * Unloads the root policy of a given tenant. Requests for this tenant are NotApplicable from then on.
+	 * 
+	 * @param tenantId
+	 *            tenant ID
+	 * @return the tenant's root policy, or null if there was none
+	 */
+	public StaticTopLevelPolicyElementEvaluator unloadTenantPolicy(final String tenantId)
+	{
+		if (tenantId == null)
+		{
+			return null;
+		}
+
+		final StaticTopLevelPolicyElementEvaluator tenantPolicy = rootPoliciesByTenantId.remove(tenantId);
+		LOGGER.debug("Tenant '{}': unloaded root policy {}", tenantId, tenantPolicy);
+		return tenantPolicy;
+	}
+
+	/**
+	 * Gets the IDs of the tenants with a root policy currently loaded
+	 * 
+	 * @return tenant IDs (snapshot)
+	 */
+	public Set<String> getTenantIds()
+	{
+		return ImmutableSet.copyOf(rootPoliciesByTenantId.keySet());
+	}
+
+	@Override
+	public StaticTopLevelPolicyElementEvaluator getPolicy(final EvaluationContext context) throws IndeterminateEvaluationException
+	{
+		final AttributeBag<StringValue> tenantIdBag = context.getNamedAttributeValue(dispatchAttributeFqn, StandardDatatypes.STRING);
+		if (tenantIdBag == null || tenantIdBag.isEmpty())
+		{
+			if (isDispatchAttributeRequired)
+			{
+				throw missingDispatchAttributeException;
+			}
+
+			LOGGER.debug("No tenant dispatch attribute {} in request -> no applicable root policy", dispatchAttributeFqn);
+			return null;
+		}
+
+		if (tenantIdBag.size() > 1)
+		{
+			throw multiValuedDispatchAttributeException;
+		}
+
+		final String tenantId = tenantIdBag.getSingleElement().getUnderlyingValue();
+		final StaticTopLevelPolicyElementEvaluator tenantPolicy = rootPoliciesByTenantId.get(tenantId);
+		if (tenantPolicy == null)
+		{
+			LOGGER.debug("No root policy for tenant '{}' -> no applicable root policy", tenantId);
+			return null;
+		}
+
+		/*
+		 * The root policy returned by a RootPolicyProvider is evaluated without its Target, so check the tenant policy's Target here.
+		 */
+		return tenantPolicy.isApplicableByTarget(context) ? tenantPolicy : null;
+	}
+
+	@Override
+	public void close()
+	{
+		rootPoliciesByTenantId.clear();
+	}
+}
@@ -41,8 +41,6 @@ import org.slf4j.LoggerFactory;
 public final class ConditionEvaluators
 {
 
-	private static final IllegalArgumentException INVALID_CONSTANT_FALSE_EXPRESSION_EXCEPTION = new IllegalArgumentException("Invalid condition: Expression is equivalent to constant False");
-
 	/**
 	 * Logger used for all classes
 	 */
@@ -65,6 +63,20 @@ public final class ConditionEvaluators
 		}
 	};
 
+	/**
+	 * Condition that always evaluates to False. A Rule with such Condition and a Target matching all is never applicable, therefore may be removed from the enclosing Policy at initialization time.
+	 */
+	public static final BooleanEvaluator FALSE_CONDITION = new BooleanEvaluator()
+	{
+
+		@Override
+		public boolean evaluate(final EvaluationContext context) throws IndeterminateEvaluationException
+		{
+			LOGGER.debug("Condition's Expression equals constant False -> False");
+			return false;
+		}
+	};
+
 	private static final class BooleanExpressionEvaluator implements BooleanEvaluator
 	{
 
@@ -150,8 +162,9 @@ public final class ConditionEvaluators
 				return TRUE_CONDITION;
 			}
 
-			// constant False -> unacceptable
-			throw INVALID_CONSTANT_FALSE_EXPRESSION_EXCEPTION;
+			// constant FALSE
+			LOGGER.warn("Condition's expression is equivalent to constant False -> optimization: replacing with constant False condition");
+			return FALSE_CONDITION;
 		}
 
 		// constant == null
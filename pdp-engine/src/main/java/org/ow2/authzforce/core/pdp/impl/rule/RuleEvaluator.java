@@ -31,6 +31,8 @@ import org.ow2.authzforce.core.pdp.api.expression.ExpressionFactory;
 import org.ow2.authzforce.core.pdp.impl.BooleanEvaluator;
 import org.ow2.authzforce.core.pdp.impl.PepActionExpression;
 import org.ow2.authzforce.core.pdp.impl.TargetEvaluators;
+import org.ow2.authzforce.core.pdp.impl.TargetIndexKey;
+import org.ow2.authzforce.core.pdp.impl.TargetIndexable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -52,7 +54,7 @@ import oasis.names.tc.xacml._3_0.core.schema.wd_17.Rule;
  * 
  * @version $Id: $
  */
-public final class RuleEvaluator implements Decidable
+public final class RuleEvaluator implements Decidable, TargetIndexable
 {
 	private static final IllegalArgumentException NULL_XACML_RULE_ARGUMENT_EXCEPTION = new IllegalArgumentException("Cannot create Rule evaluator: undefined input XACML/JAXB Rule element");
 
@@ -247,11 +249,6 @@ public final class RuleEvaluator implements Decidable
 		}
 	}
 
-	private static final BooleanEvaluator TRUE_CONDITION = context -> {
-		LOGGER.debug("Condition null -> True");
-		return true;
-	};
-
 	// non-null
 	private final String ruleId;
 
@@ -266,6 +263,8 @@ public final class RuleEvaluator implements Decidable
 
 	private final transient boolean isAlwaysApplicable;
 
+	private final transient boolean isNeverApplicable;
+
 	private final transient String toString;
 
 	/**
@@ -301,7 +300,7 @@ public final class RuleEvaluator implements Decidable
 		 */
 		if (condElt == null)
 		{
-			this.conditionEvaluator = TRUE_CONDITION;
+			this.conditionEvaluator = ConditionEvaluators.TRUE_CONDITION;
 		} else
 		{
 			try
@@ -314,6 +313,10 @@ public final class RuleEvaluator implements Decidable
 		}
 
 		this.isAlwaysApplicable = this.targetEvaluator == TargetEvaluators.MATCH_ALL_TARGET_EVALUATOR && this.conditionEvaluator == ConditionEvaluators.TRUE_CONDITION;
+		/*
+		 * If the Target may be Indeterminate, so may be the rule, whatever the Condition
+		 */
+		this.isNeverApplicable = this.targetEvaluator == TargetEvaluators.MATCH_ALL_TARGET_EVALUATOR && this.conditionEvaluator == ConditionEvaluators.FALSE_CONDITION;
 
 		/*
 		 * Final decision result depends on rule's effect and Obligation/Advice elements
@@ -399,13 +402,25 @@ public final class RuleEvaluator implements Decidable
 	 * <p>
 	 * Knowing that a rule is always applicable is useful for optimizing combining algorithm evaluators at initialization time, e.g. First-applicable algorithm.
 	 * 
-	 * @return true iff it has no PEP action
+	 * @return true iff the rule is always applicable
 	 */
 	public boolean isAlwaysApplicable()
 	{
 		return this.isAlwaysApplicable;
 	}
 
+	/**
+	 * Is the rule never applicable, i.e. always NotApplicable, i.e. the rule's Target matches all, and the condition always evaluates to False?
+	 * <p>
+	 * Knowing that a rule is never applicable is useful for removing it from the combined rules at initialization time, since it cannot affect the result of any standard combining algorithm.
+	 * 
+	 * @return true iff the rule is never applicable
+	 */
+	public boolean isNeverApplicable()
+	{
+		return this.isNeverApplicable;
+	}
+
 	/**
 	 * Does the rule has any PEP action (obligation/advice) ?
 	 * <p>
@@ -428,7 +443,18 @@ public final class RuleEvaluator implements Decidable
 	 */
 	public boolean isEmptyEquivalent()
 	{
-		return this.isAlwaysApplicable && this.decisionResultFactory.hasAnyPepAction();
+		return this.isAlwaysApplicable && !this.decisionResultFactory.hasAnyPepAction();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * If the Target cannot match, the rule is NotApplicable (the Condition is not evaluated).
+	 */
+	@Override
+	public List<TargetIndexKey> getTargetIndexKeys()
+	{
+		return TargetEvaluators.getIndexKeys(targetEvaluator);
 	}
 
 	/**
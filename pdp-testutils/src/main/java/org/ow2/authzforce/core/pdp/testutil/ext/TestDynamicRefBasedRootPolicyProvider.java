@@ -0,0 +1,99 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.testutil.ext;
+
+import java.util.Optional;
+
+import org.ow2.authzforce.core.pdp.api.EnvironmentProperties;
+import org.ow2.authzforce.core.pdp.api.EvaluationContext;
+import org.ow2.authzforce.core.pdp.api.IndeterminateEvaluationException;
+import org.ow2.authzforce.core.pdp.api.XmlUtils.XmlnsFilteringParserFactory;
+import org.ow2.authzforce.core.pdp.api.combining.CombiningAlgRegistry;
+import org.ow2.authzforce.core.pdp.api.expression.ExpressionFactory;
+import org.ow2.authzforce.core.pdp.api.policy.CloseableRefPolicyProvider;
+import org.ow2.authzforce.core.pdp.api.policy.PolicyVersionPatterns;
+import org.ow2.authzforce.core.pdp.api.policy.RootPolicyProvider;
+import org.ow2.authzforce.core.pdp.api.policy.TopLevelPolicyElementEvaluator;
+import org.ow2.authzforce.core.pdp.api.policy.TopLevelPolicyElementType;
+import org.ow2.authzforce.core.pdp.testutil.ext.xmlns.TestDynamicRefBasedRootPolicyProviderDescriptor;
+import org.ow2.authzforce.xacml.identifiers.XacmlStatusCode;
+
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.IdReferenceType;
+
+/**
+ * Fake dynamic root policy provider for test purposes only: the root policy is the Policy resolved by the refPolicyProvider (possibly dynamic, e.g. {@link TestDynamicRefPolicyProvider}) from the
+ * configured PolicyIdReference, at evaluation time.
+ */
+public final class TestDynamicRefBasedRootPolicyProvider implements RootPolicyProvider
+{
+	private final CloseableRefPolicyProvider refPolicyProvider;
+	private final String policyId;
+	private final Optional<PolicyVersionPatterns> policyVersionPatterns;
+
+	private TestDynamicRefBasedRootPolicyProvider(final IdReferenceType policyRef, final CloseableRefPolicyProvider refPolicyProvider)
+	{
+		this.refPolicyProvider = refPolicyProvider;
+		this.policyId = policyRef.getValue();
+		this.policyVersionPatterns = Optional.of(new PolicyVersionPatterns(policyRef.getVersion(), policyRef.getEarliestVersion(), policyRef.getLatestVersion()));
+	}
+
+	/**
+	 * {@link TestDynamicRefBasedRootPolicyProvider} factory
+	 *
+	 */
+	public static class Factory extends RootPolicyProvider.Factory<TestDynamicRefBasedRootPolicyProviderDescriptor>
+	{
+
+		@Override
+		public Class<TestDynamicRefBasedRootPolicyProviderDescriptor> getJaxbClass()
+		{
+			return TestDynamicRefBasedRootPolicyProviderDescriptor.class;
+		}
+
+		@Override
+		public RootPolicyProvider getInstance(final TestDynamicRefBasedRootPolicyProviderDescriptor conf, final XmlnsFilteringParserFactory xmlParserFactory,
+		        final ExpressionFactory expressionFactory, final CombiningAlgRegistry combiningAlgRegistry, final Optional<CloseableRefPolicyProvider> refPolicyProvider,
+		        final EnvironmentProperties environmentProperties) throws IllegalArgumentException
+		{
+			if (!refPolicyProvider.isPresent())
+			{
+				throw new IllegalArgumentException("Undefined refPolicyProvider, required by " + TestDynamicRefBasedRootPolicyProvider.class);
+			}
+
+			return new TestDynamicRefBasedRootPolicyProvider(conf.getPolicyRef(), refPolicyProvider.get());
+		}
+	}
+
+	@Override
+	public TopLevelPolicyElementEvaluator getPolicy(final EvaluationContext context) throws IndeterminateEvaluationException, IllegalArgumentException
+	{
+		final TopLevelPolicyElementEvaluator policy = refPolicyProvider.get(TopLevelPolicyElementType.POLICY, policyId, policyVersionPatterns, null, context);
+		if (policy == null)
+		{
+			throw new IndeterminateEvaluationException("No root Policy found by the refPolicyProvider: PolicyId = '" + policyId + "'", XacmlStatusCode.PROCESSING_ERROR.value());
+		}
+
+		return policy;
+	}
+
+	@Override
+	public void close()
+	{
+		// the refPolicyProvider is closed by the PDP
+	}
+}
@@ -0,0 +1,195 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.testutil.ext;
+
+import java.io.FileNotFoundException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.bind.JAXBException;
+
+import org.ow2.authzforce.core.pdp.api.EnvironmentProperties;
+import org.ow2.authzforce.core.pdp.api.EvaluationContext;
+import org.ow2.authzforce.core.pdp.api.IndeterminateEvaluationException;
+import org.ow2.authzforce.core.pdp.api.XmlUtils.XmlnsFilteringParser;
+import org.ow2.authzforce.core.pdp.api.XmlUtils.XmlnsFilteringParserFactory;
+import org.ow2.authzforce.core.pdp.api.combining.CombiningAlgRegistry;
+import org.ow2.authzforce.core.pdp.api.expression.ExpressionFactory;
+import org.ow2.authzforce.core.pdp.api.policy.CloseableRefPolicyProvider;
+import org.ow2.authzforce.core.pdp.api.policy.PolicyVersion;
+import org.ow2.authzforce.core.pdp.api.policy.PolicyVersionPatterns;
+import org.ow2.authzforce.core.pdp.api.policy.RefPolicyProvider;
+import org.ow2.authzforce.core.pdp.api.policy.TopLevelPolicyElementEvaluator;
+import org.ow2.authzforce.core.pdp.api.policy.TopLevelPolicyElementType;
+import org.ow2.authzforce.core.pdp.impl.policy.PolicyEvaluators;
+import org.ow2.authzforce.core.pdp.testutil.ext.xmlns.TestDynamicRefPolicyProviderDescriptor;
+import org.ow2.authzforce.xacml.identifiers.XacmlStatusCode;
+import org.springframework.util.ResourceUtils;
+
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.Policy;
+
+/**
+ * Fake dynamic refPolicyProvider for test purposes only, that resolves PolicyIdReferences at evaluation time by parsing the Policy documents at the configured locations again at each call, like a
+ * provider fetching the policies from a remote repository (database...). PolicySetIdReferences are not supported. The calls are counted by provider ID (see {@link #getCallCount(String)}), so
+ * that tests can check whether the results are cached.
+ */
+public final class TestDynamicRefPolicyProvider implements CloseableRefPolicyProvider
+{
+	private static final ConcurrentMap<String, AtomicInteger> CALL_COUNTS_BY_PROVIDER_ID = new ConcurrentHashMap<>();
+
+	/**
+	 * Gets the number of calls to {@link #get(TopLevelPolicyElementType, String, Optional, Deque, EvaluationContext)} on the providers with a given ID since the JVM started
+	 *
+	 * @param providerId
+	 *            provider ID ('id' in the configuration)
+	 * @return number of calls
+	 */
+	public static int getCallCount(final String providerId)
+	{
+		final AtomicInteger callCount = CALL_COUNTS_BY_PROVIDER_ID.get(providerId);
+		return callCount == null ? 0 : callCount.get();
+	}
+
+	private final String id;
+	private final List<URL> policyURLs;
+	private final XmlnsFilteringParserFactory xacmlParserFactory;
+	private final ExpressionFactory expressionFactory;
+	private final CombiningAlgRegistry combiningAlgRegistry;
+	private final int maxPolicySetRefDepth;
+
+	private TestDynamicRefPolicyProvider(final String id, final List<URL> policyURLs, final XmlnsFilteringParserFactory xacmlParserFactory, final ExpressionFactory expressionFactory,
+	        final CombiningAlgRegistry combiningAlgRegistry, final int maxPolicySetRefDepth)
+	{
+		this.id = id;
+		this.policyURLs = policyURLs;
+		this.xacmlParserFactory = xacmlParserFactory;
+		this.expressionFactory = expressionFactory;
+		this.combiningAlgRegistry = combiningAlgRegistry;
+		this.maxPolicySetRefDepth = maxPolicySetRefDepth;
+	}
+
+	/**
+	 * {@link TestDynamicRefPolicyProvider} factory
+	 *
+	 */
+	public static class Factory extends CloseableRefPolicyProvider.Factory<TestDynamicRefPolicyProviderDescriptor>
+	{
+
+		@Override
+		public Class<TestDynamicRefPolicyProviderDescriptor> getJaxbClass()
+		{
+			return TestDynamicRefPolicyProviderDescriptor.class;
+		}
+
+		@Override
+		public CloseableRefPolicyProvider getInstance(final TestDynamicRefPolicyProviderDescriptor conf, final XmlnsFilteringParserFactory xmlParserFactory, final int maxPolicySetRefDepth,
+		        final ExpressionFactory expressionFactory, final CombiningAlgRegistry combiningAlgRegistry, final EnvironmentProperties environmentProperties) throws IllegalArgumentException
+		{
+			final List<URL> policyURLs = new ArrayList<>(conf.getPolicyLocations().size());
+			for (final String policyLocation : conf.getPolicyLocations())
+			{
+				final String resolvedPolicyLocation = environmentProperties == null ? policyLocation : environmentProperties.replacePlaceholders(policyLocation);
+				try
+				{
+					policyURLs.add(ResourceUtils.getURL(resolvedPolicyLocation));
+				}
+				catch (final FileNotFoundException e)
+				{
+					throw new IllegalArgumentException("No policy found at location: " + resolvedPolicyLocation, e);
+				}
+			}
+
+			return new TestDynamicRefPolicyProvider(conf.getId(), policyURLs, xmlParserFactory, expressionFactory, combiningAlgRegistry, maxPolicySetRefDepth);
+		}
+	}
+
+	@Override
+	public Deque<String> joinPolicyRefChains(final Deque<String> policyRefChain1, final List<String> policyRefChain2) throws IllegalArgumentException
+	{
+		return RefPolicyProvider.joinPolicyRefChains(policyRefChain1, policyRefChain2, maxPolicySetRefDepth);
+	}
+
+	@Override
+	public TopLevelPolicyElementEvaluator get(final TopLevelPolicyElementType policyType, final String policyId, final Optional<PolicyVersionPatterns> policyVersionConstraints,
+	        final Deque<String> policySetRefChain, final EvaluationContext evaluationCtx) throws IllegalArgumentException, IndeterminateEvaluationException
+	{
+		CALL_COUNTS_BY_PROVIDER_ID.computeIfAbsent(id, providerId -> new AtomicInteger(0)).incrementAndGet();
+		if (policyType != TopLevelPolicyElementType.POLICY)
+		{
+			return null;
+		}
+
+		for (final URL policyURL : policyURLs)
+		{
+			final XmlnsFilteringParser xacmlParser;
+			final Object jaxbPolicyOrPolicySet;
+			try
+			{
+				xacmlParser = xacmlParserFactory.getInstance();
+				jaxbPolicyOrPolicySet = xacmlParser.parse(policyURL);
+			}
+			catch (final JAXBException e)
+			{
+				throw new IndeterminateEvaluationException("Failed to parse policy at location: " + policyURL, XacmlStatusCode.PROCESSING_ERROR.value(), e);
+			}
+
+			if (!(jaxbPolicyOrPolicySet instanceof Policy))
+			{
+				continue;
+			}
+
+			final Policy jaxbPolicy = (Policy) jaxbPolicyOrPolicySet;
+			if (!jaxbPolicy.getPolicyId().equals(policyId))
+			{
+				continue;
+			}
+
+			final PolicyVersion version = new PolicyVersion(jaxbPolicy.getVersion());
+			if (policyVersionConstraints.isPresent())
+			{
+				final PolicyVersionPatterns versionPatterns = policyVersionConstraints.get();
+				if (!versionPatterns.matchVersion(version) || !versionPatterns.matchEarliestVersion(version) || !versionPatterns.matchLatestVersion(version))
+				{
+					continue;
+				}
+			}
+
+			return PolicyEvaluators.getInstance(jaxbPolicy, null, xacmlParser.getNamespacePrefixUriMap(), expressionFactory, combiningAlgRegistry);
+		}
+
+		return null;
+	}
+
+	@Override
+	public void close()
+	{
+		// nothing to close
+	}
+
+	@Override
+	public String toString()
+	{
+		return "TestDynamicRefPolicyProvider[" + id + "]";
+	}
+}
@@ -0,0 +1,153 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.testutil.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.bind.JAXBException;
+
+import org.junit.Test;
+import org.ow2.authzforce.core.pdp.api.XmlUtils.XmlnsFilteringParser;
+import org.ow2.authzforce.core.pdp.api.io.PdpEngineInoutAdapter;
+import org.ow2.authzforce.core.pdp.api.io.XacmlJaxbParsingUtils;
+import org.ow2.authzforce.core.pdp.impl.DefaultEnvironmentProperties;
+import org.ow2.authzforce.core.pdp.impl.PdpEngineConfiguration;
+import org.ow2.authzforce.core.pdp.impl.io.PdpEngineAdapters;
+import org.ow2.authzforce.core.pdp.testutil.TestUtils;
+import org.ow2.authzforce.core.xmlns.pdp.InOutProcChain;
+import org.ow2.authzforce.core.xmlns.pdp.Pdp;
+import org.ow2.authzforce.core.xmlns.pdp.StaticRootPolicyProvider;
+import org.springframework.util.ResourceUtils;
+
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.DecisionType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.Obligation;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.Request;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.Response;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.Result;
+
+/**
+ * Test of the adaptive evaluation order of child policies combined with a non-ordered deny-overrides algorithm ('adaptiveCombiningOrder' PDP configuration parameter), with child policies returning
+ * obligations. What remains guaranteed in adaptive order:
+ * <ul>
+ * <li>the decision is the same as in document order;</li>
+ * <li>if no child returns the overriding decision (Deny), the obligations are the same as in document order, in document order;</li>
+ * <li>if one does, the obligations are the ones of a single child returning the overriding decision, but not necessarily the first one in document order.</li>
+ * </ul>
+ */
+public class AdaptiveCombiningOrderTest
+{
+	/**
+	 * Name of directory that contains test resources (not under 'custom' directory, so not run by {@link CustomPdpTest})
+	 */
+	public final static String TEST_RESOURCES_DIRECTORY_LOCATION = "classpath:AdaptiveCombiningOrder";
+
+	/**
+	 * Number of evaluations of the training request, greater than a few times the reordering period (1024 combining algorithm evaluations)
+	 */
+	private static final int TRAINING_EVALUATION_COUNT = 3000;
+
+	private static final String MULTIPLE_DECISION_REQUEST_PREPROC_ID = "urn:ow2:authzforce:feature:pdp:request-preproc:xacml-xml:multiple:repeated-attribute-categories-lax";
+
+	private static PdpEngineInoutAdapter<Request, Response> newPdp(final boolean adaptiveCombiningOrder) throws IllegalArgumentException, IOException
+	{
+		final Pdp jaxbPdp = new Pdp();
+		jaxbPdp.setAdaptiveCombiningOrder(adaptiveCombiningOrder);
+		final StaticRootPolicyProvider jaxbRootPolicyProvider = new StaticRootPolicyProvider();
+		jaxbRootPolicyProvider.setId("rootPolicyProvider");
+		jaxbRootPolicyProvider.setPolicyLocation(ResourceUtils.getURL(TEST_RESOURCES_DIRECTORY_LOCATION + "/policy.xml").toString());
+		jaxbPdp.setRootPolicyProvider(jaxbRootPolicyProvider);
+		jaxbPdp.getIoProcChains().add(new InOutProcChain(MULTIPLE_DECISION_REQUEST_PREPROC_ID, null));
+		final PdpEngineConfiguration pdpEngineConf = new PdpEngineConfiguration(jaxbPdp, new DefaultEnvironmentProperties());
+		assertEquals(adaptiveCombiningOrder, pdpEngineConf.isAdaptiveCombiningOrderEnabled());
+		return PdpEngineAdapters.newXacmlJaxbInoutAdapter(pdpEngineConf);
+	}
+
+	private static List<String> getObligationIds(final Result result)
+	{
+		if (result.getObligations() == null)
+		{
+			return Collections.emptyList();
+		}
+
+		final List<String> obligationIds = new ArrayList<>();
+		for (final Obligation obligation : result.getObligations().getObligations())
+		{
+			obligationIds.add(obligation.getObligationId());
+		}
+
+		return obligationIds;
+	}
+
+	/*
+	 * Results in the same order as the access-subjects in the request: carol, alice, bob (and alice)
+	 */
+	private static void assertResults(final Response response, final List<String> expectedObligationIdsOfMultipleDenyResult)
+	{
+		final List<Result> results = response.getResults();
+		assertEquals(3, results.size());
+		assertEquals(DecisionType.PERMIT, results.get(0).getDecision());
+		assertEquals("Obligations of all Permit children, in document order", Arrays.asList("permit-0", "permit-2", "permit-3"), getObligationIds(results.get(0)));
+		assertEquals(DecisionType.DENY, results.get(1).getDecision());
+		assertEquals(Collections.singletonList("deny-3"), getObligationIds(results.get(1)));
+		assertEquals(DecisionType.DENY, results.get(2).getDecision());
+		assertEquals(expectedObligationIdsOfMultipleDenyResult, getObligationIds(results.get(2)));
+	}
+
+	@Test
+	public void testObligationsAfterReordering() throws IllegalArgumentException, IOException, JAXBException
+	{
+		final XmlnsFilteringParser unmarshaller = XacmlJaxbParsingUtils.getXacmlParserFactory(false).getInstance();
+		final Request request = TestUtils.createRequest(TEST_RESOURCES_DIRECTORY_LOCATION + "/request.xml", unmarshaller);
+		final Request trainingRequest = TestUtils.createRequest(TEST_RESOURCES_DIRECTORY_LOCATION + "/request-alice.xml", unmarshaller);
+
+		/*
+		 * Document order: the first Deny child for the subject bob (and alice) is 'deny-bob'
+		 */
+		try (final PdpEngineInoutAdapter<Request, Response> pdp = newPdp(false))
+		{
+			assertResults(pdp.evaluate(request, null), Collections.singletonList("deny-bob"));
+		}
+
+		try (final PdpEngineInoutAdapter<Request, Response> pdp = newPdp(true))
+		{
+			// same as document order before any reordering
+			assertResults(pdp.evaluate(request, null), Collections.singletonList("deny-bob"));
+
+			/*
+			 * Only the last child in document order returns Deny (the overriding decision) for alice, so it is moved first
+			 */
+			for (int i = 0; i < TRAINING_EVALUATION_COUNT; i++)
+			{
+				final Result result = pdp.evaluate(trainingRequest, null).getResults().get(0);
+				assertEquals(DecisionType.DENY, result.getDecision());
+			}
+
+			/*
+			 * The child moved first is evaluated first for all requests. Same decisions; obligations of the Permit children still in document order; but for the subject bob (and alice), the
+			 * obligations are the ones of the first Deny child in the new order, i.e. the last one in document order
+			 */
+			assertResults(pdp.evaluate(request, null), Collections.singletonList("deny-3"));
+		}
+	}
+}
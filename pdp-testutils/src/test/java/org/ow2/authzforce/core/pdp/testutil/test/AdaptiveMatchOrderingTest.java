@@ -0,0 +1,220 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.testutil.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import javax.xml.bind.JAXBException;
+
+import org.junit.Test;
+import org.ow2.authzforce.core.pdp.api.AttributeFqn;
+import org.ow2.authzforce.core.pdp.api.AttributeFqns;
+import org.ow2.authzforce.core.pdp.api.HashCollections;
+import org.ow2.authzforce.core.pdp.api.IndeterminateEvaluationException;
+import org.ow2.authzforce.core.pdp.api.XmlUtils.XmlnsFilteringParser;
+import org.ow2.authzforce.core.pdp.api.io.PdpEngineInoutAdapter;
+import org.ow2.authzforce.core.pdp.api.io.XacmlJaxbParsingUtils;
+import org.ow2.authzforce.core.pdp.api.value.AttributeBag;
+import org.ow2.authzforce.core.pdp.api.value.AttributeValueFactory;
+import org.ow2.authzforce.core.pdp.api.value.AttributeValueFactoryRegistry;
+import org.ow2.authzforce.core.pdp.api.value.Bags;
+import org.ow2.authzforce.core.pdp.api.value.IntegerValue;
+import org.ow2.authzforce.core.pdp.api.value.StandardAttributeValueFactories;
+import org.ow2.authzforce.core.pdp.api.value.StandardDatatypes;
+import org.ow2.authzforce.core.pdp.api.value.StringParseableValue;
+import org.ow2.authzforce.core.pdp.api.value.StringValue;
+import org.ow2.authzforce.core.pdp.impl.AdaptiveEvaluationOrder;
+import org.ow2.authzforce.core.pdp.impl.AllOfEvaluator;
+import org.ow2.authzforce.core.pdp.impl.IndividualDecisionRequestContext;
+import org.ow2.authzforce.core.pdp.impl.PdpEngineConfiguration;
+import org.ow2.authzforce.core.pdp.impl.expression.DepthLimitingExpressionFactory;
+import org.ow2.authzforce.core.pdp.impl.func.FunctionRegistry;
+import org.ow2.authzforce.core.pdp.impl.func.StandardFunction;
+import org.ow2.authzforce.core.pdp.impl.io.PdpEngineAdapters;
+import org.ow2.authzforce.core.pdp.testutil.PdpTest;
+import org.ow2.authzforce.core.pdp.testutil.TestUtils;
+import org.ow2.authzforce.xacml.identifiers.XacmlAttributeCategory;
+
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributeDesignatorType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributeValueType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.Match;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.Request;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.Response;
+
+/**
+ * Test of adaptive Match ordering ('adaptiveMatchOrdering' PDP configuration parameter)
+ *
+ */
+public class AdaptiveMatchOrderingTest
+{
+	/**
+	 * Name of directory that contains test resources (not under 'custom' directory, so not run by {@link CustomPdpTest})
+	 */
+	public final static String TEST_RESOURCES_DIRECTORY_LOCATION = "classpath:AdaptiveMatchOrdering";
+
+	/**
+	 * Number of evaluations of the same request, greater than a few times the reordering period (1024 AllOf/AnyOf evaluations)
+	 */
+	private static final int EVALUATION_COUNT = 3000;
+
+	/**
+	 * Number of parent evaluations between two updates of the evaluation order (see {@link AdaptiveEvaluationOrder#recordParentEvaluation()})
+	 */
+	private static final int REORDERING_PERIOD = 1024;
+
+	private static final String SUBJECT_CATEGORY = XacmlAttributeCategory.XACML_1_0_ACCESS_SUBJECT.value();
+	private static final String RESOURCE_CATEGORY = XacmlAttributeCategory.XACML_3_0_RESOURCE.value();
+
+	private static Match newStringEqualMatch(final String value, final String category, final String attributeId, final boolean mustBePresent)
+	{
+		return new Match(new AttributeValueType(Collections.singletonList(value), StandardDatatypes.STRING.getId(), null), null,
+		        new AttributeDesignatorType(category, attributeId, StandardDatatypes.STRING.getId(), null, mustBePresent), "urn:oasis:names:tc:xacml:1.0:function:string-equal");
+	}
+
+	private static IndividualDecisionRequestContext newContext(final String role, final String department, final String resourceType)
+	{
+		final Map<AttributeFqn, AttributeBag<?>> attributes = HashCollections.newUpdatableMap();
+		if (role != null)
+		{
+			attributes.put(AttributeFqns.newInstance(SUBJECT_CATEGORY, Optional.empty(), "role"), Bags.singletonAttributeBag(StandardDatatypes.STRING, new StringValue(role)));
+		}
+
+		if (department != null)
+		{
+			attributes.put(AttributeFqns.newInstance(SUBJECT_CATEGORY, Optional.empty(), "department"), Bags.singletonAttributeBag(StandardDatatypes.STRING, new StringValue(department)));
+		}
+
+		if (resourceType != null)
+		{
+			attributes.put(AttributeFqns.newInstance(RESOURCE_CATEGORY, Optional.empty(), "resource-type"), Bags.singletonAttributeBag(StandardDatatypes.STRING, new StringValue(resourceType)));
+		}
+
+		return new IndividualDecisionRequestContext(attributes, null, false);
+	}
+
+	/*
+	 * Get the message of the Indeterminate AllOf result, followed by the message of the cause (Indeterminate Match)
+	 */
+	private static String getIndeterminateMessage(final AllOfEvaluator allOf, final IndividualDecisionRequestContext context)
+	{
+		try
+		{
+			allOf.match(context);
+		}
+		catch (final IndeterminateEvaluationException e)
+		{
+			return e.getMessage() + " / " + e.getCause().getMessage();
+		}
+
+		fail("AllOf not Indeterminate");
+		return null;
+	}
+
+	@Test
+	public void testSameResponseAfterReordering() throws IllegalArgumentException, IOException, JAXBException
+	{
+		final String testResourceLocationPrefix = TEST_RESOURCES_DIRECTORY_LOCATION + "/";
+		final PdpEngineConfiguration pdpEngineConf = PdpEngineConfiguration.getInstance(testResourceLocationPrefix + PdpTest.PDP_CONF_FILENAME);
+		assertTrue("Adaptive Match ordering disabled in PDP configuration", pdpEngineConf.isAdaptiveMatchOrderingEnabled());
+
+		final XmlnsFilteringParser unmarshaller = XacmlJaxbParsingUtils.getXacmlParserFactory(false).getInstance();
+		final Request request = TestUtils.createRequest(testResourceLocationPrefix + PdpTest.REQUEST_FILENAME, unmarshaller);
+		final Response expectedResponse = TestUtils.createResponse(testResourceLocationPrefix + PdpTest.EXPECTED_RESPONSE_FILENAME, unmarshaller);
+		try (final PdpEngineInoutAdapter<Request, Response> pdp = PdpEngineAdapters.newXacmlJaxbInoutAdapter(pdpEngineConf))
+		{
+			for (int i = 0; i < EVALUATION_COUNT; i++)
+			{
+				final Response response = pdp.evaluate(request, null);
+				TestUtils.assertNormalizedEquals(testResourceLocationPrefix, expectedResponse, response);
+			}
+		}
+	}
+
+	/**
+	 * The child that always short-circuits must be moved first after one reordering period, the others keep their relative document order (same rank)
+	 */
+	@Test
+	public void testOrderChangeAfterSkewedOutcomes()
+	{
+		final AdaptiveEvaluationOrder order = AdaptiveEvaluationOrder.newInstance("test", 3);
+		assertArrayEquals(new int[] { 0, 1, 2 }, order.getOrder());
+		for (int i = 0; i < REORDERING_PERIOD; i++)
+		{
+			order.recordChildEvaluation(0, false, 1000);
+			order.recordChildEvaluation(1, false, 1000);
+			order.recordChildEvaluation(2, true, 1000);
+			order.recordParentEvaluation();
+		}
+
+		assertArrayEquals(new int[] { 2, 0, 1 }, order.getOrder());
+	}
+
+	/**
+	 * Once the Match evaluation order has changed (Match#2 evaluated first, Match#1 before Match#0), the Indeterminate Match reported when no Match is False must still be the last one in document
+	 * order (Match#1), as with document order
+	 */
+	@Test
+	public void testLastIndeterminateInDocumentOrderReported() throws IOException, IndeterminateEvaluationException
+	{
+		final AttributeValueFactoryRegistry valFactoryReg = StandardAttributeValueFactories.getRegistry(false, Optional.of(BigInteger.valueOf(Integer.MAX_VALUE)));
+		final AttributeValueFactory<?> intValFactory = valFactoryReg.getExtension(StandardDatatypes.INTEGER.getId());
+		final FunctionRegistry funcReg = StandardFunction.getRegistry(false, (StringParseableValue.Factory<IntegerValue>) intValFactory);
+		// Match#0 and Match#1 Indeterminate if attribute missing
+		final List<Match> matches = Arrays.asList(newStringEqualMatch("admin", SUBJECT_CATEGORY, "role", true), newStringEqualMatch("sales", SUBJECT_CATEGORY, "department", true),
+		        newStringEqualMatch("doc", RESOURCE_CATEGORY, "resource-type", false));
+		try (final DepthLimitingExpressionFactory adaptiveExprFactory = new DepthLimitingExpressionFactory(valFactoryReg, funcReg, null, 0, false, false, true);
+		        final DepthLimitingExpressionFactory docOrderExprFactory = new DepthLimitingExpressionFactory(valFactoryReg, funcReg, null, 0, false, false, false))
+		{
+			final AllOfEvaluator adaptiveAllOf = new AllOfEvaluator(matches, null, adaptiveExprFactory);
+			final AllOfEvaluator docOrderAllOf = new AllOfEvaluator(matches, null, docOrderExprFactory);
+			assertFalse(docOrderAllOf.getAdaptiveMatchOrder().isPresent());
+			final AdaptiveEvaluationOrder matchOrder = adaptiveAllOf.getAdaptiveMatchOrder().get();
+
+			/*
+			 * Match#2 False in half the requests, Match#1 False in the other half, Match#0 never False
+			 */
+			final IndividualDecisionRequestContext archiveRequestCtx = newContext("admin", "sales", "archive");
+			final IndividualDecisionRequestContext otherDepartmentRequestCtx = newContext("admin", "marketing", "doc");
+			for (int i = 0; i < REORDERING_PERIOD / 2; i++)
+			{
+				assertFalse(adaptiveAllOf.match(archiveRequestCtx));
+				assertFalse(adaptiveAllOf.match(otherDepartmentRequestCtx));
+			}
+
+			final int[] newOrder = matchOrder.getOrder();
+			assertEquals("Match#0 (never False) not moved last: " + Arrays.toString(newOrder), 0, newOrder[2]);
+
+			final IndividualDecisionRequestContext indeterminateRequestCtx = newContext(null, null, "doc");
+			final String expectedMessage = getIndeterminateMessage(docOrderAllOf, indeterminateRequestCtx);
+			assertTrue(expectedMessage, expectedMessage.startsWith("Error evaluating <AllOf>'s <Match>#1 / "));
+			assertEquals(expectedMessage, getIndeterminateMessage(adaptiveAllOf, indeterminateRequestCtx));
+		}
+	}
+}
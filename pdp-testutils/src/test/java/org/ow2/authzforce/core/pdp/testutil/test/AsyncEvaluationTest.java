@@ -0,0 +1,62 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.testutil.test;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+
+import javax.xml.bind.JAXBException;
+
+import org.junit.Test;
+import org.ow2.authzforce.core.pdp.api.XmlUtils.XmlnsFilteringParser;
+import org.ow2.authzforce.core.pdp.api.io.XacmlJaxbParsingUtils;
+import org.ow2.authzforce.core.pdp.impl.PdpEngineConfiguration;
+import org.ow2.authzforce.core.pdp.impl.io.AsyncPdpEngineInoutAdapter;
+import org.ow2.authzforce.core.pdp.impl.io.PdpEngineAdapters;
+import org.ow2.authzforce.core.pdp.testutil.PdpTest;
+import org.ow2.authzforce.core.pdp.testutil.TestUtils;
+
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.Request;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.Response;
+
+/**
+ * Test of asynchronous evaluation with {@link AsyncPdpEngineInoutAdapter}
+ *
+ */
+public class AsyncEvaluationTest
+{
+	/**
+	 * Name of directory that contains test resources
+	 */
+	public final static String TEST_RESOURCES_DIRECTORY_LOCATION = "classpath:custom/MultipleDecisionRequest.Parallel";
+
+	@Test
+	public void testEvaluateAsync() throws IllegalArgumentException, IOException, JAXBException, InterruptedException, ExecutionException
+	{
+		final String testResourceLocationPrefix = TEST_RESOURCES_DIRECTORY_LOCATION + "/";
+		final PdpEngineConfiguration pdpEngineConf = PdpEngineConfiguration.getInstance(testResourceLocationPrefix + PdpTest.PDP_CONF_FILENAME);
+		final XmlnsFilteringParser unmarshaller = XacmlJaxbParsingUtils.getXacmlParserFactory(false).getInstance();
+		final Request request = TestUtils.createRequest(testResourceLocationPrefix + PdpTest.REQUEST_FILENAME, unmarshaller);
+		final Response expectedResponse = TestUtils.createResponse(testResourceLocationPrefix + PdpTest.EXPECTED_RESPONSE_FILENAME, unmarshaller);
+		try (final AsyncPdpEngineInoutAdapter<Request, Response> pdp = PdpEngineAdapters.newXacmlJaxbInoutAdapter(pdpEngineConf))
+		{
+			final Response response = pdp.evaluateAsync(request, null).get();
+			TestUtils.assertNormalizedEquals(testResourceLocationPrefix, expectedResponse, response);
+		}
+	}
+}
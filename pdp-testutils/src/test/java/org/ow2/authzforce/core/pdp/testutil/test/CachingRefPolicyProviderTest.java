@@ -0,0 +1,354 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.testutil.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.ow2.authzforce.core.pdp.api.EvaluationContext;
+import org.ow2.authzforce.core.pdp.api.IndeterminateEvaluationException;
+import org.ow2.authzforce.core.pdp.api.expression.ExpressionFactory;
+import org.ow2.authzforce.core.pdp.api.policy.CloseableRefPolicyProvider;
+import org.ow2.authzforce.core.pdp.api.policy.PolicyVersion;
+import org.ow2.authzforce.core.pdp.api.policy.PolicyVersionPatterns;
+import org.ow2.authzforce.core.pdp.api.policy.RefPolicyProvider;
+import org.ow2.authzforce.core.pdp.api.policy.TopLevelPolicyElementEvaluator;
+import org.ow2.authzforce.core.pdp.api.policy.TopLevelPolicyElementType;
+import org.ow2.authzforce.core.pdp.api.value.AttributeValueFactory;
+import org.ow2.authzforce.core.pdp.api.value.AttributeValueFactoryRegistry;
+import org.ow2.authzforce.core.pdp.api.value.IntegerValue;
+import org.ow2.authzforce.core.pdp.api.value.StandardAttributeValueFactories;
+import org.ow2.authzforce.core.pdp.api.value.StandardDatatypes;
+import org.ow2.authzforce.core.pdp.api.value.StringParseableValue;
+import org.ow2.authzforce.core.pdp.impl.BasePdpEngine;
+import org.ow2.authzforce.core.pdp.impl.DefaultEnvironmentProperties;
+import org.ow2.authzforce.core.pdp.impl.PdpEngineConfiguration;
+import org.ow2.authzforce.core.pdp.impl.combining.StandardCombiningAlgorithm;
+import org.ow2.authzforce.core.pdp.impl.expression.DepthLimitingExpressionFactory;
+import org.ow2.authzforce.core.pdp.impl.func.FunctionRegistry;
+import org.ow2.authzforce.core.pdp.impl.func.StandardFunction;
+import org.ow2.authzforce.core.pdp.impl.policy.CachingRefPolicyProvider;
+import org.ow2.authzforce.core.pdp.impl.policy.PolicyEvaluators;
+import org.ow2.authzforce.core.pdp.testutil.ext.TestDynamicRefPolicyProvider;
+import org.ow2.authzforce.core.pdp.testutil.ext.xmlns.TestDynamicRefBasedRootPolicyProviderDescriptor;
+import org.ow2.authzforce.core.pdp.testutil.ext.xmlns.TestDynamicRefPolicyProviderDescriptor;
+import org.ow2.authzforce.core.xmlns.pdp.Pdp;
+import org.ow2.authzforce.core.xmlns.pdp.RefPolicyCache;
+import org.ow2.authzforce.core.xmlns.pdp.StaticRefPolicyProvider;
+import org.ow2.authzforce.core.xmlns.pdp.StaticRootPolicyProvider;
+
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.DecisionType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.IdReferenceType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.Policy;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.Target;
+
+/**
+ * Test of {@link CachingRefPolicyProvider}
+ *
+ */
+public class CachingRefPolicyProviderTest
+{
+	/**
+	 * Dynamic refPolicyProvider that builds a new (empty) Policy evaluator at each call, and counts the calls. The Policy version is the one required by the Version constraint if any (with '*' wildcards replaced by 0), else 1.0.
+	 * Policies with ID "unknown" are not found.
+	 */
+	private static final class CountingRefPolicyProvider implements CloseableRefPolicyProvider
+	{
+		private final AtomicInteger callCount = new AtomicInteger(0);
+
+		private final ExpressionFactory expressionFactory;
+
+		private CountingRefPolicyProvider() throws IOException
+		{
+			final AttributeValueFactoryRegistry valFactoryReg = StandardAttributeValueFactories.getRegistry(false, Optional.of(BigInteger.valueOf(Integer.MAX_VALUE)));
+			final AttributeValueFactory<?> intValFactory = valFactoryReg.getExtension(StandardDatatypes.INTEGER.getId());
+			final FunctionRegistry funcReg = StandardFunction.getRegistry(false, (StringParseableValue.Factory<IntegerValue>) intValFactory);
+			this.expressionFactory = new DepthLimitingExpressionFactory(valFactoryReg, funcReg, null, 0, false, false);
+		}
+
+		@Override
+		public Deque<String> joinPolicyRefChains(final Deque<String> policyRefChain1, final List<String> policyRefChain2) throws IllegalArgumentException
+		{
+			return RefPolicyProvider.joinPolicyRefChains(policyRefChain1, policyRefChain2, UNLIMITED_POLICY_REF_DEPTH);
+		}
+
+		@Override
+		public TopLevelPolicyElementEvaluator get(final TopLevelPolicyElementType policyType, final String policyId, final Optional<PolicyVersionPatterns> policyVersionConstraints,
+		        final Deque<String> policySetRefChain, final EvaluationContext evaluationCtx) throws IllegalArgumentException, IndeterminateEvaluationException
+		{
+			callCount.incrementAndGet();
+			if (policyId.equals("unknown"))
+			{
+				return null;
+			}
+
+			final String version = policyVersionConstraints.isPresent() && policyVersionConstraints.get().getVersionPattern().isPresent()
+			        ? policyVersionConstraints.get().getVersionPattern().get().toString().replace('*', '0') : "1.0";
+			final Policy policy = new Policy(null, null, null, new Target(null), Collections.emptyList(), null, null, policyId, version,
+			        "urn:oasis:names:tc:xacml:3.0:rule-combining-algorithm:deny-overrides", null);
+			return PolicyEvaluators.getInstance(policy, null, null, expressionFactory, StandardCombiningAlgorithm.REGISTRY);
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			expressionFactory.close();
+		}
+	}
+
+	private static final String POLICY_FORMAT = "<?xml version=\"1.0\" encoding=\"UTF-8\"?><Policy xmlns=\"urn:oasis:names:tc:xacml:3.0:core:schema:wd-17\" PolicyId=\"P1\" Version=\"%s\" RuleCombiningAlgId=\"urn:oasis:names:tc:xacml:3.0:rule-combining-algorithm:deny-overrides\">"
+	        + "<Target /><Rule RuleId=\"rule\" Effect=\"%s\" /></Policy>";
+
+	@Rule
+	public final TemporaryFolder tmpFolder = new TemporaryFolder();
+
+	private CountingRefPolicyProvider delegate;
+
+	@Before
+	public void setUp() throws IOException
+	{
+		delegate = new CountingRefPolicyProvider();
+	}
+
+	@After
+	public void tearDown() throws IOException
+	{
+		delegate.close();
+	}
+
+	private static TopLevelPolicyElementEvaluator getPolicy(final CachingRefPolicyProvider provider, final String policyId, final String version)
+	        throws IllegalArgumentException, IndeterminateEvaluationException
+	{
+		return provider.get(TopLevelPolicyElementType.POLICY, policyId, version == null ? Optional.empty() : Optional.of(new PolicyVersionPatterns(version, null, null)), null, null);
+	}
+
+	@Test
+	public void testCacheHits() throws IllegalArgumentException, IndeterminateEvaluationException, IOException
+	{
+		try (final CachingRefPolicyProvider provider = new CachingRefPolicyProvider(delegate, 0, 0))
+		{
+			final TopLevelPolicyElementEvaluator policy = getPolicy(provider, "P1", null);
+			assertSame(policy, getPolicy(provider, "P1", null));
+			assertEquals(1, delegate.callCount.get());
+
+			// different version constraints -> different cache entry
+			final TopLevelPolicyElementEvaluator policyV2 = getPolicy(provider, "P1", "2.0");
+			assertEquals(new PolicyVersion("2.0"), policyV2.getPolicyVersion(null));
+			assertSame(policyV2, getPolicy(provider, "P1", "2.0"));
+			assertEquals(2, delegate.callCount.get());
+
+			// unresolved references are not cached
+			assertNull(getPolicy(provider, "unknown", null));
+			assertNull(getPolicy(provider, "unknown", null));
+			assertEquals(4, delegate.callCount.get());
+			assertEquals(2, provider.getStats().hitCount());
+		}
+	}
+
+	@Test
+	public void testMaxSize() throws IllegalArgumentException, IndeterminateEvaluationException, IOException
+	{
+		try (final CachingRefPolicyProvider provider = new CachingRefPolicyProvider(delegate, 1, 0))
+		{
+			getPolicy(provider, "P1", null);
+			getPolicy(provider, "P2", null);
+			// P1 evicted
+			getPolicy(provider, "P1", null);
+			assertEquals(3, delegate.callCount.get());
+		}
+	}
+
+	@Test
+	public void testTimeToLive() throws IllegalArgumentException, IndeterminateEvaluationException, IOException, InterruptedException
+	{
+		try (final CachingRefPolicyProvider provider = new CachingRefPolicyProvider(delegate, 0, 1))
+		{
+			final TopLevelPolicyElementEvaluator policy = getPolicy(provider, "P1", null);
+			assertSame(policy, getPolicy(provider, "P1", null));
+			Thread.sleep(1100);
+			getPolicy(provider, "P1", null);
+			assertEquals(2, delegate.callCount.get());
+		}
+	}
+
+	@Test
+	public void testInvalidation() throws IllegalArgumentException, IndeterminateEvaluationException, IOException
+	{
+		try (final CachingRefPolicyProvider provider = new CachingRefPolicyProvider(delegate, 0, 0))
+		{
+			getPolicy(provider, "P1", null);
+			final TopLevelPolicyElementEvaluator policyV2 = getPolicy(provider, "P1", "2.0");
+			final TopLevelPolicyElementEvaluator policy2 = getPolicy(provider, "P2", null);
+			assertEquals(3, delegate.callCount.get());
+
+			// invalidate P1 v1.0 only
+			provider.invalidate(TopLevelPolicyElementType.POLICY, "P1", new PolicyVersion("1.0"));
+			getPolicy(provider, "P1", null);
+			assertSame(policyV2, getPolicy(provider, "P1", "2.0"));
+			assertEquals(4, delegate.callCount.get());
+
+			// invalidate all versions of P1
+			provider.invalidate(TopLevelPolicyElementType.POLICY, "P1");
+			getPolicy(provider, "P1", null);
+			getPolicy(provider, "P1", "2.0");
+			assertSame(policy2, getPolicy(provider, "P2", null));
+			assertEquals(6, delegate.callCount.get());
+
+			// no PolicySet with this ID
+			provider.invalidate(TopLevelPolicyElementType.POLICY_SET, "P2");
+			assertSame(policy2, getPolicy(provider, "P2", null));
+			assertEquals(6, delegate.callCount.get());
+
+			provider.invalidateAll();
+			getPolicy(provider, "P2", null);
+			assertEquals(7, delegate.callCount.get());
+		}
+	}
+
+	/**
+	 * Invalidating a version not cached yet (e.g. just published) removes the cached policies resolved from references that may resolve to this version now
+	 */
+	@Test
+	public void testInvalidationOfNewVersion() throws IllegalArgumentException, IndeterminateEvaluationException, IOException
+	{
+		try (final CachingRefPolicyProvider provider = new CachingRefPolicyProvider(delegate, 0, 0))
+		{
+			// resolved to version 1.0
+			getPolicy(provider, "P1", null);
+			final TopLevelPolicyElementEvaluator policyV1 = getPolicy(provider, "P1", "1.0");
+			final TopLevelPolicyElementEvaluator policyV2 = getPolicy(provider, "P1", "2.*");
+			assertEquals(3, delegate.callCount.get());
+
+			provider.invalidate(TopLevelPolicyElementType.POLICY, "P1", new PolicyVersion("2.1"));
+			// the reference without version constraints may resolve to 2.1 now
+			getPolicy(provider, "P1", null);
+			assertSame(policyV1, getPolicy(provider, "P1", "1.0"));
+			// the reference matching 2.* may resolve to 2.1 now
+			getPolicy(provider, "P1", "2.*");
+			assertEquals(5, delegate.callCount.get());
+		}
+	}
+
+	private static void writePolicy(final File policyFile, final String version, final String effect) throws IOException
+	{
+		Files.write(policyFile.toPath(), String.format(POLICY_FORMAT, version, effect).getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static DecisionType evaluate(final BasePdpEngine pdp)
+	{
+		return pdp.evaluate(pdp.newRequestBuilder(0, 0).build(false)).getDecision();
+	}
+
+	/**
+	 * refPolicyCache in the PDP configuration, decorating a dynamic refPolicyProvider used by a dynamic root policy provider, and invalidated through the configuration after publishing new policy
+	 * versions
+	 */
+	@Test
+	public void testRefPolicyCacheInPdpConfiguration() throws IllegalArgumentException, IOException
+	{
+		final File policyFile = tmpFolder.newFile("P1.xml");
+		writePolicy(policyFile, "1.0", "Permit");
+
+		final String refPolicyProviderId = "cachedDynamicRefPolicyProvider";
+		final TestDynamicRefPolicyProviderDescriptor jaxbRefPolicyProvider = new TestDynamicRefPolicyProviderDescriptor();
+		jaxbRefPolicyProvider.setId(refPolicyProviderId);
+		jaxbRefPolicyProvider.getPolicyLocations().add(policyFile.toURI().toString());
+		final TestDynamicRefBasedRootPolicyProviderDescriptor jaxbRootPolicyProvider = new TestDynamicRefBasedRootPolicyProviderDescriptor();
+		jaxbRootPolicyProvider.setId("rootPolicyProvider");
+		jaxbRootPolicyProvider.setPolicyRef(new IdReferenceType("P1", null, null, null));
+		final Pdp jaxbPdp = new Pdp();
+		jaxbPdp.setRefPolicyProvider(jaxbRefPolicyProvider);
+		jaxbPdp.setRefPolicyCache(new RefPolicyCache());
+		jaxbPdp.setRootPolicyProvider(jaxbRootPolicyProvider);
+		final PdpEngineConfiguration pdpEngineConf = new PdpEngineConfiguration(jaxbPdp, new DefaultEnvironmentProperties());
+		final int initialCallCount = TestDynamicRefPolicyProvider.getCallCount(refPolicyProviderId);
+		try (final BasePdpEngine pdp = new BasePdpEngine(pdpEngineConf))
+		{
+			assertEquals(DecisionType.PERMIT, evaluate(pdp));
+			assertEquals(DecisionType.PERMIT, evaluate(pdp));
+			assertEquals(DecisionType.PERMIT, evaluate(pdp));
+			assertEquals("Root policy not cached across requests", initialCallCount + 1, TestDynamicRefPolicyProvider.getCallCount(refPolicyProviderId));
+
+			// publish new version: cached version still used until invalidated
+			writePolicy(policyFile, "2.0", "Deny");
+			assertEquals(DecisionType.PERMIT, evaluate(pdp));
+			pdpEngineConf.invalidateCachedRefPolicy(TopLevelPolicyElementType.POLICY, "P1");
+			assertEquals(DecisionType.DENY, evaluate(pdp));
+			assertEquals(DecisionType.DENY, evaluate(pdp));
+			assertEquals(initialCallCount + 2, TestDynamicRefPolicyProvider.getCallCount(refPolicyProviderId));
+
+			// publish new version and invalidate this version only: the reference without version constraints matches it
+			writePolicy(policyFile, "3.0", "Permit");
+			pdpEngineConf.invalidateCachedRefPolicy(TopLevelPolicyElementType.POLICY, "P1", new PolicyVersion("3.0"));
+			assertEquals(DecisionType.PERMIT, evaluate(pdp));
+			assertEquals(initialCallCount + 3, TestDynamicRefPolicyProvider.getCallCount(refPolicyProviderId));
+
+			writePolicy(policyFile, "4.0", "Deny");
+			pdpEngineConf.invalidateCachedRefPolicies();
+			assertEquals(DecisionType.DENY, evaluate(pdp));
+			assertEquals(initialCallCount + 4, TestDynamicRefPolicyProvider.getCallCount(refPolicyProviderId));
+		}
+	}
+
+	/**
+	 * refPolicyCache is not allowed with a static refPolicyProvider (references resolved once and for all when the policies are loaded)
+	 */
+	@Test
+	public void testRefPolicyCacheWithStaticRefPolicyProviderRejected() throws IOException
+	{
+		final File policyFile = tmpFolder.newFile("P1.xml");
+		writePolicy(policyFile, "1.0", "Permit");
+		final StaticRefPolicyProvider jaxbRefPolicyProvider = new StaticRefPolicyProvider();
+		jaxbRefPolicyProvider.setId("refPolicyProvider");
+		jaxbRefPolicyProvider.getPolicyLocations().add(policyFile.toURI().toString());
+		final StaticRootPolicyProvider jaxbRootPolicyProvider = new StaticRootPolicyProvider();
+		jaxbRootPolicyProvider.setId("rootPolicyProvider");
+		jaxbRootPolicyProvider.setPolicyLocation(policyFile.toURI().toString());
+		final Pdp jaxbPdp = new Pdp();
+		jaxbPdp.setRefPolicyProvider(jaxbRefPolicyProvider);
+		jaxbPdp.setRefPolicyCache(new RefPolicyCache());
+		jaxbPdp.setRootPolicyProvider(jaxbRootPolicyProvider);
+		try
+		{
+			new PdpEngineConfiguration(jaxbPdp, new DefaultEnvironmentProperties());
+			fail("refPolicyCache accepted with a static refPolicyProvider");
+		}
+		catch (final IllegalArgumentException e)
+		{
+			// expected
+		}
+	}
+}
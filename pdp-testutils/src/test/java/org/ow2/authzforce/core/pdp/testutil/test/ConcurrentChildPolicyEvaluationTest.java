@@ -0,0 +1,442 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.testutil.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.ow2.authzforce.core.pdp.api.AttributeFqn;
+import org.ow2.authzforce.core.pdp.api.AttributeFqns;
+import org.ow2.authzforce.core.pdp.api.AttributeProvider;
+import org.ow2.authzforce.core.pdp.api.BaseNamedAttributeProvider;
+import org.ow2.authzforce.core.pdp.api.CloseableNamedAttributeProvider;
+import org.ow2.authzforce.core.pdp.api.DecisionRequest;
+import org.ow2.authzforce.core.pdp.api.DecisionRequestBuilder;
+import org.ow2.authzforce.core.pdp.api.DecisionResult;
+import org.ow2.authzforce.core.pdp.api.EvaluationContext;
+import org.ow2.authzforce.core.pdp.api.IndeterminateEvaluationException;
+import org.ow2.authzforce.core.pdp.api.PepAction;
+import org.ow2.authzforce.core.pdp.api.PepActionAttributeAssignment;
+import org.ow2.authzforce.core.pdp.api.combining.CombiningAlgRegistry;
+import org.ow2.authzforce.core.pdp.api.expression.ExpressionFactory;
+import org.ow2.authzforce.core.pdp.api.io.XacmlJaxbParsingUtils;
+import org.ow2.authzforce.core.pdp.api.value.AttributeBag;
+import org.ow2.authzforce.core.pdp.api.value.AttributeValue;
+import org.ow2.authzforce.core.pdp.api.value.AttributeValueFactory;
+import org.ow2.authzforce.core.pdp.api.value.AttributeValueFactoryRegistry;
+import org.ow2.authzforce.core.pdp.api.value.Bags;
+import org.ow2.authzforce.core.pdp.api.value.Datatype;
+import org.ow2.authzforce.core.pdp.api.value.IntegerValue;
+import org.ow2.authzforce.core.pdp.api.value.StandardAttributeValueFactories;
+import org.ow2.authzforce.core.pdp.api.value.StandardDatatypes;
+import org.ow2.authzforce.core.pdp.api.value.StringParseableValue;
+import org.ow2.authzforce.core.pdp.api.value.StringValue;
+import org.ow2.authzforce.core.pdp.impl.BasePdpEngine;
+import org.ow2.authzforce.core.pdp.impl.DefaultEnvironmentProperties;
+import org.ow2.authzforce.core.pdp.impl.PdpEngineConfiguration;
+import org.ow2.authzforce.core.pdp.impl.combining.StandardCombiningAlgorithm;
+import org.ow2.authzforce.core.pdp.impl.expression.DepthLimitingExpressionFactory;
+import org.ow2.authzforce.core.pdp.impl.func.FunctionRegistry;
+import org.ow2.authzforce.core.pdp.impl.func.StandardFunction;
+import org.ow2.authzforce.core.pdp.impl.policy.CoreRootPolicyProvider;
+import org.ow2.authzforce.core.xmlns.pdp.Pdp;
+import org.ow2.authzforce.core.xmlns.pdp.StandardEnvironmentAttributeSource;
+import org.ow2.authzforce.core.xmlns.pdp.StaticRootPolicyProvider;
+import org.ow2.authzforce.xacml.identifiers.XacmlAttributeCategory;
+import org.ow2.authzforce.xacml.identifiers.XacmlAttributeId;
+import org.springframework.util.ResourceUtils;
+
+import com.google.common.collect.ImmutableMap;
+
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributeDesignatorType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.DecisionType;
+
+/**
+ * Test of the concurrent evaluation of child policies by the deny-overrides and permit-overrides policy combining algorithms ('childPolicyEvaluationThreads' PDP configuration parameter), with child
+ * policies depending on slow attribute providers: same results as the sequential evaluation, no attribute provider call from child policies after the one returning the overriding decision, and
+ * shutdown of the threads when the PDP engine is closed.
+ */
+public class ConcurrentChildPolicyEvaluationTest
+{
+	/**
+	 * Name of directory that contains test resources (not under 'custom' directory, so not run by {@link CustomPdpTest})
+	 */
+	public final static String TEST_RESOURCES_DIRECTORY_LOCATION = "classpath:ConcurrentChildPolicyEvaluation";
+
+	private static final String SUBJECT_CATEGORY = XacmlAttributeCategory.XACML_1_0_ACCESS_SUBJECT.value();
+
+	private static final String ENVIRONMENT_CATEGORY = XacmlAttributeCategory.XACML_3_0_ENVIRONMENT.value();
+
+	private static final AttributeFqn SUBJECT_ID = AttributeFqns.newInstance(SUBJECT_CATEGORY, Optional.empty(), XacmlAttributeId.XACML_1_0_SUBJECT_ID.value());
+
+	private static final String CHILD_POLICY_EVALUATION_THREAD_NAME_PREFIX = "authzforce-pdp-child-policy-";
+
+	private static final List<String> SUBJECTS = Arrays.asList("alice", "bob", "carol", "dave", "eve", "mallory");
+
+	private static final int CONCURRENT_REQUEST_COUNT = 300;
+
+	/**
+	 * Attribute provider of string attributes (always with the same value 'value') in the environment category, taking some time to get each attribute, and recording the IDs of the attributes
+	 * requested and returned
+	 */
+	private static final class SlowAttributeProvider extends BaseNamedAttributeProvider
+	{
+		private static final AttributeBag<StringValue> ATTRIBUTE_VALUE = Bags.singletonAttributeBag(StandardDatatypes.STRING, new StringValue("value"));
+
+		private final Map<String, Long> delayMsByAttributeId;
+		private final Set<AttributeDesignatorType> providedAttributes;
+		private final ConcurrentLinkedQueue<String> requestedAttributeIds = new ConcurrentLinkedQueue<>();
+		private final ConcurrentLinkedQueue<String> returnedAttributeIds = new ConcurrentLinkedQueue<>();
+
+		private SlowAttributeProvider(final Map<String, Long> delayMsByAttributeId)
+		{
+			super("slowAttributeProvider");
+			this.delayMsByAttributeId = delayMsByAttributeId;
+			this.providedAttributes = delayMsByAttributeId.keySet().stream()
+			        .map(attributeId -> new AttributeDesignatorType(ENVIRONMENT_CATEGORY, attributeId, StandardDatatypes.STRING.getId(), null, false)).collect(Collectors.toSet());
+		}
+
+		@Override
+		public void close()
+		{
+			// nothing to close
+		}
+
+		@Override
+		public Set<AttributeDesignatorType> getProvidedAttributes()
+		{
+			return providedAttributes;
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public <AV extends AttributeValue> AttributeBag<AV> get(final AttributeFqn attributeFqn, final Datatype<AV> attributeDatatype, final EvaluationContext context)
+		        throws IndeterminateEvaluationException
+		{
+			requestedAttributeIds.add(attributeFqn.getId());
+			try
+			{
+				Thread.sleep(delayMsByAttributeId.get(attributeFqn.getId()));
+			}
+			catch (final InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+
+			returnedAttributeIds.add(attributeFqn.getId());
+			return (AttributeBag<AV>) ATTRIBUTE_VALUE;
+		}
+
+		/*
+		 * Factory always returning this instance
+		 */
+		private CloseableNamedAttributeProvider.DependencyAwareFactory getFactory()
+		{
+			return new CloseableNamedAttributeProvider.DependencyAwareFactory()
+			{
+
+				@Override
+				public Set<AttributeDesignatorType> getDependencies()
+				{
+					// no dependency
+					return null;
+				}
+
+				@Override
+				public CloseableNamedAttributeProvider getInstance(final AttributeValueFactoryRegistry attributeValueFactories, final AttributeProvider depAttrProvider)
+				{
+					return SlowAttributeProvider.this;
+				}
+			};
+		}
+	}
+
+	private AttributeValueFactoryRegistry valFactoryReg;
+	private FunctionRegistry funcReg;
+	private ExecutorService childPolicyEvaluationExecutor;
+
+	@Before
+	public void setUp()
+	{
+		valFactoryReg = StandardAttributeValueFactories.getRegistry(false, Optional.of(BigInteger.valueOf(Integer.MAX_VALUE)));
+		final AttributeValueFactory<?> intValFactory = valFactoryReg.getExtension(StandardDatatypes.INTEGER.getId());
+		funcReg = StandardFunction.getRegistry(false, (StringParseableValue.Factory<IntegerValue>) intValFactory);
+		/*
+		 * Same kind of executor as the one created from the PDP configuration: no task queue, rejected tasks run in the caller's thread
+		 */
+		childPolicyEvaluationExecutor = new ThreadPoolExecutor(4, 4, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), (task, executor) -> task.run());
+	}
+
+	@After
+	public void tearDown()
+	{
+		childPolicyEvaluationExecutor.shutdownNow();
+	}
+
+	/*
+	 * combiningAlgRegistry determines whether the child policies are evaluated concurrently
+	 */
+	private BasePdpEngine newPdp(final String rootPolicyFilename, final SlowAttributeProvider attributeProvider, final CombiningAlgRegistry combiningAlgRegistry)
+	        throws IllegalArgumentException, IOException
+	{
+		final ExpressionFactory expressionFactory = new DepthLimitingExpressionFactory(valFactoryReg, funcReg, Collections.singletonList(attributeProvider.getFactory()), 0, false, false);
+		final CoreRootPolicyProvider rootPolicyProvider = CoreRootPolicyProvider.getInstance(ResourceUtils.getURL(TEST_RESOURCES_DIRECTORY_LOCATION + "/" + rootPolicyFilename),
+		        XacmlJaxbParsingUtils.getXacmlParserFactory(false), expressionFactory, combiningAlgRegistry, Optional.empty());
+		return new BasePdpEngine(expressionFactory, rootPolicyProvider, false, StandardEnvironmentAttributeSource.REQUEST_ELSE_PDP, Optional.empty(), BasePdpEngine.Options.DEFAULT);
+	}
+
+	private static DecisionResult evaluate(final BasePdpEngine pdp, final String subjectId)
+	{
+		final DecisionRequestBuilder<?> requestBuilder = pdp.newRequestBuilder(1, 1);
+		requestBuilder.putNamedAttributeIfAbsent(SUBJECT_ID, Bags.singletonAttributeBag(StandardDatatypes.STRING, new StringValue(subjectId)));
+		final DecisionRequest request = requestBuilder.build(false);
+		return pdp.evaluate(request);
+	}
+
+	private static List<String> getObligationIds(final DecisionResult result)
+	{
+		final List<String> obligationIds = new ArrayList<>();
+		for (final PepAction pepAction : result.getPepActions())
+		{
+			if (pepAction.isMandatory())
+			{
+				obligationIds.add(pepAction.getId());
+			}
+		}
+
+		return obligationIds;
+	}
+
+	private static void assertSameResult(final String message, final DecisionResult expected, final DecisionResult actual)
+	{
+		assertEquals(message, expected.getDecision(), actual.getDecision());
+		assertEquals(message, expected.getExtendedIndeterminate(), actual.getExtendedIndeterminate());
+		assertEquals(message, expected.getPepActions(), actual.getPepActions());
+	}
+
+	private static Set<Thread> getChildPolicyEvaluationThreads()
+	{
+		return Thread.getAllStackTraces().keySet().stream().filter(thread -> thread.getName().startsWith(CHILD_POLICY_EVALUATION_THREAD_NAME_PREFIX)).collect(Collectors.toSet());
+	}
+
+	/**
+	 * Same decisions and obligations (in the same order) as the sequential evaluation, for many requests evaluated concurrently, with child policies defining Variables with the same VariableId and a
+	 * nested PolicySet (permit-overrides) also evaluated concurrently
+	 */
+	@Test
+	public void testSameResultsAsSequentialEvaluation() throws IllegalArgumentException, IOException, InterruptedException, ExecutionException
+	{
+		final Map<String, Long> delayMsByAttributeId = ImmutableMap.of("slow-a", 1L, "slow-b", 2L, "slow-c", 1L);
+		final Map<String, DecisionResult> sequentialResultsBySubject = new HashMap<>();
+		try (final BasePdpEngine pdp = newPdp("policyset.xml", new SlowAttributeProvider(delayMsByAttributeId), StandardCombiningAlgorithm.REGISTRY))
+		{
+			for (final String subject : SUBJECTS)
+			{
+				sequentialResultsBySubject.put(subject, evaluate(pdp, subject));
+			}
+		}
+
+		/*
+		 * Make sure the compared results are not trivial
+		 */
+		assertEquals(DecisionType.PERMIT, sequentialResultsBySubject.get("alice").getDecision());
+		assertEquals(Arrays.asList("obligation-permit-1", "obligation-permit-2", "obligation-nested-permit-4", "obligation-permit-5"),
+		        getObligationIds(sequentialResultsBySubject.get("alice")));
+		assertEquals(DecisionType.DENY, sequentialResultsBySubject.get("bob").getDecision());
+		assertEquals(Collections.singletonList("obligation-nested-deny-1"), getObligationIds(sequentialResultsBySubject.get("bob")));
+		assertEquals(DecisionType.PERMIT, sequentialResultsBySubject.get("carol").getDecision());
+		assertEquals(Arrays.asList("obligation-permit-1", "obligation-permit-2", "obligation-nested-permit-2"), getObligationIds(sequentialResultsBySubject.get("carol")));
+		assertEquals(DecisionType.DENY, sequentialResultsBySubject.get("dave").getDecision());
+		assertEquals(Collections.singletonList("obligation-deny-4"), getObligationIds(sequentialResultsBySubject.get("dave")));
+		assertEquals(DecisionType.INDETERMINATE, sequentialResultsBySubject.get("eve").getDecision());
+		assertEquals(DecisionType.NOT_APPLICABLE, sequentialResultsBySubject.get("mallory").getDecision());
+
+		final ExecutorService requestExecutor = Executors.newFixedThreadPool(8);
+		try (final BasePdpEngine pdp = newPdp("policyset.xml", new SlowAttributeProvider(delayMsByAttributeId),
+		        StandardCombiningAlgorithm.getRegistry(childPolicyEvaluationExecutor, 2)))
+		{
+			final List<Future<DecisionResult>> futureResults = new ArrayList<>(CONCURRENT_REQUEST_COUNT);
+			for (int i = 0; i < CONCURRENT_REQUEST_COUNT; i++)
+			{
+				final String subject = SUBJECTS.get(i % SUBJECTS.size());
+				futureResults.add(requestExecutor.submit((Callable<DecisionResult>) () -> evaluate(pdp, subject)));
+			}
+
+			for (int i = 0; i < CONCURRENT_REQUEST_COUNT; i++)
+			{
+				final String subject = SUBJECTS.get(i % SUBJECTS.size());
+				assertSameResult("Request #" + i + " (subject: " + subject + ")", sequentialResultsBySubject.get(subject), futureResults.get(i).get());
+			}
+		}
+		finally
+		{
+			requestExecutor.shutdown();
+		}
+	}
+
+	/**
+	 * The first child policy returns the overriding decision (Deny) while the next ones are waiting for a slow attribute: they must not request any other attribute afterwards, and the last one,
+	 * submitted after that (all threads busy, so the previous one is evaluated in the caller's thread), must not be evaluated at all.
+	 */
+	@Test
+	public void testNoAttributeRequestAfterOverridingChild() throws IllegalArgumentException, IOException
+	{
+		final Map<String, Long> delayMsByAttributeId = ImmutableMap.<String, Long> builder().put("fast-0", 100L).put("slow-wait-1", 500L).put("slow-wait-2", 500L).put("slow-wait-3", 500L)
+		        .put("slow-wait-4", 500L).put("slow-wait-5", 500L).put("last-1", 0L).put("last-2", 0L).put("last-3", 0L).put("last-4", 0L).put("last-5", 0L).build();
+		final SlowAttributeProvider attributeProvider = new SlowAttributeProvider(delayMsByAttributeId);
+		try (final BasePdpEngine pdp = newPdp("overriding-child.xml", attributeProvider, StandardCombiningAlgorithm.getRegistry(childPolicyEvaluationExecutor, 2)))
+		{
+			final DecisionResult result = evaluate(pdp, "alice");
+			assertEquals(DecisionType.DENY, result.getDecision());
+			assertEquals(Collections.singletonList("obligation-deny-0"), getObligationIds(result));
+		}
+
+		final Set<String> requestedAttributeIds = new HashSet<>(attributeProvider.requestedAttributeIds);
+		assertTrue("Child policies not evaluated concurrently: " + requestedAttributeIds, requestedAttributeIds.containsAll(Arrays.asList("fast-0", "slow-wait-1", "slow-wait-2")));
+		for (int i = 1; i <= 5; i++)
+		{
+			assertFalse("Attribute requested after the overriding decision: " + requestedAttributeIds, requestedAttributeIds.contains("last-" + i));
+		}
+
+		assertFalse("Child policy evaluated after the overriding decision: " + requestedAttributeIds, requestedAttributeIds.contains("slow-wait-5"));
+	}
+
+	/**
+	 * The first child policy returns the overriding decision (Deny) while the second one is waiting for a slow attribute: the PDP must wait for the end of the second one before returning the
+	 * decision, so that no child policy still uses the evaluation context afterwards. The last attribute looked up by the second one after the cancellation is also used by the Obligation of the
+	 * root PolicySet: the empty bag resulting from the cancelled lookup must not be used there instead of the actual value.
+	 */
+	@Test
+	public void testNoChildPolicyEvaluationAfterDecision() throws IllegalArgumentException, IOException
+	{
+		final Map<String, Long> delayMsByAttributeId = ImmutableMap.of("fast-0", 100L, "slow-wait-1", 500L, "last-1", 0L);
+		final SlowAttributeProvider attributeProvider = new SlowAttributeProvider(delayMsByAttributeId);
+		try (final BasePdpEngine pdp = newPdp("cancelled-child.xml", attributeProvider, StandardCombiningAlgorithm.getRegistry(childPolicyEvaluationExecutor, 2)))
+		{
+			final DecisionResult result = evaluate(pdp, "alice");
+			assertEquals(DecisionType.DENY, result.getDecision());
+			assertEquals(Arrays.asList("obligation-deny-0", "obligation-deny-root"), getObligationIds(result));
+			final PepAction rootObligation = result.getPepActions().get(1);
+			assertEquals("Attribute value of the cancelled lookup", Collections.singletonList(new StringValue("value")),
+			        rootObligation.getAttributeAssignments().stream().map(PepActionAttributeAssignment::getValue).collect(Collectors.toList()));
+			assertEquals("Attribute requests still in progress after the decision", new HashSet<>(attributeProvider.requestedAttributeIds),
+			        new HashSet<>(attributeProvider.returnedAttributeIds));
+		}
+
+		assertTrue("Child policies not evaluated concurrently: " + attributeProvider.requestedAttributeIds, attributeProvider.requestedAttributeIds.contains("slow-wait-1"));
+	}
+
+	private static BasePdpEngine newPdp(final int childPolicyEvaluationThreads, final int childPolicyEvaluationMinChildren) throws IllegalArgumentException, IOException
+	{
+		final Pdp jaxbPdp = new Pdp();
+		jaxbPdp.setChildPolicyEvaluationThreads(BigInteger.valueOf(childPolicyEvaluationThreads));
+		jaxbPdp.setChildPolicyEvaluationMinChildren(BigInteger.valueOf(childPolicyEvaluationMinChildren));
+		final StaticRootPolicyProvider jaxbRootPolicyProvider = new StaticRootPolicyProvider();
+		jaxbRootPolicyProvider.setId("rootPolicyProvider");
+		jaxbRootPolicyProvider.setPolicyLocation(ResourceUtils.getURL(TEST_RESOURCES_DIRECTORY_LOCATION + "/policyset.xml").toString());
+		jaxbPdp.setRootPolicyProvider(jaxbRootPolicyProvider);
+		final PdpEngineConfiguration pdpEngineConf = new PdpEngineConfiguration(jaxbPdp, new DefaultEnvironmentProperties());
+		assertEquals(childPolicyEvaluationThreads, pdpEngineConf.getChildPolicyEvaluationThreads());
+		assertEquals(childPolicyEvaluationMinChildren, pdpEngineConf.getChildPolicyEvaluationMinChildren());
+		return new BasePdpEngine(pdpEngineConf);
+	}
+
+	/**
+	 * The threads evaluating child policies, created by the PDP engine configuration, are terminated when the PDP engine is closed
+	 */
+	@Test
+	public void testThreadsTerminatedOnClose() throws IllegalArgumentException, IOException, InterruptedException
+	{
+		final Set<Thread> newThreads = new HashSet<>();
+		final Set<Thread> previousThreads = getChildPolicyEvaluationThreads();
+		try (final BasePdpEngine pdp = newPdp(2, 2))
+		{
+			// slow attributes not provided
+			assertEquals(DecisionType.INDETERMINATE, evaluate(pdp, "alice").getDecision());
+			newThreads.addAll(getChildPolicyEvaluationThreads());
+			newThreads.removeAll(previousThreads);
+			assertFalse("No thread created for child policy evaluation", newThreads.isEmpty());
+		}
+
+		for (final Thread thread : newThreads)
+		{
+			thread.join(TimeUnit.SECONDS.toMillis(5));
+			assertFalse("Child policy evaluation thread still alive after the PDP engine is closed: " + thread, thread.isAlive());
+		}
+	}
+
+	/**
+	 * Child policies are evaluated sequentially in the caller's thread if fewer than 'childPolicyEvaluationMinChildren'
+	 */
+	@Test
+	public void testFewChildPoliciesEvaluatedSequentially() throws IllegalArgumentException, IOException
+	{
+		final Set<Thread> previousThreads = getChildPolicyEvaluationThreads();
+		// 6 child policies in the root PolicySet, 4 in the nested one
+		try (final BasePdpEngine pdp = newPdp(2, 7))
+		{
+			assertEquals(DecisionType.INDETERMINATE, evaluate(pdp, "alice").getDecision());
+			final Set<Thread> newThreads = getChildPolicyEvaluationThreads();
+			newThreads.removeAll(previousThreads);
+			assertEquals("Threads created for child policy evaluation", Collections.emptySet(), newThreads);
+		}
+	}
+
+	/**
+	 * Concurrent evaluation of fewer than 2 child policies is not allowed
+	 */
+	@Test
+	public void testInvalidMinChildren() throws IOException
+	{
+		try (final BasePdpEngine pdp = newPdp(2, 1))
+		{
+			fail("Invalid childPolicyEvaluationMinChildren accepted");
+		}
+		catch (final IllegalArgumentException e)
+		{
+			// expected
+		}
+	}
+}
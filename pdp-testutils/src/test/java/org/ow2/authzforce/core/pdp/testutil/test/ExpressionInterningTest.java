@@ -0,0 +1,126 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.testutil.test;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.ow2.authzforce.core.pdp.api.expression.ExpressionFactory;
+import org.ow2.authzforce.core.pdp.api.value.AttributeValueFactory;
+import org.ow2.authzforce.core.pdp.api.value.AttributeValueFactoryRegistry;
+import org.ow2.authzforce.core.pdp.api.value.IntegerValue;
+import org.ow2.authzforce.core.pdp.api.value.StandardAttributeValueFactories;
+import org.ow2.authzforce.core.pdp.api.value.StandardDatatypes;
+import org.ow2.authzforce.core.pdp.api.value.StringParseableValue;
+import org.ow2.authzforce.core.pdp.impl.expression.DepthLimitingExpressionFactory;
+import org.ow2.authzforce.core.pdp.impl.func.FunctionRegistry;
+import org.ow2.authzforce.core.pdp.impl.func.StandardFunction;
+import org.ow2.authzforce.xacml.identifiers.XacmlAttributeCategory;
+
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.ApplyType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributeDesignatorType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributeValueType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.ObjectFactory;
+
+/**
+ * Test of hash-consing of identical expressions by {@link DepthLimitingExpressionFactory}
+ *
+ */
+public class ExpressionInterningTest
+{
+	private static final ObjectFactory XACML_OBJECT_FACTORY = new ObjectFactory();
+
+	private static final String SUBJECT_CATEGORY = XacmlAttributeCategory.XACML_1_0_ACCESS_SUBJECT.value();
+
+	private ExpressionFactory expressionFactory;
+
+	@Before
+	public void setUp() throws IOException
+	{
+		final AttributeValueFactoryRegistry valFactoryReg = StandardAttributeValueFactories.getRegistry(false, Optional.of(BigInteger.valueOf(Integer.MAX_VALUE)));
+		final AttributeValueFactory<?> intValFactory = valFactoryReg.getExtension(StandardDatatypes.INTEGER.getId());
+		final FunctionRegistry funcReg = StandardFunction.getRegistry(false, (StringParseableValue.Factory<IntegerValue>) intValFactory);
+		expressionFactory = new DepthLimitingExpressionFactory(valFactoryReg, funcReg, null, 0, false, false);
+	}
+
+	@After
+	public void tearDown() throws IOException
+	{
+		expressionFactory.close();
+	}
+
+	private static AttributeValueType newAttributeValue(final String datatypeId, final String value)
+	{
+		return new AttributeValueType(Collections.singletonList(value), datatypeId, null);
+	}
+
+	private static ApplyType newIntegerAdd(final String... integers)
+	{
+		return new ApplyType(null, Arrays.asList(XACML_OBJECT_FACTORY.createAttributeValue(newAttributeValue(StandardDatatypes.INTEGER.getId(), integers[0])),
+		        XACML_OBJECT_FACTORY.createAttributeValue(newAttributeValue(StandardDatatypes.INTEGER.getId(), integers[1]))), "urn:oasis:names:tc:xacml:1.0:function:integer-add");
+	}
+
+	@Test
+	public void testAttributeDesignators()
+	{
+		assertSame(expressionFactory.getInstance(new AttributeDesignatorType(SUBJECT_CATEGORY, "role", StandardDatatypes.STRING.getId(), null, false), null, null),
+		        expressionFactory.getInstance(new AttributeDesignatorType(SUBJECT_CATEGORY, "role", StandardDatatypes.STRING.getId(), null, false), null, null));
+		// different MustBePresent
+		assertNotSame(expressionFactory.getInstance(new AttributeDesignatorType(SUBJECT_CATEGORY, "role", StandardDatatypes.STRING.getId(), null, false), null, null),
+		        expressionFactory.getInstance(new AttributeDesignatorType(SUBJECT_CATEGORY, "role", StandardDatatypes.STRING.getId(), null, true), null, null));
+		// different datatype
+		assertNotSame(expressionFactory.getInstance(new AttributeDesignatorType(SUBJECT_CATEGORY, "role", StandardDatatypes.STRING.getId(), null, false), null, null),
+		        expressionFactory.getInstance(new AttributeDesignatorType(SUBJECT_CATEGORY, "role", StandardDatatypes.ANYURI.getId(), null, false), null, null));
+		// different Issuer
+		assertNotSame(expressionFactory.getInstance(new AttributeDesignatorType(SUBJECT_CATEGORY, "role", StandardDatatypes.STRING.getId(), null, false), null, null),
+		        expressionFactory.getInstance(new AttributeDesignatorType(SUBJECT_CATEGORY, "role", StandardDatatypes.STRING.getId(), "issuer", false), null, null));
+	}
+
+	@Test
+	public void testAttributeValues()
+	{
+		assertSame(expressionFactory.getInstance(newAttributeValue(StandardDatatypes.STRING.getId(), "manager"), null),
+		        expressionFactory.getInstance(newAttributeValue(StandardDatatypes.STRING.getId(), "manager"), null));
+		assertNotSame(expressionFactory.getInstance(newAttributeValue(StandardDatatypes.STRING.getId(), "manager"), null),
+		        expressionFactory.getInstance(newAttributeValue(StandardDatatypes.ANYURI.getId(), "manager"), null));
+		/*
+		 * Equal dateTimes (same instant) but with different timezones must not be interned, since the timezone may make a difference in the result of some functions (e.g.
+		 * string-from-dateTime)
+		 */
+		assertNotSame(expressionFactory.getInstance(newAttributeValue(StandardDatatypes.DATETIME.getId(), "2018-01-01T00:00:00Z"), null),
+		        expressionFactory.getInstance(newAttributeValue(StandardDatatypes.DATETIME.getId(), "2018-01-01T01:00:00+01:00"), null));
+	}
+
+	@Test
+	public void testConstantApply()
+	{
+		assertSame(expressionFactory.getInstance(newIntegerAdd("2", "3"), null, null), expressionFactory.getInstance(newIntegerAdd("2", "3"), null, null));
+		// same constant result
+		assertSame(expressionFactory.getInstance(newIntegerAdd("2", "3"), null, null), expressionFactory.getInstance(newAttributeValue(StandardDatatypes.INTEGER.getId(), "5"), null));
+		assertNotSame(expressionFactory.getInstance(newIntegerAdd("2", "3"), null, null), expressionFactory.getInstance(newIntegerAdd("2", "4"), null, null));
+	}
+}
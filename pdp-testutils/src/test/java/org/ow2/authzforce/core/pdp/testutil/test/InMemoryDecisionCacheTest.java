@@ -0,0 +1,78 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.testutil.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Optional;
+
+import javax.xml.bind.JAXBException;
+
+import org.junit.Test;
+import org.ow2.authzforce.core.pdp.api.DecisionCache;
+import org.ow2.authzforce.core.pdp.api.XmlUtils.XmlnsFilteringParser;
+import org.ow2.authzforce.core.pdp.api.io.PdpEngineInoutAdapter;
+import org.ow2.authzforce.core.pdp.api.io.XacmlJaxbParsingUtils;
+import org.ow2.authzforce.core.pdp.impl.PdpEngineConfiguration;
+import org.ow2.authzforce.core.pdp.impl.cache.CoreInMemoryDecisionCache;
+import org.ow2.authzforce.core.pdp.impl.io.PdpEngineAdapters;
+import org.ow2.authzforce.core.pdp.testutil.PdpTest;
+import org.ow2.authzforce.core.pdp.testutil.TestUtils;
+
+import com.google.common.cache.CacheStats;
+
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.Request;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.Response;
+
+/**
+ * Test of {@link CoreInMemoryDecisionCache} statistics
+ *
+ */
+public class InMemoryDecisionCacheTest
+{
+	/**
+	 * Name of directory that contains test resources
+	 */
+	public final static String TEST_RESOURCES_DIRECTORY_LOCATION = "classpath:custom/DecisionCache.PolicyAwareKeys";
+
+	@Test
+	public void testPolicyAwareKeys() throws IllegalArgumentException, IOException, JAXBException
+	{
+		final String testResourceLocationPrefix = TEST_RESOURCES_DIRECTORY_LOCATION + "/";
+		final PdpEngineConfiguration pdpEngineConf = PdpEngineConfiguration.getInstance(testResourceLocationPrefix + PdpTest.PDP_CONF_FILENAME);
+		final Optional<DecisionCache> decisionCache = pdpEngineConf.getDecisionCache();
+		assertTrue("Decision cache undefined in PDP configuration", decisionCache.isPresent() && decisionCache.get() instanceof CoreInMemoryDecisionCache);
+
+		final XmlnsFilteringParser unmarshaller = XacmlJaxbParsingUtils.getXacmlParserFactory(false).getInstance();
+		final Request request = TestUtils.createRequest(testResourceLocationPrefix + PdpTest.REQUEST_FILENAME, unmarshaller);
+		final Response expectedResponse = TestUtils.createResponse(testResourceLocationPrefix + PdpTest.EXPECTED_RESPONSE_FILENAME, unmarshaller);
+		try (final PdpEngineInoutAdapter<Request, Response> pdp = PdpEngineAdapters.newXacmlJaxbInoutAdapter(pdpEngineConf))
+		{
+			final Response response = pdp.evaluate(request, null);
+			TestUtils.assertNormalizedEquals(testResourceLocationPrefix, expectedResponse, response);
+			/*
+			 * The first two Individual Decision Requests differ only by an attribute that the policy does not use, so the second one must be a cache hit.
+			 */
+			final CacheStats stats = ((CoreInMemoryDecisionCache) decisionCache.get()).getStats();
+			assertEquals("Invalid number of decision cache hits", 1, stats.hitCount());
+			assertEquals("Invalid number of decision cache misses", 2, stats.missCount());
+		}
+	}
+}
@@ -36,7 +36,8 @@ import org.slf4j.LoggerFactory;
  */
 @RunWith(Suite.class)
 @SuiteClasses(value = { ConformanceV3FromV2MandatoryTest.class, ConformanceV3FromV2OptionalTest.class, ConformanceV3OthersTest.class, PdpGetStaticApplicablePoliciesTest.class, CustomPdpTest.class,
-		MongoDBRefPolicyProviderTest.class, EmbeddedPdpBasedAuthzInterceptorTest.class, NonRegressionTest.class })
+		InMemoryDecisionCacheTest.class, AsyncEvaluationTest.class, AdaptiveMatchOrderingTest.class, AdaptiveCombiningOrderTest.class, ConcurrentChildPolicyEvaluationTest.class, TenantDispatchingRootPolicyProviderTest.class, PolicyReloadTest.class, PolicySnapshotTest.class, StreamingRootPolicyTest.class, RuleCombiningOptimizationTest.class, ExpressionInterningTest.class,
+		CachingRefPolicyProviderTest.class, PolicyVersionsTest.class, MongoDBRefPolicyProviderTest.class, EmbeddedPdpBasedAuthzInterceptorTest.class, NonRegressionTest.class })
 public class MainTest
 {
 	/**
@@ -0,0 +1,407 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.testutil.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.ow2.authzforce.core.pdp.api.DecisionRequest;
+import org.ow2.authzforce.core.pdp.api.DecisionResult;
+import org.ow2.authzforce.core.pdp.api.DecisionResults;
+import org.ow2.authzforce.core.pdp.api.EvaluationContext;
+import org.ow2.authzforce.core.pdp.api.IndeterminateEvaluationException;
+import org.ow2.authzforce.core.pdp.api.expression.ExpressionFactory;
+import org.ow2.authzforce.core.pdp.api.io.XacmlJaxbParsingUtils;
+import org.ow2.authzforce.core.pdp.api.policy.TopLevelPolicyElementType;
+import org.ow2.authzforce.core.pdp.api.value.AttributeValueFactory;
+import org.ow2.authzforce.core.pdp.api.value.AttributeValueFactoryRegistry;
+import org.ow2.authzforce.core.pdp.api.value.IntegerValue;
+import org.ow2.authzforce.core.pdp.api.value.StandardAttributeValueFactories;
+import org.ow2.authzforce.core.pdp.api.value.StandardDatatypes;
+import org.ow2.authzforce.core.pdp.api.value.StringParseableValue;
+import org.ow2.authzforce.core.pdp.impl.BasePdpEngine;
+import org.ow2.authzforce.core.pdp.impl.PdpEngineConfiguration;
+import org.ow2.authzforce.core.pdp.impl.cache.CoreInMemoryDecisionCache;
+import org.ow2.authzforce.core.pdp.impl.combining.StandardCombiningAlgorithm;
+import org.ow2.authzforce.core.pdp.impl.expression.DepthLimitingExpressionFactory;
+import org.ow2.authzforce.core.pdp.impl.func.FunctionRegistry;
+import org.ow2.authzforce.core.pdp.impl.func.StandardFunction;
+import org.ow2.authzforce.core.pdp.impl.policy.CoreRefPolicyProvider;
+import org.ow2.authzforce.core.pdp.impl.policy.FlattenedPolicyTree;
+import org.ow2.authzforce.core.pdp.impl.policy.RootPolicyEvaluator;
+import org.ow2.authzforce.core.pdp.impl.policy.RootPolicyEvaluators;
+
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.DecisionType;
+
+/**
+ * Test of policy reloading ({@link BasePdpEngine#reloadPolicies()}), on demand and on policy file change
+ *
+ */
+public class PolicyReloadTest
+{
+	private static final String PDP_CONF_FORMAT = "<?xml version=\"1.0\" encoding=\"UTF-8\"?><pdp xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" xmlns=\"http://authzforce.github.io/core/xmlns/pdp/6.0\" version=\"6.0.0\" policyReloadCheckIntervalSec=\"%d\">"
+			+ "<rootPolicyProvider id=\"rootPolicyProvider\" xsi:type=\"StaticRootPolicyProvider\" policyLocation=\"%s\" /></pdp>";
+
+	private static final String POLICY_FORMAT = "<?xml version=\"1.0\" encoding=\"UTF-8\"?><Policy xmlns=\"urn:oasis:names:tc:xacml:3.0:core:schema:wd-17\" PolicyId=\"root\" Version=\"%s\" RuleCombiningAlgId=\"urn:oasis:names:tc:xacml:3.0:rule-combining-algorithm:deny-overrides\">"
+			+ "<Target /><Rule RuleId=\"rule\" Effect=\"%s\" /></Policy>";
+
+	private static final String REF_POLICY_FORMAT = "<?xml version=\"1.0\" encoding=\"UTF-8\"?><Policy xmlns=\"urn:oasis:names:tc:xacml:3.0:core:schema:wd-17\" PolicyId=\"%s\" Version=\"1.0\" RuleCombiningAlgId=\"urn:oasis:names:tc:xacml:3.0:rule-combining-algorithm:deny-overrides\">"
+			+ "<Target /><Rule RuleId=\"rule\" Effect=\"%s\" /></Policy>";
+
+	private static final String REF_POLICYSET_FORMAT = "<?xml version=\"1.0\" encoding=\"UTF-8\"?><PolicySet xmlns=\"urn:oasis:names:tc:xacml:3.0:core:schema:wd-17\" PolicySetId=\"%s\" Version=\"1.0\" PolicyCombiningAlgId=\"urn:oasis:names:tc:xacml:3.0:policy-combining-algorithm:deny-overrides\">"
+			+ "<Target />%s</PolicySet>";
+
+	/*
+	 * Maximum time to wait for the policies to be reloaded after a policy file change
+	 */
+	private static final long MAX_RELOAD_WAIT_MILLIS = 10000;
+
+	@Rule
+	public final TemporaryFolder tmpFolder = new TemporaryFolder();
+
+	private static void writePolicy(final File policyFile, final String version, final String effect) throws IOException
+	{
+		Files.write(policyFile.toPath(), String.format(POLICY_FORMAT, version, effect).getBytes(StandardCharsets.UTF_8));
+	}
+
+	private BasePdpEngine newPdpEngine(final File policyFile, final int policyReloadCheckIntervalSec) throws IOException
+	{
+		final File pdpConfFile = tmpFolder.newFile("pdp.xml");
+		Files.write(pdpConfFile.toPath(), String.format(PDP_CONF_FORMAT, policyReloadCheckIntervalSec, policyFile.toURI()).getBytes(StandardCharsets.UTF_8));
+		return new BasePdpEngine(PdpEngineConfiguration.getInstance(pdpConfFile.toURI().toString()));
+	}
+
+	private static DecisionType evaluate(final BasePdpEngine pdp)
+	{
+		final DecisionRequest request = pdp.newRequestBuilder(0, 0).build(false);
+		return pdp.evaluate(request).getDecision();
+	}
+
+	@Test
+	public void testReloadOnDemand() throws IOException
+	{
+		final File policyFile = tmpFolder.newFile("policy.xml");
+		writePolicy(policyFile, "1.0", "Permit");
+		try (final BasePdpEngine pdp = newPdpEngine(policyFile, 0))
+		{
+			assertEquals(DecisionType.PERMIT, evaluate(pdp));
+
+			writePolicy(policyFile, "2.0", "Deny");
+			// no automatic reloading
+			assertEquals(DecisionType.PERMIT, evaluate(pdp));
+			pdp.reloadPolicies();
+			assertEquals(DecisionType.DENY, evaluate(pdp));
+
+			// invalid policy must be rejected, without affecting evaluations
+			Files.write(policyFile.toPath(), "<Policy".getBytes(StandardCharsets.UTF_8));
+			try
+			{
+				pdp.reloadPolicies();
+				fail("Invalid policy not rejected");
+			}
+			catch (final IllegalArgumentException e)
+			{
+				// expected
+			}
+
+			assertEquals(DecisionType.DENY, evaluate(pdp));
+		}
+	}
+
+	private File newRefPolicyFile(final List<URL> outPolicyURLs, final String filename, final String content) throws IOException
+	{
+		final File policyFile = tmpFolder.newFile(filename);
+		Files.write(policyFile.toPath(), content.getBytes(StandardCharsets.UTF_8));
+		outPolicyURLs.add(policyFile.toURI().toURL());
+		return policyFile;
+	}
+
+	@Test
+	public void testIncrementalRefPolicyUpdate() throws IOException, IndeterminateEvaluationException
+	{
+		/*
+		 * PS1 -> P1, PS2 -> P2, PS3 -> PS1 (-> P1)
+		 */
+		final List<URL> policyURLs = new ArrayList<>();
+		final File policyFile1 = newRefPolicyFile(policyURLs, "P1.xml", String.format(REF_POLICY_FORMAT, "P1", "Permit"));
+		newRefPolicyFile(policyURLs, "P2.xml", String.format(REF_POLICY_FORMAT, "P2", "Permit"));
+		newRefPolicyFile(policyURLs, "PS1.xml", String.format(REF_POLICYSET_FORMAT, "PS1", "<PolicyIdReference>P1</PolicyIdReference>"));
+		newRefPolicyFile(policyURLs, "PS2.xml", String.format(REF_POLICYSET_FORMAT, "PS2", "<PolicyIdReference>P2</PolicyIdReference>"));
+		newRefPolicyFile(policyURLs, "PS3.xml", String.format(REF_POLICYSET_FORMAT, "PS3", "<PolicySetIdReference>PS1</PolicySetIdReference>"));
+
+		final AttributeValueFactoryRegistry valFactoryReg = StandardAttributeValueFactories.getRegistry(false, Optional.of(BigInteger.valueOf(Integer.MAX_VALUE)));
+		final AttributeValueFactory<?> intValFactory = valFactoryReg.getExtension(StandardDatatypes.INTEGER.getId());
+		final FunctionRegistry funcReg = StandardFunction.getRegistry(false, (StringParseableValue.Factory<IntegerValue>) intValFactory);
+		try (final ExpressionFactory expressionFactory = new DepthLimitingExpressionFactory(valFactoryReg, funcReg, null, 0, false, false))
+		{
+			final CoreRefPolicyProvider refPolicyProvider = CoreRefPolicyProvider.getInstance(policyURLs, false, XacmlJaxbParsingUtils.getXacmlParserFactory(false), 10, expressionFactory,
+			        StandardCombiningAlgorithm.REGISTRY);
+
+			// nothing changed
+			final CoreRefPolicyProvider sameRefPolicyProvider = refPolicyProvider.getUpdatedInstance(policyURLs);
+			for (final String policySetId : new String[] { "PS1", "PS2", "PS3" })
+			{
+				assertSame(refPolicyProvider.get(TopLevelPolicyElementType.POLICY_SET, policySetId, Optional.empty(), null),
+				        sameRefPolicyProvider.get(TopLevelPolicyElementType.POLICY_SET, policySetId, Optional.empty(), null));
+			}
+
+			// P1 touched without content change: nothing to parse again
+			final long policyFile1LastModified = policyFile1.lastModified();
+			assertTrue(policyFile1.setLastModified(policyFile1LastModified + 10000));
+			final CoreRefPolicyProvider touchedRefPolicyProvider = refPolicyProvider.getUpdatedInstance(policyURLs);
+			assertSame(refPolicyProvider.get(TopLevelPolicyElementType.POLICY, "P1", Optional.empty(), null),
+			        touchedRefPolicyProvider.get(TopLevelPolicyElementType.POLICY, "P1", Optional.empty(), null));
+
+			// change P1 (new version), keeping the same file size and last modification time
+			Files.write(policyFile1.toPath(), String.format(REF_POLICY_FORMAT, "P1", "Permit").replace("Version=\"1.0\"", "Version=\"1.1\"").getBytes(StandardCharsets.UTF_8));
+			assertTrue(policyFile1.setLastModified(policyFile1LastModified));
+			final CoreRefPolicyProvider updatedRefPolicyProvider = refPolicyProvider.getUpdatedInstance(policyURLs);
+			assertNotSame(refPolicyProvider.get(TopLevelPolicyElementType.POLICY, "P1", Optional.empty(), null),
+			        updatedRefPolicyProvider.get(TopLevelPolicyElementType.POLICY, "P1", Optional.empty(), null));
+			assertSame(refPolicyProvider.get(TopLevelPolicyElementType.POLICY, "P2", Optional.empty(), null),
+			        updatedRefPolicyProvider.get(TopLevelPolicyElementType.POLICY, "P2", Optional.empty(), null));
+			// PolicySets referring to P1, directly or indirectly, are rebuilt, the other ones are reused
+			assertNotSame(refPolicyProvider.get(TopLevelPolicyElementType.POLICY_SET, "PS1", Optional.empty(), null),
+			        updatedRefPolicyProvider.get(TopLevelPolicyElementType.POLICY_SET, "PS1", Optional.empty(), null));
+			assertNotSame(refPolicyProvider.get(TopLevelPolicyElementType.POLICY_SET, "PS3", Optional.empty(), null),
+			        updatedRefPolicyProvider.get(TopLevelPolicyElementType.POLICY_SET, "PS3", Optional.empty(), null));
+			assertSame(refPolicyProvider.get(TopLevelPolicyElementType.POLICY_SET, "PS2", Optional.empty(), null),
+			        updatedRefPolicyProvider.get(TopLevelPolicyElementType.POLICY_SET, "PS2", Optional.empty(), null));
+		}
+	}
+
+	@Test
+	public void testReloadOnPolicyFileChange() throws IOException, InterruptedException
+	{
+		final File policyFile = tmpFolder.newFile("policy.xml");
+		writePolicy(policyFile, "1.0", "Permit");
+		try (final BasePdpEngine pdp = newPdpEngine(policyFile, 1))
+		{
+			assertEquals(DecisionType.PERMIT, evaluate(pdp));
+
+			writePolicy(policyFile, "2.0", "Deny");
+			final long deadline = System.currentTimeMillis() + MAX_RELOAD_WAIT_MILLIS;
+			while (evaluate(pdp) != DecisionType.DENY)
+			{
+				if (System.currentTimeMillis() > deadline)
+				{
+					fail("Policies not reloaded after policy file change");
+				}
+
+				Thread.sleep(100);
+			}
+
+			// invalid policy must be rejected, without affecting evaluations
+			Files.write(policyFile.toPath(), "<Policy".getBytes(StandardCharsets.UTF_8));
+			Thread.sleep(2500);
+			assertEquals(DecisionType.DENY, evaluate(pdp));
+		}
+	}
+
+	/**
+	 * Policy file rewritten with the same size and last modification time: the change must be detected anyway (content checksum)
+	 */
+	@Test
+	public void testReloadOnSameSizePolicyFileChange() throws IOException, InterruptedException
+	{
+		final File policyFile = tmpFolder.newFile("policy.xml");
+		writePolicy(policyFile, "1.0", "Permit");
+		try (final BasePdpEngine pdp = newPdpEngine(policyFile, 1))
+		{
+			assertEquals(DecisionType.PERMIT, evaluate(pdp));
+
+			final long policyFileLength = policyFile.length();
+			final long policyFileLastModified = policyFile.lastModified();
+			// version longer by as many characters as the effect is shorter
+			writePolicy(policyFile, "2.0.0", "Deny");
+			assertTrue(policyFile.setLastModified(policyFileLastModified));
+			assertEquals(policyFileLength, policyFile.length());
+			final long deadline = System.currentTimeMillis() + MAX_RELOAD_WAIT_MILLIS;
+			while (evaluate(pdp) != DecisionType.DENY)
+			{
+				if (System.currentTimeMillis() > deadline)
+				{
+					fail("Policies not reloaded after same-size policy file change");
+				}
+
+				Thread.sleep(100);
+			}
+		}
+	}
+
+	@Test
+	public void testFailedReloadRetriedOnNextCheck() throws IOException, InterruptedException
+	{
+		final File policyFile = tmpFolder.newFile("policy.xml");
+		writePolicy(policyFile, "1.0", "Permit");
+		try (final BasePdpEngine pdp = newPdpEngine(policyFile, 1))
+		{
+			assertEquals(DecisionType.PERMIT, evaluate(pdp));
+
+			/*
+			 * Invalid policy (unknown element instead of Rule) of the same size as the valid one written next
+			 */
+			final String newPolicy = String.format(POLICY_FORMAT, "2.0", "Deny");
+			Files.write(policyFile.toPath(), newPolicy.replace("<Rule ", "<Xule ").getBytes(StandardCharsets.UTF_8));
+			final long invalidPolicyLastModified = policyFile.lastModified();
+			Thread.sleep(2500);
+			assertEquals(DecisionType.PERMIT, evaluate(pdp));
+
+			/*
+			 * Fix the policy without changing the file's last modification time and size, i.e. the state in which the reload failed. The reload must be retried anyway.
+			 */
+			Files.write(policyFile.toPath(), newPolicy.getBytes(StandardCharsets.UTF_8));
+			assertTrue(policyFile.setLastModified(invalidPolicyLastModified));
+			final long deadline = System.currentTimeMillis() + MAX_RELOAD_WAIT_MILLIS;
+			while (evaluate(pdp) != DecisionType.DENY)
+			{
+				if (System.currentTimeMillis() > deadline)
+				{
+					fail("Failed policy reload not retried");
+				}
+
+				Thread.sleep(100);
+			}
+		}
+	}
+
+	@Test
+	public void testResultOfEvaluationInProgressDuringReloadNotCached() throws IOException
+	{
+		final File policyFile = tmpFolder.newFile("policy.xml");
+		writePolicy(policyFile, "1.0", "Permit");
+		try (final BasePdpEngine pdp = newPdpEngine(policyFile, 0); final CoreInMemoryDecisionCache decisionCache = new CoreInMemoryDecisionCache("test", 0, 0, 0, false))
+		{
+			final DecisionRequest request = pdp.newRequestBuilder(0, 0).build(false);
+
+			// evaluation started (cache lookup) before the policy reload (cache invalidation), and ended after
+			final long lookupPolicyGeneration = decisionCache.getPolicyGeneration();
+			assertNull(decisionCache.get(request, null));
+			decisionCache.invalidateAll();
+			decisionCache.put(request, DecisionResults.SIMPLE_PERMIT, null, lookupPolicyGeneration);
+			assertNull("Result of evaluation with the previous policies cached", decisionCache.get(request, null));
+
+			// evaluation started after the reload
+			final long newLookupPolicyGeneration = decisionCache.getPolicyGeneration();
+			assertNull(decisionCache.get(request, null));
+			decisionCache.put(request, DecisionResults.SIMPLE_DENY, null, newLookupPolicyGeneration);
+			assertSame(DecisionResults.SIMPLE_DENY, decisionCache.get(request, null));
+		}
+	}
+
+	/*
+	 * Root policy evaluator blocking until the given latch is released
+	 */
+	private static final class BlockingRootPolicyEvaluator implements RootPolicyEvaluator
+	{
+		private final CountDownLatch evaluationStarted = new CountDownLatch(1);
+		private final CountDownLatch evaluationRelease;
+		private final DecisionResult result;
+
+		private BlockingRootPolicyEvaluator(final CountDownLatch evaluationRelease, final DecisionResult result)
+		{
+			this.evaluationRelease = evaluationRelease;
+			this.result = result;
+		}
+
+		@Override
+		public DecisionResult findAndEvaluate(final EvaluationContext context)
+		{
+			evaluationStarted.countDown();
+			try
+			{
+				evaluationRelease.await();
+			}
+			catch (final InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+
+			return result;
+		}
+
+		@Override
+		public FlattenedPolicyTree getStaticApplicablePolicies()
+		{
+			return null;
+		}
+
+		@Override
+		public void close()
+		{
+			// nothing to close
+		}
+	}
+
+	@Test
+	public void testReplacedPolicyProvidersClosedAfterEvaluationsInProgress() throws Exception
+	{
+		final CountDownLatch evaluationRelease = new CountDownLatch(1);
+		final BlockingRootPolicyEvaluator previousEvaluator = new BlockingRootPolicyEvaluator(evaluationRelease, DecisionResults.SIMPLE_PERMIT);
+		final AtomicBoolean previousResourcesClosed = new AtomicBoolean(false);
+		final AtomicBoolean newResourcesClosed = new AtomicBoolean(false);
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		try
+		{
+			final RootPolicyEvaluators.Swappable swappableEvaluator = new RootPolicyEvaluators.Swappable(previousEvaluator, () -> previousResourcesClosed.set(true));
+			final Future<DecisionResult> evaluationInProgress = executor.submit(() -> swappableEvaluator.findAndEvaluate(null));
+			assertTrue(previousEvaluator.evaluationStarted.await(MAX_RELOAD_WAIT_MILLIS, TimeUnit.MILLISECONDS));
+
+			swappableEvaluator.swap(new BlockingRootPolicyEvaluator(new CountDownLatch(0), DecisionResults.SIMPLE_DENY), () -> newResourcesClosed.set(true));
+			// new evaluations use the new evaluator
+			assertSame(DecisionResults.SIMPLE_DENY, swappableEvaluator.findAndEvaluate(null));
+			assertFalse("Resources of the replaced evaluator closed before the end of the evaluations in progress", previousResourcesClosed.get());
+
+			evaluationRelease.countDown();
+			assertSame(DecisionResults.SIMPLE_PERMIT, evaluationInProgress.get(MAX_RELOAD_WAIT_MILLIS, TimeUnit.MILLISECONDS));
+			assertTrue("Resources of the replaced evaluator not closed after the end of the evaluations in progress", previousResourcesClosed.get());
+			assertFalse(newResourcesClosed.get());
+
+			swappableEvaluator.close();
+			assertTrue("Resources of the current evaluator not closed", newResourcesClosed.get());
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
+}
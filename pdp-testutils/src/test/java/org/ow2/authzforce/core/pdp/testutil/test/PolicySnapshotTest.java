@@ -0,0 +1,181 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.testutil.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.math.BigInteger;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.ow2.authzforce.core.pdp.api.IndeterminateEvaluationException;
+import org.ow2.authzforce.core.pdp.api.expression.ExpressionFactory;
+import org.ow2.authzforce.core.pdp.api.io.XacmlJaxbParsingUtils;
+import org.ow2.authzforce.core.pdp.api.policy.TopLevelPolicyElementType;
+import org.ow2.authzforce.core.pdp.api.value.AttributeValueFactory;
+import org.ow2.authzforce.core.pdp.api.value.AttributeValueFactoryRegistry;
+import org.ow2.authzforce.core.pdp.api.value.IntegerValue;
+import org.ow2.authzforce.core.pdp.api.value.StandardAttributeValueFactories;
+import org.ow2.authzforce.core.pdp.api.value.StandardDatatypes;
+import org.ow2.authzforce.core.pdp.api.value.StringParseableValue;
+import org.ow2.authzforce.core.pdp.impl.combining.StandardCombiningAlgorithm;
+import org.ow2.authzforce.core.pdp.impl.expression.DepthLimitingExpressionFactory;
+import org.ow2.authzforce.core.pdp.impl.func.FunctionRegistry;
+import org.ow2.authzforce.core.pdp.impl.func.StandardFunction;
+import org.ow2.authzforce.core.pdp.impl.policy.CoreRefPolicyProvider;
+
+/**
+ * Test of policy loading with a policy snapshot ({@link CoreRefPolicyProvider#getInstance(java.util.Collection, boolean, int, Optional, org.ow2.authzforce.core.pdp.api.XmlUtils.XmlnsFilteringParserFactory, int, ExpressionFactory, org.ow2.authzforce.core.pdp.api.combining.CombiningAlgRegistry)})
+ *
+ */
+public class PolicySnapshotTest
+{
+	private static final String POLICY_FORMAT = "<?xml version=\"1.0\" encoding=\"UTF-8\"?><Policy xmlns=\"urn:oasis:names:tc:xacml:3.0:core:schema:wd-17\" PolicyId=\"%s\" Version=\"%s\" RuleCombiningAlgId=\"urn:oasis:names:tc:xacml:3.0:rule-combining-algorithm:deny-overrides\">"
+			+ "<Target /><Rule RuleId=\"rule\" Effect=\"Permit\" /></Policy>";
+
+	private static final String POLICYSET = "<?xml version=\"1.0\" encoding=\"UTF-8\"?><PolicySet xmlns=\"urn:oasis:names:tc:xacml:3.0:core:schema:wd-17\" PolicySetId=\"PS1\" Version=\"1.0\" PolicyCombiningAlgId=\"urn:oasis:names:tc:xacml:3.0:policy-combining-algorithm:deny-overrides\">"
+			+ "<Target /><PolicyIdReference>P1</PolicyIdReference></PolicySet>";
+
+	/**
+	 * Serializable class not allowed in a snapshot, recording whether it has been deserialized
+	 */
+	private static final class DeserializationTracker implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+
+		private static volatile boolean deserialized = false;
+
+		private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException
+		{
+			in.defaultReadObject();
+			deserialized = true;
+		}
+	}
+
+	private static final FileTime OLD_FILE_TIME = FileTime.fromMillis(1000000000000L);
+
+	@Rule
+	public final TemporaryFolder tmpFolder = new TemporaryFolder();
+
+	private ExpressionFactory expressionFactory;
+	private final List<URL> policyURLs = new ArrayList<>();
+	private File policyFile;
+	private Path snapshotFile;
+
+	@Before
+	public void setUp() throws IOException
+	{
+		final AttributeValueFactoryRegistry valFactoryReg = StandardAttributeValueFactories.getRegistry(false, Optional.of(BigInteger.valueOf(Integer.MAX_VALUE)));
+		final AttributeValueFactory<?> intValFactory = valFactoryReg.getExtension(StandardDatatypes.INTEGER.getId());
+		final FunctionRegistry funcReg = StandardFunction.getRegistry(false, (StringParseableValue.Factory<IntegerValue>) intValFactory);
+		expressionFactory = new DepthLimitingExpressionFactory(valFactoryReg, funcReg, null, 0, false, false);
+
+		policyFile = tmpFolder.newFile("P1.xml");
+		Files.write(policyFile.toPath(), String.format(POLICY_FORMAT, "P1", "1.0").getBytes(StandardCharsets.UTF_8));
+		policyURLs.add(policyFile.toURI().toURL());
+		final File policySetFile = tmpFolder.newFile("PS1.xml");
+		Files.write(policySetFile.toPath(), POLICYSET.getBytes(StandardCharsets.UTF_8));
+		policyURLs.add(policySetFile.toURI().toURL());
+
+		snapshotFile = tmpFolder.getRoot().toPath().resolve("policies.snapshot");
+	}
+
+	@After
+	public void tearDown() throws IOException
+	{
+		expressionFactory.close();
+	}
+
+	private CoreRefPolicyProvider load() throws IllegalArgumentException
+	{
+		return CoreRefPolicyProvider.getInstance(policyURLs, false, 0, Optional.of(snapshotFile), XacmlJaxbParsingUtils.getXacmlParserFactory(false), 10, expressionFactory,
+		        StandardCombiningAlgorithm.REGISTRY);
+	}
+
+	private static void assertPoliciesLoaded(final CoreRefPolicyProvider refPolicyProvider, final String expectedPolicyVersion) throws IndeterminateEvaluationException
+	{
+		assertEquals(expectedPolicyVersion, refPolicyProvider.get(TopLevelPolicyElementType.POLICY, "P1", Optional.empty(), null).getPolicyVersion().toString());
+		assertNotNull(refPolicyProvider.get(TopLevelPolicyElementType.POLICY_SET, "PS1", Optional.empty(), null));
+	}
+
+	@Test
+	public void testSnapshotCreatedThenUsed() throws IOException, IndeterminateEvaluationException
+	{
+		assertPoliciesLoaded(load(), "1.0");
+		assertTrue("Policy snapshot not created", Files.exists(snapshotFile));
+
+		// snapshot up-to-date -> not rewritten
+		Files.setLastModifiedTime(snapshotFile, OLD_FILE_TIME);
+		assertPoliciesLoaded(load(), "1.0");
+		assertEquals(OLD_FILE_TIME, Files.getLastModifiedTime(snapshotFile));
+
+		// policy changed -> parsed again and snapshot updated
+		Files.write(policyFile.toPath(), String.format(POLICY_FORMAT, "P1", "2.0").getBytes(StandardCharsets.UTF_8));
+		assertPoliciesLoaded(load(), "2.0");
+		assertNotEquals(OLD_FILE_TIME, Files.getLastModifiedTime(snapshotFile));
+	}
+
+	@Test
+	public void testInvalidSnapshotIgnored() throws IOException, IndeterminateEvaluationException
+	{
+		Files.write(snapshotFile, "not a snapshot".getBytes(StandardCharsets.UTF_8));
+		assertPoliciesLoaded(load(), "1.0");
+
+		// replaced with a valid one
+		Files.setLastModifiedTime(snapshotFile, OLD_FILE_TIME);
+		assertPoliciesLoaded(load(), "1.0");
+		assertEquals(OLD_FILE_TIME, Files.getLastModifiedTime(snapshotFile));
+	}
+
+	@Test
+	public void testSnapshotWithDisallowedClassIgnored() throws IOException, IndeterminateEvaluationException
+	{
+		try (final ObjectOutputStream out = new ObjectOutputStream(Files.newOutputStream(snapshotFile)))
+		{
+			out.writeObject(new DeserializationTracker());
+		}
+
+		assertPoliciesLoaded(load(), "1.0");
+		assertFalse("Class not allowed in policy snapshot deserialized", DeserializationTracker.deserialized);
+
+		// replaced with a valid one
+		Files.setLastModifiedTime(snapshotFile, OLD_FILE_TIME);
+		assertPoliciesLoaded(load(), "1.0");
+		assertEquals(OLD_FILE_TIME, Files.getLastModifiedTime(snapshotFile));
+	}
+}
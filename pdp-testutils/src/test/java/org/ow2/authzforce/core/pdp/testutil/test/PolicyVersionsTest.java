@@ -0,0 +1,99 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.testutil.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Optional;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.ow2.authzforce.core.pdp.api.HashCollections;
+import org.ow2.authzforce.core.pdp.api.policy.PolicyVersion;
+import org.ow2.authzforce.core.pdp.api.policy.PolicyVersionPatterns;
+import org.ow2.authzforce.core.pdp.impl.policy.PolicyVersions;
+
+/**
+ * Test of version constraint resolution by {@link PolicyVersions#getLatest(Optional)}, with literal and wildcard patterns, and repeated calls (memoised results)
+ *
+ */
+public class PolicyVersionsTest
+{
+	private PolicyVersions<String> policyVersions;
+
+	@Before
+	public void setUp()
+	{
+		final Map<PolicyVersion, String> policiesByVersion = HashCollections.newUpdatableMap();
+		for (final String version : new String[] { "0.9", "1.0", "1.1", "1.2.3", "2.0", "10.0" })
+		{
+			policiesByVersion.put(new PolicyVersion(version), "policy-v" + version);
+		}
+
+		policyVersions = new PolicyVersions<>(policiesByVersion);
+	}
+
+	private String getLatest(final String version, final String earliest, final String latest)
+	{
+		// call twice to check the memoised result as well
+		final Entry<PolicyVersion, String> result = policyVersions.getLatest(Optional.of(new PolicyVersionPatterns(version, earliest, latest)));
+		final Entry<PolicyVersion, String> memoisedResult = policyVersions.getLatest(Optional.of(new PolicyVersionPatterns(version, earliest, latest)));
+		assertEquals(result, memoisedResult);
+		return result == null ? null : result.getValue();
+	}
+
+	@Test
+	public void testNoConstraint()
+	{
+		assertEquals("policy-v10.0", policyVersions.getLatest(Optional.empty()).getValue());
+	}
+
+	@Test
+	public void testLiteralVersion()
+	{
+		assertEquals("policy-v1.1", getLatest("1.1", null, null));
+		assertEquals("policy-v1.2.3", getLatest("1.2.3", null, null));
+		assertNull(getLatest("1.2", null, null));
+		assertNull(getLatest("3.0", null, null));
+		// with Earliest/LatestVersion
+		assertEquals("policy-v1.1", getLatest("1.1", "1.1", "1.1"));
+	}
+
+	@Test
+	public void testWildcardVersion()
+	{
+		// '*' matches a single version number, '+' one or more
+		assertEquals("policy-v1.1", getLatest("1.*", null, null));
+		assertEquals("policy-v1.2.3", getLatest("1.+", null, null));
+		assertEquals("policy-v1.1", getLatest("1.*", null, "1.1"));
+		assertNull(getLatest("3.*", null, null));
+	}
+
+	@Test
+	public void testEarliestLatestVersions()
+	{
+		assertEquals("policy-v2.0", getLatest(null, "1.0", "2.0"));
+		assertEquals("policy-v1.2.3", getLatest(null, null, "1.*"));
+		assertEquals("policy-v10.0", getLatest(null, "2.*", null));
+		assertNull(getLatest(null, "11.0", null));
+		assertNull(getLatest(null, null, "0.1"));
+	}
+}
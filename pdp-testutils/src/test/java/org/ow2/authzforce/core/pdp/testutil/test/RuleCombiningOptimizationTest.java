@@ -0,0 +1,331 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.testutil.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.bind.JAXBException;
+
+import org.junit.Test;
+import org.ow2.authzforce.core.pdp.api.io.PdpEngineInoutAdapter;
+import org.ow2.authzforce.core.pdp.api.io.XacmlJaxbParsingUtils;
+import org.ow2.authzforce.core.pdp.impl.DefaultEnvironmentProperties;
+import org.ow2.authzforce.core.pdp.impl.PdpEngineConfiguration;
+import org.ow2.authzforce.core.pdp.impl.io.PdpEngineAdapters;
+import org.ow2.authzforce.core.pdp.impl.policy.PolicyEvaluators;
+import org.ow2.authzforce.core.pdp.testutil.TestUtils;
+import org.ow2.authzforce.core.xmlns.pdp.InOutProcChain;
+import org.ow2.authzforce.core.xmlns.pdp.Pdp;
+import org.ow2.authzforce.core.xmlns.pdp.StaticRootPolicyProvider;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.ResourceUtils;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.DecisionType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.Obligation;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.Request;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.Response;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.Result;
+
+/**
+ * Test of the initialization-time optimizations of the Rules combined by a Policy: the removal of never-applicable Rules and the optimizations of the rule-combining algorithms. Since these
+ * optimizations must not change the decisions, whether they apply is checked with the warnings logged at initialization time.
+ */
+public class RuleCombiningOptimizationTest
+{
+	/**
+	 * Name of directory that contains test resources (not under 'custom' directory, so not run by {@link CustomPdpTest})
+	 */
+	public final static String TEST_RESOURCES_DIRECTORY_LOCATION = "classpath:RuleCombiningOptimization";
+
+	private static final String NEVER_APPLICABLE_RULE_TEST_DIRECTORY_LOCATION = "classpath:custom/ConstantFolding.NeverApplicableRule";
+
+	/*
+	 * Loggers of the (package-private) combining algorithm implementations
+	 */
+	private static final String COMBINING_ALG_LOGGER_NAME_PREFIX = "org.ow2.authzforce.core.pdp.impl.combining.";
+	private static final String FIRST_APPLICABLE_ALG_LOGGER_NAME = COMBINING_ALG_LOGGER_NAME_PREFIX + "FirstApplicableCombiningAlg";
+	private static final String DP_OVERRIDES_ALG_LOGGER_NAME = COMBINING_ALG_LOGGER_NAME_PREFIX + "DPOverridesCombiningAlg";
+	private static final String DP_UNLESS_PD_ALG_LOGGER_NAME = COMBINING_ALG_LOGGER_NAME_PREFIX + "DPUnlessPDCombiningAlg";
+
+	private static final String MULTIPLE_DECISION_REQUEST_PREPROC_ID = "urn:ow2:authzforce:feature:pdp:request-preproc:xacml-xml:multiple:repeated-attribute-categories-lax";
+
+	/*
+	 * Creates a PDP with the given root policy, and adds the warnings logged by the given logger meanwhile to outWarnings
+	 */
+	private static PdpEngineInoutAdapter<Request, Response> newPdp(final String rootPolicyLocation, final String loggerName, final List<String> outWarnings)
+			throws IllegalArgumentException, IOException
+	{
+		final Pdp jaxbPdp = new Pdp();
+		final StaticRootPolicyProvider jaxbRootPolicyProvider = new StaticRootPolicyProvider();
+		jaxbRootPolicyProvider.setId("rootPolicyProvider");
+		jaxbRootPolicyProvider.setPolicyLocation(ResourceUtils.getURL(rootPolicyLocation).toString());
+		jaxbPdp.setRootPolicyProvider(jaxbRootPolicyProvider);
+		jaxbPdp.getIoProcChains().add(new InOutProcChain(MULTIPLE_DECISION_REQUEST_PREPROC_ID, null));
+
+		/*
+		 * Warnings are not logged by default (see logback.xml)
+		 */
+		final Logger logger = (Logger) LoggerFactory.getLogger(loggerName);
+		final Level initialLevel = logger.getLevel();
+		final boolean initialAdditivity = logger.isAdditive();
+		final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+		appender.start();
+		logger.setLevel(Level.WARN);
+		logger.setAdditive(false);
+		logger.addAppender(appender);
+		final PdpEngineInoutAdapter<Request, Response> pdp;
+		try
+		{
+			pdp = PdpEngineAdapters.newXacmlJaxbInoutAdapter(new PdpEngineConfiguration(jaxbPdp, new DefaultEnvironmentProperties()));
+		}
+		finally
+		{
+			logger.detachAppender(appender);
+			logger.setAdditive(initialAdditivity);
+			logger.setLevel(initialLevel);
+			appender.stop();
+		}
+
+		for (final ILoggingEvent event : appender.list)
+		{
+			if (event.getLevel() == Level.WARN)
+			{
+				outWarnings.add(event.getFormattedMessage());
+			}
+		}
+
+		return pdp;
+	}
+
+	private static int countWarnings(final List<String> warnings, final String... expectedMessageParts)
+	{
+		int count = 0;
+		for (final String warning : warnings)
+		{
+			boolean matching = true;
+			for (final String expectedMessagePart : expectedMessageParts)
+			{
+				if (!warning.contains(expectedMessagePart))
+				{
+					matching = false;
+					break;
+				}
+			}
+
+			if (matching)
+			{
+				count++;
+			}
+		}
+
+		return count;
+	}
+
+	private static void assertWarning(final List<String> warnings, final String... expectedMessageParts)
+	{
+		if (countWarnings(warnings, expectedMessageParts) == 0)
+		{
+			fail("No warning containing " + String.join(" and ", expectedMessageParts) + " in: " + warnings);
+		}
+	}
+
+	/*
+	 * Results in the same order as the Individual Decision Requests in the request
+	 */
+	private static List<Result> evaluate(final PdpEngineInoutAdapter<Request, Response> pdp, final String requestLocation) throws IllegalArgumentException, IOException, JAXBException
+	{
+		final Request request = TestUtils.createRequest(requestLocation, XacmlJaxbParsingUtils.getXacmlParserFactory(false).getInstance());
+		return pdp.evaluate(request, null).getResults();
+	}
+
+	private static List<DecisionType> getDecisions(final List<Result> results)
+	{
+		final List<DecisionType> decisions = new ArrayList<>();
+		for (final Result result : results)
+		{
+			decisions.add(result.getDecision());
+		}
+
+		return decisions;
+	}
+
+	private static List<String> getObligationIds(final Result result)
+	{
+		final List<String> obligationIds = new ArrayList<>();
+		if (result.getObligations() != null)
+		{
+			for (final Obligation obligation : result.getObligations().getObligations())
+			{
+				obligationIds.add(obligation.getObligationId());
+			}
+		}
+
+		return obligationIds;
+	}
+
+	@Test
+	public void testNeverApplicableRuleRemoved() throws IllegalArgumentException, IOException, JAXBException
+	{
+		final List<String> warnings = new ArrayList<>();
+		try (final PdpEngineInoutAdapter<Request, Response> pdp = newPdp(NEVER_APPLICABLE_RULE_TEST_DIRECTORY_LOCATION + "/policy.xml", PolicyEvaluators.class.getName(), warnings))
+		{
+			assertWarning(warnings, "Rule['root:never-applicable-rule']", "is never applicable", "removing it from the combined rules");
+			assertEquals(1, countWarnings(warnings, "is never applicable"));
+			// alice, dave
+			assertEquals(Arrays.asList(DecisionType.PERMIT, DecisionType.DENY), getDecisions(evaluate(pdp, NEVER_APPLICABLE_RULE_TEST_DIRECTORY_LOCATION + "/request.xml")));
+		}
+	}
+
+	@Test
+	public void testNeverApplicableRuleWithCombinerParametersKept() throws IllegalArgumentException, IOException, JAXBException
+	{
+		final List<String> warnings = new ArrayList<>();
+		try (final PdpEngineInoutAdapter<Request, Response> pdp = newPdp(TEST_RESOURCES_DIRECTORY_LOCATION + "/never-applicable-rule-with-combiner-parameters.xml", PolicyEvaluators.class.getName(),
+				warnings))
+		{
+			assertEquals("Never-applicable Rule referenced by RuleCombinerParameters removed: " + warnings, 0, countWarnings(warnings, "is never applicable"));
+			// alice, dave
+			assertEquals(Arrays.asList(DecisionType.PERMIT, DecisionType.PERMIT), getDecisions(evaluate(pdp, NEVER_APPLICABLE_RULE_TEST_DIRECTORY_LOCATION + "/request.xml")));
+		}
+	}
+
+	/**
+	 * first-applicable: the Rules after a Rule without Target/Condition are never evaluated, therefore removed
+	 */
+	@Test
+	public void testFirstApplicableRulesAfterAlwaysApplicableRuleRemoved() throws IllegalArgumentException, IOException, JAXBException
+	{
+		final List<String> warnings = new ArrayList<>();
+		try (final PdpEngineInoutAdapter<Request, Response> pdp = newPdp(TEST_RESOURCES_DIRECTORY_LOCATION + "/first-applicable-always-applicable-rule.xml", FIRST_APPLICABLE_ALG_LOGGER_NAME,
+				warnings))
+		{
+			assertWarning(warnings, "Rule['deny-all']", "is always applicable", "will be ignored/removed");
+			final List<Result> results = evaluate(pdp, TEST_RESOURCES_DIRECTORY_LOCATION + "/request.xml");
+			// alice, bob
+			assertEquals(Arrays.asList(DecisionType.PERMIT, DecisionType.DENY), getDecisions(results));
+			assertEquals(Collections.emptyList(), getObligationIds(results.get(0)));
+			assertEquals(Collections.singletonList("obligation-deny-all"), getObligationIds(results.get(1)));
+		}
+	}
+
+	/**
+	 * deny-overrides: an empty Deny Rule makes the algorithm always return Deny
+	 */
+	@Test
+	public void testDenyOverridesEmptyDenyRule() throws IllegalArgumentException, IOException, JAXBException
+	{
+		final List<String> warnings = new ArrayList<>();
+		try (final PdpEngineInoutAdapter<Request, Response> pdp = newPdp(TEST_RESOURCES_DIRECTORY_LOCATION + "/deny-overrides-empty-deny-rule.xml", DP_OVERRIDES_ALG_LOGGER_NAME, warnings))
+		{
+			assertWarning(warnings, "Rule['deny-all'] with Effect=DENY is empty", "algorithm will always return DENY");
+			final List<Result> results = evaluate(pdp, TEST_RESOURCES_DIRECTORY_LOCATION + "/request.xml");
+			// alice, bob
+			assertEquals(Arrays.asList(DecisionType.DENY, DecisionType.DENY), getDecisions(results));
+			assertEquals(Collections.emptyList(), getObligationIds(results.get(0)));
+			assertEquals(Collections.emptyList(), getObligationIds(results.get(1)));
+		}
+	}
+
+	/**
+	 * deny-overrides: a Deny Rule without Target/Condition but with an Obligation is not empty, so the Obligation must be returned
+	 */
+	@Test
+	public void testDenyOverridesAlwaysApplicableDenyRuleWithObligation() throws IllegalArgumentException, IOException, JAXBException
+	{
+		final List<String> warnings = new ArrayList<>();
+		try (final PdpEngineInoutAdapter<Request, Response> pdp = newPdp(TEST_RESOURCES_DIRECTORY_LOCATION + "/deny-overrides-always-applicable-deny-rule-with-obligation.xml",
+				DP_OVERRIDES_ALG_LOGGER_NAME, warnings))
+		{
+			assertEquals("Deny Rule with Obligation considered empty: " + warnings, 0, countWarnings(warnings, "is empty"));
+			final List<Result> results = evaluate(pdp, TEST_RESOURCES_DIRECTORY_LOCATION + "/request.xml");
+			// alice, bob
+			assertEquals(Arrays.asList(DecisionType.DENY, DecisionType.DENY), getDecisions(results));
+			assertEquals(Collections.singletonList("obligation-deny-all"), getObligationIds(results.get(0)));
+			assertEquals(Collections.singletonList("obligation-deny-all"), getObligationIds(results.get(1)));
+		}
+	}
+
+	/**
+	 * deny-overrides: an empty Permit Rule makes the algorithm return Permit unless a Deny Rule applies; the other Permit Rules without PEP action are removed, the ones with PEP actions are kept
+	 */
+	@Test
+	public void testDenyOverridesEmptyPermitRule() throws IllegalArgumentException, IOException, JAXBException
+	{
+		final List<String> warnings = new ArrayList<>();
+		try (final PdpEngineInoutAdapter<Request, Response> pdp = newPdp(TEST_RESOURCES_DIRECTORY_LOCATION + "/deny-overrides-empty-permit-rule.xml", DP_OVERRIDES_ALG_LOGGER_NAME, warnings))
+		{
+			assertWarning(warnings, "Rule['permit-all'] (Effect=PERMIT) is empty", "unless some DENY rule applies");
+			assertWarning(warnings, "Ignoring/removing Rule['permit-alice-without-obligation']");
+			assertEquals(0, countWarnings(warnings, "Rule['permit-all-with-obligation']"));
+			final List<Result> results = evaluate(pdp, TEST_RESOURCES_DIRECTORY_LOCATION + "/request.xml");
+			// alice, bob
+			assertEquals(Arrays.asList(DecisionType.PERMIT, DecisionType.DENY), getDecisions(results));
+			assertEquals(Collections.singletonList("obligation-permit-all"), getObligationIds(results.get(0)));
+			assertEquals(Collections.emptyList(), getObligationIds(results.get(1)));
+		}
+	}
+
+	/**
+	 * deny-unless-permit: an empty Permit Rule makes the algorithm always return Permit
+	 */
+	@Test
+	public void testDenyUnlessPermitEmptyPermitRule() throws IllegalArgumentException, IOException, JAXBException
+	{
+		final List<String> warnings = new ArrayList<>();
+		try (final PdpEngineInoutAdapter<Request, Response> pdp = newPdp(TEST_RESOURCES_DIRECTORY_LOCATION + "/deny-unless-permit-empty-permit-rule.xml", DP_UNLESS_PD_ALG_LOGGER_NAME,
+				warnings))
+		{
+			assertWarning(warnings, "Rule['permit-all'] with Effect=PERMIT is empty", "algorithm will always return PERMIT");
+			final List<Result> results = evaluate(pdp, TEST_RESOURCES_DIRECTORY_LOCATION + "/request.xml");
+			// alice, bob
+			assertEquals(Arrays.asList(DecisionType.PERMIT, DecisionType.PERMIT), getDecisions(results));
+			assertEquals(Collections.emptyList(), getObligationIds(results.get(0)));
+			assertEquals(Collections.emptyList(), getObligationIds(results.get(1)));
+		}
+	}
+
+	/**
+	 * deny-unless-permit: a Permit Rule without Target/Condition but with an Obligation is not empty, so the Obligation must be returned
+	 */
+	@Test
+	public void testDenyUnlessPermitAlwaysApplicablePermitRuleWithObligation() throws IllegalArgumentException, IOException, JAXBException
+	{
+		final List<String> warnings = new ArrayList<>();
+		try (final PdpEngineInoutAdapter<Request, Response> pdp = newPdp(TEST_RESOURCES_DIRECTORY_LOCATION + "/deny-unless-permit-always-applicable-permit-rule-with-obligation.xml",
+				DP_UNLESS_PD_ALG_LOGGER_NAME, warnings))
+		{
+			assertEquals("Permit Rule with Obligation considered empty: " + warnings, 0, countWarnings(warnings, "is empty"));
+			final List<Result> results = evaluate(pdp, TEST_RESOURCES_DIRECTORY_LOCATION + "/request.xml");
+			// alice, bob
+			assertEquals(Arrays.asList(DecisionType.PERMIT, DecisionType.PERMIT), getDecisions(results));
+			assertEquals(Collections.singletonList("obligation-permit-all"), getObligationIds(results.get(0)));
+			assertEquals(Collections.singletonList("obligation-permit-all"), getObligationIds(results.get(1)));
+		}
+	}
+}
@@ -0,0 +1,194 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.testutil.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.xml.bind.JAXBException;
+
+import org.junit.Test;
+import org.ow2.authzforce.core.pdp.api.XmlUtils.XmlnsFilteringParser;
+import org.ow2.authzforce.core.pdp.api.io.PdpEngineInoutAdapter;
+import org.ow2.authzforce.core.pdp.api.io.XacmlJaxbParsingUtils;
+import org.ow2.authzforce.core.pdp.impl.DefaultEnvironmentProperties;
+import org.ow2.authzforce.core.pdp.impl.PdpEngineConfiguration;
+import org.ow2.authzforce.core.pdp.impl.io.PdpEngineAdapters;
+import org.ow2.authzforce.core.pdp.testutil.TestUtils;
+import org.ow2.authzforce.core.xmlns.pdp.InOutProcChain;
+import org.ow2.authzforce.core.xmlns.pdp.Pdp;
+import org.ow2.authzforce.core.xmlns.pdp.StaticRefPolicyProvider;
+import org.ow2.authzforce.core.xmlns.pdp.StaticRootPolicyProvider;
+import org.springframework.util.ResourceUtils;
+
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.DecisionType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.Obligation;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.Request;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.Response;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.Result;
+
+/**
+ * Test of the root PolicySet loading in streaming mode ('streaming' attribute of the StaticRootPolicyProvider configuration), compared to the default mode
+ *
+ */
+public class StreamingRootPolicyTest
+{
+	/**
+	 * Name of directory that contains test resources (not under 'custom' directory, so not run by {@link CustomPdpTest})
+	 */
+	public final static String TEST_RESOURCES_DIRECTORY_LOCATION = "classpath:StreamingRootPolicy";
+
+	private static final String MULTIPLE_DECISION_REQUEST_PREPROC_ID = "urn:ow2:authzforce:feature:pdp:request-preproc:xacml-xml:multiple:repeated-attribute-categories-lax";
+
+	private static PdpEngineInoutAdapter<Request, Response> newPdp(final String rootPolicyFilename, final boolean streaming) throws IllegalArgumentException, IOException
+	{
+		final Pdp jaxbPdp = new Pdp();
+		final StaticRefPolicyProvider jaxbRefPolicyProvider = new StaticRefPolicyProvider();
+		jaxbRefPolicyProvider.setId("refPolicyProvider");
+		jaxbRefPolicyProvider.getPolicyLocations().add(ResourceUtils.getURL(TEST_RESOURCES_DIRECTORY_LOCATION + "/policy-user2.xml").toString());
+		jaxbPdp.setRefPolicyProvider(jaxbRefPolicyProvider);
+
+		final StaticRootPolicyProvider jaxbRootPolicyProvider = new StaticRootPolicyProvider();
+		jaxbRootPolicyProvider.setId("rootPolicyProvider");
+		jaxbRootPolicyProvider.setPolicyLocation(ResourceUtils.getURL(TEST_RESOURCES_DIRECTORY_LOCATION + "/" + rootPolicyFilename).toString());
+		jaxbRootPolicyProvider.setStreaming(streaming);
+		jaxbPdp.setRootPolicyProvider(jaxbRootPolicyProvider);
+
+		jaxbPdp.getIoProcChains().add(new InOutProcChain(MULTIPLE_DECISION_REQUEST_PREPROC_ID, null));
+		return PdpEngineAdapters.newXacmlJaxbInoutAdapter(new PdpEngineConfiguration(jaxbPdp, new DefaultEnvironmentProperties()));
+	}
+
+	private static List<String> getObligationIds(final Result result)
+	{
+		final List<String> obligationIds = new ArrayList<>();
+		if (result.getObligations() != null)
+		{
+			for (final Obligation obligation : result.getObligations().getObligations())
+			{
+				obligationIds.add(obligation.getObligationId());
+			}
+		}
+
+		return obligationIds;
+	}
+
+	private static Result getResult(final Response response, final String subjectId)
+	{
+		for (final Result result : response.getResults())
+		{
+			if (result.getAttributes().get(0).getAttributes().get(0).getAttributeValues().get(0).getContent().get(0).equals(subjectId))
+			{
+				return result;
+			}
+		}
+
+		fail("No Result for subject '" + subjectId + "'");
+		return null;
+	}
+
+	/**
+	 * Same decisions, obligations/advice (in the same order) and applicable policies in streaming mode as in default mode
+	 */
+	@Test
+	public void testSameResponseAsDefaultMode() throws IllegalArgumentException, IOException, JAXBException
+	{
+		final XmlnsFilteringParser unmarshaller = XacmlJaxbParsingUtils.getXacmlParserFactory(false).getInstance();
+		final Request request = TestUtils.createRequest(TEST_RESOURCES_DIRECTORY_LOCATION + "/request.xml", unmarshaller);
+		final Response defaultModeResponse;
+		try (final PdpEngineInoutAdapter<Request, Response> pdp = newPdp("root-policyset.xml", false))
+		{
+			defaultModeResponse = pdp.evaluate(request, null);
+		}
+
+		final Response streamingModeResponse;
+		try (final PdpEngineInoutAdapter<Request, Response> pdp = newPdp("root-policyset.xml", true))
+		{
+			streamingModeResponse = pdp.evaluate(request, null);
+		}
+
+		TestUtils.assertNormalizedEquals(TEST_RESOURCES_DIRECTORY_LOCATION, defaultModeResponse, streamingModeResponse);
+
+		/*
+		 * Make sure the compared responses are not trivial: obligations from a child Policy, a referenced Policy, a nested PolicySet and the root PolicySet (ObligationExpressions after the
+		 * children)
+		 */
+		assertEquals(5, streamingModeResponse.getResults().size());
+		final Result user1Result = getResult(streamingModeResponse, "user1");
+		assertEquals(DecisionType.PERMIT, user1Result.getDecision());
+		assertEquals(Arrays.asList("obligation-rule-user1", "obligation-policy-user1", "obligation-root"), getObligationIds(user1Result));
+		assertEquals(Arrays.asList("obligation-rule-user2", "obligation-policy-user2", "obligation-root"), getObligationIds(getResult(streamingModeResponse, "user2")));
+		assertEquals(Arrays.asList("obligation-rule-user3", "obligation-policy-user3", "obligation-policyset-user3", "obligation-root"),
+		        getObligationIds(getResult(streamingModeResponse, "user3")));
+		final Result otherUserResult = getResult(streamingModeResponse, "mallory");
+		assertEquals(DecisionType.DENY, otherUserResult.getDecision());
+		assertEquals(2, otherUserResult.getAssociatedAdvice().getAdvices().size());
+	}
+
+	private static void assertInvalid(final String rootPolicyFilename, final boolean streaming, final String expectedMessagePart) throws IOException
+	{
+		try (final PdpEngineInoutAdapter<Request, Response> pdp = newPdp(rootPolicyFilename, streaming))
+		{
+			fail("Invalid root PolicySet " + rootPolicyFilename + " accepted (streaming = " + streaming + ")");
+		}
+		catch (final IllegalArgumentException e)
+		{
+			if (expectedMessagePart == null)
+			{
+				return;
+			}
+
+			Throwable cause = e;
+			while (cause != null)
+			{
+				if (cause.getMessage() != null && cause.getMessage().contains(expectedMessagePart))
+				{
+					return;
+				}
+
+				cause = cause.getCause();
+			}
+
+			throw new AssertionError("Invalid root PolicySet " + rootPolicyFilename + " rejected for the wrong reason (expected: '" + expectedMessagePart + "')", e);
+		}
+	}
+
+	/**
+	 * PolicySet header element (Target) after a child Policy must be rejected in streaming mode like in default mode (XACML schema validation)
+	 */
+	@Test
+	public void testHeaderElementAfterChildRejected() throws IOException
+	{
+		assertInvalid("invalid-header-after-child.xml", false, null);
+		assertInvalid("invalid-header-after-child.xml", true, "unexpected element 'Target' after child #1");
+	}
+
+	/**
+	 * Child Policy after the PolicySet's ObligationExpressions must be rejected in streaming mode like in default mode (XACML schema validation)
+	 */
+	@Test
+	public void testChildAfterObligationExpressionsRejected() throws IOException
+	{
+		assertInvalid("invalid-child-after-obligations.xml", false, null);
+		assertInvalid("invalid-child-after-obligations.xml", true, "unexpected element 'Policy' after child #1");
+	}
+}
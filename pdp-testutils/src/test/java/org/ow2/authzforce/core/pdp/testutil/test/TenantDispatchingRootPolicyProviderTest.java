@@ -0,0 +1,150 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.testutil.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Optional;
+
+import org.junit.Test;
+import org.ow2.authzforce.core.pdp.api.AttributeFqn;
+import org.ow2.authzforce.core.pdp.api.AttributeFqns;
+import org.ow2.authzforce.core.pdp.api.DecisionRequestBuilder;
+import org.ow2.authzforce.core.pdp.api.value.Bags;
+import org.ow2.authzforce.core.pdp.api.value.StandardDatatypes;
+import org.ow2.authzforce.core.pdp.api.value.StringValue;
+import org.ow2.authzforce.core.pdp.impl.BasePdpEngine;
+import org.ow2.authzforce.core.pdp.impl.DefaultEnvironmentProperties;
+import org.ow2.authzforce.core.pdp.impl.PdpEngineConfiguration;
+import org.ow2.authzforce.core.pdp.impl.policy.TenantDispatchingRootPolicyProvider;
+import org.ow2.authzforce.core.xmlns.pdp.Pdp;
+import org.ow2.authzforce.core.xmlns.pdp.TenantRootPolicy;
+import org.ow2.authzforce.xacml.identifiers.XacmlAttributeCategory;
+import org.ow2.authzforce.xacml.identifiers.XacmlAttributeId;
+import org.springframework.util.ResourceUtils;
+
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributeDesignatorType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.DecisionType;
+
+/**
+ * Test of the tenant-dispatching root policy provider: loading, replacing and unloading tenant root policies on a running PDP engine, and decisions before and after each change.
+ */
+public class TenantDispatchingRootPolicyProviderTest
+{
+	/**
+	 * Name of directory that contains test resources (not under 'custom' directory, so not run by {@link CustomPdpTest})
+	 */
+	public final static String TEST_RESOURCES_DIRECTORY_LOCATION = "classpath:TenantDispatchingRootPolicyProvider";
+
+	private static final String SUBJECT_CATEGORY = XacmlAttributeCategory.XACML_1_0_ACCESS_SUBJECT.value();
+
+	private static final String TENANT_ID_ATTRIBUTE_ID = "urn:example:tenant-id";
+
+	private static final AttributeFqn SUBJECT_ID = AttributeFqns.newInstance(SUBJECT_CATEGORY, Optional.empty(), XacmlAttributeId.XACML_1_0_SUBJECT_ID.value());
+
+	private static final AttributeFqn TENANT_ID = AttributeFqns.newInstance(SUBJECT_CATEGORY, Optional.empty(), TENANT_ID_ATTRIBUTE_ID);
+
+	private static URL getPolicyURL(final String policyFilename) throws IOException
+	{
+		return ResourceUtils.getURL(TEST_RESOURCES_DIRECTORY_LOCATION + "/" + policyFilename);
+	}
+
+	/*
+	 * tenantId == null means no tenant ID in the request
+	 */
+	private static DecisionType evaluate(final BasePdpEngine pdp, final String tenantId, final String subjectId)
+	{
+		final DecisionRequestBuilder<?> requestBuilder = pdp.newRequestBuilder(1, 2);
+		requestBuilder.putNamedAttributeIfAbsent(SUBJECT_ID, Bags.singletonAttributeBag(StandardDatatypes.STRING, new StringValue(subjectId)));
+		if (tenantId != null)
+		{
+			requestBuilder.putNamedAttributeIfAbsent(TENANT_ID, Bags.singletonAttributeBag(StandardDatatypes.STRING, new StringValue(tenantId)));
+		}
+
+		return pdp.evaluate(requestBuilder.build(false)).getDecision();
+	}
+
+	@Test
+	public void testLoadReplaceUnloadTenantPolicies() throws IllegalArgumentException, IOException
+	{
+		final org.ow2.authzforce.core.xmlns.pdp.TenantDispatchingRootPolicyProvider jaxbRootPolicyProvider = new org.ow2.authzforce.core.xmlns.pdp.TenantDispatchingRootPolicyProvider();
+		jaxbRootPolicyProvider.setId("rootPolicyProvider");
+		jaxbRootPolicyProvider.setDispatchAttribute(new AttributeDesignatorType(SUBJECT_CATEGORY, TENANT_ID_ATTRIBUTE_ID, StandardDatatypes.STRING.getId(), null, false));
+		jaxbRootPolicyProvider.getTenants().add(new TenantRootPolicy("tenant-a", getPolicyURL("policy-tenant-a.xml").toString()));
+		final Pdp jaxbPdp = new Pdp();
+		jaxbPdp.setRootPolicyProvider(jaxbRootPolicyProvider);
+		final PdpEngineConfiguration pdpEngineConf = new PdpEngineConfiguration(jaxbPdp, new DefaultEnvironmentProperties());
+		final TenantDispatchingRootPolicyProvider rootPolicyProvider = (TenantDispatchingRootPolicyProvider) pdpEngineConf.getRootPolicyProvider();
+
+		try (final BasePdpEngine pdp = new BasePdpEngine(pdpEngineConf))
+		{
+			assertEquals(Collections.singleton("tenant-a"), rootPolicyProvider.getTenantIds());
+			assertEquals(DecisionType.PERMIT, evaluate(pdp, "tenant-a", "alice"));
+			assertEquals(DecisionType.DENY, evaluate(pdp, "tenant-a", "bob"));
+			assertEquals("Unknown tenant", DecisionType.NOT_APPLICABLE, evaluate(pdp, "tenant-b", "alice"));
+			assertEquals("No tenant ID in the request", DecisionType.NOT_APPLICABLE, evaluate(pdp, null, "alice"));
+
+			/*
+			 * Load a new tenant
+			 */
+			assertNull(rootPolicyProvider.loadTenantPolicy("tenant-b", getPolicyURL("policy-tenant-b.xml")));
+			assertEquals(new HashSet<>(Arrays.asList("tenant-a", "tenant-b")), rootPolicyProvider.getTenantIds());
+			assertEquals(DecisionType.DENY, evaluate(pdp, "tenant-b", "alice"));
+			assertEquals("Other tenant unchanged", DecisionType.PERMIT, evaluate(pdp, "tenant-a", "alice"));
+
+			/*
+			 * Replace the policy of an existing tenant
+			 */
+			assertNotNull(rootPolicyProvider.loadTenantPolicy("tenant-a", getPolicyURL("policy-tenant-a-v2.xml")));
+			assertEquals(DecisionType.DENY, evaluate(pdp, "tenant-a", "alice"));
+			assertEquals(DecisionType.PERMIT, evaluate(pdp, "tenant-a", "bob"));
+
+			/*
+			 * An invalid policy is rejected and the tenant's previous policy remains in place
+			 */
+			try
+			{
+				rootPolicyProvider.loadTenantPolicy("tenant-a", getPolicyURL("policy-invalid.xml"));
+				fail("Invalid tenant policy not rejected");
+			}
+			catch (final IllegalArgumentException e)
+			{
+				// expected
+			}
+
+			assertEquals(DecisionType.PERMIT, evaluate(pdp, "tenant-a", "bob"));
+
+			/*
+			 * Unload a tenant: unknown tenant again
+			 */
+			assertNotNull(rootPolicyProvider.unloadTenantPolicy("tenant-b"));
+			assertNull("Tenant already unloaded", rootPolicyProvider.unloadTenantPolicy("tenant-b"));
+			assertEquals(Collections.singleton("tenant-a"), rootPolicyProvider.getTenantIds());
+			assertEquals(DecisionType.NOT_APPLICABLE, evaluate(pdp, "tenant-b", "alice"));
+			assertEquals(DecisionType.PERMIT, evaluate(pdp, "tenant-a", "bob"));
+		}
+	}
+}